@@ -2,6 +2,10 @@
 from numeric import array,zeros,circconv
 import math
 
+from ca.nengo.math.impl import PostfixFunction
+from ca.nengo.model.impl import EnsembleTermination
+from ca.nengo.model.nef.impl import CircularConvolutionFactory, NEFEnsembleImpl
+
 import nef.simplenode
 class DirectConvolution(nef.simplenode.SimpleNode):
     def __init__(self,name,dimensions,invert_first=False,invert_second=False,pstc_gate=0.01,pstc_input=0):
@@ -94,6 +98,20 @@ def output_transform(dimensions):
 
     return ifftm2.T
 
+def add_fourier_termination(ensemble_array,name,transform,pstc):
+    """Add a termination to each ensemble of the array, using consecutive rows
+    of the given FourierTransform, so that the FFT is computed once per step
+    rather than multiplying by a dense matrix in each ensemble."""
+    terminations=[]
+    d=0
+    for n in ensemble_array.nodes:
+        dim=n.getDimension()
+        terminations.append(n.addDecodedTermination(name,transform.getRows(d,d+dim),pstc,False))
+        d+=dim
+    termination=EnsembleTermination(ensemble_array,name,terminations)
+    ensemble_array.exposeTermination(termination,name)
+    return ensemble_array.getTermination(name)
+
 def input_transform(dimensions,first,invert=False):
     fft=array(discrete_fourier_transform(dimensions))
 
@@ -143,11 +161,11 @@ def make_convolution(self,name,A,B,C,N_per_D,quick=False,encoders=[[1,1],[1,-1],
     else:
         D=make_array(self,name,N_per_D,dimensions,quick=quick,encoders=encoders,radius=radius)
 
-        A2=input_transform(dimensions,True,invert_first)
-        B2=input_transform(dimensions,False,invert_second)
-        
-        D.addDecodedTermination('A',A2,pstc_in,False)
-        D.addDecodedTermination('B',B2,pstc_in,False)
+        A2=CircularConvolutionFactory.getInputTransform(dimensions,True,invert_first)
+        B2=CircularConvolutionFactory.getInputTransform(dimensions,False,invert_second)
+
+        add_fourier_termination(D,'A',A2,pstc_in)
+        add_fourier_termination(D,'B',B2,pstc_in)
         
         if A is not None:
             self.connect(A,D.getTermination('A'))
@@ -155,9 +173,14 @@ def make_convolution(self,name,A,B,C,N_per_D,quick=False,encoders=[[1,1],[1,-1],
             self.connect(B,D.getTermination('B'))
 
 
-        ifftm2=output_transform(dimensions)
-        
-        self.connect(D,C,func=product,transform=ifftm2*output_scale,pstc=pstc_out)
+        if isinstance(C,NEFEnsembleImpl):
+            # apply the inverse transform with an FFT rather than a dense matrix
+            origin=D.addDecodedOrigin('product',[PostfixFunction('x0*x1',2)],'AXON')
+            ifft=CircularConvolutionFactory.getOutputTransform(dimensions).scale(output_scale)
+            self.network.addProjection(origin,C.addDecodedTermination(name,ifft,pstc_out,False))
+        else:
+            ifftm2=output_transform(dimensions)
+            self.connect(D,C,func=product,transform=ifftm2*output_scale,pstc=pstc_out)
         
     return D
 
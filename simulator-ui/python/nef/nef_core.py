@@ -1,11 +1,11 @@
 from ca.nengo.model.impl import NetworkImpl, NoiseFactory, FunctionInput
 from ca.nengo.model import SimulationMode, Origin, Units, Termination, Network
-from ca.nengo.model.nef.impl import NEFEnsembleFactoryImpl
+from ca.nengo.model.nef.impl import NEFEnsembleFactoryImpl, EnsembleBuildService
 from ca.nengo.model.nef import NEFEnsemble
 from ca.nengo.model.neuron.impl import LIFNeuronFactory
 from ca.nengo.model.plasticity.impl import PESTermination, PreLearnTermination, STDPTermination, PlasticEnsembleImpl
 from ca.nengo.util import MU
-from ca.nengo.math.impl import IndicatorPDF,ConstantFunction,PiecewiseConstantFunction,GradientDescentApproximator,FourierFunction
+from ca.nengo.math.impl import IndicatorPDF,ConstantFunction,PiecewiseConstantFunction,GradientDescentApproximator,FourierFunction,ApproximatorCache
 from ca.nengo.math import Function,PDFTools
 from ca.nengo.model import StructuralException
 from ca.nengo.io import FileManager
@@ -20,6 +20,19 @@ import random
 import inspect
 import log
     
+def _digest(values):
+    """A short, collision-resistant name for a tuple of parameter values (unlike hash(), which
+    may differ between Jython versions and collides easily)."""
+    return ApproximatorCache.digest(repr(values))[:16]
+
+class _PendingEnsemble:
+    """An ensemble that is being built by an EnsembleBuildService."""
+    def __init__(self,future,finish):
+        self.future=future
+        self.finish=finish
+    def get(self):
+        """Waits for the ensemble to be built, and returns it."""
+        return self.finish(EnsembleBuildService.get(self.future))
 
 class Network:
     """Wraps a Nengo network with a set of helper functions for simplifying the creation of Nengo models.
@@ -81,7 +94,7 @@ class Network:
                   node_factory=None,
                   decoder_sign=None,
                   seed=None,
-                  quick=None,storage_code=''):
+                  quick=None,storage_code='',build_service=None):
         """Create and return an ensemble of neurons.
 
         :param string name:          name of the ensemble (must be unique)
@@ -118,6 +131,9 @@ class Network:
         :param string storage_code:  an extra parameter to allow different quick files even if all other parameters
                                      are the same
         :param boolean add_to_network: flag to indicate if created ensemble should be added to the network
+        :param ca.nengo.model.nef.impl.EnsembleBuildService build_service: if not None, the ensemble is
+                                     built by this service, and an object is returned whose get() method
+                                     waits for the ensemble and returns it
         :returns: the newly created ensemble                             
         """
         if neurons==0:
@@ -139,21 +155,21 @@ class Network:
             if type(max_rate) is tuple and len(max_rate)==2:
                 storage_name+='_%1.1f_%1.1f'%max_rate
             else:
-                storage_name+='_%08x'%hash(tuple(max_rate))
+                storage_name+='_%s'%_digest(tuple(max_rate))
             if type(intercept) is tuple and len(intercept)==2:
                 storage_name+='_%1.3f_%1.3f'%intercept
             else:
-                storage_name+='_%08x'%hash(tuple(intercept))
+                storage_name+='_%s'%_digest(tuple(intercept))
             if isinstance(radius,list):
                 storage_name+='_(%s)_%1.3f'%(''.join(['%1.3f'%x for x in radius]),decoder_noise)
             else:
                 storage_name+='_%1.3f_%1.3f'%(radius,decoder_noise)
             if encoders is not None:
-                storage_name+='_enc%08x'%hash(tuple([tuple(x) for x in encoders]))
+                storage_name+='_enc%s'%_digest(tuple([tuple(x) for x in encoders]))
             if decoder_sign is not None:
                 storage_name+='_sign%d'%decoder_sign
             if eval_points is not None:
-                storage_name+='_eval%08x'%hash(tuple([tuple(x) for x in eval_points]))
+                storage_name+='_eval%s'%_digest(tuple([tuple(x) for x in eval_points]))
             if node_factory is not None:
                 storage_name+='_node%s'%node_factory.__class__.__name__                
             if seed is not None:
@@ -162,6 +178,9 @@ class Network:
                 dir=java.io.File('quick')
                 if not dir.exists(): dir.mkdirs()
                 storage_name='quick'+java.io.File.separator+storage_name
+            if ApproximatorCache.getDefault() is None:
+                # decoders of ensembles that aren't in the quick files are cached by content
+                ApproximatorCache.setDefault(ApproximatorCache(java.io.File('quick','cache'),ApproximatorCache.DEFAULT_MAX_BYTES))
         else:
             storage_name=''
         ef=NEFEnsembleFactoryImpl()
@@ -196,17 +215,23 @@ class Network:
         else:
             r=[radius]*dimensions
 
-        n=ef.make(name,neurons,r,storage_name,False)
-        if noise is not None:
-            for nn in n.nodes:
-                nn.noise=NoiseFactory.makeRandomNoise(noise_frequency,IndicatorPDF(-noise,noise))
+        def finish(n):
+            if noise is not None:
+                for nn in n.nodes:
+                    nn.noise=NoiseFactory.makeRandomNoise(noise_frequency,IndicatorPDF(-noise,noise))
+
+            if mode=='rate' or mode==SimulationMode.RATE:
+                n.mode=SimulationMode.RATE
+            elif mode=='direct' or mode==SimulationMode.DIRECT:
+                n.mode=SimulationMode.DIRECT
+            if add_to_network: self.network.addNode(n)
+            return n
 
-        if mode=='rate' or mode==SimulationMode.RATE:
-            n.mode=SimulationMode.RATE
-        elif mode=='direct' or mode==SimulationMode.DIRECT:
-            n.mode=SimulationMode.DIRECT
-        if add_to_network: self.network.addNode(n)
-        return n
+        if build_service is not None:
+            if seed is not None: seed=java.lang.Long(seed)
+            spec=EnsembleBuildService.Spec(ef,name,neurons,r,storage_name,seed)
+            return _PendingEnsemble(build_service.submit(spec),finish)
+        return finish(ef.make(name,neurons,r,storage_name,False))
 
     def make_array(self,name,neurons,length,dimensions=1,**args):
         """Create and return an array of ensembles.  This acts like a high-dimensional ensemble,
@@ -246,17 +271,23 @@ class Network:
         :param integer neurons:       number of neurons in each ensemble
         :param integer length:        number of ensembles in the array
         :param integer dimensions:    number of dimensions each ensemble represents       
+        :param boolean parallel:      if True (the default), the ensembles are built concurrently by
+                                      the default :class:`ca.nengo.model.nef.impl.EnsembleBuildService`
         :returns: the newly created :class:`nef.array.NetworkArray`
         """
         nodes=[]
         storage_code=args.get('storage_code','')
         encoders=args.get('encoders',None)
+        service=None
+        if args.pop('parallel',True): service=EnsembleBuildService.getDefault()
         for i in range(length):
             if '%' in storage_code: args['storage_code']=storage_code%i
             if encoders is not None and isinstance(encoders[0][0],(tuple,list)):
                 args['encoders']=encoders[i%len(encoders)]
-            n=self.make('%d'%i,neurons,dimensions,add_to_network=False,**args)
+            n=self.make('%d'%i,neurons,dimensions,add_to_network=False,build_service=service,**args)
             nodes.append(n)
+        if service is not None:
+            nodes=[n.get() for n in nodes]
         ensemble=array.NetworkArray(name,nodes)
         self.network.addNode(ensemble)
         ensemble.mode=ensemble.nodes[0].mode
@@ -57,6 +57,8 @@ import javax.swing.tree.TreeSelectionModel;
 
 import ca.nengo.io.DelimitedFileExporter;
 import ca.nengo.io.MatlabExporter;
+import ca.nengo.io.ResultsFileReader;
+import ca.nengo.io.ResultsFileWriter;
 import ca.nengo.model.Network;
 import ca.nengo.ui.actions.ConfigureAction;
 import ca.nengo.ui.lib.Style.NengoStyle;
@@ -91,6 +93,11 @@ public class DataListView extends JPanel implements TreeSelectionListener {
      */
     public static final String MATLAB_FILE_EXTENSION = "mat";
 
+    /**
+     * Extension of results files (see ResultsFileWriter)
+     */
+    public static final String RESULTS_FILE_EXTENSION = "nres";
+
     private SimulatorDataModel dataModel;
     private JTree tree;
 
@@ -157,6 +164,29 @@ public class DataListView extends JPanel implements TreeSelectionListener {
         }
     }
 
+    /**
+     * @param file A results file written by ResultsFileWriter
+     * @throws IOException if the file can't be read
+     */
+    public void openResultsFile(File file) throws IOException {
+        ResultsFileReader reader = new ResultsFileReader(file);
+        final SortableMutableTreeNode newNode;
+        try {
+            newNode = dataModel.loadResults(file.getName(), reader);
+        } finally {
+            reader.close();
+        }
+
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                TreePath path = new TreePath(newNode.getPath());
+                tree.scrollPathToVisible(path);
+                tree.setSelectionPath(path);
+                tree.expandPath(path);
+            }
+        });
+    }
+
     @SuppressWarnings("unchecked")
     private class MyTreeMouseListener implements MouseListener {
 
@@ -191,6 +221,7 @@ public class DataListView extends JPanel implements TreeSelectionListener {
 
                     menuBuilder.addAction(new ExportDelimitedFileAction(DataListView.this, leafNode));
                     menuBuilder.addAction(new ExportMatlabAction(DataListView.this, leafNode));
+                    menuBuilder.addAction(new ExportResultsAction(DataListView.this, leafNode));
 
 
                     if (leafNode instanceof NengoTreeNode) {
@@ -231,6 +262,7 @@ public class DataListView extends JPanel implements TreeSelectionListener {
             }
 
             menuBuilder.addAction(new RemoveTreeNodes(removeNodes));
+            menuBuilder.addAction(new OpenResultsFileAction());
             menu = menuBuilder.toJPopupMenu();
 
             if (menu != null) {
@@ -429,6 +461,30 @@ public class DataListView extends JPanel implements TreeSelectionListener {
         }
     }
 
+    private class OpenResultsFileAction extends StandardAction {
+
+        private static final long serialVersionUID = 1L;
+
+        public OpenResultsFileAction() {
+            super("Open results file");
+        }
+
+        @Override
+        protected void action() throws ActionException {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setFileFilter(new ExtensionFileFilter("Results File",
+                    RESULTS_FILE_EXTENSION));
+
+            if (chooser.showOpenDialog(DataListView.this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    openResultsFile(chooser.getSelectedFile());
+                } catch (IOException e) {
+                    throw new ActionException("Error reading file: " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
     private static class UndoInfo {
         int nodeIndex;
         TreeNode nodeParent;
@@ -765,6 +821,66 @@ class ExportMatlabAction extends ExportAction {
     }
 }
 
+class ExportResultsAction extends ExportAction {
+    private static final ExtensionFileFilter RESULTS_FILE_FILTER = new ExtensionFileFilter(
+            "Results File", DataListView.RESULTS_FILE_EXTENSION);
+    private static final long serialVersionUID = 1L;
+
+    public ExportResultsAction(Component parent, MutableTreeNode nodeToExport) {
+        super(parent, nodeToExport, "Export (Results file) to file");
+    }
+
+    @Override
+    protected void action() throws ActionException {
+        ArrayList<DataPath> dataPaths = new ArrayList<DataPath>();
+        findDataItemsRecursive(getRootNode(), new ArrayList<String>(), dataPaths);
+
+        if (dataPaths.size() == 0) {
+            throw new ActionException("Nothing to export");
+        }
+
+        File file = getUserSelectedFile(RESULTS_FILE_FILTER);
+        HashSet<String> names = new HashSet<String>();
+        try {
+            ResultsFileWriter writer = new ResultsFileWriter(file);
+            try {
+                for (DataPath dataPath : dataPaths) {
+                    StringBuilder path = new StringBuilder(200);
+                    for (String nodeName : dataPath.getPath()) {
+                        if (path.length() > 0) {
+                            path.append(".");
+                        }
+                        path.append(nodeName);
+                    }
+
+                    String name = (path.length() > 0) ? path.toString() : getRootNode().toString();
+                    String uniqueName = name;
+                    for (int i = 1; !names.add(uniqueName); i++) {
+                        uniqueName = name + " (" + i + ")";
+                    }
+
+                    addNode(writer, dataPath.getDataNode(), uniqueName);
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new ActionException("Error writing file: " + e.getMessage(), e);
+        }
+    }
+
+    protected void addNode(ResultsFileWriter writer, DataTreeNode node, String name) throws ActionException, IOException {
+        if (node instanceof SpikePatternNode) {
+            writer.addSpikePattern(name, ((SpikePatternNode) node).getUserObject());
+        } else if (node instanceof TimeSeriesNode) {
+            writer.addTimeSeries(name, ((TimeSeriesNode) node).getUserObject());
+        } else {
+            throw new ActionException("Could not export node type: "
+                    + node.getClass().getSimpleName());
+        }
+    }
+}
+
 class ExtensionFileFilter extends FileExtensionFilter {
 
     private String description;
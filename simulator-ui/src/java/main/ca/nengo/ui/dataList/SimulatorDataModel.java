@@ -24,6 +24,7 @@ a recipient may use your version of this file under either the MPL or the GPL Li
 
 package ca.nengo.ui.dataList;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Enumeration;
@@ -35,6 +36,8 @@ import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.MutableTreeNode;
 
+import ca.nengo.io.ResultsFileReader;
+import ca.nengo.io.ResultsFileWriter;
 import ca.nengo.model.Ensemble;
 import ca.nengo.model.Network;
 import ca.nengo.model.Node;
@@ -44,6 +47,7 @@ import ca.nengo.ui.lib.util.Util;
 import ca.nengo.util.Probe;
 import ca.nengo.util.SpikePattern;
 import ca.nengo.util.TimeSeries;
+import ca.nengo.util.impl.CompressedTimeSeries;
 
 /**
  * TODO
@@ -144,6 +148,8 @@ public class SimulatorDataModel extends DefaultTreeModel {
 
     private Hashtable<Integer, DefaultMutableTreeNode> topLevelNetworks = new Hashtable<Integer, DefaultMutableTreeNode>();
 
+    private boolean compressProbeData = false;
+
     /**
      * TODO
      */
@@ -250,9 +256,10 @@ public class SimulatorDataModel extends DefaultTreeModel {
             SortableMutableTreeNode targetNode = createSortableNode(top0, (Node) target);
 
             /*
-             * Make a clone of the data
+             * Make a clone of the data (compressed copies of smooth signals take about half the memory)
              */
-            TimeSeries probeData = (TimeSeries) Util.cloneSerializable(probe.getData());
+            TimeSeries probeData = compressProbeData ? CompressedTimeSeries.compress(probe.getData())
+                    : (TimeSeries) Util.cloneSerializable(probe.getData());
 
             DefaultMutableTreeNode stateNode = new ProbeDataNode(probeData,
                     probe.getStateName(), plotterStrategy.isApplyTauFilterByDefault(probe));
@@ -270,6 +277,23 @@ public class SimulatorDataModel extends DefaultTreeModel {
         }
     }
 
+    /**
+     * @return True if captured probe data are stored in compressed form
+     */
+    public boolean isCompressProbeData() {
+        return compressProbeData;
+    }
+
+    /**
+     * @param compress If true, probe data are stored in compressed form when they are captured
+     *        (default false). This is lossless, and data are decompressed as they are plotted or
+     *        exported. Smooth signals (e.g. filtered decoded values) take about half the memory,
+     *        but noisy ones save little.
+     */
+    public void setCompressProbeData(boolean compress) {
+        compressProbeData = compress;
+    }
+
     /**
      * Captures the current data from a network and copies it to this simulator
      * data tree
@@ -329,6 +353,44 @@ public class SimulatorDataModel extends DefaultTreeModel {
         return captureNode;
     }
 
+    /**
+     * Adds the time series and spike patterns in a results file to the tree, under a new
+     * top-level node. Matrices in the file are not shown.
+     * 
+     * @param name Name of the new node
+     * @param reader Reader of a results file
+     * @return The new node
+     * @throws IOException if the file can't be read
+     */
+    public SortableMutableTreeNode loadResults(String name, ResultsFileReader reader) throws IOException {
+        String uniqueName = name;
+        int i = 1;
+        while (nameLUT.contains(uniqueName)) {
+            uniqueName = String.format("%s (%d)", name, i++);
+        }
+        nameLUT.add(uniqueName);
+
+        SortableMutableTreeNode resultsNode = new SortableMutableTreeNode(uniqueName);
+        for (String entryName : reader.getNames()) {
+            int kind = reader.getKind(entryName);
+            if (kind == ResultsFileWriter.TIME_SERIES) {
+                resultsNode.add(new ProbeDataNode(reader.readTimeSeries(entryName), entryName, true));
+            } else if (kind == ResultsFileWriter.SPIKE_PATTERN) {
+                SortableMutableTreeNode entryNode = new SortableMutableTreeNode(entryName);
+                entryNode.add(new SpikePatternNode(reader.readSpikePattern(entryName)));
+                resultsNode.add(entryNode);
+            }
+        }
+        sortTree(resultsNode);
+
+        if (resultsNode.getChildCount() == 0) {
+            resultsNode.add(new DefaultMutableTreeNode("no data in file"));
+        }
+
+        this.insertNodeInto(resultsNode, ((MutableTreeNode) getRoot()), 0);
+        return resultsNode;
+    }
+
     ArrayList<String> parseEnsembleName(String name)
     {
         ArrayList<String> result = new ArrayList<String>();
@@ -49,6 +49,7 @@ import ca.nengo.model.StructuralException;
 import ca.nengo.model.impl.NodeFactory;
 import ca.nengo.model.nef.NEFEnsemble;
 import ca.nengo.model.nef.NEFEnsembleFactory;
+import ca.nengo.model.nef.impl.EnsembleBuildService;
 import ca.nengo.model.nef.impl.NEFEnsembleFactoryImpl;
 import ca.nengo.ui.configurable.ConfigException;
 import ca.nengo.ui.configurable.ConfigResult;
@@ -142,15 +143,12 @@ public class CNEFEnsemble extends ConstructableNode {
 				ef.setEncoderFactory(vectorGen);
 			}
 
-			if (radius==null) {
-				NEFEnsemble ensemble = ef.make(name, numOfNeurons, dimensions);
-				return ensemble;
-			} else {
-				float[] radii=new float[dimensions];
-				for (int i=0; i<dimensions; i++) radii[i]=radius.floatValue();
-				NEFEnsemble ensemble = ef.make(name, numOfNeurons, radii);
-				return ensemble;
-			}
+			// built through the shared service, so that it counts against the global memory budget
+			float[] radii=new float[dimensions];
+			for (int i=0; i<dimensions; i++) radii[i]=(radius==null) ? 1f : radius.floatValue();
+			NEFEnsemble ensemble = EnsembleBuildService.getDefault().make(
+					new EnsembleBuildService.Spec(ef, name, numOfNeurons, radii));
+			return ensemble;
 		} catch (StructuralException e) {
 			e.printStackTrace();
 		}
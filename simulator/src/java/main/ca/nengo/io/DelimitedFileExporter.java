@@ -27,28 +27,49 @@ a recipient may use your version of this file under either the MPL or the GPL Li
  */
 package ca.nengo.io;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.StringTokenizer;
 
+import ca.nengo.math.impl.ParallelBlocks;
 import ca.nengo.plot.Plotter;
-import ca.nengo.util.MU;
 import ca.nengo.util.SpikePattern;
 import ca.nengo.util.TimeSeries;
 
 /**
- * Exports TimeSeries, SpikePattern, and float[][] data to delimited text files.
+ * <p>Exports TimeSeries, SpikePattern, and float[][] data to delimited text files.</p>
+ *
+ * <p>Rows are formatted in parallel, in chunks of about CHUNK_SIZE characters, into reused
+ * buffers that are written in order through a FileChannel, so that large exports aren't
+ * limited by formatting on one thread or held in memory. Values are formatted as by
+ * String.valueOf(float). Files are imported with a parser that reads bytes directly, and
+ * only makes Strings for unusual numbers.</p>
  *
  * @author Bryan Tripp
  */
 public class DelimitedFileExporter {
 
+	/**
+	 * Approximate number of characters formatted together by one thread
+	 */
+	public static final int CHUNK_SIZE = 1 << 18;
+
+	private static final int MAX_FLOAT_CHARS = 15; //e.g. -1.17549435E-38
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final double[] POWERS_OF_TEN = new double[23]; //exactly representable
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1] * 10;
+		}
+	}
+
 	private String myColumnDelim;
 	private String myRowDelim;
 
@@ -77,12 +98,15 @@ public class DelimitedFileExporter {
 	 * @throws IOException if there's a problem writing to disk
 	 */
 	public void export(TimeSeries series, File file) throws IOException {
-		float[][] values = MU.transpose(series.getValues());
-		float[][] timesAndValues = new float[values.length + 1][];
-		timesAndValues[0] = series.getTimes();
-		System.arraycopy(values, 0, timesAndValues, 1, values.length);
+		final float[] times = series.getTimes();
+		final float[][] values = series.getValues();
 
-		export(MU.transpose(timesAndValues), file);
+		export(times.length, 1 + series.getDimension(), new RowFormatter() {
+			public void format(int row, StringBuilder builder) {
+				builder.append(times[row]);
+				appendRow(values[row], builder, true);
+			}
+		}, file);
 	}
 
 	/**
@@ -95,14 +119,7 @@ public class DelimitedFileExporter {
 	 * @throws IOException if there's a problem writing to disk
 	 */
 	public void export(TimeSeries series, File file, float tau) throws IOException {
-		TimeSeries filtered = Plotter.filter(series, tau);
-
-		float[][] values = MU.transpose(filtered.getValues());
-		float[][] timesAndValues = new float[values.length + 1][];
-		timesAndValues[0] = filtered.getTimes();
-		System.arraycopy(values, 0, timesAndValues, 1, values.length);
-
-		export(MU.transpose(timesAndValues), file);
+		export(Plotter.filter(series, tau), file);
 	}
 
 	/**
@@ -128,21 +145,99 @@ public class DelimitedFileExporter {
 	 * @param file File to which to export the matrix
 	 * @throws IOException if there's a problem writing to disk
 	 */
-	public void export(float[][] matrix, File file) throws IOException {
-		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
-
-		for (float[] element : matrix) {
-			for (int j = 0; j < element.length; j++) {
-				writer.write(String.valueOf(element[j]));
-				if (j < element.length - 1) {
-                    writer.write(myColumnDelim);
-                }
+	public void export(final float[][] matrix, File file) throws IOException {
+		int maxLength = 0;
+		for (float[] row : matrix) {
+			maxLength = Math.max(maxLength, row.length);
+		}
+
+		export(matrix.length, maxLength, new RowFormatter() {
+			public void format(int row, StringBuilder builder) {
+				appendRow(matrix[row], builder, false);
+			}
+		}, file);
+	}
+
+	private void appendRow(float[] row, StringBuilder builder, boolean delimitFirst) {
+		for (int j = 0; j < row.length; j++) {
+			if (delimitFirst || j > 0) {
+				builder.append(myColumnDelim);
 			}
-			writer.write(myRowDelim);
+			builder.append(row[j]);
+		}
+	}
+
+	/**
+	 * Formats one row of an export (without the row delimiter).
+	 */
+	private interface RowFormatter {
+		public void format(int row, StringBuilder builder);
+	}
+
+	//formats batches of chunks of rows in parallel, and writes each batch in order
+	private void export(final int nRows, int maxRowLength, final RowFormatter formatter, File file) throws IOException {
+		int rowChars = maxRowLength * (MAX_FLOAT_CHARS + myColumnDelim.length()) + myRowDelim.length();
+		final int rowsPerChunk = Math.max(1, CHUNK_SIZE / Math.max(1, rowChars));
+		final int nChunks = ParallelBlocks.getNumBlocks(nRows, rowsPerChunk);
+		final int batchSize = Math.min(nChunks, 4 * Runtime.getRuntime().availableProcessors());
+
+		final StringBuilder[] builders = new StringBuilder[batchSize];
+		final ByteBuffer[] buffers = new ByteBuffer[batchSize];
+		for (int i = 0; i < batchSize; i++) {
+			builders[i] = new StringBuilder(CHUNK_SIZE);
 		}
 
-		writer.flush();
-		writer.close();
+		FileChannel channel = new FileOutputStream(file).getChannel();
+		try {
+			for (int batch = 0; batch < nChunks; batch += batchSize) {
+				final int first = batch;
+				final int n = Math.min(batchSize, nChunks - batch);
+				ParallelBlocks.run(n, new ParallelBlocks.Body() {
+					public void run(int block) {
+						StringBuilder builder = builders[block];
+						builder.setLength(0);
+						int start = (first + block) * rowsPerChunk;
+						for (int row = start; row < Math.min(nRows, start + rowsPerChunk); row++) {
+							formatter.format(row, builder);
+							builder.append(myRowDelim);
+						}
+						buffers[block] = encode(builder, buffers[block]);
+					}
+				});
+
+				for (int i = 0; i < n; i++) {
+					while (buffers[i].hasRemaining()) {
+						channel.write(buffers[i]);
+					}
+				}
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	//copies characters into a (possibly new) direct buffer, as bytes if they are all ASCII
+	private static ByteBuffer encode(StringBuilder builder, ByteBuffer buffer) {
+		int length = builder.length();
+		for (int i = 0; i < length; i++) {
+			if (builder.charAt(i) > 127) { //e.g. a non-ASCII delimiter
+				byte[] bytes = builder.toString().getBytes();
+				ByteBuffer result = (buffer == null || buffer.capacity() < bytes.length)
+						? ByteBuffer.allocateDirect(bytes.length) : buffer;
+				result.clear();
+				result.put(bytes);
+				result.flip();
+				return result;
+			}
+		}
+
+		ByteBuffer result = (buffer == null || buffer.capacity() < length) ? ByteBuffer.allocateDirect(length) : buffer;
+		result.clear();
+		for (int i = 0; i < length; i++) {
+			result.put((byte) builder.charAt(i));
+		}
+		result.flip();
+		return result;
 	}
 
 	/**
@@ -155,20 +250,173 @@ public class DelimitedFileExporter {
 	 * @throws IOException if there's a problem writing to disk
 	 */
 	public float[][] importAsMatrix(File file) throws IOException {
-		BufferedReader reader = new BufferedReader(new FileReader(file));
-
 		List<float[]> rows = new ArrayList<float[]>(100);
-		for (String line; (line = reader.readLine()) != null; ) {
-			StringTokenizer tok = new StringTokenizer(line, ",;: \t", false);
-			float[] row = new float[tok.countTokens()];
-			for (int i = 0; i < row.length; i++) {
-				row[i] = Float.parseFloat(tok.nextToken());
+		float[] row = new float[16];
+		int rowLength = 0;
+		byte[] token = new byte[32];
+		int tokenLength = 0;
+		boolean inLine = false;
+		boolean afterCR = false;
+
+		FileChannel channel = new FileInputStream(file).getChannel();
+		try {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					byte b = buffer.get();
+					boolean newLine = (b == '\n' || b == '\r');
+					if (newLine || b == ',' || b == ';' || b == ':' || b == ' ' || b == '\t') {
+						if (tokenLength > 0) {
+							if (rowLength == row.length) {
+								row = grow(row);
+							}
+							row[rowLength++] = parseFloat(token, tokenLength);
+							tokenLength = 0;
+						}
+						if (newLine) {
+							if (inLine || !(afterCR && b == '\n')) {
+								float[] completed = new float[rowLength];
+								System.arraycopy(row, 0, completed, 0, rowLength);
+								rows.add(completed);
+								rowLength = 0;
+							}
+							inLine = false;
+							afterCR = (b == '\r');
+							continue;
+						}
+					} else {
+						if (tokenLength == token.length) {
+							byte[] longer = new byte[token.length * 2];
+							System.arraycopy(token, 0, longer, 0, tokenLength);
+							token = longer;
+						}
+						token[tokenLength++] = b;
+					}
+					inLine = true;
+					afterCR = false;
+				}
+				buffer.clear();
+			}
+		} finally {
+			channel.close();
+		}
+
+		if (tokenLength > 0) {
+			if (rowLength == row.length) {
+				row = grow(row);
 			}
-			rows.add(row);
+			row[rowLength++] = parseFloat(token, tokenLength);
+		}
+		if (inLine) {
+			float[] completed = new float[rowLength];
+			System.arraycopy(row, 0, completed, 0, rowLength);
+			rows.add(completed);
 		}
 
 		return rows.toArray(new float[0][]);
 	}
 
+	private static float[] grow(float[] row) {
+		float[] result = new float[row.length * 2];
+		System.arraycopy(row, 0, result, 0, row.length);
+		return result;
+	}
+
+	/**
+	 * Parses a decimal number, with the same result as Float.parseFloat(). Common numbers (with up
+	 * to 18 significant digits and small exponents) are parsed without making a String.
+	 *
+	 * @param chars ASCII characters of the number
+	 * @param length Number of characters
+	 * @return The number
+	 * @throws NumberFormatException if the characters aren't a number
+	 */
+	static float parseFloat(byte[] chars, int length) {
+		int i = 0;
+		boolean negative = false;
+		if (i < length && (chars[i] == '-' || chars[i] == '+')) {
+			negative = (chars[i] == '-');
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0; //significant digits in mantissa
+		int exponent = 0;
+		boolean anyDigits = false;
+		boolean point = false;
+		for (; i < length; i++) {
+			byte c = chars[i];
+			if (c >= '0' && c <= '9') {
+				anyDigits = true;
+				if (mantissa == 0 && c == '0') {
+					if (point) {
+						exponent--;
+					}
+				} else if (digits < 18) {
+					mantissa = mantissa * 10 + (c - '0');
+					digits++;
+					if (point) {
+						exponent--;
+					}
+				} else {
+					return parseSlowly(chars, length);
+				}
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+
+		if (i < length && (chars[i] == 'e' || chars[i] == 'E') && anyDigits) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < length && (chars[i] == '-' || chars[i] == '+')) {
+				negativeExponent = (chars[i] == '-');
+				i++;
+			}
+			int e = 0;
+			int start = i;
+			for (; i < length && chars[i] >= '0' && chars[i] <= '9' && e < 10000; i++) {
+				e = e * 10 + (chars[i] - '0');
+			}
+			if (i == start) {
+				return parseSlowly(chars, length);
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+
+		if (i < length || !anyDigits) {
+			return parseSlowly(chars, length); //e.g. NaN, Infinity, hexadecimal, or a bad number
+		}
+
+		float result;
+		if (mantissa == 0) {
+			result = 0f;
+		} else if (mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+			//correctly rounded double, which rounds to the right float unless it is halfway between floats
+			double value = (exponent < 0) ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+			result = (float) value;
+			if ((double) result != value) {
+				float other = (value > result) ? Math.nextUp(result) : -Math.nextUp(-result);
+				if (((double) result + (double) other) / 2 == value) {
+					return parseSlowly(chars, length);
+				}
+			}
+		} else {
+			return parseSlowly(chars, length);
+		}
+
+		return negative ? -result : result;
+	}
+
+	private static float parseSlowly(byte[] chars, int length) {
+		char[] text = new char[length];
+		for (int i = 0; i < length; i++) {
+			text[i] = (char) (chars[i] & 0xFF);
+		}
+		return Float.parseFloat(new String(text));
+	}
 
 }
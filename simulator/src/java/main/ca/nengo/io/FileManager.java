@@ -33,22 +33,31 @@ a recipient may use your version of this file under either the MPL or the GPL Li
  */
 package ca.nengo.io;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 import ca.nengo.model.Node;
 import ca.nengo.util.TimeSeries;
 
 /**
- * Handles saving and loading of Node
+ * <p>Handles saving and loading of Node.</p>
+ *
+ * <p>Objects are saved in the binary format of ModelFileWriter, in which numeric arrays are
+ * stored in bulk apart from the rest of the object graph. Files saved in the older format
+ * (a plain serialized object) can still be loaded, and can be converted with convert(). The rest
+ * of the graph (including each Node) is still serialized, with no schema of its own, so
+ * incompatible changes to model classes break saved files as before. The format speeds up saving
+ * and loading; it doesn't make saved models independent of the classes that saved them.</p>
+ *
+ * <p>Files are written under a temporary name and then renamed, so that a file that is being
+ * saved is never seen half-written (e.g. by another thread loading the same ensemble).</p>
  *
- * TODO: a better job (this is a quick one)
  * TODO: is there any metadata to store?
- * TODO: test
  *
  * @author Bryan Tripp
  */
@@ -97,12 +106,22 @@ public class FileManager {
 	}
 
 	private static void saveObject(Object object, File destination) throws IOException {
-		FileOutputStream fos = new FileOutputStream(destination);
-		ObjectOutputStream oos = new ObjectOutputStream(fos);
-		oos.writeObject(object);
-		oos.flush();
-		oos.close();
-		fos.close();
+		File temp = File.createTempFile(destination.getName(), ".tmp", destination.getAbsoluteFile().getParentFile());
+		try {
+			ModelFileWriter writer = new ModelFileWriter(temp);
+			try {
+				writer.write(object);
+			} finally {
+				writer.close();
+			}
+			try {
+				Files.move(temp.toPath(), destination.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				Files.move(temp.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			temp.delete(); //if it wasn't moved
+		}
 	}
 
 	/**
@@ -113,15 +132,33 @@ public class FileManager {
 	 *   not known in this context
 	 */
 	public Object load(File source) throws IOException, ClassNotFoundException {
-		FileInputStream fis = new FileInputStream(source);
-
-		ObjectInputStream ois = new ObjectInputStream(fis);
-		Object return_obj = ois.readObject();
-
-		ois.close();
-		fis.close();
+		if (ModelFileReader.isModelFile(source)) {
+			ModelFileReader reader = new ModelFileReader(source);
+			try {
+				return reader.read();
+			} finally {
+				reader.close();
+			}
+		}
+
+		ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(source), 1 << 16));
+		try {
+			return ois.readObject();
+		} finally {
+			ois.close();
+		}
+	}
 
-		return return_obj;
+	/**
+	 * Converts a file to the current format (e.g. a file saved in the older, plain serialized format).
+	 *
+	 * @param source File to convert
+	 * @param destination File to save the converted object in (may be the same as source)
+	 * @throws IOException if there's a problem reading or writing to disk
+	 * @throws ClassNotFoundException if the file contains classes not known in this context
+	 */
+	public void convert(File source, File destination) throws IOException, ClassNotFoundException {
+		saveObject(load(source), destination);
 	}
 
 }
@@ -26,7 +26,7 @@ package ca.nengo.io;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import ca.nengo.plot.Plotter;
@@ -34,10 +34,6 @@ import ca.nengo.util.MU;
 import ca.nengo.util.SpikePattern;
 import ca.nengo.util.TimeSeries;
 
-import com.jmatio.io.MatFileWriter;
-import com.jmatio.types.MLArray;
-import com.jmatio.types.MLDouble;
-
 /**
  * <p>A tool for exporting data to Matlab .mat files. Use like this:</p>
  *
@@ -49,17 +45,30 @@ import com.jmatio.types.MLDouble;
  * me.write(new File("c:\\foo.mat"));<br>
  * </code></p>
  *
+ * <p>Data aren't copied when they are added, but are streamed to the file by a MatlabStreamWriter
+ * when write() is called (so they shouldn't be changed in the meantime).</p>
+ *
  * @author Bryan Tripp
  */
 public class MatlabExporter {
 
-	private Map<String, MLArray> myData;
+	private Map<String, Object> myData;
+	private boolean mySingle;
 
 	/**
 	 * Export data to Matlab .mat files
 	 */
 	public MatlabExporter() {
-		myData = new HashMap<String, MLArray>(10);
+		this(false);
+	}
+
+	/**
+	 * @param single If true, values are stored in single precision (Matlab class single), which
+	 * 		takes half the space of double
+	 */
+	public MatlabExporter(boolean single) {
+		myData = new LinkedHashMap<String, Object>(10);
+		mySingle = single;
 	}
 
 	/**
@@ -67,8 +76,7 @@ public class MatlabExporter {
 	 * @param data Data to be stored in Matlab variable
 	 */
 	public void add(String name, TimeSeries data) {
-		add(name+"_time", new float[][]{data.getTimes()});
-		add(name, data.getValues());
+		myData.put(makeVariableNameValid(name), data);
 	}
 
 	/**
@@ -88,25 +96,14 @@ public class MatlabExporter {
 	}
 
 	/**
+	 * Stores spikes in sparse event format, as a matrix with a row for each spike, and columns
+	 * for the neuron index (from 0) and spike time.
+	 *
 	 * @param name Matlab variable name
 	 * @param pattern Spike times for a group of neurons
 	 */
 	public void add(String name, SpikePattern pattern) {
-		int n = pattern.getNumNeurons();
-		int maxSpikes = 0;
-		for (int i = 0; i < n; i++) {
-			float[] times = pattern.getSpikeTimes(i);
-			if (times.length > maxSpikes) {
-                maxSpikes = times.length;
-            }
-		}
-		float[][] timesMatrix = new float[n][];
-		for (int i = 0; i < n; i++) {
-			timesMatrix[i] = new float[maxSpikes];
-			float[] times = pattern.getSpikeTimes(i);
-			System.arraycopy(times, 0, timesMatrix[i], 0, times.length);
-		}
-		add(name, timesMatrix);
+		myData.put(makeVariableNameValid(name), pattern);
 	}
 
 	/**
@@ -117,9 +114,7 @@ public class MatlabExporter {
 		if (!MU.isMatrix(data)) {
 			throw new IllegalArgumentException("Data must be a matrix (same number of columns in each row)");
 		}
-		name=makeVariableNameValid(name);
-		MLDouble mld = new MLDouble(name, MU.convert(data));
-		myData.put(name, mld);
+		myData.put(makeVariableNameValid(name), data);
 	}
 
 	/**
@@ -153,7 +148,21 @@ public class MatlabExporter {
 	 * @throws IOException if there's a problem writing to disk
 	 */
 	public void write(File destination) throws IOException {
-		new MatFileWriter(destination, myData.values());
+		MatlabStreamWriter writer = new MatlabStreamWriter(destination, mySingle);
+		try {
+			for (Map.Entry<String, Object> entry : myData.entrySet()) {
+				Object data = entry.getValue();
+				if (data instanceof TimeSeries) {
+					writer.write(entry.getKey(), (TimeSeries) data);
+				} else if (data instanceof SpikePattern) {
+					writer.write(entry.getKey(), (SpikePattern) data);
+				} else {
+					writer.write(entry.getKey(), (float[][]) data);
+				}
+			}
+		} finally {
+			writer.close();
+		}
 	}
 
 }
@@ -0,0 +1,469 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "MatlabStreamWriter.java". Description:
+"Writes Matlab level 5 MAT-files a variable at a time"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Date;
+
+import ca.nengo.util.SpikePattern;
+import ca.nengo.util.TimeSeries;
+import ca.nengo.util.impl.ColumnarTimeSeries;
+import ca.nengo.util.impl.CompressedTimeSeries;
+import ca.nengo.util.impl.SpikePatternImpl;
+
+/**
+ * <p>Writes Matlab (level 5) .mat files, streaming each variable to disk as it is written, so
+ * that large results don't have to be held in memory as Matlab arrays. Values can be stored in
+ * single precision (Matlab class single), which takes half the space of double.</p>
+ *
+ * <p>Very long time series can be written in chunks with a Series (see beginSeries()), without
+ * knowing their length in advance. Because a .mat file stores matrices by column, a Series is
+ * stored with a column per sample: the first row holds the times, and the following rows hold
+ * the values of each dimension.</p>
+ *
+ * @author agent
+ */
+public class MatlabStreamWriter implements Closeable {
+
+	private static final int MI_INT8 = 1;
+	private static final int MI_INT32 = 5;
+	private static final int MI_UINT32 = 6;
+	private static final int MI_SINGLE = 7;
+	private static final int MI_DOUBLE = 9;
+	private static final int MI_MATRIX = 14;
+	private static final int MX_DOUBLE_CLASS = 6;
+	private static final int MX_SINGLE_CLASS = 7;
+
+	private static final long MAX_ELEMENT_BYTES = 0xFFFFFFFFL;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	private final RandomAccessFile myFile;
+	private final FileChannel myChannel;
+	private final ByteBuffer myBuffer;
+	private final boolean mySingle;
+	private Series myOpenSeries;
+
+	/**
+	 * Values are stored in double precision.
+	 *
+	 * @param file File to write (overwritten if it exists)
+	 * @throws IOException if the file can't be written
+	 */
+	public MatlabStreamWriter(File file) throws IOException {
+		this(file, false);
+	}
+
+	/**
+	 * @param file File to write (overwritten if it exists)
+	 * @param single If true, values are stored in single precision, otherwise double
+	 * @throws IOException if the file can't be written
+	 */
+	public MatlabStreamWriter(File file, boolean single) throws IOException {
+		mySingle = single;
+		myBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		myFile = new RandomAccessFile(file, "rw");
+		myFile.setLength(0);
+		myChannel = myFile.getChannel();
+
+		StringBuilder text = new StringBuilder("MATLAB 5.0 MAT-file, Platform: ");
+		text.append(System.getProperty("os.name")).append(", Created on: ").append(new Date());
+		text.setLength(116);
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == 0) {
+				text.setCharAt(i, ' ');
+			}
+		}
+		myBuffer.put(text.toString().getBytes(ASCII));
+		myBuffer.putLong(0); //no subsystem data
+		myBuffer.putShort((short) 0x0100); //version
+		myBuffer.put((byte) 'I').put((byte) 'M'); //little-endian
+	}
+
+	/**
+	 * @return True if values are stored in single precision
+	 */
+	public boolean isSingle() {
+		return mySingle;
+	}
+
+	/**
+	 * @param name Matlab variable name (made valid if necessary)
+	 * @param matrix A matrix (each row the same length)
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(String name, final float[][] matrix) throws IOException {
+		final int columns = (matrix.length == 0) ? 0 : matrix[0].length;
+		for (float[] row : matrix) {
+			if (row.length != columns) {
+				throw new IllegalArgumentException("Data must be a matrix (same number of columns in each row)");
+			}
+		}
+
+		writeMatrix(name, matrix.length, columns, new Columns() {
+			public float[] get(int column, float[] reuse) {
+				return getColumn(matrix, column, reuse);
+			}
+		});
+	}
+
+	/**
+	 * Writes a TimeSeries as two variables: the times, as a row vector named name_time, and the
+	 * values, as a matrix named name with a row for each time. Values are read a column at a time,
+	 * from the underlying arrays if possible.
+	 *
+	 * @param name Matlab variable name (made valid if necessary)
+	 * @param series A TimeSeries
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(String name, final TimeSeries series) throws IOException {
+		float[] times = series.getTimes();
+		writeMatrix(name + "_time", 1, times.length, times);
+
+		Columns columns;
+		if (series instanceof ColumnarTimeSeries) {
+			columns = new Columns() {
+				public float[] get(int column, float[] reuse) {
+					return ((ColumnarTimeSeries) series).getColumn(column);
+				}
+			};
+		} else if (series instanceof CompressedTimeSeries) {
+			columns = new Columns() {
+				public float[] get(int column, float[] reuse) {
+					return ((CompressedTimeSeries) series).getColumn(column);
+				}
+			};
+		} else {
+			final float[][] values = series.getValues();
+			columns = new Columns() {
+				public float[] get(int column, float[] reuse) {
+					return getColumn(values, column, reuse);
+				}
+			};
+		}
+		writeMatrix(name, times.length, series.getDimension(), columns);
+	}
+
+	/**
+	 * Writes spikes in sparse event format, as a matrix with a row for each spike, and columns
+	 * for the neuron index (from 0) and spike time.
+	 *
+	 * @param name Matlab variable name (made valid if necessary)
+	 * @param pattern Spike times for a group of neurons
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(String name, SpikePattern pattern) throws IOException {
+		final float[] neurons;
+		final float[] times;
+		if (pattern instanceof SpikePatternImpl) {
+			SpikePatternImpl impl = (SpikePatternImpl) pattern;
+			int[] indices = new int[impl.getNumSpikes()];
+			times = new float[indices.length];
+			impl.getEvents(indices, times);
+			neurons = new float[indices.length];
+			for (int i = 0; i < indices.length; i++) {
+				neurons[i] = indices[i];
+			}
+		} else {
+			int numSpikes = 0;
+			for (int i = 0; i < pattern.getNumNeurons(); i++) {
+				numSpikes += pattern.getSpikeTimes(i).length;
+			}
+			neurons = new float[numSpikes];
+			times = new float[numSpikes];
+			for (int i = 0, k = 0; i < pattern.getNumNeurons(); i++) {
+				float[] neuronTimes = pattern.getSpikeTimes(i);
+				for (int j = 0; j < neuronTimes.length; j++, k++) {
+					neurons[k] = i;
+					times[k] = neuronTimes[j];
+				}
+			}
+		}
+
+		writeMatrix(name, neurons.length, 2, new Columns() {
+			public float[] get(int column, float[] reuse) {
+				return (column == 0) ? neurons : times;
+			}
+		});
+	}
+
+	/**
+	 * Starts a variable that is written in chunks, a sample at a time (see Series). No other
+	 * variables can be written until it is finished.
+	 *
+	 * @param name Matlab variable name (made valid if necessary)
+	 * @param dimension Number of values in each sample
+	 * @return A Series to which samples can be appended
+	 * @throws IOException if the file can't be written
+	 */
+	public Series beginSeries(String name, int dimension) throws IOException {
+		checkNoOpenSeries();
+		long start = beginMatrix(name, 1 + dimension, 0);
+		myOpenSeries = new Series(start, dimension, MatlabExporter.makeVariableNameValid(name).length());
+		return myOpenSeries;
+	}
+
+	/**
+	 * A time series that is written to a MAT-file in chunks, as a matrix with a column for
+	 * each sample (time followed by values).
+	 */
+	public class Series {
+
+		private final long myStart;
+		private final int myDimension;
+		private final int myNameLength;
+		private int myLength;
+
+		private Series(long start, int dimension, int nameLength) {
+			myStart = start;
+			myDimension = dimension;
+			myNameLength = nameLength;
+		}
+
+		/**
+		 * @return Number of samples written so far
+		 */
+		public int getLength() {
+			return myLength;
+		}
+
+		/**
+		 * @param time Time of the sample
+		 * @param values Value of each dimension
+		 * @throws IOException if the file can't be written
+		 */
+		public void append(float time, float[] values) throws IOException {
+			if (myOpenSeries != this) {
+				throw new IllegalStateException("This Series has been finished");
+			}
+			if (values.length != myDimension) {
+				throw new IllegalArgumentException("Expected " + myDimension + " values but got " + values.length);
+			}
+			checkSize(1 + myDimension, myLength + 1L);
+
+			putValue(time);
+			for (float value : values) {
+				putValue(value);
+			}
+			myLength++;
+		}
+
+		/**
+		 * Appends a chunk of samples.
+		 *
+		 * @param times Time of each sample
+		 * @param values Values of each sample (a row per sample)
+		 * @throws IOException if the file can't be written
+		 */
+		public void append(float[] times, float[][] values) throws IOException {
+			for (int i = 0; i < times.length; i++) {
+				append(times[i], values[i]);
+			}
+		}
+
+		/**
+		 * Completes the variable, after which other variables can be written.
+		 *
+		 * @throws IOException if the file can't be written
+		 */
+		public void finish() throws IOException {
+			if (myOpenSeries != this) {
+				return;
+			}
+			long dataBytes = endMatrix((1L + myDimension) * myLength);
+
+			flush();
+			ByteBuffer patch = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			patch.putInt(0, (int) getMatrixBytes(myNameLength, dataBytes));
+			myChannel.write(patch, myStart + 4);
+			patch.clear();
+			patch.putInt(0, myLength);
+			myChannel.write(patch, myStart + 8 + 16 + 8 + 4);
+			patch.clear();
+			patch.putInt(0, (int) dataBytes);
+			myChannel.write(patch, myStart + 8 + 16 + 16 + 8 + padded(myNameLength) + 4);
+			myOpenSeries = null;
+		}
+	}
+
+	/**
+	 * Finishes any open Series and closes the file.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	public void close() throws IOException {
+		try {
+			if (myOpenSeries != null) {
+				myOpenSeries.finish();
+			}
+			flush();
+		} finally {
+			myFile.close();
+		}
+	}
+
+	/**
+	 * A source of a matrix's values a column at a time.
+	 */
+	private interface Columns {
+
+		/**
+		 * @param column Index of a column
+		 * @param reuse An array that can be filled and returned (may be null)
+		 * @return Values of the column
+		 */
+		public float[] get(int column, float[] reuse);
+	}
+
+	private static float[] getColumn(float[][] matrix, int column, float[] reuse) {
+		float[] result = (reuse == null || reuse.length != matrix.length) ? new float[matrix.length] : reuse;
+		for (int i = 0; i < matrix.length; i++) {
+			result[i] = matrix[i][column];
+		}
+		return result;
+	}
+
+	private void writeMatrix(String name, int rows, int columns, Columns source) throws IOException {
+		checkNoOpenSeries();
+		checkSize(rows, columns);
+		beginMatrix(name, rows, columns);
+		float[] column = null;
+		for (int j = 0; j < columns; j++) {
+			column = source.get(j, column);
+			for (int i = 0; i < rows; i++) {
+				putValue(column[i]);
+			}
+		}
+		endMatrix((long) rows * columns);
+	}
+
+	private void writeMatrix(String name, int rows, int columns, float[] values) throws IOException {
+		checkNoOpenSeries();
+		checkSize(rows, columns);
+		beginMatrix(name, rows, columns);
+		for (float value : values) {
+			putValue(value);
+		}
+		endMatrix((long) rows * columns);
+	}
+
+	private void checkNoOpenSeries() {
+		if (myOpenSeries != null) {
+			throw new IllegalStateException("Can't write another variable until the open Series is finished");
+		}
+	}
+
+	private void checkSize(long rows, long columns) throws IOException {
+		if (rows * columns * getValueBytes() + 1024 > MAX_ELEMENT_BYTES) {
+			throw new IOException("A " + rows + " x " + columns + " matrix is too large for a MAT-file variable");
+		}
+	}
+
+	private int getValueBytes() {
+		return mySingle ? 4 : 8;
+	}
+
+	//writes the tags of a numeric matrix up to its values, returning the position of the matrix tag
+	private long beginMatrix(String name, int rows, int columns) throws IOException {
+		byte[] nameBytes = MatlabExporter.makeVariableNameValid(name).getBytes(ASCII);
+		long dataBytes = (long) rows * columns * getValueBytes();
+
+		ensureCapacity(64 + nameBytes.length);
+		long start = getPosition();
+		myBuffer.putInt(MI_MATRIX).putInt((int) getMatrixBytes(nameBytes.length, dataBytes));
+		myBuffer.putInt(MI_UINT32).putInt(8).putInt(mySingle ? MX_SINGLE_CLASS : MX_DOUBLE_CLASS).putInt(0);
+		myBuffer.putInt(MI_INT32).putInt(8).putInt(rows).putInt(columns);
+		myBuffer.putInt(MI_INT8).putInt(nameBytes.length).put(nameBytes);
+		pad(nameBytes.length);
+		myBuffer.putInt(mySingle ? MI_SINGLE : MI_DOUBLE).putInt((int) dataBytes);
+		return start;
+	}
+
+	//pads the values, returning their number of bytes
+	private long endMatrix(long numValues) throws IOException {
+		long dataBytes = numValues * getValueBytes();
+		ensureCapacity(8);
+		pad(dataBytes);
+		return dataBytes;
+	}
+
+	private static long getMatrixBytes(int nameLength, long dataBytes) {
+		return 16 + 16 + 8 + padded(nameLength) + 8 + padded(dataBytes);
+	}
+
+	private static long padded(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	private void pad(long bytes) {
+		for (long i = bytes; i < padded(bytes); i++) {
+			myBuffer.put((byte) 0);
+		}
+	}
+
+	private void putValue(float value) throws IOException {
+		if (myBuffer.remaining() < 8) {
+			flush();
+		}
+		if (mySingle) {
+			myBuffer.putFloat(value);
+		} else {
+			myBuffer.putDouble(value);
+		}
+	}
+
+	private void ensureCapacity(int bytes) throws IOException {
+		if (myBuffer.remaining() < bytes) {
+			flush();
+		}
+		if (myBuffer.remaining() < bytes) {
+			throw new IOException("Variable name is too long");
+		}
+	}
+
+	private long getPosition() throws IOException {
+		return myChannel.position() + myBuffer.position();
+	}
+
+	private void flush() throws IOException {
+		myBuffer.flip();
+		while (myBuffer.hasRemaining()) {
+			myChannel.write(myBuffer);
+		}
+		myBuffer.clear();
+	}
+
+}
@@ -0,0 +1,249 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ModelFileReader.java". Description:
+"Reads models written by ModelFileWriter"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a model from a file written by ModelFileWriter. The table of numeric arrays is read in
+ * bulk before the rest of the object graph, which refers to it.
+ *
+ * @author agent
+ */
+public class ModelFileReader implements Closeable {
+
+	private final RandomAccessFile myFile;
+	private final FileChannel myChannel;
+	private final long myTableOffset;
+	private final int myNumArrays;
+	private ByteBuffer myBuffer;
+
+	/**
+	 * @param file A file written by ModelFileWriter
+	 * @throws IOException if the file can't be read or isn't a complete model file
+	 */
+	public ModelFileReader(File file) throws IOException {
+		myFile = new RandomAccessFile(file, "r");
+		myChannel = myFile.getChannel();
+
+		try {
+			ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(header, 0);
+			if (header.getInt(0) != ModelFileWriter.MAGIC) {
+				throw new IOException(file.getName() + " is not a model file");
+			}
+			if (header.getInt(4) > ModelFileWriter.VERSION) {
+				throw new IOException(file.getName() + " was written by a newer version (" + header.getInt(4) + ")");
+			}
+
+			ByteBuffer trailer = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+			if (myChannel.size() < 24) {
+				throw new IOException(file.getName() + " is incomplete");
+			}
+			readFully(trailer, myChannel.size() - 16);
+			if (trailer.getInt(12) != ModelFileWriter.MAGIC) {
+				throw new IOException(file.getName() + " is incomplete");
+			}
+			myTableOffset = trailer.getLong(0);
+			myNumArrays = trailer.getInt(8);
+		} catch (IOException e) {
+			myFile.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param file A file
+	 * @return True if the file starts like a file written by ModelFileWriter
+	 * @throws IOException if the file can't be read
+	 */
+	public static boolean isModelFile(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			return raf.length() >= 4 && Integer.reverseBytes(raf.readInt()) == ModelFileWriter.MAGIC;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (myChannel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+	}
+
+	/**
+	 * @return The model
+	 * @throws IOException if the file can't be read
+	 * @throws ClassNotFoundException if the model contains classes not known in this context
+	 */
+	public Object read() throws IOException, ClassNotFoundException {
+		final Object[] arrays = readTable();
+
+		myChannel.position(8);
+		InputStream in = new BufferedInputStream(Channels.newInputStream(myChannel), 1 << 16);
+		ObjectInputStream graph = new ObjectInputStream(in) {
+			{
+				enableResolveObject(true);
+			}
+
+			@Override
+			protected Object resolveObject(Object object) throws IOException {
+				if (object instanceof ModelFileWriter.ArrayRef) {
+					int index = ((ModelFileWriter.ArrayRef) object).myIndex;
+					if (index < 0 || index >= arrays.length) {
+						throw new IOException("Bad array reference " + index);
+					}
+					return arrays[index];
+				}
+				return object;
+			}
+		};
+		return graph.readObject();
+	}
+
+	private Object[] readTable() throws IOException {
+		myChannel.position(myTableOffset);
+		myBuffer = ByteBuffer.allocateDirect(ModelFileWriter.BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		myBuffer.flip();
+
+		Object[] result = new Object[myNumArrays];
+		for (int i = 0; i < result.length; i++) {
+			ensureAvailable(5);
+			byte type = myBuffer.get();
+			int length = myBuffer.getInt();
+			switch (type) {
+			case ModelFileWriter.FLOATS:
+				float[] floats = new float[length];
+				for (int offset = 0; offset < length; ) {
+					ensureAvailable(4);
+					int n = Math.min(length - offset, myBuffer.remaining() / 4);
+					myBuffer.asFloatBuffer().get(floats, offset, n);
+					myBuffer.position(myBuffer.position() + 4 * n);
+					offset += n;
+				}
+				result[i] = floats;
+				break;
+			case ModelFileWriter.DOUBLES:
+				double[] doubles = new double[length];
+				for (int offset = 0; offset < length; ) {
+					ensureAvailable(8);
+					int n = Math.min(length - offset, myBuffer.remaining() / 8);
+					myBuffer.asDoubleBuffer().get(doubles, offset, n);
+					myBuffer.position(myBuffer.position() + 8 * n);
+					offset += n;
+				}
+				result[i] = doubles;
+				break;
+			case ModelFileWriter.INTS:
+				int[] ints = new int[length];
+				for (int offset = 0; offset < length; ) {
+					ensureAvailable(4);
+					int n = Math.min(length - offset, myBuffer.remaining() / 4);
+					myBuffer.asIntBuffer().get(ints, offset, n);
+					myBuffer.position(myBuffer.position() + 4 * n);
+					offset += n;
+				}
+				result[i] = ints;
+				break;
+			case ModelFileWriter.LONGS:
+				long[] longs = new long[length];
+				for (int offset = 0; offset < length; ) {
+					ensureAvailable(8);
+					int n = Math.min(length - offset, myBuffer.remaining() / 8);
+					myBuffer.asLongBuffer().get(longs, offset, n);
+					myBuffer.position(myBuffer.position() + 8 * n);
+					offset += n;
+				}
+				result[i] = longs;
+				break;
+			case ModelFileWriter.FLOAT_MATRIX:
+				result[i] = readRows(new float[length][], result, i);
+				break;
+			case ModelFileWriter.DOUBLE_MATRIX:
+				result[i] = readRows(new double[length][], result, i);
+				break;
+			case ModelFileWriter.INT_MATRIX:
+				result[i] = readRows(new int[length][], result, i);
+				break;
+			case ModelFileWriter.LONG_MATRIX:
+				result[i] = readRows(new long[length][], result, i);
+				break;
+			default:
+				throw new IOException("Unknown array type " + type);
+			}
+		}
+		myBuffer = null;
+		return result;
+	}
+
+	//fills a matrix with rows that precede it in the table
+	private Object[] readRows(Object[] matrix, Object[] arrays, int index) throws IOException {
+		for (int j = 0; j < matrix.length; j++) {
+			ensureAvailable(4);
+			int row = myBuffer.getInt();
+			if (row >= index) {
+				throw new IOException("Bad row reference " + row);
+			}
+			matrix[j] = (row < 0) ? null : arrays[row];
+		}
+		return matrix;
+	}
+
+	private void ensureAvailable(int bytes) throws IOException {
+		if (myBuffer.remaining() < bytes) {
+			myBuffer.compact();
+			while (myBuffer.position() < bytes) {
+				if (myChannel.read(myBuffer) < 0) {
+					throw new IOException("Unexpected end of file");
+				}
+			}
+			myBuffer.flip();
+		}
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	public void close() throws IOException {
+		myFile.close();
+	}
+
+}
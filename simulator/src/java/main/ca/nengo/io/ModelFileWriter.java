@@ -0,0 +1,262 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ModelFileWriter.java". Description:
+"Writes models in a binary format with bulk primitive arrays"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * <p>Writes a model (e.g. a Network) to a binary file, which can be read back with
+ * ModelFileReader.</p>
+ *
+ * <p>Numeric arrays (e.g. encoders, decoders, evaluation points, and weights) are taken out of
+ * the object graph and stored together in a table as raw little-endian blocks, which are written
+ * and read in bulk. Matrices are stored as lists of rows, so arrays that are shared between
+ * objects are still shared when the model is read back. The rest of the graph is serialized
+ * with a buffered stream.</p>
+ *
+ * <p>The file has a header (magic number and version), the serialized graph, the table of arrays
+ * (the type and length of each, then its values, or for a matrix, the indices of its rows), and
+ * a trailer (offset of the table, number of arrays, and magic number).</p>
+ *
+ * <p>The version number is that of this layout, not of the model classes. There is no explicit
+ * schema for any model class (not even NEFEnsembleImpl, the neurons, DecodedOrigin, DecodedTermination
+ * or Projections): each is written with Java serialization, so a file can only be read by classes
+ * that are serialization-compatible with those that wrote it.</p>
+ *
+ * @author agent
+ */
+public class ModelFileWriter implements Closeable {
+
+	static final int MAGIC = 0x4E454642; //"NEFB"
+	static final int VERSION = 1;
+
+	static final byte FLOATS = 1;
+	static final byte DOUBLES = 2;
+	static final byte INTS = 3;
+	static final byte LONGS = 4;
+	static final byte FLOAT_MATRIX = 5;
+	static final byte DOUBLE_MATRIX = 6;
+	static final byte INT_MATRIX = 7;
+	static final byte LONG_MATRIX = 8;
+
+	static final int BUFFER_SIZE = 1 << 20;
+
+	private final RandomAccessFile myFile;
+	private final FileChannel myChannel;
+	private final List<Object> myArrays;
+	private final IdentityHashMap<Object, Integer> myIndices;
+	private ByteBuffer myBuffer;
+	private boolean myWritten;
+
+	/**
+	 * @param file File to write (overwritten if it exists)
+	 * @throws IOException if the file can't be written
+	 */
+	public ModelFileWriter(File file) throws IOException {
+		myFile = new RandomAccessFile(file, "rw");
+		myFile.setLength(0);
+		myChannel = myFile.getChannel();
+		myArrays = new ArrayList<Object>();
+		myIndices = new IdentityHashMap<Object, Integer>();
+	}
+
+	/**
+	 * Writes a model. Only one model can be written to a file.
+	 *
+	 * @param model A Serializable model (e.g. a Node)
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(Object model) throws IOException {
+		if (myWritten) {
+			throw new IllegalStateException("A model has already been written to this file");
+		}
+		myWritten = true;
+
+		myBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		myBuffer.putInt(MAGIC).putInt(VERSION);
+		flush();
+
+		OutputStream out = new BufferedOutputStream(Channels.newOutputStream(myChannel), 1 << 16);
+		GraphOutputStream graph = new GraphOutputStream(out);
+		graph.writeObject(model);
+		graph.flush(); //not closed, as that would close the channel
+
+		long tableOffset = myChannel.position();
+		for (Object array : myArrays) {
+			writeArray(array);
+		}
+		ensureCapacity(16);
+		myBuffer.putLong(tableOffset).putInt(myArrays.size()).putInt(MAGIC);
+		flush();
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	public void close() throws IOException {
+		myFile.close();
+	}
+
+	/**
+	 * Stands in for a numeric array in the serialized graph.
+	 */
+	static final class ArrayRef implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		final int myIndex;
+
+		ArrayRef(int index) {
+			myIndex = index;
+		}
+	}
+
+	//replaces numeric arrays with references into the table
+	private class GraphOutputStream extends ObjectOutputStream {
+
+		public GraphOutputStream(OutputStream out) throws IOException {
+			super(out);
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object object) throws IOException {
+			int index = add(object);
+			return (index >= 0) ? new ArrayRef(index) : object;
+		}
+	}
+
+	//adds a numeric array (and a matrix's rows) to the table if necessary, returning its index (-1 if not numeric)
+	private int add(Object object) {
+		Integer existing = myIndices.get(object);
+		if (existing != null) {
+			return existing.intValue();
+		}
+
+		if (object instanceof float[][] || object instanceof double[][]
+				|| object instanceof int[][] || object instanceof long[][]) {
+			Object[] rows = (Object[]) object;
+			for (Object row : rows) {
+				if (row != null) {
+					add(row);
+				}
+			}
+		} else if (!(object instanceof float[] || object instanceof double[]
+				|| object instanceof int[] || object instanceof long[])) {
+			return -1;
+		}
+
+		int index = myArrays.size();
+		myArrays.add(object);
+		myIndices.put(object, Integer.valueOf(index));
+		return index;
+	}
+
+	private void writeArray(Object array) throws IOException {
+		ensureCapacity(5);
+		if (array instanceof float[]) {
+			float[] values = (float[]) array;
+			myBuffer.put(FLOATS).putInt(values.length);
+			for (int offset = 0; offset < values.length; ) {
+				ensureCapacity(4);
+				int n = Math.min(values.length - offset, myBuffer.remaining() / 4);
+				myBuffer.asFloatBuffer().put(values, offset, n);
+				myBuffer.position(myBuffer.position() + 4 * n);
+				offset += n;
+			}
+		} else if (array instanceof double[]) {
+			double[] values = (double[]) array;
+			myBuffer.put(DOUBLES).putInt(values.length);
+			for (int offset = 0; offset < values.length; ) {
+				ensureCapacity(8);
+				int n = Math.min(values.length - offset, myBuffer.remaining() / 8);
+				myBuffer.asDoubleBuffer().put(values, offset, n);
+				myBuffer.position(myBuffer.position() + 8 * n);
+				offset += n;
+			}
+		} else if (array instanceof int[]) {
+			int[] values = (int[]) array;
+			myBuffer.put(INTS).putInt(values.length);
+			for (int offset = 0; offset < values.length; ) {
+				ensureCapacity(4);
+				int n = Math.min(values.length - offset, myBuffer.remaining() / 4);
+				myBuffer.asIntBuffer().put(values, offset, n);
+				myBuffer.position(myBuffer.position() + 4 * n);
+				offset += n;
+			}
+		} else if (array instanceof long[]) {
+			long[] values = (long[]) array;
+			myBuffer.put(LONGS).putInt(values.length);
+			for (int offset = 0; offset < values.length; ) {
+				ensureCapacity(8);
+				int n = Math.min(values.length - offset, myBuffer.remaining() / 8);
+				myBuffer.asLongBuffer().put(values, offset, n);
+				myBuffer.position(myBuffer.position() + 8 * n);
+				offset += n;
+			}
+		} else {
+			Object[] rows = (Object[]) array;
+			byte type = (array instanceof float[][]) ? FLOAT_MATRIX : (array instanceof double[][]) ? DOUBLE_MATRIX
+					: (array instanceof int[][]) ? INT_MATRIX : LONG_MATRIX;
+			myBuffer.put(type).putInt(rows.length);
+			for (Object row : rows) {
+				ensureCapacity(4);
+				myBuffer.putInt((row == null) ? -1 : myIndices.get(row).intValue());
+			}
+		}
+	}
+
+	private void ensureCapacity(int bytes) throws IOException {
+		if (myBuffer.remaining() < bytes) {
+			flush();
+		}
+	}
+
+	private void flush() throws IOException {
+		myBuffer.flip();
+		while (myBuffer.hasRemaining()) {
+			myChannel.write(myBuffer);
+		}
+		myBuffer.clear();
+	}
+
+}
@@ -0,0 +1,295 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ProbeStreamReader.java". Description:
+"Reads a file written by ProbeStreamWriter"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import ca.nengo.model.Units;
+import ca.nengo.util.TimeSeries;
+import ca.nengo.util.impl.TimeSeriesImpl;
+
+/**
+ * <p>Reads a file written by ProbeStreamWriter as a TimeSeries. Selected channels over a given
+ * time range can be read without reading the rest of the file.</p>
+ *
+ * @author agent
+ */
+public class ProbeStreamReader implements Closeable {
+
+	private final RandomAccessFile myFile;
+	private final FileChannel myChannel;
+	private String myName;
+	private Units[] myUnits;
+	private String[] myLabels;
+	private long[] myOffsets;
+	private int[] myCounts;
+	private float[] myFirstTimes;
+	private float[] myLastTimes;
+
+	/**
+	 * @param file A file written by ProbeStreamWriter
+	 * @throws IOException if the file can't be read or is not of the right kind
+	 */
+	public ProbeStreamReader(File file) throws IOException {
+		myFile = new RandomAccessFile(file, "r");
+		myChannel = myFile.getChannel();
+		try {
+			readHeader();
+			if (!readIndex()) {
+				scanChunks();
+			}
+		} catch (IOException e) {
+			myFile.close();
+			throw e;
+		}
+	}
+
+	private void readHeader() throws IOException {
+		ByteBuffer buffer = read(0, 16);
+		if (buffer.getInt() != ProbeStreamWriter.MAGIC) {
+			throw new IOException("Not a probe stream file");
+		}
+		int version = buffer.getInt();
+		if (version != ProbeStreamWriter.VERSION) {
+			throw new IOException("Unsupported probe stream version " + version);
+		}
+		int dimension = buffer.getInt();
+		buffer.getInt(); //chunk size
+
+		long[] position = new long[]{16};
+		myName = readString(position);
+		myUnits = new Units[dimension];
+		myLabels = new String[dimension];
+		for (int i = 0; i < dimension; i++) {
+			myUnits[i] = Units.valueOf(readString(position));
+			myLabels[i] = readString(position);
+		}
+		myOffsets = new long[]{position[0]}; //position of first chunk, until the index is read
+	}
+
+	private String readString(long[] position) throws IOException {
+		int length = read(position[0], 4).getInt();
+		ByteBuffer bytes = read(position[0] + 4, length);
+		position[0] += 4 + length;
+		return new String(bytes.array(), 0, length, ProbeStreamWriter.UTF8);
+	}
+
+	// @return False if the file has no index (e.g. it wasn't closed)
+	private boolean readIndex() throws IOException {
+		long size = myChannel.size();
+		if (size < myOffsets[0] + 16) {
+			return false;
+		}
+		ByteBuffer trailer = read(size - 12, 12);
+		long indexOffset = trailer.getLong();
+		if (trailer.getInt() != ProbeStreamWriter.MAGIC || indexOffset < myOffsets[0] || indexOffset > size - 16) {
+			return false;
+		}
+
+		int n = read(indexOffset, 4).getInt();
+		ByteBuffer index = read(indexOffset + 4, 20 * n);
+		myOffsets = new long[n];
+		myCounts = new int[n];
+		myFirstTimes = new float[n];
+		myLastTimes = new float[n];
+		for (int i = 0; i < n; i++) {
+			myOffsets[i] = index.getLong();
+			myCounts[i] = index.getInt();
+			myFirstTimes[i] = index.getFloat();
+			myLastTimes[i] = index.getFloat();
+		}
+		return true;
+	}
+
+	//finds complete chunks in a file without an index
+	private void scanChunks() throws IOException {
+		List<long[]> chunks = new ArrayList<long[]>();
+		List<float[]> times = new ArrayList<float[]>();
+		long position = myOffsets[0];
+		long size = myChannel.size();
+		while (position + 4 <= size) {
+			int count = read(position, 4).getInt();
+			long length = 4 + 4L * count * (1 + myUnits.length);
+			if (count <= 0 || position + length > size) {
+				break;
+			}
+			ByteBuffer chunkTimes = read(position + 4, 4 * count);
+			times.add(new float[]{chunkTimes.getFloat(0), chunkTimes.getFloat(4 * (count-1))});
+			chunks.add(new long[]{position, count});
+			position += length;
+		}
+
+		myOffsets = new long[chunks.size()];
+		myCounts = new int[chunks.size()];
+		myFirstTimes = new float[chunks.size()];
+		myLastTimes = new float[chunks.size()];
+		for (int i = 0; i < myOffsets.length; i++) {
+			myOffsets[i] = chunks.get(i)[0];
+			myCounts[i] = (int) chunks.get(i)[1];
+			myFirstTimes[i] = times.get(i)[0];
+			myLastTimes[i] = times.get(i)[1];
+		}
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer result = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (result.hasRemaining()) {
+			if (myChannel.read(result, position + result.position()) < 0) {
+				throw new EOFException("Probe stream file is truncated");
+			}
+		}
+		result.flip();
+		return result;
+	}
+
+	/**
+	 * @return Name of the probed state
+	 */
+	public String getName() {
+		return myName;
+	}
+
+	/**
+	 * @return Number of channels
+	 */
+	public int getDimension() {
+		return myUnits.length;
+	}
+
+	/**
+	 * @return Units of each channel
+	 */
+	public Units[] getUnits() {
+		return myUnits.clone();
+	}
+
+	/**
+	 * @return Number of samples in the file
+	 */
+	public int getLength() {
+		int result = 0;
+		for (int count : myCounts) {
+			result += count;
+		}
+		return result;
+	}
+
+	/**
+	 * @return All samples in the file
+	 * @throws IOException if the file can't be read
+	 */
+	public TimeSeries read() throws IOException {
+		return read(Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, null);
+	}
+
+	/**
+	 * @param startTime Time of the first sample to read
+	 * @param endTime Time of the last sample to read
+	 * @param channels Indices of channels to read (all channels if null)
+	 * @return Samples of the given channels between the given times (inclusive)
+	 * @throws IOException if the file can't be read
+	 */
+	public TimeSeries read(float startTime, float endTime, int[] channels) throws IOException {
+		if (channels == null) {
+			channels = new int[myUnits.length];
+			for (int j = 0; j < channels.length; j++) {
+				channels[j] = j;
+			}
+		}
+
+		List<Float> times = new ArrayList<Float>();
+		List<float[]> values = new ArrayList<float[]>();
+		for (int c = 0; c < myOffsets.length; c++) {
+			if (myLastTimes[c] < startTime || myFirstTimes[c] > endTime) {
+				continue;
+			}
+
+			int count = myCounts[c];
+			ByteBuffer chunkTimes = read(myOffsets[c] + 4, 4 * count);
+			int first = -1;
+			int last = -1;
+			for (int i = 0; i < count; i++) {
+				float time = chunkTimes.getFloat(4 * i);
+				if (time >= startTime && time <= endTime) {
+					if (first < 0) {
+						first = i;
+					}
+					last = i;
+					times.add(Float.valueOf(time));
+				}
+			}
+			if (first < 0) {
+				continue;
+			}
+
+			float[][] chunkValues = new float[last - first + 1][channels.length];
+			for (int j = 0; j < channels.length; j++) {
+				long position = myOffsets[c] + 4 + 4L * count * (1 + channels[j]) + 4L * first;
+				ByteBuffer column = read(position, 4 * (last - first + 1));
+				for (int i = 0; i < chunkValues.length; i++) {
+					chunkValues[i][j] = column.getFloat();
+				}
+			}
+			for (float[] row : chunkValues) {
+				values.add(row);
+			}
+		}
+
+		float[] resultTimes = new float[times.size()];
+		for (int i = 0; i < resultTimes.length; i++) {
+			resultTimes[i] = times.get(i).floatValue();
+		}
+		Units[] units = new Units[channels.length];
+		String[] labels = new String[channels.length];
+		for (int j = 0; j < channels.length; j++) {
+			units[j] = myUnits[channels[j]];
+			labels[j] = myLabels[channels[j]];
+		}
+
+		TimeSeriesImpl result = new TimeSeriesImpl(resultTimes, values.toArray(new float[0][]), units, labels);
+		result.setName(myName);
+		return result;
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	public void close() throws IOException {
+		myFile.close();
+	}
+
+}
@@ -0,0 +1,216 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ProbeStreamWriter.java". Description:
+"Writes samples of a probed state to a chunked binary file"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import ca.nengo.model.Units;
+
+/**
+ * <p>Writes samples of a probed state to a chunked binary file, a sample at a time. The file can be
+ * read back with ProbeStreamReader.</p>
+ *
+ * <p>The file (little-endian) has a header (magic number, version, dimension, chunk size, name, and
+ * the units and label of each channel), then chunks of up to chunkSize samples (the number of
+ * samples, a block of times, then a block of values for each channel in turn), then an index of
+ * the chunks (offset, number of samples, first and last time of each) and the offset of the index.
+ * If a file isn't closed, its chunks can still be read, without the index.</p>
+ *
+ * @author agent
+ */
+public class ProbeStreamWriter implements Closeable {
+
+	static final int MAGIC = 0x4E505342; //"NPSB"
+	static final int VERSION = 1;
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Default number of samples in a chunk
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+	private final RandomAccessFile myFile;
+	private final FileChannel myChannel;
+	private final int myDimension;
+	private final int myChunkSize;
+	private final float[] myTimes;
+	private final float[][] myValues;
+	private int myCount;
+	private ByteBuffer myBuffer;
+	private ByteBuffer myIndex;
+	private int myNumChunks;
+
+	/**
+	 * @param file File to write (overwritten if it exists)
+	 * @param name Name of the probed state
+	 * @param units Units of each channel (dimension) of the state
+	 * @param labels Label of each channel
+	 * @param chunkSize Number of samples in a chunk
+	 * @throws IOException if the file can't be written
+	 */
+	public ProbeStreamWriter(File file, String name, Units[] units, String[] labels, int chunkSize) throws IOException {
+		if (units.length != labels.length) {
+			throw new IllegalArgumentException("There are " + units.length + " units but " + labels.length + " labels");
+		}
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+
+		myDimension = units.length;
+		myChunkSize = chunkSize;
+		myTimes = new float[chunkSize];
+		myValues = new float[myDimension][chunkSize];
+		myBuffer = ByteBuffer.allocate(4 + 4 * chunkSize * (1 + myDimension)).order(ByteOrder.LITTLE_ENDIAN);
+		myIndex = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+
+		myFile = new RandomAccessFile(file, "rw");
+		myFile.setLength(0);
+		myChannel = myFile.getChannel();
+
+		ByteBuffer header = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(myDimension).putInt(chunkSize);
+		header = putString(header, (name == null) ? "" : name);
+		for (int i = 0; i < myDimension; i++) {
+			header = putString(header, units[i].name());
+			header = putString(header, (labels[i] == null) ? "" : labels[i]);
+		}
+		header.flip();
+		write(header);
+	}
+
+	private static ByteBuffer putString(ByteBuffer buffer, String s) {
+		byte[] bytes = s.getBytes(UTF8);
+		buffer = ensureCapacity(buffer, 4 + bytes.length);
+		buffer.putInt(bytes.length).put(bytes);
+		return buffer;
+	}
+
+	private static ByteBuffer ensureCapacity(ByteBuffer buffer, int extra) {
+		if (buffer.remaining() >= extra) {
+			return buffer;
+		}
+		ByteBuffer result = ByteBuffer.allocate(2 * buffer.capacity() + extra).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.flip();
+		result.put(buffer);
+		return result;
+	}
+
+	/**
+	 * @return Number of channels
+	 */
+	public int getDimension() {
+		return myDimension;
+	}
+
+	/**
+	 * @param time Time of the sample
+	 * @param values Value of each channel
+	 * @throws IOException if the file can't be written
+	 */
+	public void append(float time, float[] values) throws IOException {
+		if (values.length != myDimension) {
+			throw new IllegalArgumentException("Expected " + myDimension + " values (was " + values.length + ")");
+		}
+
+		myTimes[myCount] = time;
+		for (int j = 0; j < myDimension; j++) {
+			myValues[j][myCount] = values[j];
+		}
+		myCount++;
+
+		if (myCount == myChunkSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes any buffered samples as a (possibly short) chunk.
+	 *
+	 * @throws IOException if the file can't be written
+	 */
+	public void flush() throws IOException {
+		if (myCount == 0) {
+			return;
+		}
+
+		myIndex = ensureCapacity(myIndex, 20);
+		myIndex.putLong(myChannel.position()).putInt(myCount).putFloat(myTimes[0]).putFloat(myTimes[myCount-1]);
+		myNumChunks++;
+
+		myBuffer.clear();
+		myBuffer.putInt(myCount);
+		myBuffer.asFloatBuffer().put(myTimes, 0, myCount);
+		myBuffer.position(myBuffer.position() + 4 * myCount);
+		for (int j = 0; j < myDimension; j++) {
+			myBuffer.asFloatBuffer().put(myValues[j], 0, myCount);
+			myBuffer.position(myBuffer.position() + 4 * myCount);
+		}
+		myBuffer.flip();
+		write(myBuffer);
+
+		myCount = 0;
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			myChannel.write(buffer);
+		}
+	}
+
+	/**
+	 * Writes buffered samples and the index, and closes the file.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	public void close() throws IOException {
+		try {
+			flush();
+
+			long indexOffset = myChannel.position();
+			ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			count.putInt(myNumChunks).flip();
+			write(count);
+			myIndex.flip();
+			write(myIndex);
+
+			ByteBuffer trailer = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+			trailer.putLong(indexOffset).putInt(MAGIC).flip();
+			write(trailer);
+		} finally {
+			myFile.close();
+		}
+	}
+
+}
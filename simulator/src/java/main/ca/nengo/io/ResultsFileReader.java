@@ -0,0 +1,471 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ResultsFileReader.java". Description:
+"Reads simulation results from a file written by ResultsFileWriter"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import ca.nengo.model.Units;
+import ca.nengo.util.SpikePattern;
+import ca.nengo.util.TimeSeries;
+import ca.nengo.util.impl.SpikePatternImpl;
+import ca.nengo.util.impl.TimeSeriesImpl;
+
+/**
+ * <p>Reads a file written by ResultsFileWriter. Time series and spike patterns can be read over a
+ * given time range (and time series for selected channels) without reading the rest of the file.
+ * The results are ordinary TimeSeries and SpikePatterns that can be plotted or exported.</p>
+ *
+ * @author agent
+ */
+public class ResultsFileReader implements Closeable {
+
+	private static final int HEADER_LENGTH = 8;
+	private static final int CHUNK_HEADER_LENGTH = 21;
+
+	private final RandomAccessFile myFile;
+	private final FileChannel myChannel;
+	private final Inflater myInflater;
+	private Map<String, Entry> myEntries;
+
+	/**
+	 * @param file A file written by ResultsFileWriter
+	 * @throws IOException if the file can't be read or is not of the right kind
+	 */
+	public ResultsFileReader(File file) throws IOException {
+		myFile = new RandomAccessFile(file, "r");
+		myChannel = myFile.getChannel();
+		myInflater = new Inflater();
+		try {
+			ByteBuffer header = read(0, HEADER_LENGTH);
+			if (header.getInt() != ResultsFileWriter.MAGIC) {
+				throw new IOException("Not a results file");
+			}
+			int version = header.getInt();
+			if (version != ResultsFileWriter.VERSION) {
+				throw new IOException("Unsupported results file version " + version);
+			}
+
+			if (!readIndex()) {
+				scanRecords();
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	// @return False if the file has no index (e.g. it wasn't closed)
+	private boolean readIndex() throws IOException {
+		long size = myChannel.size();
+		if (size < HEADER_LENGTH + 20) {
+			return false;
+		}
+		ByteBuffer trailer = read(size - 12, 12);
+		long indexOffset = trailer.getLong();
+		if (trailer.getInt() != ResultsFileWriter.MAGIC || indexOffset < HEADER_LENGTH || indexOffset > size - 20) {
+			return false;
+		}
+
+		int numEntries = read(indexOffset, 4).getInt();
+		ByteBuffer entryIndex = read(indexOffset + 4, 8 * numEntries);
+		List<Entry> entries = new ArrayList<Entry>(numEntries);
+		for (int i = 0; i < numEntries; i++) {
+			long[] position = new long[]{entryIndex.getLong() + 1};
+			entries.add(readEntry(position));
+		}
+
+		long chunkIndexOffset = indexOffset + 4 + 8 * numEntries;
+		int numChunks = read(chunkIndexOffset, 4).getInt();
+		ByteBuffer chunkIndex = read(chunkIndexOffset + 4, 24 * numChunks);
+		for (int i = 0; i < numChunks; i++) {
+			int id = chunkIndex.getInt();
+			entries.get(id).myChunks.add(new Chunk(chunkIndex.getLong(), chunkIndex.getInt(), chunkIndex.getFloat(), chunkIndex.getFloat()));
+		}
+
+		setEntries(entries);
+		return true;
+	}
+
+	//finds complete records in a file without an index
+	private void scanRecords() throws IOException {
+		List<Entry> entries = new ArrayList<Entry>();
+		long position = HEADER_LENGTH;
+		long size = myChannel.size();
+
+		try {
+			while (position < size) {
+				byte type = read(position, 1).get();
+				if (type == ResultsFileWriter.ENTRY) {
+					long[] p = new long[]{position + 1};
+					Entry entry = readEntry(p);
+					if (entry.myId != entries.size()) {
+						break;
+					}
+					entries.add(entry);
+					position = p[0];
+				} else if (type == ResultsFileWriter.CHUNK) {
+					ByteBuffer header = read(position + 1, CHUNK_HEADER_LENGTH - 1);
+					int id = header.getInt();
+					Chunk chunk = new Chunk(position, header.getInt(), header.getFloat(), header.getFloat());
+					int numBlocks = header.getInt();
+					long end = position + CHUNK_HEADER_LENGTH;
+					for (int i = 0; i < numBlocks; i++) {
+						end += 8 + read(end, 8).getInt(4);
+					}
+					if (end > size || id < 0 || id >= entries.size()) {
+						break;
+					}
+					entries.get(id).myChunks.add(chunk);
+					position = end;
+				} else {
+					break;
+				}
+			}
+		} catch (EOFException e) {
+			//the last record is incomplete
+		}
+
+		setEntries(entries);
+	}
+
+	private void setEntries(List<Entry> entries) {
+		myEntries = new LinkedHashMap<String, Entry>(entries.size() * 2);
+		for (Entry entry : entries) {
+			myEntries.put(entry.myName, entry);
+		}
+	}
+
+	private Entry readEntry(long[] position) throws IOException {
+		ByteBuffer buffer = read(position[0], 8);
+		position[0] += 8;
+		Entry result = new Entry(buffer.getInt(), buffer.getInt());
+		result.myName = readString(position);
+		buffer = read(position[0], 8);
+		position[0] += 8;
+		result.myDimension = buffer.getInt();
+		result.myColumns = buffer.getInt();
+		if (result.myKind == ResultsFileWriter.TIME_SERIES) {
+			result.myUnits = new Units[result.myDimension];
+			result.myLabels = new String[result.myDimension];
+			for (int i = 0; i < result.myDimension; i++) {
+				result.myUnits[i] = Units.valueOf(readString(position));
+				result.myLabels[i] = readString(position);
+			}
+		}
+		return result;
+	}
+
+	private String readString(long[] position) throws IOException {
+		int length = read(position[0], 4).getInt();
+		ByteBuffer bytes = read(position[0] + 4, length);
+		position[0] += 4 + length;
+		return new String(bytes.array(), 0, length, ProbeStreamWriter.UTF8);
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		if (length < 0) {
+			throw new IOException("Results file is corrupt");
+		}
+		ByteBuffer result = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (result.hasRemaining()) {
+			if (myChannel.read(result, position + result.position()) < 0) {
+				throw new EOFException("Results file is truncated");
+			}
+		}
+		result.flip();
+		return result;
+	}
+
+	//inflates the given blocks of a chunk (null elements for blocks that aren't needed)
+	private ByteBuffer[] readBlocks(Chunk chunk, boolean[] needed) throws IOException {
+		ByteBuffer[] result = new ByteBuffer[needed.length];
+		long position = chunk.myOffset + CHUNK_HEADER_LENGTH;
+		for (int i = 0; i < needed.length; i++) {
+			ByteBuffer lengths = read(position, 8);
+			int rawLength = lengths.getInt();
+			int compressedLength = lengths.getInt();
+			if (needed[i]) {
+				ByteBuffer compressed = read(position + 8, compressedLength);
+				byte[] raw = new byte[rawLength];
+				myInflater.reset();
+				myInflater.setInput(compressed.array(), 0, compressedLength);
+				try {
+					int n = 0;
+					while (n < rawLength && !myInflater.finished()) {
+						int inflated = myInflater.inflate(raw, n, rawLength - n);
+						if (inflated == 0 && myInflater.needsInput()) {
+							break;
+						}
+						n += inflated;
+					}
+					if (n < rawLength) {
+						throw new IOException("Results file block is truncated");
+					}
+				} catch (DataFormatException e) {
+					throw new IOException("Results file block is corrupt: " + e.getMessage());
+				}
+				result[i] = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+			}
+			position += 8 + compressedLength;
+		}
+		return result;
+	}
+
+	private Entry getEntry(String name) {
+		Entry result = myEntries.get(name);
+		if (result == null) {
+			throw new IllegalArgumentException("There is no entry named " + name);
+		}
+		return result;
+	}
+
+	private Entry getEntry(String name, int kind) {
+		Entry result = getEntry(name);
+		if (kind != result.myKind) {
+			throw new IllegalArgumentException("Entry " + name + " is not of the requested kind");
+		}
+		return result;
+	}
+
+	/**
+	 * @return Names of the entries in the file, in the order they were written
+	 */
+	public String[] getNames() {
+		return myEntries.keySet().toArray(new String[0]);
+	}
+
+	/**
+	 * @param name Name of an entry
+	 * @return Kind of entry (ResultsFileWriter.TIME_SERIES, SPIKE_PATTERN, or MATRIX)
+	 */
+	public int getKind(String name) {
+		return getEntry(name).myKind;
+	}
+
+	/**
+	 * @param name Name of an entry
+	 * @return Number of channels of a time series, neurons of a spike pattern, or rows of a matrix
+	 */
+	public int getDimension(String name) {
+		return getEntry(name).myDimension;
+	}
+
+	/**
+	 * @param name Name of an entry
+	 * @return Number of samples of a time series, spikes of a spike pattern, or rows of a matrix
+	 */
+	public int getLength(String name) {
+		int result = 0;
+		for (Chunk chunk : getEntry(name).myChunks) {
+			result += chunk.myCount;
+		}
+		return result;
+	}
+
+	/**
+	 * @param name Name of a time series entry
+	 * @return All samples of the time series
+	 * @throws IOException if the file can't be read
+	 */
+	public TimeSeries readTimeSeries(String name) throws IOException {
+		return readTimeSeries(name, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, null);
+	}
+
+	/**
+	 * @param name Name of a time series entry
+	 * @param startTime Time of the first sample to read
+	 * @param endTime Time of the last sample to read
+	 * @param channels Indices of channels to read (all channels if null)
+	 * @return Samples of the given channels between the given times (inclusive)
+	 * @throws IOException if the file can't be read
+	 */
+	public TimeSeries readTimeSeries(String name, float startTime, float endTime, int[] channels) throws IOException {
+		Entry entry = getEntry(name, ResultsFileWriter.TIME_SERIES);
+		if (channels == null) {
+			channels = new int[entry.myDimension];
+			for (int j = 0; j < channels.length; j++) {
+				channels[j] = j;
+			}
+		}
+
+		boolean[] needed = new boolean[1 + entry.myDimension];
+		needed[0] = true;
+		for (int channel : channels) {
+			needed[1 + channel] = true;
+		}
+
+		List<Float> times = new ArrayList<Float>();
+		List<float[]> values = new ArrayList<float[]>();
+		for (Chunk chunk : entry.myChunks) {
+			if (chunk.myEndTime < startTime || chunk.myStartTime > endTime) {
+				continue;
+			}
+
+			ByteBuffer[] blocks = readBlocks(chunk, needed);
+			for (int i = 0; i < chunk.myCount; i++) {
+				float time = blocks[0].getFloat(4 * i);
+				if (time >= startTime && time <= endTime) {
+					times.add(Float.valueOf(time));
+					float[] row = new float[channels.length];
+					for (int j = 0; j < channels.length; j++) {
+						row[j] = blocks[1 + channels[j]].getFloat(4 * i);
+					}
+					values.add(row);
+				}
+			}
+		}
+
+		float[] resultTimes = new float[times.size()];
+		for (int i = 0; i < resultTimes.length; i++) {
+			resultTimes[i] = times.get(i).floatValue();
+		}
+		Units[] units = new Units[channels.length];
+		String[] labels = new String[channels.length];
+		for (int j = 0; j < channels.length; j++) {
+			units[j] = entry.myUnits[channels[j]];
+			labels[j] = entry.myLabels[channels[j]];
+		}
+
+		TimeSeriesImpl result = new TimeSeriesImpl(resultTimes, values.toArray(new float[0][]), units, labels);
+		result.setName(name);
+		return result;
+	}
+
+	/**
+	 * @param name Name of a spike pattern entry
+	 * @return All spikes of the pattern
+	 * @throws IOException if the file can't be read
+	 */
+	public SpikePattern readSpikePattern(String name) throws IOException {
+		return readSpikePattern(name, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * @param name Name of a spike pattern entry
+	 * @param startTime Time of the first spike to read
+	 * @param endTime Time of the last spike to read
+	 * @return Spikes between the given times (inclusive)
+	 * @throws IOException if the file can't be read
+	 */
+	public SpikePattern readSpikePattern(String name, float startTime, float endTime) throws IOException {
+		Entry entry = getEntry(name, ResultsFileWriter.SPIKE_PATTERN);
+		SpikePatternImpl result = new SpikePatternImpl(entry.myDimension);
+
+		boolean[] needed = new boolean[]{true, true};
+		for (Chunk chunk : entry.myChunks) {
+			if (chunk.myEndTime < startTime || chunk.myStartTime > endTime) {
+				continue;
+			}
+
+			ByteBuffer[] blocks = readBlocks(chunk, needed);
+			for (int i = 0; i < chunk.myCount; i++) {
+				float time = blocks[0].getFloat(4 * i);
+				if (time >= startTime && time <= endTime) {
+					result.addSpike(blocks[1].getInt(4 * i), time);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param name Name of a matrix entry
+	 * @return The matrix
+	 * @throws IOException if the file can't be read
+	 */
+	public float[][] readMatrix(String name) throws IOException {
+		Entry entry = getEntry(name, ResultsFileWriter.MATRIX);
+		float[][] result = new float[entry.myDimension][entry.myColumns];
+		if (entry.myChunks.isEmpty()) {
+			throw new EOFException("Matrix " + name + " is missing from the file");
+		}
+
+		ByteBuffer block = readBlocks(entry.myChunks.get(0), new boolean[]{true})[0];
+		for (int i = 0; i < result.length; i++) {
+			block.asFloatBuffer().get(result[i]);
+			block.position(block.position() + 4 * entry.myColumns);
+		}
+		return result;
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	public void close() throws IOException {
+		myInflater.end();
+		myFile.close();
+	}
+
+	private static class Entry {
+
+		private final int myId;
+		private final int myKind;
+		private String myName;
+		private int myDimension;
+		private int myColumns;
+		private Units[] myUnits;
+		private String[] myLabels;
+		private final List<Chunk> myChunks;
+
+		public Entry(int id, int kind) {
+			myId = id;
+			myKind = kind;
+			myChunks = new ArrayList<Chunk>();
+		}
+	}
+
+	private static class Chunk {
+
+		private final long myOffset;
+		private final int myCount;
+		private final float myStartTime;
+		private final float myEndTime;
+
+		public Chunk(long offset, int count, float startTime, float endTime) {
+			myOffset = offset;
+			myCount = count;
+			myStartTime = startTime;
+			myEndTime = endTime;
+		}
+	}
+
+}
@@ -0,0 +1,594 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ResultsFileWriter.java". Description:
+"Writes simulation results to a chunked, compressed binary file"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import ca.nengo.model.Units;
+import ca.nengo.util.SpikePattern;
+import ca.nengo.util.TimeSeries;
+import ca.nengo.util.impl.ColumnarTimeSeries;
+
+/**
+ * <p>Writes simulation results (TimeSeries, SpikePatterns, and matrices) to a single binary file,
+ * which can be read back with ResultsFileReader. Time series and spikes can be written
+ * incrementally during a simulation, through the handles returned by addSeries() and addSpikes().</p>
+ *
+ * <p>The file (little-endian) has a header (magic number and version) followed by records. An entry
+ * record (type, id, kind, name, dimension, number of columns, and for time series the units and
+ * label of each channel) describes each data item. A chunk record (type, entry id, number of
+ * samples, first and last time, number of blocks, then each block as its uncompressed length,
+ * compressed length and deflated bytes) holds up to chunkSize samples of an entry. The times and
+ * each channel of a time series are compressed in separate blocks, so that selected channels can
+ * be read without inflating the others. Spike chunks have a block of times and a block of neuron
+ * indices; a matrix is written as one chunk with one block.</p>
+ *
+ * <p>On close, an index of the entries and chunks (with the time span of each chunk) is written,
+ * followed by its offset and the magic number. If a file isn't closed, its records can still
+ * be read, without the index.</p>
+ *
+ * @author agent
+ */
+public class ResultsFileWriter implements Closeable {
+
+	static final int MAGIC = 0x5345524E; //"NRES"
+	static final int VERSION = 1;
+
+	static final byte ENTRY = 1;
+	static final byte CHUNK = 2;
+
+	/**
+	 * Kind of entry that holds a TimeSeries
+	 */
+	public static final int TIME_SERIES = 1;
+
+	/**
+	 * Kind of entry that holds a SpikePattern
+	 */
+	public static final int SPIKE_PATTERN = 2;
+
+	/**
+	 * Kind of entry that holds a matrix
+	 */
+	public static final int MATRIX = 3;
+
+	/**
+	 * Default number of samples (or spikes) in a chunk
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+	private final RandomAccessFile myFile;
+	private final FileChannel myChannel;
+	private final int myChunkSize;
+	private final Deflater myDeflater;
+	private final Set<String> myNames;
+	private final List<Buffered> myOpenEntries;
+	private ByteBuffer myEntryIndex;
+	private ByteBuffer myChunkIndex;
+	private int myNumChunks;
+	private byte[] myCompressed;
+	private boolean myClosed;
+
+	/**
+	 * @param file File to write (overwritten if it exists)
+	 * @throws IOException if the file can't be written
+	 */
+	public ResultsFileWriter(File file) throws IOException {
+		this(file, DEFAULT_CHUNK_SIZE, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * @param file File to write (overwritten if it exists)
+	 * @param chunkSize Number of samples (or spikes) in a chunk
+	 * @param level Compression level (0-9, or Deflater.DEFAULT_COMPRESSION)
+	 * @throws IOException if the file can't be written
+	 */
+	public ResultsFileWriter(File file, int chunkSize, int level) throws IOException {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+
+		myChunkSize = chunkSize;
+		myDeflater = new Deflater(level);
+		myNames = new HashSet<String>(20);
+		myOpenEntries = new ArrayList<Buffered>(10);
+		myEntryIndex = allocate(256);
+		myChunkIndex = allocate(1024);
+		myCompressed = new byte[1024];
+
+		myFile = new RandomAccessFile(file, "rw");
+		myFile.setLength(0);
+		myChannel = myFile.getChannel();
+
+		ByteBuffer header = allocate(8);
+		header.putInt(MAGIC).putInt(VERSION).flip();
+		write(header);
+	}
+
+	/**
+	 * @return Number of samples (or spikes) in a chunk
+	 */
+	public int getChunkSize() {
+		return myChunkSize;
+	}
+
+	/**
+	 * Starts a time series entry that can be written a sample at a time.
+	 *
+	 * @param name Unique name of the entry
+	 * @param units Units of each channel
+	 * @param labels Label of each channel
+	 * @return Handle through which to append samples
+	 * @throws IOException if the file can't be written
+	 */
+	public synchronized Series addSeries(String name, Units[] units, String[] labels) throws IOException {
+		if (units.length != labels.length) {
+			throw new IllegalArgumentException("There are " + units.length + " units but " + labels.length + " labels");
+		}
+
+		int id = writeEntry(name, TIME_SERIES, units.length, 0, units, labels);
+		Series result = new Series(id, units.length);
+		myOpenEntries.add(result);
+		return result;
+	}
+
+	/**
+	 * Starts a spike pattern entry that can be written a spike at a time.
+	 *
+	 * @param name Unique name of the entry
+	 * @param numNeurons Number of neurons in the population
+	 * @return Handle through which to append spikes
+	 * @throws IOException if the file can't be written
+	 */
+	public synchronized Spikes addSpikes(String name, int numNeurons) throws IOException {
+		int id = writeEntry(name, SPIKE_PATTERN, numNeurons, 0, null, null);
+		Spikes result = new Spikes(id);
+		myOpenEntries.add(result);
+		return result;
+	}
+
+	/**
+	 * @param name Unique name of the entry
+	 * @param series A complete TimeSeries to write
+	 * @throws IOException if the file can't be written
+	 */
+	public void addTimeSeries(String name, TimeSeries series) throws IOException {
+		Series handle = addSeries(name, series.getUnits(), series.getLabels());
+		float[] times = series.getTimes();
+		int dim = series.getDimension();
+
+		if (series instanceof ColumnarTimeSeries) {
+			ColumnarTimeSeries columnar = (ColumnarTimeSeries) series;
+			float[][] columns = new float[dim][];
+			for (int j = 0; j < dim; j++) {
+				columns[j] = columnar.getColumn(j);
+			}
+			handle.append(times, columns);
+		} else {
+			float[][] values = series.getValues();
+			for (int i = 0; i < times.length; i++) {
+				handle.append(times[i], values[i]);
+			}
+		}
+		handle.flush();
+	}
+
+	/**
+	 * Writes a spike pattern. Spikes are ordered by time, so that time windows can be read
+	 * efficiently.
+	 *
+	 * @param name Unique name of the entry
+	 * @param pattern A complete SpikePattern to write
+	 * @throws IOException if the file can't be written
+	 */
+	public void addSpikePattern(String name, SpikePattern pattern) throws IOException {
+		int n = pattern.getNumNeurons();
+
+		int total = 0;
+		float[][] spikeTimes = new float[n][];
+		for (int i = 0; i < n; i++) {
+			spikeTimes[i] = pattern.getSpikeTimes(i);
+			total += spikeTimes[i].length;
+		}
+
+		//sort by time, then neuron, using a key array
+		long[] keys = new long[total];
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < spikeTimes[i].length; j++) {
+				keys[k++] = ((long) sortable(Float.floatToIntBits(spikeTimes[i][j])) << 32) | i;
+			}
+		}
+		Arrays.sort(keys);
+
+		Spikes handle = addSpikes(name, n);
+		for (int i = 0; i < total; i++) {
+			handle.append((int) keys[i], Float.intBitsToFloat(sortable((int) (keys[i] >> 32))));
+		}
+		handle.flush();
+	}
+
+	//maps float bits to ints that sort in the same order as the floats (and back again)
+	private static int sortable(int bits) {
+		return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+	}
+
+	/**
+	 * @param name Unique name of the entry
+	 * @param matrix A matrix to write (rows must be the same length)
+	 * @throws IOException if the file can't be written
+	 */
+	public synchronized void addMatrix(String name, float[][] matrix) throws IOException {
+		int columns = (matrix.length == 0) ? 0 : matrix[0].length;
+		ByteBuffer values = allocate(4 * matrix.length * columns);
+		for (int i = 0; i < matrix.length; i++) {
+			if (matrix[i].length != columns) {
+				throw new IllegalArgumentException("Row " + i + " has " + matrix[i].length + " columns (expected " + columns + ")");
+			}
+			values.asFloatBuffer().put(matrix[i]);
+			values.position(values.position() + 4 * columns);
+		}
+
+		int id = writeEntry(name, MATRIX, matrix.length, columns, null, null);
+		writeChunk(id, matrix.length, 0, 0, new ByteBuffer[]{values});
+	}
+
+	/**
+	 * Writes buffered samples and spikes of all entries as (possibly short) chunks.
+	 *
+	 * @throws IOException if the file can't be written
+	 */
+	public synchronized void flush() throws IOException {
+		for (Buffered entry : myOpenEntries) {
+			entry.flush();
+		}
+	}
+
+	/**
+	 * Writes buffered data and the index, and closes the file.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	public synchronized void close() throws IOException {
+		if (myClosed) {
+			return;
+		}
+
+		try {
+			flush();
+
+			long indexOffset = myChannel.position();
+			ByteBuffer count = allocate(4);
+			count.putInt(myNames.size()).flip();
+			write(count);
+			myEntryIndex.flip();
+			write(myEntryIndex);
+
+			count.clear();
+			count.putInt(myNumChunks).flip();
+			write(count);
+			myChunkIndex.flip();
+			write(myChunkIndex);
+
+			ByteBuffer trailer = allocate(12);
+			trailer.putLong(indexOffset).putInt(MAGIC).flip();
+			write(trailer);
+		} finally {
+			myClosed = true;
+			myDeflater.end();
+			myFile.close();
+		}
+	}
+
+	private int writeEntry(String name, int kind, int dimension, int columns, Units[] units, String[] labels) throws IOException {
+		checkOpen();
+		if (name == null || !myNames.add(name)) {
+			throw new IllegalArgumentException("Entry names must be unique and not null: " + name);
+		}
+		int id = myNames.size() - 1;
+
+		myEntryIndex = ensureCapacity(myEntryIndex, 8);
+		myEntryIndex.putLong(myChannel.position());
+
+		ByteBuffer record = allocate(256);
+		record.put(ENTRY).putInt(id).putInt(kind);
+		record = putString(record, name);
+		record = ensureCapacity(record, 8);
+		record.putInt(dimension).putInt(columns);
+		if (kind == TIME_SERIES) {
+			for (int i = 0; i < dimension; i++) {
+				record = putString(record, units[i].name());
+				record = putString(record, (labels[i] == null) ? "" : labels[i]);
+			}
+		}
+		record.flip();
+		write(record);
+
+		return id;
+	}
+
+	private void writeChunk(int id, int count, float startTime, float endTime, ByteBuffer[] blocks) throws IOException {
+		checkOpen();
+
+		myChunkIndex = ensureCapacity(myChunkIndex, 24);
+		myChunkIndex.putInt(id).putLong(myChannel.position()).putInt(count).putFloat(startTime).putFloat(endTime);
+		myNumChunks++;
+
+		ByteBuffer header = allocate(21);
+		header.put(CHUNK).putInt(id).putInt(count).putFloat(startTime).putFloat(endTime).putInt(blocks.length).flip();
+		write(header);
+
+		ByteBuffer lengths = allocate(8);
+		for (int i = 0; i < blocks.length; i++) {
+			byte[] raw = blocks[i].array();
+			int rawLength = blocks[i].position();
+
+			myDeflater.reset();
+			myDeflater.setInput(raw, 0, rawLength);
+			myDeflater.finish();
+			int compressedLength = 0;
+			while (!myDeflater.finished()) {
+				if (compressedLength == myCompressed.length) {
+					byte[] larger = new byte[2 * myCompressed.length];
+					System.arraycopy(myCompressed, 0, larger, 0, compressedLength);
+					myCompressed = larger;
+				}
+				compressedLength += myDeflater.deflate(myCompressed, compressedLength, myCompressed.length - compressedLength);
+			}
+
+			lengths.clear();
+			lengths.putInt(rawLength).putInt(compressedLength).flip();
+			write(lengths);
+			write(ByteBuffer.wrap(myCompressed, 0, compressedLength));
+		}
+	}
+
+	private void checkOpen() throws IOException {
+		if (myClosed) {
+			throw new IOException("The file has been closed");
+		}
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			myChannel.write(buffer);
+		}
+	}
+
+	static ByteBuffer allocate(int capacity) {
+		return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static ByteBuffer putString(ByteBuffer buffer, String s) {
+		byte[] bytes = s.getBytes(ProbeStreamWriter.UTF8);
+		buffer = ensureCapacity(buffer, 4 + bytes.length);
+		buffer.putInt(bytes.length).put(bytes);
+		return buffer;
+	}
+
+	private static ByteBuffer ensureCapacity(ByteBuffer buffer, int extra) {
+		if (buffer.remaining() >= extra) {
+			return buffer;
+		}
+		ByteBuffer result = allocate(2 * buffer.capacity() + extra);
+		buffer.flip();
+		result.put(buffer);
+		return result;
+	}
+
+	private interface Buffered {
+		public void flush() throws IOException;
+	}
+
+	/**
+	 * Handle for writing a time series entry a sample at a time.
+	 */
+	public class Series implements Buffered {
+
+		private final int myId;
+		private final ByteBuffer myTimes;
+		private final ByteBuffer[] myChannels;
+		private int myCount;
+		private float myStartTime;
+		private float myEndTime;
+
+		private Series(int id, int dimension) {
+			myId = id;
+			myTimes = allocate(4 * myChunkSize);
+			myChannels = new ByteBuffer[dimension];
+			for (int j = 0; j < dimension; j++) {
+				myChannels[j] = allocate(4 * myChunkSize);
+			}
+		}
+
+		/**
+		 * @return Number of channels
+		 */
+		public int getDimension() {
+			return myChannels.length;
+		}
+
+		/**
+		 * @param time Time of the sample
+		 * @param values Value of each channel
+		 * @throws IOException if the file can't be written
+		 */
+		public void append(float time, float[] values) throws IOException {
+			if (values.length != myChannels.length) {
+				throw new IllegalArgumentException("Expected " + myChannels.length + " values (was " + values.length + ")");
+			}
+
+			synchronized (ResultsFileWriter.this) {
+				if (myCount == 0) {
+					myStartTime = time;
+				}
+				myEndTime = time;
+				myTimes.putFloat(time);
+				for (int j = 0; j < myChannels.length; j++) {
+					myChannels[j].putFloat(values[j]);
+				}
+				myCount++;
+
+				if (myCount == myChunkSize) {
+					flush();
+				}
+			}
+		}
+
+		/**
+		 * @param times Times of a number of samples
+		 * @param columns Values of each channel at each time ([channel][sample])
+		 * @throws IOException if the file can't be written
+		 */
+		public void append(float[] times, float[][] columns) throws IOException {
+			if (columns.length != myChannels.length) {
+				throw new IllegalArgumentException("Expected " + myChannels.length + " channels (was " + columns.length + ")");
+			}
+
+			synchronized (ResultsFileWriter.this) {
+				int i = 0;
+				while (i < times.length) {
+					if (myCount == 0) {
+						myStartTime = times[i];
+					}
+					int n = Math.min(myChunkSize - myCount, times.length - i);
+					myTimes.asFloatBuffer().put(times, i, n);
+					myTimes.position(myTimes.position() + 4 * n);
+					for (int j = 0; j < myChannels.length; j++) {
+						myChannels[j].asFloatBuffer().put(columns[j], i, n);
+						myChannels[j].position(myChannels[j].position() + 4 * n);
+					}
+					myCount += n;
+					i += n;
+					myEndTime = times[i-1];
+
+					if (myCount == myChunkSize) {
+						flush();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Writes any buffered samples as a (possibly short) chunk.
+		 *
+		 * @throws IOException if the file can't be written
+		 */
+		public void flush() throws IOException {
+			synchronized (ResultsFileWriter.this) {
+				if (myCount == 0) {
+					return;
+				}
+
+				ByteBuffer[] blocks = new ByteBuffer[1 + myChannels.length];
+				blocks[0] = myTimes;
+				System.arraycopy(myChannels, 0, blocks, 1, myChannels.length);
+				writeChunk(myId, myCount, myStartTime, myEndTime, blocks);
+
+				for (ByteBuffer block : blocks) {
+					block.clear();
+				}
+				myCount = 0;
+			}
+		}
+	}
+
+	/**
+	 * Handle for writing a spike pattern entry a spike at a time. Spikes should be appended in
+	 * order of time.
+	 */
+	public class Spikes implements Buffered {
+
+		private final int myId;
+		private final ByteBuffer myTimes;
+		private final ByteBuffer myNeurons;
+		private int myCount;
+		private float myStartTime;
+		private float myEndTime;
+
+		private Spikes(int id) {
+			myId = id;
+			myTimes = allocate(4 * myChunkSize);
+			myNeurons = allocate(4 * myChunkSize);
+		}
+
+		/**
+		 * @param neuron Index of the neuron that spiked
+		 * @param time Time of the spike
+		 * @throws IOException if the file can't be written
+		 */
+		public void append(int neuron, float time) throws IOException {
+			synchronized (ResultsFileWriter.this) {
+				if (myCount == 0 || time < myStartTime) {
+					myStartTime = time;
+				}
+				if (myCount == 0 || time > myEndTime) {
+					myEndTime = time;
+				}
+				myTimes.putFloat(time);
+				myNeurons.putInt(neuron);
+				myCount++;
+
+				if (myCount == myChunkSize) {
+					flush();
+				}
+			}
+		}
+
+		/**
+		 * Writes any buffered spikes as a (possibly short) chunk.
+		 *
+		 * @throws IOException if the file can't be written
+		 */
+		public void flush() throws IOException {
+			synchronized (ResultsFileWriter.this) {
+				if (myCount == 0) {
+					return;
+				}
+
+				writeChunk(myId, myCount, myStartTime, myEndTime, new ByteBuffer[]{myTimes, myNeurons});
+				myTimes.clear();
+				myNeurons.clear();
+				myCount = 0;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "LinearTransform.java". Description:
+"A linear map between vector spaces that may be applied without a dense matrix"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math;
+
+import java.io.Serializable;
+
+/**
+ * <p>A linear map between vector spaces. This is equivalent to a matrix, but implementations
+ * may have structure (e.g. circulant or Fourier matrices) that allows them to be applied to
+ * a vector in less than O(mn) time.</p>
+ *
+ * <p>Implementations are expected to be immutable, so that they can be shared between objects
+ * and used from multiple threads.</p>
+ *
+ * @author agent
+ */
+public interface LinearTransform extends Serializable {
+
+	/**
+	 * @return Dimension of vectors to which this transform can be applied
+	 */
+	public int getInputDimension();
+
+	/**
+	 * @return Dimension of the results of this transform
+	 */
+	public int getOutputDimension();
+
+	/**
+	 * @param input A vector of length getInputDimension()
+	 * @return The product of this transform and the input, of length getOutputDimension()
+	 */
+	public float[] apply(float[] input);
+
+	/**
+	 * @return The equivalent matrix (getOutputDimension() rows by getInputDimension() columns)
+	 */
+	public float[][] getMatrix();
+
+}
@@ -37,6 +37,7 @@ import java.util.Random;
 public class PDFTools {
 	
 	private static final Random ourRandom = new Random();
+	private static final ThreadLocal<Random> ourThreadRandom = new InheritableThreadLocal<Random>();
 
 	/**
 	 * Note: PDF treated as univariate (only first dimension considered). 
@@ -76,7 +77,8 @@ public class PDFTools {
 	 * @return A random sample between 0 and 1
 	 */
 	public static double random() {
-		return ourRandom.nextDouble();
+		Random random = ourThreadRandom.get();
+		return (random == null) ? ourRandom.nextDouble() : random.nextDouble();
 	}
 	
 	/**
@@ -85,5 +87,27 @@ public class PDFTools {
 	public static void setSeed(long seed) {
 		ourRandom.setSeed(seed);
 	}
+
+	/**
+	 * Gives the calling thread (and threads it starts) its own generator for random(), so that
+	 * results are reproducible when several threads draw random numbers at once.
+	 *
+	 * @param random Generator for this thread, or null to go back to the shared generator
+	 */
+	public static void setThreadRandom(Random random) {
+		if (random == null) {
+			ourThreadRandom.remove();
+		} else {
+			ourThreadRandom.set(random);
+		}
+	}
+
+	/**
+	 * @return The calling thread's own generator (see setThreadRandom(...)), or null if it uses
+	 * 		the shared generator
+	 */
+	public static Random getThreadRandom() {
+		return ourThreadRandom.get();
+	}
 	
 }
@@ -0,0 +1,55 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "PseudoInverter.java". Description:
+"Computes (pseudo-)inverses of matrices, e.g. the correlation matrix used to find decoders"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math;
+
+import java.io.Serializable;
+
+/**
+ * <p>Computes the inverse, or a pseudo-inverse, of a square matrix. WeightedCostApproximator
+ * uses a PseudoInverter to invert the correlation matrix GAMMA (which is symmetric and
+ * positive semi-definite), so implementations may exploit that structure, but they must
+ * still return a sensible result for general matrices.</p>
+ *
+ * <p>Implementations should be stateless, so that they can be shared between approximators
+ * and used from multiple threads.</p>
+ *
+ * @author agent
+ */
+public interface PseudoInverter extends Serializable {
+
+	/**
+	 * @param matrix A square matrix (not modified)
+	 * @param minSV Singular values (or eigenvalues) at or below this magnitude are treated as noise.
+	 * 		Implementations that regularise rather than truncate use it as the regularisation.
+	 * @param nSV Maximum number of singular values (or eigenvalues) to keep (zero or less means
+	 * 		no maximum). Implementations that don't truncate may ignore it.
+	 * @return Inverse or pseudo-inverse of the matrix
+	 */
+	public double[][] invert(double[][] matrix, float minSV, int nSV);
+
+}
@@ -0,0 +1,47 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "StreamingApproximatorFactory.java". Description:
+"An ApproximatorFactory that can work from values produced on demand"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math;
+
+/**
+ * An ApproximatorFactory that can produce LinearApproximators from a ValueSource, so that the
+ * values of the component functions never have to be in memory all at once. Callers that can
+ * compute the values in chunks (e.g. NEFEnsembleImpl) should prefer this method.
+ *
+ * @author agent
+ */
+public interface StreamingApproximatorFactory extends ApproximatorFactory {
+
+	/**
+	 * @param evalPoints Points at which component functions are evaluated
+	 * @param values Produces the values of the component functions at the evalPoints
+	 * @return A LinearApproximator that can be used to approximate new Functions as a weighted
+	 * 		sum of the given components.
+	 */
+	public LinearApproximator getApproximator(float[][] evalPoints, ValueSource values);
+
+}
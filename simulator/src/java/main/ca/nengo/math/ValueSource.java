@@ -0,0 +1,59 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ValueSource.java". Description:
+"Produces values of component functions at ranges of evaluation points, on demand"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math;
+
+import java.io.Serializable;
+
+/**
+ * Produces the values of a set of component functions (e.g. neuron firing rates) at ranges of
+ * evaluation points, on demand. This allows approximators to work through the values in chunks,
+ * rather than holding the whole (functions x points) matrix in memory.
+ *
+ * @author agent
+ */
+public interface ValueSource extends Serializable {
+
+	/**
+	 * @return Number of component functions
+	 */
+	public int getNumFunctions();
+
+	/**
+	 * @return Number of evaluation points
+	 */
+	public int getNumPoints();
+
+	/**
+	 * @param start Index of first evaluation point (inclusive)
+	 * @param end Index of last evaluation point (exclusive)
+	 * @return Values of component functions at the given evaluation points (the first dimension
+	 * 		corresponds to the function, the second to the evaluation point)
+	 */
+	public float[][] getValues(int start, int end);
+
+}
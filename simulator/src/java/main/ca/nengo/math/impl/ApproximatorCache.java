@@ -0,0 +1,536 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ApproximatorCache.java". Description:
+"A content-addressed, size-limited disk cache of GAMMA inverses and decoders"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>A disk cache of the inverses of GAMMA matrices and the decoders found from them, keyed by
+ * SHA-256 digests of everything they depend on (see WeightedCostApproximator). Neuron parameters
+ * and encoders enter the key through the activities they produce at the evaluation points, so
+ * an identical ensemble built again (e.g. with the same seed) finds its entries whatever kind of
+ * neurons it has, and a different ensemble can't collide with it.</p>
+ *
+ * <p>Entries are files named by their keys, in a compact binary format (a GAMMA inverse is stored
+ * as its upper triangle). The least recently used entries are deleted when the directory grows
+ * beyond a size limit. Several JVMs can share a directory: entries are written to temporary files
+ * and renamed into place, so a partly-written entry is never read, and eviction is serialized with
+ * a lock file. An entry that is deleted or damaged while it is read is simply treated as missing.</p>
+ *
+ * @author agent
+ */
+public class ApproximatorCache {
+
+	private static Logger ourLogger = Logger.getLogger(ApproximatorCache.class);
+
+	/**
+	 * System property that names a directory for the default cache
+	 */
+	public static final String DIRECTORY_PROPERTY = "ca.nengo.approximatorCache";
+
+	/**
+	 * Default size limit in bytes
+	 */
+	public static final long DEFAULT_MAX_BYTES = 1L << 30;
+
+	private static final int MAGIC = 0x4e474331; //"NGC1"
+	private static final byte INVERSE = 1;
+	private static final byte COEFFICIENTS = 2;
+	private static final int HEADER_BYTES = 9;
+	private static final String INVERSE_EXTENSION = ".inv";
+	private static final String COEFFICIENTS_EXTENSION = ".dec";
+	private static final String LOCK_FILE = "cache.lock";
+
+	private static volatile ApproximatorCache ourDefault;
+	private static volatile boolean ourDefaultChecked;
+
+	private final File myDirectory;
+	private final long myMaxBytes;
+	private long myEstimatedBytes = -1;
+
+	/**
+	 * @param directory Directory in which entries are kept (created if necessary)
+	 * @param maxBytes Approximate limit on the total size of entries
+	 */
+	public ApproximatorCache(File directory, long maxBytes) {
+		myDirectory = directory;
+		myMaxBytes = maxBytes;
+		if (!directory.exists() && !directory.mkdirs() && !directory.isDirectory()) {
+			ourLogger.warn("Can't create approximator cache directory " + directory.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * @return The cache used by WeightedCostApproximators, or null if there isn't one. Unless
+	 * 		setDefault(...) has been called, this is a cache in the directory named by the
+	 * 		system property DIRECTORY_PROPERTY, if it is set.
+	 */
+	public static ApproximatorCache getDefault() {
+		if (!ourDefaultChecked) {
+			synchronized (ApproximatorCache.class) {
+				if (!ourDefaultChecked) {
+					String directory = System.getProperty(DIRECTORY_PROPERTY);
+					if (directory != null && directory.length() > 0) {
+						ourDefault = new ApproximatorCache(new File(directory), DEFAULT_MAX_BYTES);
+					}
+					ourDefaultChecked = true;
+				}
+			}
+		}
+		return ourDefault;
+	}
+
+	/**
+	 * @param cache The cache to be used by WeightedCostApproximators (null for none)
+	 */
+	public static synchronized void setDefault(ApproximatorCache cache) {
+		ourDefault = cache;
+		ourDefaultChecked = true;
+	}
+
+	/**
+	 * @return Directory in which entries are kept
+	 */
+	public File getDirectory() {
+		return myDirectory;
+	}
+
+	/**
+	 * @return Approximate limit on the total size of entries
+	 */
+	public long getMaxBytes() {
+		return myMaxBytes;
+	}
+
+	/**
+	 * @param key Key of a GAMMA inverse
+	 * @return True if the cache has an entry for the key (it may still be evicted before it is read)
+	 */
+	public boolean hasInverse(String key) {
+		return getFile(key, INVERSE_EXTENSION).exists();
+	}
+
+	/**
+	 * @param key Key of a GAMMA inverse
+	 * @param n Expected number of rows
+	 * @return The cached (symmetric) inverse, or null if there isn't one
+	 */
+	public double[][] getInverse(String key, int n) {
+		ByteBuffer buffer = read(key, INVERSE_EXTENSION, INVERSE, n, 8L * n * (n + 1) / 2);
+		if (buffer == null) {
+			return null;
+		}
+
+		double[][] result = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = i; j < n; j++) {
+				result[i][j] = buffer.getDouble();
+				result[j][i] = result[i][j];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param key Key of a GAMMA inverse
+	 * @param inverse The (symmetric) inverse to store
+	 */
+	public void putInverse(String key, double[][] inverse) {
+		int n = inverse.length;
+		ByteBuffer buffer = allocate(INVERSE, n, 8L * n * (n + 1) / 2);
+		if (buffer == null) {
+			return;
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = i; j < n; j++) {
+				buffer.putDouble(inverse[i][j]);
+			}
+		}
+		write(key, INVERSE_EXTENSION, buffer);
+	}
+
+	/**
+	 * @param key Key of a set of coefficients
+	 * @param n Expected number of coefficients
+	 * @return The cached coefficients, or null if there aren't any
+	 */
+	public float[] getCoefficients(String key, int n) {
+		ByteBuffer buffer = read(key, COEFFICIENTS_EXTENSION, COEFFICIENTS, n, 4L * n);
+		if (buffer == null) {
+			return null;
+		}
+
+		float[] result = new float[n];
+		buffer.asFloatBuffer().get(result);
+		return result;
+	}
+
+	/**
+	 * @param key Key of a set of coefficients
+	 * @param coefficients The coefficients to store
+	 */
+	public void putCoefficients(String key, float[] coefficients) {
+		ByteBuffer buffer = allocate(COEFFICIENTS, coefficients.length, 4L * coefficients.length);
+		buffer.asFloatBuffer().put(coefficients);
+		buffer.position(buffer.limit());
+		write(key, COEFFICIENTS_EXTENSION, buffer);
+	}
+
+	/**
+	 * Deletes all entries.
+	 */
+	public synchronized void clear() {
+		for (File file : getEntries()) {
+			delete(file);
+		}
+		myEstimatedBytes = 0;
+	}
+
+	/**
+	 * @return Total size of entries in bytes
+	 */
+	public long getSize() {
+		long result = 0;
+		for (File file : getEntries()) {
+			result += file.length();
+		}
+		return result;
+	}
+
+	private File getFile(String key, String extension) {
+		return new File(myDirectory, key + extension);
+	}
+
+	private static ByteBuffer allocate(byte type, int n, long dataBytes) {
+		if (HEADER_BYTES + dataBytes > Integer.MAX_VALUE) {
+			return null;
+		}
+		ByteBuffer result = ByteBuffer.allocate((int) (HEADER_BYTES + dataBytes)).order(ByteOrder.LITTLE_ENDIAN);
+		result.putInt(MAGIC);
+		result.put(type);
+		result.putInt(n);
+		return result;
+	}
+
+	//contents of an entry after the header, or null if it is missing or doesn't match
+	private ByteBuffer read(String key, String extension, byte type, int n, long dataBytes) {
+		File file = getFile(key, extension);
+		if (!file.exists() || HEADER_BYTES + dataBytes > Integer.MAX_VALUE) {
+			return null;
+		}
+
+		ByteBuffer result;
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				result = ByteBuffer.allocate((int) Math.min(raf.length(), HEADER_BYTES + dataBytes)).order(ByteOrder.LITTLE_ENDIAN);
+				FileChannel channel = raf.getChannel();
+				while (result.hasRemaining() && channel.read(result) >= 0) {
+				}
+			} finally {
+				raf.close();
+			}
+		} catch (FileNotFoundException e) {
+			return null; //evicted by another process
+		} catch (IOException e) {
+			ourLogger.warn("Can't read cache entry " + file.getName(), e);
+			return null;
+		}
+
+		result.flip();
+		if (result.remaining() < HEADER_BYTES || result.getInt() != MAGIC || result.get() != type) {
+			ourLogger.warn("Discarding invalid cache entry " + file.getName());
+			delete(file);
+			return null;
+		} else if (result.getInt() != n) {
+			return null;
+		} else if (result.remaining() != dataBytes || file.length() != HEADER_BYTES + dataBytes) {
+			ourLogger.warn("Discarding incomplete cache entry " + file.getName());
+			delete(file);
+			return null;
+		}
+
+		if (!file.setLastModified(System.currentTimeMillis())) {
+			ourLogger.debug("Can't update access time of " + file.getName());
+		}
+		return result;
+	}
+
+	private void write(String key, String extension, ByteBuffer buffer) {
+		buffer.flip();
+		File file = getFile(key, extension);
+		File temp = null;
+		try {
+			temp = File.createTempFile(key, ".tmp", myDirectory);
+			RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+			try {
+				FileChannel channel = raf.getChannel();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			} finally {
+				raf.close();
+			}
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			ourLogger.warn("Can't write cache entry " + file.getName(), e);
+			if (temp != null) {
+				delete(temp);
+			}
+			return;
+		}
+
+		added(file.length());
+	}
+
+	//evicts least recently used entries if the cache may have grown beyond its limit
+	private synchronized void added(long bytes) {
+		if (myEstimatedBytes >= 0) {
+			myEstimatedBytes += bytes;
+			if (myEstimatedBytes <= myMaxBytes) {
+				return;
+			}
+		}
+
+		try {
+			RandomAccessFile lockFile = new RandomAccessFile(new File(myDirectory, LOCK_FILE), "rw");
+			try {
+				FileLock lock = lockFile.getChannel().lock();
+				try {
+					myEstimatedBytes = evict();
+				} finally {
+					lock.release();
+				}
+			} finally {
+				lockFile.close();
+			}
+		} catch (IOException e) {
+			ourLogger.warn("Can't lock approximator cache for eviction", e);
+		} catch (OverlappingFileLockException e) {
+			//another cache object in this JVM is evicting from the same directory
+		}
+	}
+
+	//deletes least recently used entries until the rest fit, and returns their total size
+	private long evict() {
+		File[] entries = getEntries();
+		final long[] times = new long[entries.length];
+		long total = 0;
+		Integer[] order = new Integer[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			times[i] = entries[i].lastModified();
+			total += entries[i].length();
+			order[i] = Integer.valueOf(i);
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return times[a.intValue()] < times[b.intValue()] ? -1 : (times[a.intValue()] == times[b.intValue()] ? 0 : 1);
+			}
+		});
+
+		for (int i = 0; i < order.length && total > myMaxBytes; i++) {
+			File entry = entries[order[i].intValue()];
+			long length = entry.length();
+			if (delete(entry)) {
+				total -= length;
+			}
+		}
+		return total;
+	}
+
+	private File[] getEntries() {
+		File[] result = myDirectory.listFiles(new java.io.FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.endsWith(INVERSE_EXTENSION) || name.endsWith(COEFFICIENTS_EXTENSION);
+			}
+		});
+		return result == null ? new File[0] : result;
+	}
+
+	private static boolean delete(File file) {
+		boolean result = file.delete();
+		if (!result && file.exists()) {
+			ourLogger.debug("Can't delete " + file.getName());
+		}
+		return result;
+	}
+
+	/**
+	 * @param text Any text
+	 * @return Hexadecimal SHA-256 digest of the text (UTF-8)
+	 */
+	public static String digest(String text) {
+		return new Key().add(text).toString();
+	}
+
+	/**
+	 * Builds a cache key from the contents of arrays and other values, with SHA-256.
+	 */
+	public static class Key {
+
+		private final MessageDigest myDigest;
+		private final ByteBuffer myBuffer;
+		private String myValue;
+
+		public Key() {
+			try {
+				myDigest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new RuntimeException("SHA-256 is not available", e);
+			}
+			myBuffer = ByteBuffer.allocate(8192).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		/**
+		 * @param value A value to include in the key
+		 * @return This key
+		 */
+		public Key add(String value) {
+			byte[] bytes;
+			try {
+				bytes = value.getBytes("UTF-8");
+			} catch (java.io.UnsupportedEncodingException e) {
+				throw new RuntimeException(e);
+			}
+			add(bytes.length);
+			flush();
+			myDigest.update(bytes);
+			return this;
+		}
+
+		/**
+		 * @param value A value to include in the key
+		 * @return This key
+		 */
+		public Key add(int value) {
+			room(4);
+			myBuffer.putInt(value);
+			return this;
+		}
+
+		/**
+		 * @param value A value to include in the key
+		 * @return This key
+		 */
+		public Key add(float value) {
+			room(4);
+			myBuffer.putFloat(value);
+			return this;
+		}
+
+		/**
+		 * @param values Values to include in the key (the length is included too)
+		 * @return This key
+		 */
+		public Key add(float[] values) {
+			add(values.length);
+			for (float value : values) {
+				room(4);
+				myBuffer.putFloat(value);
+			}
+			return this;
+		}
+
+		/**
+		 * @param values Values to include in the key
+		 * @return This key
+		 */
+		public Key add(double[] values) {
+			add(values.length);
+			for (double value : values) {
+				room(8);
+				myBuffer.putDouble(value);
+			}
+			return this;
+		}
+
+		/**
+		 * @param values Values to include in the key (the shape is included too)
+		 * @return This key
+		 */
+		public Key add(float[][] values) {
+			add(values.length);
+			for (float[] row : values) {
+				add(row);
+			}
+			return this;
+		}
+
+		private void room(int bytes) {
+			if (myBuffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		private void flush() {
+			myBuffer.flip();
+			myDigest.update(myBuffer);
+			myBuffer.clear();
+		}
+
+		/**
+		 * @return Hexadecimal digest of everything added (nothing can be added afterwards)
+		 */
+		@Override
+		public String toString() {
+			if (myValue == null) {
+				flush();
+				byte[] digest = myDigest.digest();
+				StringBuilder result = new StringBuilder(digest.length * 2);
+				for (byte b : digest) {
+					result.append(Character.forDigit((b >> 4) & 0xf, 16));
+					result.append(Character.forDigit(b & 0xf, 16));
+				}
+				myValue = result.toString();
+			}
+			return myValue;
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "CirculantTransform.java". Description:
+"A LinearTransform with a circulant matrix, applied as a circular convolution"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import ca.nengo.math.LinearTransform;
+
+/**
+ * <p>A LinearTransform with a circulant matrix, i.e. circular convolution with a fixed kernel:
+ * y_i = sum_j c_{(i-j) mod n} x_j. This is applied in O(n log n) time with an FFT.</p>
+ *
+ * <p>For example, binding a vector with a fixed vector in a holographic reduced representation is a
+ * circulant transform, as is a circular shift.</p>
+ *
+ * @author agent
+ */
+public class CirculantTransform implements LinearTransform {
+
+	private static final long serialVersionUID = 1L;
+
+	private final float[] myKernel;
+	private final FFT myFFT;
+	private final double[] myKernelRe;
+	private final double[] myKernelIm;
+
+	/**
+	 * @param kernel First column of the circulant matrix
+	 */
+	public CirculantTransform(float[] kernel) {
+		myKernel = kernel.clone();
+		myFFT = new FFT(kernel.length);
+
+		myKernelRe = new double[kernel.length];
+		myKernelIm = new double[kernel.length];
+		for (int i = 0; i < kernel.length; i++) {
+			myKernelRe[i] = kernel[i];
+		}
+		myFFT.transform(myKernelRe, myKernelIm);
+	}
+
+	/**
+	 * @return First column of the circulant matrix
+	 */
+	public float[] getKernel() {
+		return myKernel.clone();
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearTransform#getInputDimension()
+	 */
+	public int getInputDimension() {
+		return myKernel.length;
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearTransform#getOutputDimension()
+	 */
+	public int getOutputDimension() {
+		return myKernel.length;
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearTransform#apply(float[])
+	 */
+	public float[] apply(float[] input) {
+		if (input.length != myKernel.length) {
+			throw new IllegalArgumentException("Expected input of dimension " + myKernel.length);
+		}
+
+		double[] re = new double[input.length];
+		double[] im = new double[input.length];
+		for (int i = 0; i < input.length; i++) {
+			re[i] = input[i];
+		}
+
+		myFFT.transform(re, im);
+		for (int i = 0; i < re.length; i++) {
+			double r = re[i] * myKernelRe[i] - im[i] * myKernelIm[i];
+			im[i] = re[i] * myKernelIm[i] + im[i] * myKernelRe[i];
+			re[i] = r;
+		}
+		myFFT.inverseTransform(re, im);
+
+		float[] result = new float[input.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = (float) re[i];
+		}
+		return result;
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearTransform#getMatrix()
+	 */
+	public float[][] getMatrix() {
+		int n = myKernel.length;
+		float[][] result = new float[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				result[i][j] = myKernel[(i - j + n) % n];
+			}
+		}
+		return result;
+	}
+
+}
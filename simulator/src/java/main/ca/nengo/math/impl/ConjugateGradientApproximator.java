@@ -0,0 +1,420 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ConjugateGradientApproximator.java". Description:
+"A LinearApproximator that solves for coefficients iteratively, without forming the correlation matrix"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import org.apache.log4j.Logger;
+
+import ca.nengo.math.ApproximatorFactory;
+import ca.nengo.math.Function;
+import ca.nengo.math.LinearApproximator;
+import ca.nengo.util.MU;
+
+/**
+ * <p>A LinearApproximator that minimizes the same weighted squared error as WeightedCostApproximator,
+ * but by preconditioned conjugate gradient on the regularised normal equations
+ * (GAMMA + sigma^2 I) PHI = UPSILON, rather than by inverting GAMMA. Products with GAMMA are
+ * computed directly from the values of the component functions (GAMMA v = A W A^T v), so memory
+ * is O(NP) rather than O(N^2) for N functions and P evaluation points, and each iteration takes
+ * O(NP) time. This is the better choice for very large ensembles.</p>
+ *
+ * <p>Noise is accounted for with the regularisation sigma^2 rather than by corrupting the values
+ * (in expectation these are the same). Iteration can be started from previous coefficients (e.g.
+ * decoders found before a small change to the evaluation points or target), in which case it
+ * usually converges in a few iterations.</p>
+ *
+ * @author agent
+ */
+public class ConjugateGradientApproximator implements LinearApproximator {
+
+	private static Logger ourLogger = Logger.getLogger(ConjugateGradientApproximator.class);
+	private static final long serialVersionUID = 1L;
+
+	private static final int BLOCK_SIZE = 256;
+
+	private float[][] myEvalPoints;
+	private float[][] myValues;
+	private Function myCostFunction;
+	private double[] myCostWeights;
+	private double[] myPreconditioner;
+	private double myRegularization;
+	private float[] myStartingCoefficients;
+	private float myTolerance;
+	private int myMaxIterations;
+	private int myLastIterations;
+
+	/**
+	 * @param evaluationPoints Points at which error is evaluated (should be uniformly
+	 * 		distributed, as the sum of error at these points is treated as an integral
+	 * 		over the domain of interest)
+	 * @param values The values of whatever functions are being combined, at the
+	 * 		evaluationPoints. Commonly neuron firing rates. The first dimension makes up
+	 * 		the list of functions, and the second the values of these functions at each
+	 * 		evaluation point. These are not copied, and must not be changed.
+	 * @param costFunction A cost function that weights squared error over the domain of
+	 * 		evaluation points
+	 * @param noise Standard deviation of noise in the values, as a proportion of the maximum
+	 * 		absolute value over all values
+	 * @param tolerance Iteration stops when the norm of the residual falls to this proportion
+	 * 		of the norm of UPSILON
+	 * @param maxIterations Maximum iterations per findCoefficients(...)
+	 */
+	public ConjugateGradientApproximator(float[][] evaluationPoints, float[][] values, Function costFunction,
+			float noise, float tolerance, int maxIterations) {
+		assert MU.isMatrix(evaluationPoints);
+		assert MU.isMatrix(values);
+		assert evaluationPoints.length == values[0].length;
+
+		myEvalPoints = evaluationPoints;
+		myValues = values;
+		myCostFunction = costFunction;
+		myTolerance = tolerance;
+		myMaxIterations = maxIterations;
+		myStartingCoefficients = new float[values.length];
+
+		myCostWeights = new double[evaluationPoints.length];
+		for (int k = 0; k < myCostWeights.length; k++) {
+			myCostWeights[k] = (double) costFunction.map(evaluationPoints[k]) / evaluationPoints.length;
+		}
+
+		float maxValue = 0f;
+		for (float[] value : values) {
+			for (float element : value) {
+				maxValue = Math.max(maxValue, Math.abs(element));
+			}
+		}
+		double sd = noise * maxValue;
+		myRegularization = sd * sd;
+
+		//Jacobi preconditioner (inverse diagonal of GAMMA + sigma^2 I)
+		myPreconditioner = new double[values.length];
+		for (int i = 0; i < values.length; i++) {
+			double diagonal = myRegularization;
+			for (int k = 0; k < myCostWeights.length; k++) {
+				diagonal += myCostWeights[k] * values[i][k] * values[i][k];
+			}
+			myPreconditioner[i] = (diagonal > 0) ? 1d / diagonal : 1d;
+		}
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearApproximator#getEvalPoints()
+	 */
+	public float[][] getEvalPoints() {
+		return myEvalPoints;
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearApproximator#getValues()
+	 */
+	public float[][] getValues() {
+		return myValues;
+	}
+
+	/**
+	 * @param coefficients Coefficients at which to start iteration by default
+	 */
+	public void setStartingCoefficients(float[] coefficients) {
+		myStartingCoefficients = coefficients;
+	}
+
+	/**
+	 * @return Maximum iterations per findCoefficients(...)
+	 */
+	public int getMaxIterations() {
+		return myMaxIterations;
+	}
+
+	/**
+	 * @param max New maximum number of iterations per findCoefficients(...)
+	 */
+	public void setMaxIterations(int max) {
+		myMaxIterations = max;
+	}
+
+	/**
+	 * @return Norm of residual at which iteration stops, relative to the norm of UPSILON
+	 */
+	public float getTolerance()  {
+		return myTolerance;
+	}
+
+	/**
+	 * @param tolerance Norm of residual at which iteration stops, relative to the norm of UPSILON
+	 */
+	public void setTolerance(float tolerance) {
+		myTolerance = tolerance;
+	}
+
+	/**
+	 * @return Number of iterations taken by the last call to findCoefficients(...)
+	 */
+	public int getLastIterations() {
+		return myLastIterations;
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearApproximator#findCoefficients(ca.nengo.math.Function)
+	 */
+	public float[] findCoefficients(Function target) {
+		return findCoefficients(target, myStartingCoefficients);
+	}
+
+	/**
+	 * @param target Function to approximate
+	 * @param start Coefficients at which to start iteration (e.g. the result of a previous
+	 * 		solution for a similar problem)
+	 * @return Coefficients on component functions which result in an approximation of the target
+	 */
+	public float[] findCoefficients(Function target, float[] start) {
+		float[] targetValues = new float[myEvalPoints.length];
+		for (int i = 0; i < targetValues.length; i++) {
+			targetValues[i] = target.map(myEvalPoints[i]);
+		}
+
+		int n = myValues.length;
+		double[] upsilon = WeightedCostApproximator.findUpsilon(myValues, targetValues, myCostWeights);
+		double threshold = myTolerance * Math.sqrt(dot(upsilon, upsilon));
+
+		double[] x = new double[n];
+		for (int i = 0; i < n && start != null && i < start.length; i++) {
+			x[i] = start[i];
+		}
+
+		//preconditioned conjugate gradient
+		double[] r = multiply(x);
+		for (int i = 0; i < n; i++) {
+			r[i] = upsilon[i] - r[i];
+		}
+		double[] z = new double[n];
+		for (int i = 0; i < n; i++) {
+			z[i] = myPreconditioner[i] * r[i];
+		}
+		double[] p = z.clone();
+		double rz = dot(r, z);
+
+		int iteration = 0;
+		while (iteration < myMaxIterations && Math.sqrt(dot(r, r)) > threshold) {
+			double[] q = multiply(p);
+			double alpha = rz / dot(p, q);
+			for (int i = 0; i < n; i++) {
+				x[i] += alpha * p[i];
+				r[i] -= alpha * q[i];
+				z[i] = myPreconditioner[i] * r[i];
+			}
+
+			double rzNew = dot(r, z);
+			double beta = rzNew / rz;
+			rz = rzNew;
+			for (int i = 0; i < n; i++) {
+				p[i] = z[i] + beta * p[i];
+			}
+			iteration++;
+		}
+
+		myLastIterations = iteration;
+		if (Math.sqrt(dot(r, r)) > threshold) {
+			ourLogger.warn("Coefficients did not converge in " + iteration + " iterations (relative residual "
+					+ Math.sqrt(dot(r, r) / dot(upsilon, upsilon)) + ")");
+		} else {
+			ourLogger.debug("Coefficients converged in " + iteration + " iterations");
+		}
+
+		float[] result = new float[n];
+		for (int i = 0; i < n; i++) {
+			result[i] = (float) x[i];
+		}
+		return result;
+	}
+
+	/**
+	 * @param v A vector with one element per component function
+	 * @return (GAMMA + sigma^2 I) v, found as A (W (A^T v)) + sigma^2 v
+	 */
+	private double[] multiply(final double[] v) {
+		final int n = myValues.length;
+		final int p = myCostWeights.length;
+
+		//u = W A^T v, over blocks of evaluation points
+		final double[] u = new double[p];
+		ParallelBlocks.run(ParallelBlocks.getNumBlocks(p, BLOCK_SIZE), new ParallelBlocks.Body() {
+			public void run(int block) {
+				int start = block * BLOCK_SIZE;
+				int end = Math.min(p, start + BLOCK_SIZE);
+				for (int i = 0; i < n; i++) {
+					double vi = v[i];
+					if (vi != 0) {
+						float[] row = myValues[i];
+						for (int k = start; k < end; k++) {
+							u[k] += row[k] * vi;
+						}
+					}
+				}
+				for (int k = start; k < end; k++) {
+					u[k] *= myCostWeights[k];
+				}
+			}
+		});
+
+		//result = A u + sigma^2 v, over blocks of functions
+		final double[] result = new double[n];
+		ParallelBlocks.run(ParallelBlocks.getNumBlocks(n, BLOCK_SIZE), new ParallelBlocks.Body() {
+			public void run(int block) {
+				for (int i = block * BLOCK_SIZE; i < Math.min(n, (block + 1) * BLOCK_SIZE); i++) {
+					float[] row = myValues[i];
+					double sum = 0;
+					for (int k = 0; k < p; k++) {
+						sum += row[k] * u[k];
+					}
+					result[i] = sum + myRegularization * v[i];
+				}
+			}
+		});
+
+		return result;
+	}
+
+	private static double dot(double[] a, double[] b) {
+		double sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+
+	@Override
+	public LinearApproximator clone() throws CloneNotSupportedException {
+		ConjugateGradientApproximator result = (ConjugateGradientApproximator) super.clone();
+
+		result.myCostFunction = myCostFunction.clone();
+		result.myEvalPoints = MU.clone(myEvalPoints);
+		result.myValues = MU.clone(myValues);
+		result.myStartingCoefficients = myStartingCoefficients.clone();
+
+		return result;
+	}
+
+	/**
+	 * An ApproximatorFactory that produces ConjugateGradientApproximators.
+	 *
+	 * @author agent
+	 */
+	public static class Factory implements ApproximatorFactory {
+
+		private static final long serialVersionUID = 1L;
+
+		private float myNoise;
+		private float myTolerance;
+		private int myMaxIterations;
+
+		/**
+		 * @param noise Noise in component functions (proportion of largest value over all functions)
+		 */
+		public Factory(float noise) {
+			this(noise, 1e-6f, 1000);
+		}
+
+		/**
+		 * @param noise Noise in component functions (proportion of largest value over all functions)
+		 * @param tolerance Norm of residual at which iteration stops, relative to the norm of UPSILON
+		 * @param maxIterations Maximum iterations per findCoefficients(...)
+		 */
+		public Factory(float noise, float tolerance, int maxIterations) {
+			myNoise = noise;
+			myTolerance = tolerance;
+			myMaxIterations = maxIterations;
+		}
+
+		/**
+		 * @return Noise in component functions (proportion of largest value over all functions)
+		 */
+		public float getNoise() {
+			return myNoise;
+		}
+
+		/**
+		 * @param noise Noise in component functions (proportion of largest value over all functions)
+		 */
+		public void setNoise(float noise) {
+			myNoise = noise;
+		}
+
+		/**
+		 * @return Norm of residual at which iteration stops, relative to the norm of UPSILON
+		 */
+		public float getTolerance() {
+			return myTolerance;
+		}
+
+		/**
+		 * @param tolerance Norm of residual at which iteration stops, relative to the norm of UPSILON
+		 */
+		public void setTolerance(float tolerance) {
+			myTolerance = tolerance;
+		}
+
+		/**
+		 * @return Maximum iterations per findCoefficients(...)
+		 */
+		public int getMaxIterations() {
+			return myMaxIterations;
+		}
+
+		/**
+		 * @param max Maximum iterations per findCoefficients(...)
+		 */
+		public void setMaxIterations(int max) {
+			myMaxIterations = max;
+		}
+
+		/**
+		 * @see ca.nengo.math.ApproximatorFactory#getApproximator(float[][], float[][])
+		 */
+		public LinearApproximator getApproximator(float[][] evalPoints, float[][] values) {
+			return new ConjugateGradientApproximator(evalPoints, values, getCostFunction(evalPoints[0].length),
+					myNoise, myTolerance, myMaxIterations);
+		}
+
+		/**
+		 * Note: override to use non-uniform error weighting.
+		 *
+		 * @param dimension Dimension of the function to be approximated
+		 * @return A function over the input space that defines relative importance of error at each point (defaults
+		 * 		to a ConstantFunction)
+		 */
+		public Function getCostFunction(int dimension) {
+			return new ConstantFunction(dimension, 1);
+		}
+
+		@Override
+		public ApproximatorFactory clone() throws CloneNotSupportedException {
+			return (ApproximatorFactory) super.clone();
+		}
+
+	}
+
+}
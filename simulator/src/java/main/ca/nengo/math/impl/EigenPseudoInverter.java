@@ -0,0 +1,89 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "EigenPseudoInverter.java". Description:
+"Pseudo-inverse of a symmetric matrix by eigendecomposition"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import org.apache.log4j.Logger;
+
+import Jama.EigenvalueDecomposition;
+import Jama.Matrix;
+import ca.nengo.math.PseudoInverter;
+
+/**
+ * <p>A PseudoInverter for symmetric positive semi-definite matrices, that uses a symmetric
+ * eigendecomposition. For such matrices the eigenvalues are the singular values, so the
+ * result is the same as that of SVDPseudoInverter (eigenvalues at or below minSV are discarded,
+ * and at most nSV of the largest are kept), but the decomposition is several times cheaper
+ * and the pseudo-inverse is reassembled from the eigenvectors on all available processors.</p>
+ *
+ * <p>Non-symmetric matrices are passed on to SVDPseudoInverter.</p>
+ *
+ * @author agent
+ */
+public class EigenPseudoInverter implements PseudoInverter {
+
+	private static final long serialVersionUID = 1L;
+
+	private static Logger ourLogger = Logger.getLogger(EigenPseudoInverter.class);
+
+	static final double SYMMETRY_TOLERANCE = 1e-10;
+
+	/**
+	 * @see ca.nengo.math.PseudoInverter#invert(double[][], float, int)
+	 */
+	public double[][] invert(double[][] matrix, float minSV, int nSV) {
+		if (!ParallelBlocks.isSymmetric(matrix, SYMMETRY_TOLERANCE)) {
+			return new SVDPseudoInverter().invert(matrix, minSV, nSV);
+		}
+
+		EigenvalueDecomposition eig = new Matrix(matrix).eig();
+		double[] values = eig.getRealEigenvalues(); //sorted in ascending order for symmetric matrices
+		double[][] vectors = eig.getV().getArray();
+
+		int n = matrix.length;
+		int nKept = 0;
+		while (nKept < n && values[n-1-nKept] > minSV && (nSV <= 0 || nKept < nSV)) {
+			nKept++;
+		}
+
+		ourLogger.debug("Using " + nKept + " eigenvalues for pseudo-inverse");
+
+		//result = V diag(1/values) V^T over the kept eigenvalues
+		double[][] kept = new double[n][nKept];
+		double[] scale = new double[nKept];
+		for (int k = 0; k < nKept; k++) {
+			int index = n-1-k;
+			scale[k] = 1d / values[index];
+			for (int i = 0; i < n; i++) {
+				kept[i][k] = vectors[i][index];
+			}
+		}
+
+		return ParallelBlocks.symmetricProduct(kept, scale, false);
+	}
+
+}
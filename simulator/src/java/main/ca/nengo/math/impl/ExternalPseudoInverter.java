@@ -0,0 +1,163 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ExternalPseudoInverter.java". Description:
+"Pseudo-inverse by an external program"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import ca.nengo.math.PseudoInverter;
+
+/**
+ * <p>A PseudoInverter that writes the matrix to a file and runs the program external/pseudoInverse
+ * (relative to the working directory) on it, if that program exists. This was the default before
+ * the in-process PseudoInverters were added, and remains available for installations that
+ * provide a faster external implementation.</p>
+ *
+ * <p>If the program doesn't exist or fails, SVDPseudoInverter is used instead.</p>
+ *
+ * @author agent
+ */
+public class ExternalPseudoInverter implements PseudoInverter {
+
+	private static final long serialVersionUID = 1L;
+
+	private static Logger ourLogger = Logger.getLogger(ExternalPseudoInverter.class);
+
+	/**
+	 * @see ca.nengo.math.PseudoInverter#invert(double[][], float, int)
+	 */
+	public double[][] invert(double[][] matrix, float minSV, int nSV) {
+		double[][] result = null;
+
+		File path = new File(System.getProperty("user.dir"), "external");
+		File program = new File(path, "pseudoInverse");
+		String filename = "matrix_" + new Random().nextLong();
+		File file = new File(path, filename);
+		File inverseFile = new File(path, filename + ".inv");
+
+		if (program.exists()) {
+			try {
+				write(matrix, file);
+
+				Process process;
+				if (System.getProperty("os.name").startsWith("Windows")) {
+					process = Runtime.getRuntime().exec("cmd /c pseudoInverse.bat " + filename + " " + filename + ".inv"
+							+ " " + minSV + " " + nSV, null, path);
+				} else {
+					process = Runtime.getRuntime().exec("external" + File.separatorChar + "pseudoInverse external/" + filename
+							+ " external/" + filename + ".inv" + " " + minSV + " " + nSV, null, null);
+				}
+				process.waitFor();
+				log(process.getErrorStream(), "error", Level.WARN);
+				log(process.getInputStream(), "output", Level.DEBUG);
+
+				result = read(inverseFile, matrix.length);
+			} catch (IOException e) {
+				ourLogger.warn("External pseudo-inverse failed; using SVDPseudoInverter", e);
+			} catch (InterruptedException e) {
+				ourLogger.warn("Interrupted while waiting for external pseudo-inverse; using SVDPseudoInverter", e);
+				Thread.currentThread().interrupt();
+			} finally {
+				file.delete();
+				inverseFile.delete();
+			}
+		}
+
+		if (result == null) {
+			result = new SVDPseudoInverter().invert(matrix, minSV, nSV);
+		}
+
+		return result;
+	}
+
+	//writes a square matrix as big-endian floats
+	private static void write(double[][] matrix, File file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(matrix.length * matrix.length * 4).order(ByteOrder.BIG_ENDIAN);
+		for (double[] row : matrix) {
+			for (int j = 0; j < matrix.length; j++) {
+				buffer.putFloat((float) row[j]);
+			}
+		}
+		buffer.rewind();
+
+		FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+		try {
+			channel.write(buffer);
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+	}
+
+	//reads an n x n matrix of big-endian floats
+	private static double[][] read(File file, int n) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(n * n * 4).order(ByteOrder.BIG_ENDIAN);
+		FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+		try {
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				//keep reading
+			}
+		} finally {
+			channel.close();
+		}
+		if (buffer.hasRemaining()) {
+			throw new IOException("Expected " + n + " x " + n + " matrix in " + file);
+		}
+		buffer.rewind();
+
+		double[][] result = new double[n][];
+		for (int i = 0; i < n; i++) {
+			result[i] = new double[n];
+			for (int j = 0; j < n; j++) {
+				result[i][j] = buffer.getFloat();
+			}
+		}
+		return result;
+	}
+
+	//logs anything the external program wrote to the given stream
+	private static void log(InputStream stream, String name, Level level) throws IOException {
+		if (stream.available() > 0) {
+			StringBuilder text = new StringBuilder();
+			while (stream.available() > 0) {
+				text.append((char) stream.read());
+			}
+			ourLogger.log(level, "External pseudo-inverse " + name + ": " + text);
+		}
+	}
+
+}
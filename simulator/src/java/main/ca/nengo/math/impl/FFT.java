@@ -0,0 +1,225 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "FFT.java". Description:
+"A fast Fourier transform of arbitrary length"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import java.io.Serializable;
+
+/**
+ * <p>A complex discrete Fourier transform of a fixed length, computed in O(n log n) time.</p>
+ *
+ * <p>Power-of-two lengths use an iterative radix-2 transform. Other lengths are re-expressed
+ * as a convolution of power-of-two length (Bluestein's algorithm), which is about three times
+ * slower but still O(n log n). Tables are computed on construction, so a FFT should be reused
+ * for transforms of the same length. It has no mutable state and may be used from multiple threads.</p>
+ *
+ * <p>The forward transform is X_k = sum_j x_j exp(-2 pi i jk/n) and the inverse transform is
+ * x_j = 1/n sum_k X_k exp(2 pi i jk/n).</p>
+ *
+ * @author agent
+ */
+public class FFT implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int myLength;
+	private final int myPaddedLength;
+	private final double[] myCos;
+	private final double[] mySin;
+
+	//Bluestein tables (null if length is a power of two)
+	private final double[] myChirpRe;
+	private final double[] myChirpIm;
+	private final double[] myFilterRe;
+	private final double[] myFilterIm;
+
+	/**
+	 * @param length Length of the sequences to transform
+	 */
+	public FFT(int length) {
+		if (length < 1) {
+			throw new IllegalArgumentException("Length must be positive");
+		}
+
+		myLength = length;
+
+		int padded = 1;
+		while (padded < (isPowerOfTwo(length) ? length : 2*length - 1)) {
+			padded *= 2;
+		}
+		myPaddedLength = padded;
+
+		myCos = new double[myPaddedLength / 2];
+		mySin = new double[myPaddedLength / 2];
+		for (int i = 0; i < myCos.length; i++) {
+			double angle = 2 * Math.PI * i / myPaddedLength;
+			myCos[i] = Math.cos(angle);
+			mySin[i] = Math.sin(angle);
+		}
+
+		if (isPowerOfTwo(length)) {
+			myChirpRe = null;
+			myChirpIm = null;
+			myFilterRe = null;
+			myFilterIm = null;
+		} else {
+			//chirp w_k = exp(-i pi k^2 / n), with k^2 taken mod 2n to preserve precision
+			myChirpRe = new double[length];
+			myChirpIm = new double[length];
+			for (int k = 0; k < length; k++) {
+				long kk = ((long) k * k) % (2L * length);
+				double angle = Math.PI * kk / length;
+				myChirpRe[k] = Math.cos(angle);
+				myChirpIm[k] = -Math.sin(angle);
+			}
+
+			//filter is the transform of the conjugate chirp, wrapped around for negative indices
+			myFilterRe = new double[myPaddedLength];
+			myFilterIm = new double[myPaddedLength];
+			myFilterRe[0] = myChirpRe[0];
+			myFilterIm[0] = -myChirpIm[0];
+			for (int k = 1; k < myLength; k++) {
+				myFilterRe[k] = myFilterRe[myPaddedLength - k] = myChirpRe[k];
+				myFilterIm[k] = myFilterIm[myPaddedLength - k] = -myChirpIm[k];
+			}
+			radix2(myFilterRe, myFilterIm);
+		}
+	}
+
+	/**
+	 * @return Length of the sequences this FFT transforms
+	 */
+	public int getLength() {
+		return myLength;
+	}
+
+	/**
+	 * Forward transform, in place.
+	 *
+	 * @param re Real parts (length getLength())
+	 * @param im Imaginary parts (length getLength())
+	 */
+	public void transform(double[] re, double[] im) {
+		if (re.length != myLength || im.length != myLength) {
+			throw new IllegalArgumentException("Expected arrays of length " + myLength);
+		}
+
+		if (myChirpRe == null) {
+			radix2(re, im);
+		} else {
+			bluestein(re, im);
+		}
+	}
+
+	/**
+	 * Inverse transform, in place.
+	 *
+	 * @param re Real parts (length getLength())
+	 * @param im Imaginary parts (length getLength())
+	 */
+	public void inverseTransform(double[] re, double[] im) {
+		//conj(FFT(conj(x))) / n
+		for (int i = 0; i < im.length; i++) {
+			im[i] = -im[i];
+		}
+		transform(re, im);
+		double scale = 1d / myLength;
+		for (int i = 0; i < re.length; i++) {
+			re[i] = re[i] * scale;
+			im[i] = -im[i] * scale;
+		}
+	}
+
+	private void bluestein(double[] re, double[] im) {
+		double[] aRe = new double[myPaddedLength];
+		double[] aIm = new double[myPaddedLength];
+		for (int k = 0; k < myLength; k++) {
+			aRe[k] = re[k] * myChirpRe[k] - im[k] * myChirpIm[k];
+			aIm[k] = re[k] * myChirpIm[k] + im[k] * myChirpRe[k];
+		}
+
+		radix2(aRe, aIm);
+		for (int k = 0; k < myPaddedLength; k++) {
+			double r = aRe[k] * myFilterRe[k] - aIm[k] * myFilterIm[k];
+			double i = aRe[k] * myFilterIm[k] + aIm[k] * myFilterRe[k];
+			//conjugate here and after the transform for an inverse transform
+			aRe[k] = r;
+			aIm[k] = -i;
+		}
+		radix2(aRe, aIm);
+
+		double scale = 1d / myPaddedLength;
+		for (int k = 0; k < myLength; k++) {
+			double r = aRe[k] * scale;
+			double i = -aIm[k] * scale;
+			re[k] = r * myChirpRe[k] - i * myChirpIm[k];
+			im[k] = r * myChirpIm[k] + i * myChirpRe[k];
+		}
+	}
+
+	//in-place iterative radix-2 transform of length myPaddedLength
+	private void radix2(double[] re, double[] im) {
+		int n = re.length;
+
+		for (int i = 1, j = 0; i < n; i++) {
+			int bit = n >> 1;
+			for (; (j & bit) != 0; bit >>= 1) {
+				j ^= bit;
+			}
+			j ^= bit;
+
+			if (i < j) {
+				double t = re[i]; re[i] = re[j]; re[j] = t;
+				t = im[i]; im[i] = im[j]; im[j] = t;
+			}
+		}
+
+		for (int size = 2; size <= n; size *= 2) {
+			int half = size / 2;
+			int step = myPaddedLength / size;
+			for (int start = 0; start < n; start += size) {
+				for (int k = 0; k < half; k++) {
+					double c = myCos[k * step];
+					double s = -mySin[k * step];
+					int a = start + k;
+					int b = a + half;
+					double tRe = re[b] * c - im[b] * s;
+					double tIm = re[b] * s + im[b] * c;
+					re[b] = re[a] - tRe;
+					im[b] = im[a] - tIm;
+					re[a] += tRe;
+					im[a] += tIm;
+				}
+			}
+		}
+	}
+
+	private static boolean isPowerOfTwo(int n) {
+		return (n & (n - 1)) == 0;
+	}
+
+}
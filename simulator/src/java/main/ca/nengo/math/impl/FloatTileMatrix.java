@@ -0,0 +1,184 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "FloatTileMatrix.java". Description:
+"Lower triangle of a large symmetric matrix, stored in float tiles on or off the heap"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The lower triangle of a large square matrix, stored as square float tiles (row major) that are
+ * read and written one at a time. Tiles can be kept on the heap, in direct (off-heap) buffers, or
+ * in a memory-mapped temporary file, in which case the operating system pages them to disk as needed.
+ * Tiles on the edge are padded with zeros to the full tile size.
+ *
+ * Different tiles can be read and written from different threads at the same time.
+ *
+ * @author agent
+ */
+class FloatTileMatrix {
+
+	private final int myDimension;
+	private final int myTileSize;
+	private final int myNumTiles;
+	private final StreamingApproximator.Storage myStorage;
+	private final FloatBuffer[] myTiles;
+	private File myFile;
+
+	/**
+	 * @param dimension Number of rows and columns
+	 * @param tileSize Number of rows and columns in each tile
+	 * @param storage Where to keep the tiles
+	 * @throws IOException If a file can't be mapped for MAPPED storage
+	 */
+	public FloatTileMatrix(int dimension, int tileSize, StreamingApproximator.Storage storage) throws IOException {
+		myDimension = dimension;
+		myTileSize = tileSize;
+		myNumTiles = (dimension + tileSize - 1) / tileSize;
+		myStorage = storage;
+		myTiles = new FloatBuffer[myNumTiles * (myNumTiles + 1) / 2];
+
+		long tileBytes = 4L * tileSize * tileSize;
+		if (storage == StreamingApproximator.Storage.MAPPED) {
+			myFile = File.createTempFile("nengo_gamma", ".tiles");
+			myFile.deleteOnExit();
+			RandomAccessFile file = new RandomAccessFile(myFile, "rw");
+			try {
+				file.setLength(tileBytes * myTiles.length);
+				FileChannel channel = file.getChannel();
+				for (int i = 0; i < myTiles.length; i++) {
+					myTiles[i] = channel.map(FileChannel.MapMode.READ_WRITE, tileBytes * i, tileBytes)
+						.order(ByteOrder.nativeOrder()).asFloatBuffer();
+				}
+			} finally {
+				file.close(); //mappings stay valid
+
+				//so do the mappings of a deleted file, on platforms that allow it to be deleted while
+				//mapped (not Windows), so that nothing is left behind if the matrix isn't disposed
+				if (myFile.delete()) {
+					myFile = null;
+				}
+			}
+		} else {
+			for (int i = 0; i < myTiles.length; i++) {
+				if (storage == StreamingApproximator.Storage.DIRECT) {
+					myTiles[i] = ByteBuffer.allocateDirect((int) tileBytes).order(ByteOrder.nativeOrder()).asFloatBuffer();
+				} else {
+					myTiles[i] = FloatBuffer.allocate(tileSize * tileSize);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return Number of rows and columns
+	 */
+	public int getDimension() {
+		return myDimension;
+	}
+
+	/**
+	 * @return Number of rows and columns in each tile
+	 */
+	public int getTileSize() {
+		return myTileSize;
+	}
+
+	/**
+	 * @return Number of tiles along each side of the matrix
+	 */
+	public int getNumTiles() {
+		return myNumTiles;
+	}
+
+	/**
+	 * @return Where the tiles are kept
+	 */
+	public StreamingApproximator.Storage getStorage() {
+		return myStorage;
+	}
+
+	/**
+	 * @return Total size of the tiles in bytes
+	 */
+	public long getBytes() {
+		return getBytes(myDimension, myTileSize);
+	}
+
+	/**
+	 * @param dimension Number of rows and columns
+	 * @param tileSize Number of rows and columns in each tile
+	 * @return Total size of the tiles of such a matrix in bytes
+	 */
+	public static long getBytes(int dimension, int tileSize) {
+		long numTiles = (dimension + tileSize - 1) / tileSize;
+		return 4L * tileSize * tileSize * (numTiles * (numTiles + 1) / 2);
+	}
+
+	/**
+	 * @param row Row of the tile
+	 * @param col Column of the tile (at most row)
+	 * @param destination Array into which the tile is copied (length tileSize^2)
+	 */
+	public void read(int row, int col, float[] destination) {
+		FloatBuffer tile = myTiles[getIndex(row, col)].duplicate();
+		tile.rewind();
+		tile.get(destination);
+	}
+
+	/**
+	 * @param row Row of the tile
+	 * @param col Column of the tile (at most row)
+	 * @param source New values of the tile (length tileSize^2)
+	 */
+	public void write(int row, int col, float[] source) {
+		FloatBuffer tile = myTiles[getIndex(row, col)].duplicate();
+		tile.rewind();
+		tile.put(source);
+	}
+
+	/**
+	 * Deletes the backing file, if there is one. The matrix should not be used afterwards.
+	 */
+	public void dispose() {
+		if (myFile != null) {
+			myFile.delete();
+			myFile = null;
+		}
+	}
+
+	private int getIndex(int row, int col) {
+		assert col <= row;
+		return row * (row + 1) / 2 + col;
+	}
+
+}
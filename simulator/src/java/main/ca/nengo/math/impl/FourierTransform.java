@@ -0,0 +1,271 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "FourierTransform.java". Description:
+"A LinearTransform that selects and scales components of a discrete Fourier transform, or the inverse"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import java.util.Arrays;
+
+import ca.nengo.math.LinearTransform;
+
+/**
+ * <p>A LinearTransform with the structure of a discrete Fourier transform, applied with an FFT
+ * in O(n log n) time rather than O(n^2) as a dense matrix.</p>
+ *
+ * <p>A forward FourierTransform maps a real vector x of length n to a vector y of length m, where
+ * each y_r is a scaled real or imaginary part of one component of the DFT of x: y_r = c_r Re(X_{k_r})
+ * or y_r = c_r Im(X_{k_r}), and X_k = sum_j x_j exp(-2 pi i jk/n).</p>
+ *
+ * <p>An inverse FourierTransform maps a vector z of length m back to a real vector of length n. Each
+ * z_r is scaled by c_r and added to the real or imaginary part of frequency k_r of a spectrum Z, and
+ * y is the real part of the inverse DFT of Z: y_j = Re(1/n sum_k Z_k exp(2 pi i jk/n)). (When Z has
+ * only non-negative frequencies, as in the inverse of a real FFT, frequencies other than 0 and n/2 should
+ * have coefficients of 2 to account for the missing negative frequencies.)</p>
+ *
+ * <p>These are the transforms that are needed to implement circular convolution with an array of
+ * products (see ca.nengo.model.nef.impl.CircularConvolutionFactory). Blocks of rows can be applied
+ * separately with getRows(...). Each block computes the whole transform of its input, so a caller that
+ * applies several blocks to the same input (e.g. ca.nengo.model.impl.EnsembleTermination) should apply
+ * the source transform once and take the blocks' rows from the result (see Rows.getSource()).</p>
+ *
+ * @author agent
+ */
+public class FourierTransform implements LinearTransform {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int myLength;
+	private final int[] myFrequencies;
+	private final boolean[] myImaginary;
+	private final float[] myCoefficients;
+	private final boolean myInverse;
+	private final FFT myFFT;
+
+	/**
+	 * @param length Length n of the DFT (input dimension of a forward transform, or output dimension of
+	 * 		an inverse transform)
+	 * @param frequencies Frequency index k_r (from 0 to n-1) associated with each of the m elements of the
+	 * 		transformed vector
+	 * @param imaginary True for each element of the transformed vector that corresponds to an imaginary part
+	 * 		(false for a real part)
+	 * @param coefficients Coefficient c_r for each element of the transformed vector (0 for an element
+	 * 		that is not used)
+	 * @param inverse True for an inverse transform (from m to n dimensions), false for a forward transform
+	 * 		(from n to m dimensions)
+	 */
+	public FourierTransform(int length, int[] frequencies, boolean[] imaginary, float[] coefficients, boolean inverse) {
+		if (frequencies.length != imaginary.length || frequencies.length != coefficients.length) {
+			throw new IllegalArgumentException("Frequencies, imaginary flags, and coefficients must have the same length");
+		}
+		for (int frequency : frequencies) {
+			if (frequency < 0 || frequency >= length) {
+				throw new IllegalArgumentException("Frequency " + frequency + " is out of range for a DFT of length " + length);
+			}
+		}
+
+		myLength = length;
+		myFrequencies = frequencies.clone();
+		myImaginary = imaginary.clone();
+		myCoefficients = coefficients.clone();
+		myInverse = inverse;
+		myFFT = new FFT(length);
+	}
+
+	/**
+	 * @return True if this is an inverse transform
+	 */
+	public boolean isInverse() {
+		return myInverse;
+	}
+
+	/**
+	 * @param scale A scale factor
+	 * @return A new FourierTransform equal to this one times the given scale factor
+	 */
+	public FourierTransform scale(float scale) {
+		float[] coefficients = new float[myCoefficients.length];
+		for (int i = 0; i < coefficients.length; i++) {
+			coefficients[i] = myCoefficients[i] * scale;
+		}
+		return new FourierTransform(myLength, myFrequencies, myImaginary, coefficients, myInverse);
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearTransform#getInputDimension()
+	 */
+	public int getInputDimension() {
+		return myInverse ? myFrequencies.length : myLength;
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearTransform#getOutputDimension()
+	 */
+	public int getOutputDimension() {
+		return myInverse ? myLength : myFrequencies.length;
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearTransform#apply(float[])
+	 */
+	public float[] apply(float[] input) {
+		if (input.length != getInputDimension()) {
+			throw new IllegalArgumentException("Expected input of dimension " + getInputDimension());
+		}
+		return myInverse ? synthesize(input) : analyze(input);
+	}
+
+	/**
+	 * @param start Index of the first row
+	 * @param end Index after the last row
+	 * @return A LinearTransform consisting of the given rows of this one
+	 */
+	public Rows getRows(int start, int end) {
+		if (start < 0 || end > getOutputDimension() || start >= end) {
+			throw new IllegalArgumentException("Invalid rows " + start + " to " + end);
+		}
+		return new Rows(this, start, end);
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearTransform#getMatrix()
+	 */
+	public float[][] getMatrix() {
+		return getMatrix(0, getOutputDimension());
+	}
+
+	private float[][] getMatrix(int start, int end) {
+		double[] cos = new double[myLength];
+		double[] sin = new double[myLength];
+		for (int i = 0; i < myLength; i++) {
+			cos[i] = Math.cos(2 * Math.PI * i / myLength);
+			sin[i] = Math.sin(2 * Math.PI * i / myLength);
+		}
+
+		float[][] result = new float[end - start][];
+		for (int row = start; row < end; row++) {
+			float[] r = new float[getInputDimension()];
+			for (int col = 0; col < r.length; col++) {
+				//forward: element (r, j), inverse: element (j, r)
+				int element = myInverse ? col : row;
+				int j = myInverse ? row : col;
+				int phase = (int) (((long) j * myFrequencies[element]) % myLength);
+				double basis = myImaginary[element] ? -sin[phase] : cos[phase];
+				if (myInverse) {
+					basis = basis / myLength;
+				}
+				r[col] = (float) (myCoefficients[element] * basis);
+			}
+			result[row - start] = r;
+		}
+		return result;
+	}
+
+	private float[] analyze(float[] input) {
+		double[] re = new double[myLength];
+		double[] im = new double[myLength];
+		for (int i = 0; i < myLength; i++) {
+			re[i] = input[i];
+		}
+		myFFT.transform(re, im);
+
+		float[] result = new float[myFrequencies.length];
+		for (int r = 0; r < result.length; r++) {
+			int k = myFrequencies[r];
+			result[r] = (float) (myCoefficients[r] * (myImaginary[r] ? im[k] : re[k]));
+		}
+		return result;
+	}
+
+	private float[] synthesize(float[] input) {
+		double[] re = new double[myLength];
+		double[] im = new double[myLength];
+		for (int r = 0; r < input.length; r++) {
+			int k = myFrequencies[r];
+			if (myImaginary[r]) {
+				im[k] += myCoefficients[r] * input[r];
+			} else {
+				re[k] += myCoefficients[r] * input[r];
+			}
+		}
+		myFFT.inverseTransform(re, im);
+
+		float[] result = new float[myLength];
+		for (int j = 0; j < myLength; j++) {
+			result[j] = (float) re[j];
+		}
+		return result;
+	}
+
+	/**
+	 * A block of rows of a FourierTransform.
+	 */
+	public static class Rows implements LinearTransform {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FourierTransform myTransform;
+		private final int myStart;
+		private final int myEnd;
+
+		private Rows(FourierTransform transform, int start, int end) {
+			myTransform = transform;
+			myStart = start;
+			myEnd = end;
+		}
+
+		/**
+		 * @return The FourierTransform of which these are rows
+		 */
+		public FourierTransform getSource() {
+			return myTransform;
+		}
+
+		/**
+		 * @param result Result of the source transform
+		 * @return The elements of the result that correspond to these rows
+		 */
+		public float[] getRows(float[] result) {
+			return Arrays.copyOfRange(result, myStart, myEnd);
+		}
+
+		public int getInputDimension() {
+			return myTransform.getInputDimension();
+		}
+
+		public int getOutputDimension() {
+			return myEnd - myStart;
+		}
+
+		public float[] apply(float[] input) {
+			return getRows(myTransform.apply(input));
+		}
+
+		public float[][] getMatrix() {
+			return myTransform.getMatrix(myStart, myEnd);
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ParallelBlocks.java". Description:
+"Runs blocks of a loop on all available processors"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the blocks of a loop on all available processors. Blocks are handed out in order,
+ * one at a time, so the most expensive blocks should come first.
+ *
+ * @author agent
+ */
+public final class ParallelBlocks {
+
+	/**
+	 * The body of a loop over blocks.
+	 */
+	public interface Body {
+
+		/**
+		 * @param block Index of the block to run
+		 */
+		public void run(int block);
+	}
+
+	private ParallelBlocks() {
+	}
+
+	/**
+	 * Runs body.run(i) for 0 <= i < nBlocks and waits for all blocks to finish. Blocks are
+	 * run concurrently, so each block must write to separate memory.
+	 *
+	 * @param nBlocks Number of blocks
+	 * @param body The body of the loop
+	 */
+	public static void run(final int nBlocks, final Body body) {
+		final AtomicInteger nextBlock = new AtomicInteger(0);
+		Runnable task = new Runnable() {
+			public void run() {
+				for (int block = nextBlock.getAndIncrement(); block < nBlocks; block = nextBlock.getAndIncrement()) {
+					body.run(block);
+				}
+			}
+		};
+
+		int nThreads = Math.min(nBlocks, Runtime.getRuntime().availableProcessors());
+		if (nThreads <= 1) {
+			task.run();
+			return;
+		}
+
+		Thread[] threads = new Thread[nThreads - 1];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(task, "BlockThread" + i);
+			threads[i].start();
+		}
+		task.run();
+
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for parallel blocks", e);
+			}
+		}
+	}
+
+	/**
+	 * @param length Length of a loop
+	 * @param blockSize Size of each block
+	 * @return Number of blocks needed to cover the loop
+	 */
+	public static int getNumBlocks(int length, int blockSize) {
+		return (length + blockSize - 1) / blockSize;
+	}
+
+	/**
+	 * @param matrix A square matrix
+	 * @param tolerance Largest difference allowed between mirrored elements, relative to the
+	 * 		largest element
+	 * @return True if the matrix is symmetric within the given tolerance
+	 */
+	public static boolean isSymmetric(double[][] matrix, double tolerance) {
+		double max = 0;
+		for (double[] row : matrix) {
+			if (row.length != matrix.length) {
+				return false;
+			}
+			for (double element : row) {
+				max = Math.max(max, Math.abs(element));
+			}
+		}
+
+		for (int i = 0; i < matrix.length; i++) {
+			for (int j = 0; j < i; j++) {
+				if (Math.abs(matrix[i][j] - matrix[j][i]) > tolerance * max) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the symmetric product A^T diag(scale) A, where A is given by its columns. Only the
+	 * upper triangle is computed, in parallel over blocks of rows.
+	 *
+	 * @param columns Columns of A (i.e. rows of A^T)
+	 * @param scale Weight of each row of A (null for none)
+	 * @param triangular If true, A is upper triangular, so that products of columns i and j
+	 * 		only involve rows from max(i, j)
+	 * @return A^T diag(scale) A
+	 */
+	public static double[][] symmetricProduct(final double[][] columns, final double[] scale, final boolean triangular) {
+		final int n = columns.length;
+		final int blockSize = 32;
+		final double[][] result = new double[n][n];
+
+		ParallelBlocks.run(getNumBlocks(n, blockSize), new Body() {
+			public void run(int block) {
+				for (int i = block * blockSize; i < Math.min(n, (block + 1) * blockSize); i++) {
+					double[] a = columns[i];
+					for (int j = i; j < n; j++) {
+						double[] b = columns[j];
+						int start = triangular ? j : 0;
+						double sum = 0;
+						if (scale == null) {
+							for (int k = start; k < a.length; k++) {
+								sum += a[k] * b[k];
+							}
+						} else {
+							for (int k = start; k < a.length; k++) {
+								sum += a[k] * scale[k] * b[k];
+							}
+						}
+						result[i][j] = sum;
+					}
+				}
+			}
+		});
+
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < i; j++) {
+				result[i][j] = result[j][i];
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "SVDPseudoInverter.java". Description:
+"Pseudo-inverse by singular value decomposition"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import org.apache.log4j.Logger;
+
+import Jama.Matrix;
+import Jama.SingularValueDecomposition;
+import ca.nengo.math.PseudoInverter;
+
+/**
+ * A PseudoInverter that uses the singular value decomposition from Jama. This works for any
+ * matrix, but it is single-threaded and slower than the alternatives for the symmetric
+ * matrices that WeightedCostApproximator inverts.
+ *
+ * @author agent
+ */
+public class SVDPseudoInverter implements PseudoInverter {
+
+	private static final long serialVersionUID = 1L;
+
+	private static Logger ourLogger = Logger.getLogger(SVDPseudoInverter.class);
+
+	/**
+	 * @see ca.nengo.math.PseudoInverter#invert(double[][], float, int)
+	 */
+	public double[][] invert(double[][] matrix, float minSV, int nSV) {
+		Matrix m = new Matrix(matrix);
+		SingularValueDecomposition svd = m.svd();
+		Matrix sInv = svd.getS().inverse();
+
+		int i = 0;
+		while (i < svd.getS().getRowDimension() && svd.getS().get(i, i) > minSV && (nSV <= 0 || i < nSV)) {
+			i++;
+		}
+
+		ourLogger.debug("Using " + i + " singular values for pseudo-inverse");
+
+		for (int j = i; j < matrix.length; j++) {
+			sInv.set(j, j, 0d);
+		}
+
+		return svd.getV().times(sInv).times(svd.getU().transpose()).getArray();
+	}
+
+}
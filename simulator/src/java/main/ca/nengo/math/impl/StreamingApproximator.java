@@ -0,0 +1,691 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "StreamingApproximator.java". Description:
+"A LinearApproximator for large ensembles that keeps neither the activities nor the inverse correlation matrix in memory"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+import ca.nengo.math.ApproximatorFactory;
+import ca.nengo.math.Function;
+import ca.nengo.math.LinearApproximator;
+import ca.nengo.math.StreamingApproximatorFactory;
+import ca.nengo.math.ValueSource;
+
+/**
+ * <p>A LinearApproximator for problems that are too large for WeightedCostApproximator, which
+ * keeps all the values of the component functions (N x P floats) and the inverse of their
+ * correlation matrix (N x N doubles) on the heap.</p>
+ *
+ * <p>This approximator gets the values from a ValueSource in chunks of evaluation points, and
+ * accumulates the lower triangle of GAMMA + sigma^2 I into a FloatTileMatrix (on the heap, in direct
+ * buffers, or in a memory-mapped file). It then factors this in place (tiled Cholesky) rather than
+ * inverting it. findCoefficients(...) streams the values again to find UPSILON, and solves with
+ * the factor, so neither the values nor an inverse are ever held in memory. As in
+ * ConjugateGradientApproximator, noise is accounted for by the regularisation sigma^2.
+ * Coefficients for several targets (e.g. each dimension of a DecodedOrigin) can be found with
+ * a single pass over the values using findCoefficients(Function[]).</p>
+ *
+ * <p>The factor is kept until dispose() is called (or the approximator is discarded), and is
+ * rebuilt if the approximator is used again after that.</p>
+ *
+ * <p>The correlation matrix and its factor are kept in single precision (sums are accumulated in
+ * double precision), which is adequate for regularised problems. Memory use is tracked as the
+ * approximator is built; see getPeakMemory() and estimatePeakMemory(...).</p>
+ *
+ * @author agent
+ */
+public class StreamingApproximator implements LinearApproximator {
+
+	private static Logger ourLogger = Logger.getLogger(StreamingApproximator.class);
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Where to keep the tiles of the correlation matrix.
+	 */
+	public enum Storage {
+		/**
+		 * On the heap
+		 */
+		HEAP,
+
+		/**
+		 * In direct buffers, outside the heap (limited by -XX:MaxDirectMemorySize)
+		 */
+		DIRECT,
+
+		/**
+		 * In a memory-mapped temporary file, so the operating system can page tiles to disk
+		 */
+		MAPPED
+	}
+
+	/**
+	 * Minimum regularisation, relative to the largest diagonal element (somewhat above single precision)
+	 */
+	private static final double MIN_RIDGE = 1e-6;
+
+	private float[][] myEvalPoints;
+	private ValueSource mySource;
+	private Function myCostFunction;
+	private float myNoise;
+	private int myChunkSize;
+	private int myTileSize;
+	private Storage myStorage;
+	private boolean myQuiet;
+
+	private transient FloatTileMatrix myFactor;
+	private transient double[] myCostWeights;
+	private long myPeakMemory;
+
+	/**
+	 * @param evaluationPoints Points at which error is evaluated (should be uniformly
+	 * 		distributed, as the sum of error at these points is treated as an integral
+	 * 		over the domain of interest)
+	 * @param source Produces values of the component functions at the evaluation points
+	 * @param costFunction A cost function that weights squared error over the domain of
+	 * 		evaluation points
+	 * @param noise Standard deviation of noise in the values, as a proportion of the maximum
+	 * 		absolute value over all values
+	 * @param chunkSize Number of evaluation points for which values are requested at once
+	 * @param tileSize Number of rows and columns in each tile of the correlation matrix
+	 * @param storage Where to keep the tiles of the correlation matrix
+	 * @param quiet Turn off logging?
+	 */
+	public StreamingApproximator(float[][] evaluationPoints, ValueSource source, Function costFunction,
+			float noise, int chunkSize, int tileSize, Storage storage, boolean quiet) {
+		assert evaluationPoints.length == source.getNumPoints();
+
+		myEvalPoints = evaluationPoints;
+		mySource = source;
+		myCostFunction = costFunction;
+		myNoise = noise;
+		myChunkSize = chunkSize;
+		myTileSize = tileSize;
+		myStorage = storage;
+		myQuiet = quiet;
+
+		build();
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearApproximator#getEvalPoints()
+	 */
+	public float[][] getEvalPoints() {
+		return myEvalPoints;
+	}
+
+	/**
+	 * Note: the values aren't stored, so they are recomputed for each call.
+	 *
+	 * @see ca.nengo.math.LinearApproximator#getValues()
+	 */
+	public float[][] getValues() {
+		return mySource.getValues(0, mySource.getNumPoints());
+	}
+
+	/**
+	 * @return Where the tiles of the correlation matrix are kept
+	 */
+	public Storage getStorage() {
+		return myStorage;
+	}
+
+	/**
+	 * @return The most memory that was in use while this approximator was built, in bytes (heap plus
+	 * 		direct buffers; memory-mapped tiles are not counted as they can be paged out)
+	 */
+	public long getPeakMemory() {
+		return myPeakMemory;
+	}
+
+	/**
+	 * @param nFunctions Number of component functions (e.g. neurons)
+	 * @param nPoints Number of evaluation points
+	 * @param chunkSize Number of evaluation points for which values are requested at once
+	 * @param tileSize Number of rows and columns in each tile of the correlation matrix
+	 * @param storage Where to keep the tiles of the correlation matrix
+	 * @return Approximate memory needed, in bytes, to build a StreamingApproximator with the
+	 * 		given parameters, excluding the memory used by the ValueSource (and, for MAPPED storage,
+	 * 		excluding the tiles, which are backed by a file of FloatTileMatrix.getBytes(...) bytes)
+	 */
+	public static long estimatePeakMemory(int nFunctions, int nPoints, int chunkSize, int tileSize, Storage storage) {
+		long chunk = 4L * nFunctions * Math.min(chunkSize, nPoints) + 8L * nPoints;
+		long work = (long) Runtime.getRuntime().availableProcessors() * 24L * tileSize * tileSize;
+		long tiles = (storage == Storage.MAPPED) ? 0 : FloatTileMatrix.getBytes(nFunctions, tileSize);
+		return chunk + work + tiles;
+	}
+
+	/**
+	 * @see ca.nengo.math.LinearApproximator#findCoefficients(ca.nengo.math.Function)
+	 */
+	public float[] findCoefficients(Function target) {
+		return findCoefficients(new Function[]{target})[0];
+	}
+
+	/**
+	 * Finds coefficients for several target functions, streaming the values only once.
+	 *
+	 * @param targets Functions to approximate
+	 * @return Coefficients for each target (one row per target, one column per component function)
+	 */
+	public synchronized float[][] findCoefficients(Function[] targets) {
+		if (myFactor == null) {
+			build(); //e.g. after deserialization or dispose()
+		}
+
+		int n = mySource.getNumFunctions();
+		int p = mySource.getNumPoints();
+		int size = myFactor.getNumTiles() * myTileSize;
+
+		double[][] x = new double[targets.length][size];
+		for (int start = 0; start < p; start += myChunkSize) {
+			int end = Math.min(p, start + myChunkSize);
+			float[][] values = mySource.getValues(start, end);
+			double[] weights = Arrays.copyOfRange(myCostWeights, start, end);
+			for (int j = 0; j < targets.length; j++) {
+				float[] targetValues = new float[end - start];
+				for (int k = start; k < end; k++) {
+					targetValues[k - start] = targets[j].map(myEvalPoints[k]);
+				}
+				double[] upsilon = WeightedCostApproximator.findUpsilon(values, targetValues, weights);
+				for (int i = 0; i < n; i++) {
+					x[j][i] += upsilon[i];
+				}
+			}
+		}
+
+		float[][] result = new float[targets.length][n];
+		for (int j = 0; j < targets.length; j++) {
+			solve(x[j]);
+			for (int i = 0; i < n; i++) {
+				result[j][i] = (float) x[j][i];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Releases the factored correlation matrix (deleting its file, for MAPPED storage). It will
+	 * be rebuilt if coefficients are requested again.
+	 */
+	public synchronized void dispose() {
+		if (myFactor != null) {
+			myFactor.dispose();
+			myFactor = null;
+		}
+	}
+
+	//accumulates GAMMA over chunks of evaluation points, and factors it
+	private void build() {
+		int n = mySource.getNumFunctions();
+		int p = mySource.getNumPoints();
+		myPeakMemory = 0;
+
+		myCostWeights = new double[p];
+		for (int k = 0; k < p; k++) {
+			myCostWeights[k] = (double) myCostFunction.map(myEvalPoints[k]) / p;
+		}
+
+		try {
+			myFactor = new FloatTileMatrix(n, myTileSize, myStorage);
+		} catch (IOException e) {
+			throw new RuntimeException("Can't map a file for the correlation matrix", e);
+		}
+
+		boolean built = false;
+		try {
+			checkMemory();
+
+			float maxValue = 0f;
+			for (int start = 0; start < p; start += myChunkSize) {
+				int end = Math.min(p, start + myChunkSize);
+				float[][] values = mySource.getValues(start, end);
+				for (float[] row : values) {
+					for (float element : row) {
+						maxValue = Math.max(maxValue, Math.abs(element));
+					}
+				}
+				accumulate(values, start);
+				checkMemory();
+			}
+
+			double sd = myNoise * maxValue;
+			factor(sd * sd);
+			checkMemory();
+			built = true;
+		} finally {
+			if (!built) {
+				dispose();
+			}
+		}
+
+		if (!myQuiet) {
+			ourLogger.info("Peak memory for " + n + " x " + p + " approximator: " + myPeakMemory
+					+ " bytes (" + myStorage + " correlation tiles: " + myFactor.getBytes() + " bytes)");
+		}
+	}
+
+	//adds the contribution of a chunk of evaluation points to each tile of GAMMA
+	private void accumulate(final float[][] values, final int start) {
+		final int numTiles = myFactor.getNumTiles();
+		final int n = values.length;
+		final int length = (n == 0) ? 0 : values[0].length;
+		final int t = myTileSize;
+
+		//rows near the bottom have the most tiles, so hand them out first
+		ParallelBlocks.run(numTiles, new ParallelBlocks.Body() {
+			public void run(int block) {
+				int row = numTiles - 1 - block;
+				float[] tile = new float[t * t];
+				double[] weighted = new double[length];
+				for (int col = 0; col <= row; col++) {
+					myFactor.read(row, col, tile);
+					for (int r = 0; r < t && row * t + r < n; r++) {
+						float[] a = values[row * t + r];
+						for (int k = 0; k < length; k++) {
+							weighted[k] = a[k] * myCostWeights[start + k];
+						}
+						for (int c = 0; c < t && col * t + c < n; c++) {
+							float[] b = values[col * t + c];
+							double sum = 0;
+							for (int k = 0; k < length; k++) {
+								sum += weighted[k] * b[k];
+							}
+							tile[r * t + c] += (float) sum;
+						}
+					}
+					myFactor.write(row, col, tile);
+				}
+			}
+		});
+	}
+
+	//replaces GAMMA + ridge*I with its lower Cholesky factor, tile by tile
+	private void factor(double ridge) {
+		final int numTiles = myFactor.getNumTiles();
+		final int n = myFactor.getDimension();
+		final int t = myTileSize;
+		float[] tile = new float[t * t];
+
+		double maxDiagonal = 0;
+		for (int k = 0; k < numTiles; k++) {
+			myFactor.read(k, k, tile);
+			for (int r = 0; r < t; r++) {
+				maxDiagonal = Math.max(maxDiagonal, tile[r * t + r]);
+			}
+		}
+		final double minPivot = MIN_RIDGE * maxDiagonal;
+
+		for (int k = 0; k < numTiles; k++) {
+			myFactor.read(k, k, tile);
+			for (int r = 0; r < t; r++) {
+				//padding beyond the last row gets an identity diagonal
+				tile[r * t + r] += (k * t + r < n) ? ridge : 1;
+			}
+			final double[] diagonal = factorTile(tile, t, minPivot);
+			for (int i = 0; i < tile.length; i++) {
+				tile[i] = (float) diagonal[i];
+			}
+			myFactor.write(k, k, tile);
+
+			//tiles below the diagonal: L_ik = A_ik L_kk^-T
+			final int kk = k;
+			ParallelBlocks.run(numTiles - k - 1, new ParallelBlocks.Body() {
+				public void run(int block) {
+					int row = kk + 1 + block;
+					float[] a = new float[t * t];
+					myFactor.read(row, kk, a);
+					for (int r = 0; r < t; r++) {
+						for (int c = 0; c < t; c++) {
+							double sum = a[r * t + c];
+							for (int m = 0; m < c; m++) {
+								sum -= a[r * t + m] * diagonal[c * t + m];
+							}
+							a[r * t + c] = (float) (sum / diagonal[c * t + c]);
+						}
+					}
+					myFactor.write(row, kk, a);
+				}
+			});
+
+			//trailing update: A_ij -= L_ik L_jk^T
+			ParallelBlocks.run(numTiles - k - 1, new ParallelBlocks.Body() {
+				public void run(int block) {
+					int row = numTiles - 1 - block;
+					float[] left = new float[t * t];
+					float[] right = new float[t * t];
+					float[] a = new float[t * t];
+					myFactor.read(row, kk, left);
+					for (int col = kk + 1; col <= row; col++) {
+						myFactor.read(col, kk, right);
+						myFactor.read(row, col, a);
+						for (int r = 0; r < t; r++) {
+							for (int c = 0; c < t; c++) {
+								double sum = 0;
+								for (int m = 0; m < t; m++) {
+									sum += left[r * t + m] * right[c * t + m];
+								}
+								a[r * t + c] -= (float) sum;
+							}
+						}
+						myFactor.write(row, col, a);
+					}
+				}
+			});
+		}
+	}
+
+	//Cholesky factor of a diagonal tile (pivots below minPivot are raised to it)
+	private static double[] factorTile(float[] tile, int t, double minPivot) {
+		double[] result = new double[t * t];
+		for (int j = 0; j < t; j++) {
+			double d = tile[j * t + j];
+			for (int m = 0; m < j; m++) {
+				d -= result[j * t + m] * result[j * t + m];
+			}
+			result[j * t + j] = Math.sqrt(Math.max(d, minPivot));
+
+			for (int r = j + 1; r < t; r++) {
+				double sum = tile[r * t + j];
+				for (int m = 0; m < j; m++) {
+					sum -= result[r * t + m] * result[j * t + m];
+				}
+				result[r * t + j] = sum / result[j * t + j];
+			}
+		}
+		return result;
+	}
+
+	//solves L L^T x = b in place
+	private void solve(double[] x) {
+		int numTiles = myFactor.getNumTiles();
+		int t = myTileSize;
+		float[] tile = new float[t * t];
+
+		//forward substitution, L y = b
+		for (int i = 0; i < numTiles; i++) {
+			for (int j = 0; j < i; j++) {
+				myFactor.read(i, j, tile);
+				for (int r = 0; r < t; r++) {
+					double sum = 0;
+					for (int c = 0; c < t; c++) {
+						sum += tile[r * t + c] * x[j * t + c];
+					}
+					x[i * t + r] -= sum;
+				}
+			}
+			myFactor.read(i, i, tile);
+			for (int r = 0; r < t; r++) {
+				double sum = x[i * t + r];
+				for (int c = 0; c < r; c++) {
+					sum -= tile[r * t + c] * x[i * t + c];
+				}
+				x[i * t + r] = sum / tile[r * t + r];
+			}
+		}
+
+		//back substitution, L^T x = y
+		for (int i = numTiles - 1; i >= 0; i--) {
+			for (int j = i + 1; j < numTiles; j++) {
+				myFactor.read(j, i, tile);
+				for (int r = 0; r < t; r++) {
+					double xr = x[j * t + r];
+					for (int c = 0; c < t; c++) {
+						x[i * t + c] -= tile[r * t + c] * xr;
+					}
+				}
+			}
+			myFactor.read(i, i, tile);
+			for (int c = t - 1; c >= 0; c--) {
+				double sum = x[i * t + c];
+				for (int r = c + 1; r < t; r++) {
+					sum -= tile[r * t + c] * x[i * t + r];
+				}
+				x[i * t + c] = sum / tile[c * t + c];
+			}
+		}
+	}
+
+	private void checkMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		if (myStorage == Storage.DIRECT) {
+			used += myFactor.getBytes();
+		}
+		myPeakMemory = Math.max(myPeakMemory, used);
+	}
+
+	/**
+	 * Note: the clone shares the (read-only) factored correlation matrix with this approximator.
+	 *
+	 * @see java.lang.Object#clone()
+	 */
+	@Override
+	public LinearApproximator clone() throws CloneNotSupportedException {
+		StreamingApproximator result = (StreamingApproximator) super.clone();
+		result.myCostFunction = myCostFunction.clone();
+		return result;
+	}
+
+	/**
+	 * A ValueSource backed by an array of values.
+	 *
+	 * @author agent
+	 */
+	public static class ArrayValueSource implements ValueSource {
+
+		private static final long serialVersionUID = 1L;
+
+		private float[][] myValues;
+
+		/**
+		 * @param values Values of component functions (the first dimension corresponds to the
+		 * 		function, the second to the evaluation point)
+		 */
+		public ArrayValueSource(float[][] values) {
+			myValues = values;
+		}
+
+		/**
+		 * @see ca.nengo.math.ValueSource#getNumFunctions()
+		 */
+		public int getNumFunctions() {
+			return myValues.length;
+		}
+
+		/**
+		 * @see ca.nengo.math.ValueSource#getNumPoints()
+		 */
+		public int getNumPoints() {
+			return (myValues.length == 0) ? 0 : myValues[0].length;
+		}
+
+		/**
+		 * @see ca.nengo.math.ValueSource#getValues(int, int)
+		 */
+		public float[][] getValues(int start, int end) {
+			float[][] result = new float[myValues.length][];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = Arrays.copyOfRange(myValues[i], start, end);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * A StreamingApproximatorFactory that produces StreamingApproximators.
+	 *
+	 * @author agent
+	 */
+	public static class Factory implements StreamingApproximatorFactory {
+
+		private static final long serialVersionUID = 1L;
+
+		private float myNoise;
+		private int myChunkSize;
+		private int myTileSize;
+		private Storage myStorage;
+		private boolean myQuiet;
+
+		/**
+		 * @param noise Noise in component functions (proportion of largest value over all functions)
+		 * @param storage Where to keep the tiles of the correlation matrix
+		 */
+		public Factory(float noise, Storage storage) {
+			this(noise, 500, 256, storage);
+		}
+
+		/**
+		 * @param noise Noise in component functions (proportion of largest value over all functions)
+		 * @param chunkSize Number of evaluation points for which values are requested at once
+		 * @param tileSize Number of rows and columns in each tile of the correlation matrix
+		 * @param storage Where to keep the tiles of the correlation matrix
+		 */
+		public Factory(float noise, int chunkSize, int tileSize, Storage storage) {
+			myNoise = noise;
+			myChunkSize = chunkSize;
+			myTileSize = tileSize;
+			myStorage = storage;
+		}
+
+		/**
+		 * @return Noise in component functions (proportion of largest value over all functions)
+		 */
+		public float getNoise() {
+			return myNoise;
+		}
+
+		/**
+		 * @param noise Noise in component functions (proportion of largest value over all functions)
+		 */
+		public void setNoise(float noise) {
+			myNoise = noise;
+		}
+
+		/**
+		 * @return Number of evaluation points for which values are requested at once
+		 */
+		public int getChunkSize() {
+			return myChunkSize;
+		}
+
+		/**
+		 * @param chunkSize Number of evaluation points for which values are requested at once
+		 */
+		public void setChunkSize(int chunkSize) {
+			myChunkSize = chunkSize;
+		}
+
+		/**
+		 * @return Number of rows and columns in each tile of the correlation matrix
+		 */
+		public int getTileSize() {
+			return myTileSize;
+		}
+
+		/**
+		 * @param tileSize Number of rows and columns in each tile of the correlation matrix
+		 */
+		public void setTileSize(int tileSize) {
+			myTileSize = tileSize;
+		}
+
+		/**
+		 * @return Where to keep the tiles of the correlation matrix
+		 */
+		public Storage getStorage() {
+			return myStorage;
+		}
+
+		/**
+		 * @param storage Where to keep the tiles of the correlation matrix
+		 */
+		public void setStorage(Storage storage) {
+			myStorage = storage;
+		}
+
+		/**
+		 * @return Whether logging is turned off
+		 */
+		public boolean getQuiet() {
+			return myQuiet;
+		}
+
+		/**
+		 * @param quiet Turn off logging?
+		 */
+		public void setQuiet(boolean quiet) {
+			myQuiet = quiet;
+		}
+
+		/**
+		 * @param nFunctions Number of component functions (e.g. neurons)
+		 * @param nPoints Number of evaluation points
+		 * @return Approximate memory needed to build an approximator with this factory, in bytes
+		 * 		(see StreamingApproximator.estimatePeakMemory(...))
+		 */
+		public long estimatePeakMemory(int nFunctions, int nPoints) {
+			return StreamingApproximator.estimatePeakMemory(nFunctions, nPoints, myChunkSize, myTileSize, myStorage);
+		}
+
+		/**
+		 * @see ca.nengo.math.ApproximatorFactory#getApproximator(float[][], float[][])
+		 */
+		public LinearApproximator getApproximator(float[][] evalPoints, float[][] values) {
+			return getApproximator(evalPoints, new ArrayValueSource(values));
+		}
+
+		/**
+		 * @see ca.nengo.math.StreamingApproximatorFactory#getApproximator(float[][], ca.nengo.math.ValueSource)
+		 */
+		public LinearApproximator getApproximator(float[][] evalPoints, ValueSource values) {
+			return new StreamingApproximator(evalPoints, values, getCostFunction(evalPoints[0].length),
+					myNoise, myChunkSize, myTileSize, myStorage, myQuiet);
+		}
+
+		/**
+		 * Note: override to use non-uniform error weighting.
+		 *
+		 * @param dimension Dimension of the function to be approximated
+		 * @return A function over the input space that defines relative importance of error at each point (defaults
+		 * 		to a ConstantFunction)
+		 */
+		public Function getCostFunction(int dimension) {
+			return new ConstantFunction(dimension, 1);
+		}
+
+		@Override
+		public ApproximatorFactory clone() throws CloneNotSupportedException {
+			return (ApproximatorFactory) super.clone();
+		}
+
+	}
+
+}
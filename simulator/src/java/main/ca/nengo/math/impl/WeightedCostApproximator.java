@@ -28,16 +28,16 @@ a recipient may use your version of this file under either the MPL or the GPL Li
  */
 package ca.nengo.math.impl;
 
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
-import org.apache.log4j.Logger;
-
-import Jama.Matrix;
-import Jama.SingularValueDecomposition;
 import ca.nengo.math.ApproximatorFactory;
 import ca.nengo.math.Function;
 import ca.nengo.math.LinearApproximator;
+import ca.nengo.math.PseudoInverter;
 import ca.nengo.util.MU;
 import ca.nengo.util.Memory;
 
@@ -45,7 +45,8 @@ import ca.nengo.util.Memory;
  * <p>A LinearApproximator in which error is evaluated at a fixed set of points, and
  * the cost function that is minimized is a weighted integral of squared error.</p>
  *
- * <p>Uses the Moore-Penrose pseudoinverse.</p>
+ * <p>Uses the Moore-Penrose pseudoinverse (or a regularised inverse, depending on the
+ * PseudoInverter; by default an EigenPseudoInverter).</p>
  *
  * TODO: test
  *
@@ -53,17 +54,30 @@ import ca.nengo.util.Memory;
  */
 public class WeightedCostApproximator implements LinearApproximator {
 
-	private static Logger ourLogger = Logger.getLogger(WeightedCostApproximator.class);
 	private static final long serialVersionUID = 1L;
 
 	private float[][] myEvalPoints;
-	private final float[][] myValues;
+	private float[][] myValues;
 	private float[][] myNoisyValues;
+	private float myNoiseSD;
 	private Function myCostFunction;
 	private int mySignalLength;
 	private final boolean myQuiet;
 
 	private double[][] myGammaInverse;
+	private int myNSV;
+	private transient ApproximatorCache myCache;
+	private String myCacheKey;
+	private float myRidge; //if positive, myGammaInverse is inverse(GAMMA + myRidge*I)
+	private double[] myCostWeights;
+	private PseudoInverter myPseudoInverter;
+
+	//tile sizes for findGamma (rows of Gamma and evaluation points)
+	private static final int BLOCK_SIZE = 64;
+	private static final int CHUNK_SIZE = 512;
+
+	//smallest ridge for incremental updates, relative to the largest diagonal element of GAMMA
+	private static final double MIN_RIDGE = 1e-8;
 
 	private static boolean myUseGPU = false;
 	private static boolean canUseGPU;
@@ -141,6 +155,23 @@ public class WeightedCostApproximator implements LinearApproximator {
 	 * @param quiet Turn off logging?
 	 */
 	public WeightedCostApproximator(float[][] evaluationPoints, float[][] values, Function costFunction, float noise, int nSV, boolean quiet) {
+		this(evaluationPoints, values, costFunction, noise, nSV, quiet, new EigenPseudoInverter());
+	}
+
+	/**
+	 * @param evaluationPoints Points at which error is evaluated (see other constructors)
+	 * @param values The values of whatever functions are being combined, at the evaluationPoints
+	 * @param costFunction A cost function that weights squared error over the domain of
+	 * 		evaluation points
+	 * @param noise Standard deviation of Gaussian noise to add to values, as a proportion of
+	 * 		the maximum absolute value over all values
+	 * @param nSV Number of singular values to keep from the singular value
+	 *      decomposition (SVD)
+	 * @param quiet Turn off logging?
+	 * @param inverter Used to invert the correlation matrix
+	 */
+	public WeightedCostApproximator(float[][] evaluationPoints, float[][] values, Function costFunction, float noise, int nSV,
+			boolean quiet, PseudoInverter inverter) {
 		assert MU.isMatrix(evaluationPoints);
 		assert MU.isMatrix(values);
 		assert evaluationPoints.length == values[0].length;
@@ -149,12 +180,11 @@ public class WeightedCostApproximator implements LinearApproximator {
 		myValues = MU.clone(values);
 		myNoisyValues = MU.clone(values);
 		myQuiet = quiet;
+		myPseudoInverter = inverter;
 		mySignalLength = -1;
-		float absNoiseSD = addNoise(myNoisyValues, noise);
-
 		myCostFunction = costFunction;
 
-		calcGamma(absNoiseSD, nSV);
+		build(noise, nSV);
 	}
 	
 	/**
@@ -175,6 +205,23 @@ public class WeightedCostApproximator implements LinearApproximator {
 	 * @param quiet Turn off logging?
 	 */
 	public WeightedCostApproximator(float[][][] evaluationSignals, float[][][] values, Function costFunction, float noise, int nSV, boolean quiet) {
+		this(evaluationSignals, values, costFunction, noise, nSV, quiet, new EigenPseudoInverter());
+	}
+
+	/**
+	 * @param evaluationSignals Signals over which error is evaluated (see other constructors)
+	 * @param values The values of whatever functions are being combined, over the evaluation signals
+	 * @param costFunction A cost function that weights squared error over the domain of
+	 * 		evaluation points
+	 * @param noise Standard deviation of Gaussian noise to add to values, as a proportion of
+	 * 		the maximum absolute value over all values
+	 * @param nSV Number of singular values to keep from the singular value
+	 *      decomposition (SVD)
+	 * @param quiet Turn off logging?
+	 * @param inverter Used to invert the correlation matrix
+	 */
+	public WeightedCostApproximator(float[][][] evaluationSignals, float[][][] values, Function costFunction, float noise, int nSV,
+			boolean quiet, PseudoInverter inverter) {
 		//should do some error checking (e.g. make sure all signals are same length)
 		
 		
@@ -208,11 +255,10 @@ public class WeightedCostApproximator implements LinearApproximator {
 
 		myNoisyValues = MU.clone(myValues);
 		myQuiet = quiet;
-		float absNoiseSD = addNoise(myNoisyValues, noise);
-
+		myPseudoInverter = inverter;
 		myCostFunction = costFunction;
 
-		calcGamma(absNoiseSD, nSV);
+		build(noise, nSV);
 
 	}
 
@@ -237,6 +283,69 @@ public class WeightedCostApproximator implements LinearApproximator {
 		this(evaluationPoints, values, costFunction, noise, nSV, false);
 	}
 	
+	/**
+	 * Finds the cost weights, adds noise to myNoisyValues, and finds the inverse of GAMMA (unless
+	 * it is in the default ApproximatorCache). With a cache, the noise is drawn from a generator
+	 * seeded by the cache key, so that cached inverses and decoders match the noisy values.
+	 *
+	 * @param noise Standard deviation of noise as a proportion of the largest value
+	 * @param nSV Number of singular values to keep from the singular value
+	 *      decomposition (SVD)
+	 */
+	private void build(float noise, int nSV) {
+		myCostWeights = findCostWeights();
+
+		Random random = null;
+		myCache = getUseGPU() ? null : ApproximatorCache.getDefault();
+		if (myCache != null) {
+			myCacheKey = new ApproximatorCache.Key().add(getClass().getName()).add(myPseudoInverter.getClass().getName())
+				.add(myEvalPoints).add(myValues).add(myCostWeights).add(noise).add(nSV).toString();
+			random = new Random(Long.parseLong(myCacheKey.substring(0, 15), 16));
+		}
+
+		float absNoiseSD = addNoise(myNoisyValues, noise, random);
+		calcGamma(absNoiseSD, nSV);
+	}
+
+	//cost of each evaluation point, divided by the number of points
+	private double[] findCostWeights() {
+		double[] result = new double[myEvalPoints.length];
+		for (int k = 0; k < myEvalPoints.length; k++) {
+			result[k] = (double) myCostFunction.map(myEvalPoints[k]) / myEvalPoints.length;
+		}
+		return result;
+	}
+
+	/**
+	 * Fills in fields that are missing from approximators that were saved by earlier versions
+	 * (e.g. in an NEFEnsemble's .nef file). These stored GAMMA's pseudo-inverse, but not the
+	 * cost weights, PseudoInverter, or noise level.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		if (myPseudoInverter == null) {
+			myPseudoInverter = new EigenPseudoInverter();
+		}
+		if (myCostWeights == null) {
+			myCostWeights = findCostWeights();
+			myNSV = -1;
+			myRidge = -1;
+
+			//the noise that was added is the difference between the noisy and noise-free values
+			double sumSquares = 0;
+			long count = 0;
+			for (int i = 0; i < myValues.length; i++) {
+				for (int j = 0; j < myValues[i].length; j++) {
+					double difference = myNoisyValues[i][j] - myValues[i][j];
+					sumSquares += difference * difference;
+				}
+				count += myValues[i].length;
+			}
+			myNoiseSD = (count > 0) ? (float) Math.sqrt(sumSquares / count) : 0;
+		}
+	}
+
 	/**
 	 * Calculate the gamma matrix.
 	 * 
@@ -245,6 +354,13 @@ public class WeightedCostApproximator implements LinearApproximator {
 	 *      decomposition (SVD)
 	 */
 	private void calcGamma(float absNoiseSD, int nSV) {
+		myNoiseSD = absNoiseSD;
+		myNSV = nSV;
+		myRidge = -1;
+		if (myCache != null && myCache.hasInverse(myCacheKey)) {
+			return; //read when it is first needed, since cached decoders may make it unnecessary
+		}
+
 		if(!myQuiet) {
             Memory.report("before gamma");
         }
@@ -269,11 +385,30 @@ public class WeightedCostApproximator implements LinearApproximator {
 			if(!myQuiet) {
                 Memory.report("after inverse");
             }
+			if (myCache != null) {
+				myCache.putInverse(myCacheKey, myGammaInverse);
+			}
 
 		}
 	}
 
-	private float addNoise(float[][] values, float noise) {
+	//the inverse of GAMMA, which is read from the cache (or found again) if it hasn't been yet
+	private synchronized double[][] getGammaInverse() {
+		if (myGammaInverse == null) {
+			if (myCache != null) {
+				myGammaInverse = myCache.getInverse(myCacheKey, myNoisyValues.length);
+			}
+			if (myGammaInverse == null) {
+				myGammaInverse = pseudoInverse(findGamma(), myNoiseSD*myNoiseSD, myNSV);
+				if (myCache != null) {
+					myCache.putInverse(myCacheKey, myGammaInverse);
+				}
+			}
+		}
+		return myGammaInverse;
+	}
+
+	private float addNoise(float[][] values, float noise, Random random) {
 		float maxValue = 0f;
 		for (float[] value : values) {
 			for (float element : value) {
@@ -284,15 +419,20 @@ public class WeightedCostApproximator implements LinearApproximator {
 		}
 
 		float SD = noise * maxValue;
+		perturb(values, SD, random);
+
+		return SD;
+	}
+
+	//adds Gaussian noise with the given (absolute) standard deviation, from the given generator if not null
+	private static void perturb(float[][] values, float SD, Random random) {
 		GaussianPDF pdf = new GaussianPDF(0f, SD*SD);
 
 		for (int i = 0; i < values.length; i++) {
 			for (int j = 0; j < values[i].length; j++) {
-				values[i][j] += pdf.sample()[0];
+				values[i][j] += (random == null) ? pdf.sample()[0] : (float) (random.nextGaussian() * SD);
 			}
 		}
-
-		return SD;
 	}
 	
 	private float addNoise(float[][][] values, float noise) {
@@ -362,7 +502,8 @@ public class WeightedCostApproximator implements LinearApproximator {
 
 
 	/**
-	 * Override this method to use a different pseudoinverse implementation (eg clustered).
+	 * Inverts a matrix with this approximator's PseudoInverter. Override this method to use
+	 * a different pseudoinverse implementation (eg clustered).
 	 *
 	 * @param matrix Any matrix
 	 * @param minSV Hint as to smallest singular value to use
@@ -370,145 +511,7 @@ public class WeightedCostApproximator implements LinearApproximator {
 	 * @return The pseudoinverse of the given matrix
 	 */
 	public double[][] pseudoInverse(double[][] matrix, float minSV, int nSV) {
-		double[][] result=null;
-
-		Random random=new Random();
-
-		Runtime runtime=Runtime.getRuntime();
-//		int hashCode=java.util.Arrays.hashCode(matrix);
-//		int testpos = 0;
-
-		String parent=System.getProperty("user.dir");
-		java.io.File path=new java.io.File(parent,"external");
-		String filename="matrix_"+random.nextLong();
-
-	 	try {
-			// TODO: separate this out into a helper method, so we can do this sort of thing for other calculations as well
-	 		java.io.File pinvfile = new java.io.File(path,"pseudoInverse");
-
-			if(pinvfile.exists())
-			{
-
-				java.io.File file=new java.io.File(path,filename);
-				if (file.canRead()) {
-                    file.delete();
-                }
-				java.io.File file2=new java.io.File(path,filename+".inv");
-				if (file2.canRead()) {
-                    file2.delete();
-                }
-
-				java.nio.channels.FileChannel channel=new java.io.RandomAccessFile(file,"rw").getChannel();
-	//			java.nio.ByteBuffer buffer=channel.map(java.nio.channels.FileChannel.MapMode.READ_WRITE, 0, matrix.length*matrix.length*4);
-				java.nio.ByteBuffer buffer= java.nio.ByteBuffer.allocate(matrix.length*matrix.length*4);
-				buffer.rewind();
-
-
-				buffer.order(java.nio.ByteOrder.BIG_ENDIAN);
-				for (double[] element : matrix) {
-					for (int j=0; j<matrix.length; j++) {
-						buffer.putFloat((float)(element[j]));
-					}
-				}
-				buffer.rewind();
-
-				channel.write(buffer);
-				channel.force(true);
-	            channel.close();
-
-				if (System.getProperty("os.name").startsWith("Windows")) {
-					Process process=runtime.exec("cmd /c pseudoInverse.bat "+filename+" "+filename+".inv"+" "+minSV+" "+nSV,null,path);
-					process.waitFor();
-				} else {
-					Process process=runtime.exec("external"+java.io.File.separatorChar+"pseudoInverse external/"+filename+" external/"+filename+".inv"+" "+minSV+" "+nSV,null,null);
-					process.waitFor();
-
-					java.io.InputStream s=process.getErrorStream();
-					if (s.available()>0) {
-						System.out.println("external error:");
-						while (s.available()>0) {
-							System.out.write(s.read());
-						}
-					}
-					java.io.InputStream s2=process.getInputStream();
-					if (s2.available()>0) {
-						System.out.println("external output:");
-						while (s2.available()>0) {
-							System.out.write(s2.read());
-						}
-					}
-				}
-
-				// matrix file cleaned up in finally block
-
-				channel=new java.io.RandomAccessFile(file2,"r").getChannel();
-	//			buffer=channel.map(java.nio.channels.FileChannel.MapMode.READ_ONLY, 0, matrix.length*matrix.length*4);
-				buffer= java.nio.ByteBuffer.allocate(matrix.length*matrix.length*4);
-				channel.read(buffer);
-				buffer.rewind();
-
-				double[][] inv=new double[matrix.length][];
-
-				for (int i=0; i<matrix.length; i++) {
-					double[] row=new double[matrix.length];
-					for (int j=0; j<matrix.length; j++) {
-						row[j]=buffer.getFloat();
-					}
-					inv[i]=row;
-				}
-				result=inv;
-
-				// Close all file handles
-	            channel.close();
-
-	            // channel file cleaned up in finally block
-			}
-		} catch (FileNotFoundException e) {
-			System.err.println("File not found: " + e);
-		} catch (java.io.IOException e) {
-			//e.printStackTrace();
-            System.err.println("WeightedCostApproximator.pseudoInverse() - IO Exception: " + e);
-		} catch (InterruptedException e) {
-            System.err.println("WeightedCostApproximator.pseudoInverse() - Interrupted: " + e);
-			//e.printStackTrace();
-		} catch (Exception e){
-            System.err.println("WeightedCostApproximator.pseudoInverse() - Gen Exception: " + e);
-            //e.printStackTrace();
-        } finally {
-        	java.io.File file=new java.io.File(path,filename);
-			if (file.exists()) {
-                file.delete();
-            }
-			java.io.File file2=new java.io.File(path,filename+".inv");
-			if (file2.exists()) {
-                file2.delete();
-            }
-        }
-
-		if (result==null) {
-
-			Matrix m = new Matrix(matrix);
-			SingularValueDecomposition svd = m.svd();
-			Matrix sInv = svd.getS().inverse();
-
-			int i = 0;
-			while (i < svd.getS().getRowDimension() && svd.getS().get(i, i) > minSV && (nSV <= 0 || i < nSV)) {
-                i++;
-            }
-
-			if(!myQuiet) {
-                ourLogger.info("Using " + i + " singular values for pseudo-inverse");
-            }
-
-			for (int j = i; j < matrix.length; j++) {
-				sInv.set(j, j, 0d);
-			}
-
-			result = svd.getV().times(sInv).times(svd.getU().transpose()).getArray();
-
-		}
-
-		return result;
+		return myPseudoInverter.invert(matrix, minSV, nSV);
 	}
 
 	/**
@@ -528,22 +531,7 @@ public class WeightedCostApproximator implements LinearApproximator {
 			targetValues[i] = target.map(myEvalPoints[i]);
 		}
 
-		float[] upsilon = new float[myNoisyValues.length];
-		for (int i = 0; i < myNoisyValues.length; i++) {
-			for (int j = 0; j < myEvalPoints.length; j++) {
-				upsilon[i] += myNoisyValues[i][j] * targetValues[j] * myCostFunction.map(myEvalPoints[j]);
-			}
-			upsilon[i] = upsilon[i] / myEvalPoints.length;
-		}
-
-		float[] result = new float[myNoisyValues.length];
-		for (int i = 0; i < myNoisyValues.length; i++) {
-			for (int j = 0; j < myNoisyValues.length; j++) {
-				result[i] += myGammaInverse[i][j] * upsilon[j];
-			}
-		}
-
-		return result;
+		return solve(targetValues);
 	}
     
     /**
@@ -577,53 +565,413 @@ public class WeightedCostApproximator implements LinearApproximator {
     			targetValues[i*mySignalLength+j] = targetSignal[j];
     	}
     	
-    	float[] upsilon = new float[myNoisyValues.length];
-		for (int i = 0; i < myNoisyValues.length; i++) {
-			for (int j = 0; j < myEvalPoints.length; j++) {
-				upsilon[i] += myNoisyValues[i][j] * targetValues[j] * myCostFunction.map(myEvalPoints[j]);
+		return solve(targetValues);
+    }
+
+	//coefficients inverse(GAMMA) * UPSILON for the given target values at the evaluation points
+	private float[] solve(float[] targetValues) {
+		String key = null;
+		if (myCache != null) {
+			key = new ApproximatorCache.Key().add(myCacheKey).add(targetValues).toString();
+			float[] cached = myCache.getCoefficients(key, myNoisyValues.length);
+			if (cached != null) {
+				return cached;
 			}
-			upsilon[i] = upsilon[i] / myEvalPoints.length;
 		}
 
+		double[] upsilon = findUpsilon(myNoisyValues, targetValues, myCostWeights);
+		double[][] inverse = getGammaInverse();
+
 		float[] result = new float[myNoisyValues.length];
 		for (int i = 0; i < myNoisyValues.length; i++) {
+			double sum = 0;
 			for (int j = 0; j < myNoisyValues.length; j++) {
-				result[i] += myGammaInverse[i][j] * upsilon[j];
+				sum += inverse[i][j] * upsilon[j];
 			}
+			result[i] = (float) sum;
 		}
 
+		if (key != null) {
+			myCache.putCoefficients(key, result);
+		}
 		return result;
-    }
+	}
+
+	/**
+	 * <p>Appends component functions (e.g. the rates of neurons that have been added to an
+	 * ensemble) without inverting GAMMA again. If G is the current GAMMA, C holds the correlations
+	 * between the current and new functions, and D the correlations among the new functions, then
+	 * the inverse of [G C; C' D] is assembled from the stored inverse and the inverse of the
+	 * Schur complement S = D - C' inv(G) C, which is only m x m for m new functions. This takes
+	 * O(N^2 m) time rather than O(N^3).</p>
+	 *
+	 * <p>These updates are only stable for a regularised inverse, so the first update of an
+	 * approximator replaces a truncated pseudo-inverse with inverse(GAMMA + noise^2 I) (the same
+	 * result as from a CholeskyPseudoInverter), and later updates are exact. Noise is added to
+	 * the new values with the same standard deviation as the original values.</p>
+	 *
+	 * @param values Values of the new functions at the evaluation points (one row per function,
+	 * 		arranged as in getValues())
+	 */
+	public void addFunctions(float[][] values) {
+		assert MU.isMatrix(values) && (values.length == 0 || values[0].length == myEvalPoints.length);
+
+		final int n = myNoisyValues.length;
+		final int m = values.length;
+		if (m == 0) {
+			return;
+		}
+		regularise();
+
+		float[][] noisy = MU.clone(values);
+		perturb(noisy, myNoiseSD, null);
+
+		final double[][] weighted = new double[m][myCostWeights.length];
+		for (int a = 0; a < m; a++) {
+			weigh(noisy[a], myCostWeights, 0, myCostWeights.length, weighted[a]);
+		}
+
+		//C (n x m) and GC = inv(G) C
+		final double[][] cross = new double[n][m];
+		ParallelBlocks.run(ParallelBlocks.getNumBlocks(n, BLOCK_SIZE), new ParallelBlocks.Body() {
+			public void run(int block) {
+				for (int i = block * BLOCK_SIZE; i < Math.min(n, (block + 1) * BLOCK_SIZE); i++) {
+					for (int a = 0; a < m; a++) {
+						cross[i][a] = dot(weighted[a], myNoisyValues[i], 0, weighted[a].length);
+					}
+				}
+			}
+		});
+		final double[][] inverse = myGammaInverse;
+		final double[][] gc = multiply(inverse, cross);
+
+		//S = D - C' GC
+		double[][] schur = new double[m][m];
+		for (int a = 0; a < m; a++) {
+			for (int b = a; b < m; b++) {
+				double sum = dot(weighted[a], noisy[b], 0, weighted[a].length);
+				for (int i = 0; i < n; i++) {
+					sum -= cross[i][a] * gc[i][b];
+				}
+				schur[a][b] = sum;
+				schur[b][a] = sum;
+			}
+		}
+		final double[][] schurInverse = new CholeskyPseudoInverter().invert(schur, myRidge, -1);
+		final double[][] gcs = multiply(gc, schurInverse);
+
+		final double[][] result = new double[n+m][n+m];
+		ParallelBlocks.run(ParallelBlocks.getNumBlocks(n, BLOCK_SIZE), new ParallelBlocks.Body() {
+			public void run(int block) {
+				for (int i = block * BLOCK_SIZE; i < Math.min(n, (block + 1) * BLOCK_SIZE); i++) {
+					for (int j = 0; j < n; j++) {
+						double sum = inverse[i][j];
+						for (int a = 0; a < m; a++) {
+							sum += gcs[i][a] * gc[j][a];
+						}
+						result[i][j] = sum;
+					}
+					for (int a = 0; a < m; a++) {
+						result[i][n+a] = -gcs[i][a];
+						result[n+a][i] = -gcs[i][a];
+					}
+				}
+			}
+		});
+		for (int a = 0; a < m; a++) {
+			System.arraycopy(schurInverse[a], 0, result[n+a], n, m);
+		}
+
+		myGammaInverse = result;
+		myValues = append(myValues, values);
+		myNoisyValues = append(myNoisyValues, noisy);
+	}
+
+	/**
+	 * Removes component functions (e.g. the rates of neurons that have been removed from an
+	 * ensemble) without inverting GAMMA again. If the stored inverse is partitioned into kept (R)
+	 * and removed (K) rows and columns, the inverse of GAMMA without K is
+	 * inv(G)_RR - inv(G)_RK inv(inv(G)_KK) inv(G)_KR, which takes O(N^2 k) time for k removed
+	 * functions. As with addFunctions(...), a truncated pseudo-inverse is first replaced with a
+	 * regularised inverse.
+	 *
+	 * @param indices Indices of the functions to remove
+	 */
+	public void removeFunctions(int[] indices) {
+		regularise();
+		int[] keep = complement(indices, myNoisyValues.length);
+		myGammaInverse = downdate(keep);
+		myValues = select(myValues, keep);
+		myNoisyValues = select(myNoisyValues, keep);
+	}
+
+	/**
+	 * Replaces component functions with zero (e.g. when neurons are killed) without inverting
+	 * GAMMA again. The other functions are updated as in removeFunctions(...), and the silenced
+	 * functions get zero coefficients.
+	 *
+	 * @param indices Indices of the functions to silence
+	 */
+	public void silenceFunctions(int[] indices) {
+		regularise();
+		int n = myNoisyValues.length;
+		int[] keep = complement(indices, n);
+		double[][] reduced = downdate(keep);
+
+		double[][] result = new double[n][n];
+		for (int i = 0; i < keep.length; i++) {
+			for (int j = 0; j < keep.length; j++) {
+				result[keep[i]][keep[j]] = reduced[i][j];
+			}
+		}
+		myGammaInverse = result;
+
+		myValues = MU.clone(myValues);
+		myNoisyValues = MU.clone(myNoisyValues);
+		for (int index : indices) {
+			myValues[index] = new float[myValues[index].length];
+			myNoisyValues[index] = new float[myNoisyValues[index].length];
+		}
+	}
+
+	//replaces a truncated pseudo-inverse with inverse(GAMMA + ridge*I), which can be updated
+	private void regularise() {
+		//updated approximators no longer match their cache entries
+		myCache = null;
+		myCacheKey = null;
+		if (myRidge > 0) {
+			return;
+		}
+
+		double[][] gamma = findGamma();
+		double maxDiagonal = 0;
+		for (int i = 0; i < gamma.length; i++) {
+			maxDiagonal = Math.max(maxDiagonal, gamma[i][i]);
+		}
+		myRidge = (float) Math.max(myNoiseSD*myNoiseSD, MIN_RIDGE * maxDiagonal);
+		if (myRidge > 0) {
+			myGammaInverse = new CholeskyPseudoInverter().invert(gamma, myRidge, -1);
+		} else {
+			getGammaInverse();
+		}
+	}
+
+	//inverse of GAMMA restricted to the kept functions, from the stored inverse
+	private double[][] downdate(final int[] keep) {
+		final double[][] inverse = myGammaInverse;
+
+		//silenced functions have zero rows in the inverse, and can simply be dropped
+		List<Integer> nonzero = new ArrayList<Integer>();
+		for (int index : complement(keep, inverse.length)) {
+			if (inverse[index][index] != 0) {
+				nonzero.add(Integer.valueOf(index));
+			}
+		}
+		final int k = nonzero.size();
+		int[] removed = new int[k];
+		for (int a = 0; a < k; a++) {
+			removed[a] = nonzero.get(a).intValue();
+		}
+
+		double[][] removedBlock = new double[k][k];
+		final double[][] keptRemoved = new double[keep.length][k];
+		for (int a = 0; a < k; a++) {
+			for (int b = 0; b < k; b++) {
+				removedBlock[a][b] = inverse[removed[a]][removed[b]];
+			}
+			for (int i = 0; i < keep.length; i++) {
+				keptRemoved[i][a] = inverse[keep[i]][removed[a]];
+			}
+		}
+
+		double[][] blockInverse = new CholeskyPseudoInverter().invert(removedBlock, 0, -1);
+		final double[][] t = multiply(keptRemoved, blockInverse);
+
+		final int n = keep.length;
+		final double[][] result = new double[n][n];
+		ParallelBlocks.run(ParallelBlocks.getNumBlocks(n, BLOCK_SIZE), new ParallelBlocks.Body() {
+			public void run(int block) {
+				for (int i = block * BLOCK_SIZE; i < Math.min(n, (block + 1) * BLOCK_SIZE); i++) {
+					double[] row = inverse[keep[i]];
+					for (int j = 0; j < n; j++) {
+						double sum = row[keep[j]];
+						for (int a = 0; a < k; a++) {
+							sum -= t[i][a] * keptRemoved[j][a];
+						}
+						result[i][j] = sum;
+					}
+				}
+			}
+		});
+
+		return result;
+	}
+
+	//a (n x n) times b (n x m), over blocks of rows
+	private static double[][] multiply(final double[][] a, final double[][] b) {
+		final int n = a.length;
+		final int m = b.length == 0 ? 0 : b[0].length;
+		final double[][] result = new double[n][m];
+		ParallelBlocks.run(ParallelBlocks.getNumBlocks(n, BLOCK_SIZE), new ParallelBlocks.Body() {
+			public void run(int block) {
+				for (int i = block * BLOCK_SIZE; i < Math.min(n, (block + 1) * BLOCK_SIZE); i++) {
+					for (int j = 0; j < b.length; j++) {
+						double aij = a[i][j];
+						if (aij != 0) {
+							for (int c = 0; c < m; c++) {
+								result[i][c] += aij * b[j][c];
+							}
+						}
+					}
+				}
+			}
+		});
+		return result;
+	}
+
+	//indices from 0 to n-1 that are not in the given list
+	private static int[] complement(int[] indices, int n) {
+		boolean[] listed = new boolean[n];
+		int count = 0;
+		for (int index : indices) {
+			if (index < 0 || index >= n) {
+				throw new IllegalArgumentException("Function index " + index + " is out of range");
+			}
+			if (!listed[index]) {
+				listed[index] = true;
+				count++;
+			}
+		}
+
+		int[] result = new int[n - count];
+		int j = 0;
+		for (int i = 0; i < n; i++) {
+			if (!listed[i]) {
+				result[j++] = i;
+			}
+		}
+		return result;
+	}
+
+	private static float[][] select(float[][] values, int[] indices) {
+		float[][] result = new float[indices.length][];
+		for (int i = 0; i < indices.length; i++) {
+			result[i] = values[indices[i]];
+		}
+		return result;
+	}
+
+	private static float[][] append(float[][] values, float[][] more) {
+		float[][] result = new float[values.length + more.length][];
+		System.arraycopy(values, 0, result, 0, values.length);
+		System.arraycopy(more, 0, result, values.length, more.length);
+		return result;
+	}
 
 	private double[][] findGamma() {
+		return findGamma(myNoisyValues, myCostWeights);
+	}
 
-		double[][] result = new double[myNoisyValues.length][];
-//		double[][] nativeResult = new double[myNoisyValues.length][];
+	/**
+	 * Finds GAMMA_ij = sum_k weights_k values_ik values_jk. Only the upper triangle is computed
+	 * (GAMMA is symmetric), in tiles of BLOCK_SIZE rows by CHUNK_SIZE evaluation points so that
+	 * the tile stays in cache while it is multiplied by each block of columns. Blocks of rows are
+	 * spread over the available processors.
+	 *
+	 * @param values Values of component functions (one row per function, one column per evaluation point)
+	 * @param weights Weight of each evaluation point
+	 * @return GAMMA
+	 */
+	static double[][] findGamma(final float[][] values, final double[] weights) {
+		final int n = values.length;
+		final double[][] result = new double[n][n];
+
+		//blocks near the top have the most columns, and are handed out first
+		ParallelBlocks.run(ParallelBlocks.getNumBlocks(n, BLOCK_SIZE), new ParallelBlocks.Body() {
+			public void run(int block) {
+				double[][] tile = new double[BLOCK_SIZE][CHUNK_SIZE];
+				int rowStart = block * BLOCK_SIZE;
+				int rowEnd = Math.min(n, rowStart + BLOCK_SIZE);
+
+				for (int kStart = 0; kStart < weights.length; kStart += CHUNK_SIZE) {
+					int kEnd = Math.min(weights.length, kStart + CHUNK_SIZE);
+					for (int i = rowStart; i < rowEnd; i++) {
+						weigh(values[i], weights, kStart, kEnd, tile[i - rowStart]);
+					}
 
-		for (int i = 0; i < result.length; i++) {
-			result[i] = new double[myNoisyValues.length];
-			for (int j = 0; j < result[i].length; j++) {
-				for (int k = 0; k < myEvalPoints.length; k++) {
-					result[i][j] += myNoisyValues[i][k] * myNoisyValues[j][k] * myCostFunction.map(myEvalPoints[k]);
+					for (int j = rowStart; j < n; j++) {
+						float[] column = values[j];
+						for (int i = rowStart; i < Math.min(rowEnd, j + 1); i++) {
+							result[i][j] += dot(tile[i - rowStart], column, kStart, kEnd);
+						}
+					}
 				}
-				result[i][j] = result[i][j] / myEvalPoints.length;
+			}
+		});
+
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < i; j++) {
+				result[i][j] = result[j][i];
 			}
 		}
 
 		return result;
 	}
 
+	/**
+	 * Finds UPSILON_i = sum_k weights_k values_ik target_k, with the same kernel as findGamma(...).
+	 *
+	 * @param values Values of component functions (one row per function, one column per evaluation point)
+	 * @param target Target function values at each evaluation point
+	 * @param weights Weight of each evaluation point
+	 * @return UPSILON
+	 */
+	static double[] findUpsilon(final float[][] values, float[] target, double[] weights) {
+		final double[] weighted = new double[weights.length];
+		weigh(target, weights, 0, weights.length, weighted);
+
+		final int n = values.length;
+		final double[] result = new double[n];
+		ParallelBlocks.run(ParallelBlocks.getNumBlocks(n, BLOCK_SIZE), new ParallelBlocks.Body() {
+			public void run(int block) {
+				for (int i = block * BLOCK_SIZE; i < Math.min(n, (block + 1) * BLOCK_SIZE); i++) {
+					result[i] = dot(weighted, values[i], 0, weighted.length);
+				}
+			}
+		});
+
+		return result;
+	}
+
+	//result[k - start] = values[k] * weights[k] for start <= k < end
+	private static void weigh(float[] values, double[] weights, int start, int end, double[] result) {
+		for (int k = start; k < end; k++) {
+			result[k - start] = values[k] * weights[k];
+		}
+	}
+
+	//sum of weighted[k - start] * values[k] for start <= k < end
+	private static double dot(double[] weighted, float[] values, int start, int end) {
+		double sum = 0;
+		for (int k = start; k < end; k++) {
+			sum += weighted[k - start] * values[k];
+		}
+		return sum;
+	}
+
 	@Override
 	public LinearApproximator clone() throws CloneNotSupportedException {
 		WeightedCostApproximator result = (WeightedCostApproximator) super.clone();
 
 		result.myCostFunction = myCostFunction.clone();
 		result.myEvalPoints = MU.clone(myEvalPoints);
+		result.myValues = MU.clone(myValues);
 		result.myNoisyValues = MU.clone(myNoisyValues);
 
-		result.myGammaInverse = new double[myGammaInverse.length][];
-		for (int i = 0; i < myGammaInverse.length; i++) {
-			result.myGammaInverse[i] = myGammaInverse[i].clone();
+		double[][] inverse = getGammaInverse();
+		result.myGammaInverse = new double[inverse.length][];
+		for (int i = 0; i < inverse.length; i++) {
+			result.myGammaInverse[i] = inverse[i].clone();
 		}
 
 		return result;
@@ -642,6 +990,7 @@ public class WeightedCostApproximator implements LinearApproximator {
 		private float myNoise;
 		private int myNSV;
 		private boolean myQuiet;
+		private PseudoInverter myPseudoInverter;
 
 		/**
 		 * @param noise Random noise to add to component functions (proportion of largest value over all functions)
@@ -675,6 +1024,7 @@ public class WeightedCostApproximator implements LinearApproximator {
 			myNoise = noise;
 			myNSV = NSV;
 			myQuiet = quiet;
+			myPseudoInverter = new EigenPseudoInverter();
 		}
 
 
@@ -724,12 +1074,28 @@ public class WeightedCostApproximator implements LinearApproximator {
 			myQuiet = quiet;
 		}
 
+		/**
+		 * @return Used to invert the correlation matrix of component functions
+		 */
+		public PseudoInverter getPseudoInverter() {
+			//factories serialized before this was added have none
+			return (myPseudoInverter == null) ? new EigenPseudoInverter() : myPseudoInverter;
+		}
+
+		/**
+		 * @param inverter Used to invert the correlation matrix of component functions (e.g.
+		 * 		CholeskyPseudoInverter for the fastest decoder solution, or SVDPseudoInverter)
+		 */
+		public void setPseudoInverter(PseudoInverter inverter) {
+			myPseudoInverter = inverter;
+		}
+
 
 		/**
 		 * @see ca.nengo.math.ApproximatorFactory#getApproximator(float[][], float[][])
 		 */
         public LinearApproximator getApproximator(float[][] evalPoints, float[][] values) {
-			return new WeightedCostApproximator(evalPoints, values, getCostFunction(evalPoints[0].length), myNoise, myNSV, myQuiet);
+			return new WeightedCostApproximator(evalPoints, values, getCostFunction(evalPoints[0].length), myNoise, myNSV, myQuiet, getPseudoInverter());
 		}
         
         /**
@@ -742,7 +1108,7 @@ public class WeightedCostApproximator implements LinearApproximator {
          * @return A LinearApproximator that can be used to approximate new Functions as a weighted sum of the given components.
          */
         public LinearApproximator getApproximator(float[][][] evaluationSignals, float[][][] values) {
-        	return new WeightedCostApproximator(evaluationSignals, values, getCostFunction(evaluationSignals[0].length), myNoise, myNSV, myQuiet);
+        	return new WeightedCostApproximator(evaluationSignals, values, getCostFunction(evaluationSignals[0].length), myNoise, myNSV, myQuiet, getPseudoInverter());
         }
 
 		/**
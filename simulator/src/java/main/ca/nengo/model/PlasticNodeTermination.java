@@ -39,7 +39,9 @@ package ca.nengo.model;
 public interface PlasticNodeTermination extends Termination {
 
     /**
-     * @return List of synaptic weights for each input channel
+     * @return List of synaptic weights for each input channel. Implementations
+     *   should return the array they use internally, so that plastic ensemble
+     *   terminations can update weights in place.
      */
     public float[] getWeights();
 
@@ -0,0 +1,58 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "VectorProbeable.java". Description:
+"A Probeable with states that can be copied into a float array"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.model;
+
+/**
+ * <p>A Probeable whose current state values can be copied into an existing array, rather than
+ * returned in a new TimeSeries. An Ensemble, for example, can copy the states of all its Nodes
+ * (or a subset of them) without a getHistory() call for each Node.</p>
+ *
+ * @author agent
+ */
+public interface VectorProbeable extends Probeable {
+
+	/**
+	 * @param stateName A state variable name
+	 * @return Number of elements in the current value of the named state, or -1 if the state can't be
+	 * 		read with getState()
+	 */
+	public int getStateDimension(String stateName);
+
+	/**
+	 * Copies the current value of a state (i.e. at the end of the most recent time step).
+	 *
+	 * @param stateName A state variable name
+	 * @param indices Indices of the elements to copy, or null to copy all elements
+	 * @param values Array into which to copy the elements, starting at offset
+	 * @param offset Position in values of the first copied element
+	 * @return Time at which the values apply, or NaN if the state doesn't have a value yet
+	 * @throws SimulationException if the state is unknown or can't be read with getState()
+	 */
+	public float getState(String stateName, int[] indices, float[] values, int offset) throws SimulationException;
+
+}
@@ -30,6 +30,7 @@ a recipient may use your version of this file under either the MPL or the GPL Li
 package ca.nengo.model.impl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -50,6 +51,7 @@ import ca.nengo.model.SpikeOutput;
 import ca.nengo.model.StructuralException;
 import ca.nengo.model.Termination;
 import ca.nengo.model.Units;
+import ca.nengo.model.VectorProbeable;
 import ca.nengo.model.neuron.Neuron;
 import ca.nengo.util.SpikePattern;
 import ca.nengo.util.TimeSeries;
@@ -63,14 +65,17 @@ import ca.nengo.util.impl.TimeSeriesImpl;
  *
  * @author Bryan Tripp
  */
-public abstract class AbstractEnsemble implements Ensemble, Probeable, VisiblyMutable {
+public abstract class AbstractEnsemble implements Ensemble, VectorProbeable, VisiblyMutable {
 
 	private static final long serialVersionUID = -5498397418584843304L;
 
 	private static Logger ourLogger = Logger.getLogger(AbstractEnsemble.class);
 
+	private static final int[] FIRST_ELEMENT = new int[]{0};
+
 	private String myName;
 	private Map<String, List<Integer>> myStateNames; // for Probeable
+	private transient Map<String, boolean[]> myStateMembers; // whether each node has each state (built as needed)
 	private SimulationMode myMode;
 	private transient SpikePatternImpl mySpikePattern;
 	private boolean myCollectSpikesFlag;
@@ -113,6 +118,7 @@ public abstract class AbstractEnsemble implements Ensemble, Probeable, VisiblyMu
 		}
 
         myStateNames = findStateNames(myNodes);
+        myStateMembers = null;
         myListeners = new ArrayList<Listener>(3);
 	}
 
@@ -360,34 +366,91 @@ public abstract class AbstractEnsemble implements Ensemble, Probeable, VisiblyMu
 	 * @see ca.nengo.model.Probeable#getHistory(java.lang.String)
 	 */
     public TimeSeries getHistory(String stateName) throws SimulationException {
-		if (!myStateNames.containsKey(stateName)) {
-			throw new SimulationException("The state " + stateName + " is unknown");
+		float[] values = new float[myNodes.length];
+		float time = getState(stateName, null, values, 0);
+
+		Units[] units = Units.uniform(Units.UNK, myNodes.length);
+		if (Float.isNaN(time)) {
+			return new TimeSeriesImpl(new float[0], new float[0][], units);
 		}
 
-		List<Integer> nodeNumbers = myStateNames.get(stateName);
-		float[] firstNodeTimes = ((Probeable) myNodes[nodeNumbers.get(0).intValue()]).getHistory(stateName).getTimes();
+		if (getStateMembers(stateName)[0]) {
+			units[0] = ((Probeable) myNodes[0]).getHistory(stateName).getUnits()[0];
+		}
 
-		float[] times = new float[0];
-		float[][] values = new float[0][];
-		Units[] units = Units.uniform(Units.UNK, myNodes.length);
+		return new TimeSeriesImpl(new float[]{time}, new float[][]{values}, units);
+	}
 
-		if (firstNodeTimes.length >= 1) {
-			times = new float[]{firstNodeTimes[firstNodeTimes.length - 1]};
-
-			values = new float[][]{new float[myNodes.length]};
-			for (int i = 0; i < myNodes.length; i++) {
-				if (nodeNumbers.contains(Integer.valueOf(i))) {
-					TimeSeries history = ((Probeable) myNodes[i]).getHistory(stateName);
-					int index = history.getTimes().length - 1;
-					values[0][i] = history.getValues()[index][0];
-					if (i == 0) {
-                        units[i] = history.getUnits()[0];
-                    }
-				}
+	/**
+	 * @return The number of Nodes if the state is known (see getHistory(String)), otherwise -1
+	 * @see ca.nengo.model.VectorProbeable#getStateDimension(java.lang.String)
+	 */
+	public int getStateDimension(String stateName) {
+		return myStateNames.containsKey(stateName) ? myNodes.length : -1;
+	}
+
+	/**
+	 * Copies the first dimension of the named state of each selected Node (or zero for Nodes that
+	 * don't have the state). Nodes that are VectorProbeable are read without a call to getHistory().
+	 *
+	 * @see ca.nengo.model.VectorProbeable#getState(java.lang.String, int[], float[], int)
+	 */
+	public float getState(String stateName, int[] indices, float[] values, int offset) throws SimulationException {
+		boolean[] members = getStateMembers(stateName);
+
+		int first = 0;
+		while (!members[first]) {
+			first++;
+		}
+		float time = getNodeState(myNodes[first], stateName, values, offset);
+
+		int n = (indices == null) ? myNodes.length : indices.length;
+		for (int k = 0; k < n; k++) {
+			int i = (indices == null) ? k : indices[k];
+			if (members[i]) {
+				getNodeState(myNodes[i], stateName, values, offset + k);
+			} else {
+				values[offset + k] = 0;
 			}
 		}
 
-		return new TimeSeriesImpl(times, values, units);
+		return time;
+	}
+
+	//copies the first dimension of a Node's state into values[offset], and returns the time of the state
+	private static float getNodeState(Node node, String stateName, float[] values, int offset) throws SimulationException {
+		if (node instanceof VectorProbeable && ((VectorProbeable) node).getStateDimension(stateName) > 0) {
+			return ((VectorProbeable) node).getState(stateName, FIRST_ELEMENT, values, offset);
+		}
+
+		TimeSeries history = ((Probeable) node).getHistory(stateName);
+		float[] times = history.getTimes();
+		if (times.length == 0) {
+			values[offset] = 0;
+			return Float.NaN;
+		}
+		values[offset] = history.getValues()[times.length - 1][0];
+		return times[times.length - 1];
+	}
+
+	private boolean[] getStateMembers(String stateName) throws SimulationException {
+		List<Integer> nodeNumbers = myStateNames.get(stateName);
+		if (nodeNumbers == null) {
+			throw new SimulationException("The state " + stateName + " is unknown");
+		}
+
+		if (myStateMembers == null) {
+			myStateMembers = new HashMap<String, boolean[]>(10);
+		}
+		boolean[] result = myStateMembers.get(stateName);
+		if (result == null) {
+			result = new boolean[myNodes.length];
+			for (Integer i : nodeNumbers) {
+				result[i.intValue()] = true;
+			}
+			myStateMembers.put(stateName, result);
+		}
+		return result;
 	}
 
 	/**
@@ -600,6 +663,7 @@ public abstract class AbstractEnsemble implements Ensemble, Probeable, VisiblyMu
 		if (mySpikePattern != null) {
             result.mySpikePattern = (SpikePatternImpl) mySpikePattern.clone();
         }
+		result.myStateMembers = null;
 
 		return result;
 	}
@@ -27,8 +27,14 @@ a recipient may use your version of this file under either the MPL or the GPL Li
  */
 package ca.nengo.model.impl;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import ca.nengo.math.LinearTransform;
+import ca.nengo.math.impl.FourierTransform;
 import ca.nengo.model.InstantaneousOutput;
 import ca.nengo.model.Node;
+import ca.nengo.model.RealOutput;
 import ca.nengo.model.SimulationException;
 import ca.nengo.model.StructuralException;
 import ca.nengo.model.Termination;
@@ -47,6 +53,10 @@ import ca.nengo.model.plasticity.impl.PlasticEnsembleTermination;
  * but here we deal with all branches (an Ensemble-level Termination).
  * In either case the spikes transmitted by the axons are the same.</p>
  *
+ * <p>If several of the node Terminations are DecodedTerminations with blocks of rows of
+ * the same FourierTransform, the transform is computed once per input and shared
+ * between them.</p>
+ *
  * TODO: test
  *
  * @author Bryan Tripp
@@ -104,9 +114,33 @@ public class EnsembleTermination implements Termination {
 			throw new SimulationException("Input to this Termination must have dimension " + getDimensions());
 		}
 
+		Map<FourierTransform, float[]> transformed = null;
 		for (Termination myNodeTermination : myNodeTerminations) {
-			myNodeTermination.setValues(values);
+			FourierTransform.Rows rows = getFourierRows(myNodeTermination);
+			if (rows != null && values instanceof RealOutput) {
+				if (transformed == null) {
+					transformed = new HashMap<FourierTransform, float[]>(4);
+				}
+				float[] result = transformed.get(rows.getSource());
+				if (result == null) {
+					result = rows.getSource().apply(((RealOutput) values).getValues());
+					transformed.put(rows.getSource(), result);
+				}
+				((DecodedTermination) myNodeTermination).setValues(values, rows.getRows(result));
+			} else {
+				myNodeTermination.setValues(values);
+			}
+		}
+	}
+
+	private static FourierTransform.Rows getFourierRows(Termination termination) {
+		if (termination instanceof DecodedTermination) {
+			LinearTransform transform = ((DecodedTermination) termination).getLinearTransform();
+			if (transform instanceof FourierTransform.Rows) {
+				return (FourierTransform.Rows) transform;
+			}
 		}
+		return null;
 	}
 
 	/**
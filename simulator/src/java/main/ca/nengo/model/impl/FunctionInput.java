@@ -39,7 +39,7 @@ import java.util.Properties;
 import ca.nengo.math.Function;
 import ca.nengo.model.Node;
 import ca.nengo.model.Origin;
-import ca.nengo.model.Probeable;
+import ca.nengo.model.OriginProbeable;
 import ca.nengo.model.RealOutput;
 import ca.nengo.model.SimulationException;
 import ca.nengo.model.SimulationMode;
@@ -55,7 +55,7 @@ import ca.nengo.util.impl.TimeSeriesImpl;
  * A class to compute functions analytically and provide that input to
  * other Nodes in a network.
  */
-public class FunctionInput implements Node, Probeable {
+public class FunctionInput implements Node, OriginProbeable {
 
 	/**
 	 * Name for the default origin
@@ -193,6 +193,13 @@ public class FunctionInput implements Node, Probeable {
 		return result;
 	}
 
+	/**
+	 * @see ca.nengo.model.OriginProbeable#getProbedOrigin(java.lang.String)
+	 */
+	public Origin getProbedOrigin(String stateName) {
+		return STATE_NAME.equals(stateName) ? myOrigin : null;
+	}
+
 	/**
 	 * @see ca.nengo.model.Probeable#listStates()
 	 */
@@ -45,6 +45,7 @@ import ca.nengo.model.InstantaneousOutput;
 import ca.nengo.model.Network;
 import ca.nengo.model.Node;
 import ca.nengo.model.Origin;
+import ca.nengo.model.OriginProbeable;
 import ca.nengo.model.Probeable;
 import ca.nengo.model.Projection;
 import ca.nengo.model.SimulationException;
@@ -70,7 +71,7 @@ import ca.nengo.util.impl.ProbeTask;
  *
  * @author Bryan Tripp
  */
-public class NetworkImpl implements Network, VisiblyMutable, VisiblyMutable.Listener, TaskSpawner {
+public class NetworkImpl implements Network, OriginProbeable, VisiblyMutable, VisiblyMutable.Listener, TaskSpawner {
 
 	/**
 	 * Default name for a Network
@@ -239,13 +240,25 @@ public class NetworkImpl implements Network, VisiblyMutable, VisiblyMutable.List
 	 * @param saveRelays if true, exempt populations with only one node from the slaughter
 	 */
 	public void killNeurons(float killrate, boolean saveRelays)
+	{
+		killNeurons(killrate, saveRelays, false);
+	}
+
+	/***
+	 * Kills a certain percentage of neurons in the network (recursively including subnetworks).
+	 *
+	 * @param killrate the percentage (0.0 to 1.0) of neurons to kill
+	 * @param saveRelays if true, exempt populations with only one node from the slaughter
+	 * @param updateDecoders if true, re-optimize decoders for the surviving neurons
+	 */
+	public void killNeurons(float killrate, boolean saveRelays, boolean updateDecoders)
 	{
 		Node[] nodes = getNodes();
 		for (Node node : nodes) {
 			if(node instanceof NetworkImpl) {
-                ((NetworkImpl)node).killNeurons(killrate, saveRelays);
+                ((NetworkImpl)node).killNeurons(killrate, saveRelays, updateDecoders);
             } else if(node instanceof NEFEnsembleImpl) {
-                ((NEFEnsembleImpl)node).killNeurons(killrate, saveRelays);
+                ((NEFEnsembleImpl)node).killNeurons(killrate, saveRelays, updateDecoders);
             }
 		}
 
@@ -617,6 +630,17 @@ public class NetworkImpl implements Network, VisiblyMutable, VisiblyMutable.List
 		return p.getHistory(n);
 	}
 
+	/**
+	 * @see ca.nengo.model.OriginProbeable#getProbedOrigin(java.lang.String)
+	 */
+	public Origin getProbedOrigin(String stateName) {
+		Probeable p = myProbeables.get(stateName);
+		if (p instanceof OriginProbeable) {
+			return ((OriginProbeable) p).getProbedOrigin(myProbeableStates.get(stateName));
+		}
+		return null;
+	}
+
 	/**
 	 * @see ca.nengo.model.Probeable#listStates()
 	 */
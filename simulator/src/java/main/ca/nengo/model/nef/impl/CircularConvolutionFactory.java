@@ -0,0 +1,277 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "CircularConvolutionFactory.java". Description:
+"Builds networks that compute the circular convolution of two vectors"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.model.nef.impl;
+
+import java.io.Serializable;
+
+import ca.nengo.math.Function;
+import ca.nengo.math.LinearTransform;
+import ca.nengo.math.impl.FourierTransform;
+import ca.nengo.math.impl.PostfixFunction;
+import ca.nengo.model.Origin;
+import ca.nengo.model.StructuralException;
+import ca.nengo.model.Termination;
+import ca.nengo.model.impl.EnsembleOrigin;
+import ca.nengo.model.impl.EnsembleTermination;
+import ca.nengo.model.impl.NetworkImpl;
+import ca.nengo.model.nef.NEFEnsembleFactory;
+import ca.nengo.model.neuron.Neuron;
+import ca.nengo.util.VectorGenerator;
+
+/**
+ * <p>Builds networks that compute the circular convolution of two D-dimensional vectors A and B,
+ * as used to bind vectors in holographic reduced representations.</p>
+ *
+ * <p>Convolution is multiplication in the Fourier domain, so the network consists of 4(D/2+1)
+ * two-dimensional ensembles, each of which multiplies a real or imaginary part of one Fourier component
+ * of A with a real or imaginary part of the same component of B. The inputs are FourierTransforms,
+ * applied with one FFT per input per step rather than with dense matrices. The network has Terminations
+ * A and B, and an Origin "product" of the 4(D/2+1) products. To complete the convolution, connect
+ * this Origin to a Termination with getOutputTransform(D), e.g.:</p>
+ *
+ * <pre>
+ * NetworkImpl conv = factory.make("conv", D, 100);
+ * network.addNode(conv);
+ * Termination t = c.addDecodedTermination("conv", CircularConvolutionFactory.getOutputTransform(D), 0.01f, false);
+ * network.addProjection(conv.getOrigin(CircularConvolutionFactory.PRODUCT), t);
+ * </pre>
+ *
+ * <p>This is the same network as nef.convolution.make_convolution(...) in the Python scripting interface.</p>
+ *
+ * @author agent
+ */
+public class CircularConvolutionFactory {
+
+	/**
+	 * Name of the Termination for the first vector
+	 */
+	public static final String A = "A";
+
+	/**
+	 * Name of the Termination for the second vector
+	 */
+	public static final String B = "B";
+
+	/**
+	 * Name of the Origin of Fourier-domain products
+	 */
+	public static final String PRODUCT = "product";
+
+	private NEFEnsembleFactory myEnsembleFactory;
+	private float myRadius;
+	private float myTauPSC;
+	private boolean myInvertFirst;
+	private boolean myInvertSecond;
+
+	/**
+	 * Uses ensembles with encoders along the diagonals (which suit multiplication), radius 3, and
+	 * input time constants of 10ms.
+	 */
+	public CircularConvolutionFactory() {
+		NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+		ef.setEncoderFactory(new DiagonalVectorGenerator());
+		myEnsembleFactory = ef;
+		myRadius = 3;
+		myTauPSC = 0.01f;
+	}
+
+	/**
+	 * @return Factory for the product ensembles
+	 */
+	public NEFEnsembleFactory getEnsembleFactory() {
+		return myEnsembleFactory;
+	}
+
+	/**
+	 * @param factory Factory for the product ensembles
+	 */
+	public void setEnsembleFactory(NEFEnsembleFactory factory) {
+		myEnsembleFactory = factory;
+	}
+
+	/**
+	 * @return Radius of each dimension of the product ensembles
+	 */
+	public float getRadius() {
+		return myRadius;
+	}
+
+	/**
+	 * @param radius Radius of each dimension of the product ensembles
+	 */
+	public void setRadius(float radius) {
+		myRadius = radius;
+	}
+
+	/**
+	 * @return Post-synaptic time constant of the A and B Terminations
+	 */
+	public float getTauPSC() {
+		return myTauPSC;
+	}
+
+	/**
+	 * @param tau Post-synaptic time constant of the A and B Terminations
+	 */
+	public void setTauPSC(float tau) {
+		myTauPSC = tau;
+	}
+
+	/**
+	 * @param invertFirst If true, the involution of A (which approximately inverts convolution) is used in place of A
+	 * @param invertSecond If true, the involution of B is used in place of B
+	 */
+	public void setInverted(boolean invertFirst, boolean invertSecond) {
+		myInvertFirst = invertFirst;
+		myInvertSecond = invertSecond;
+	}
+
+	/**
+	 * @param name Name of the network
+	 * @param dimensions Dimension D of the vectors to convolve
+	 * @param neuronsPerProduct Number of neurons in each of the 4(D/2+1) product ensembles
+	 * @return A network with Terminations A and B and Origin PRODUCT
+	 * @throws StructuralException if the network can't be built
+	 */
+	public NetworkImpl make(String name, int dimensions, int neuronsPerProduct) throws StructuralException {
+		NetworkImpl result = new NetworkImpl();
+		result.setName(name);
+
+		FourierTransform transformA = getInputTransform(dimensions, true, myInvertFirst);
+		FourierTransform transformB = getInputTransform(dimensions, false, myInvertSecond);
+
+		int n = getNumProducts(dimensions);
+		Termination[] terminationsA = new Termination[n];
+		Termination[] terminationsB = new Termination[n];
+		Origin[] origins = new Origin[n];
+		Function[] product = new Function[]{new PostfixFunction("x0*x1", 2)};
+
+		for (int i = 0; i < n; i++) {
+			NEFEnsembleImpl ensemble = (NEFEnsembleImpl) myEnsembleFactory.make(String.valueOf(i), neuronsPerProduct, new float[]{myRadius, myRadius});
+			LinearTransform rowsA = transformA.getRows(2*i, 2*i+2);
+			LinearTransform rowsB = transformB.getRows(2*i, 2*i+2);
+			terminationsA[i] = ensemble.addDecodedTermination(A, rowsA, myTauPSC, false);
+			terminationsB[i] = ensemble.addDecodedTermination(B, rowsB, myTauPSC, false);
+			origins[i] = ensemble.addDecodedOrigin(PRODUCT, product, Neuron.AXON);
+			result.addNode(ensemble);
+		}
+
+		result.exposeTermination(new EnsembleTermination(result, A, terminationsA), A);
+		result.exposeTermination(new EnsembleTermination(result, B, terminationsB), B);
+		result.exposeOrigin(new EnsembleOrigin(result, PRODUCT, origins), PRODUCT);
+
+		return result;
+	}
+
+	/**
+	 * @param dimensions Dimension D of the vectors to convolve
+	 * @return Number of product ensembles needed, 4(D/2+1)
+	 */
+	public static int getNumProducts(int dimensions) {
+		return (dimensions/2 + 1) * 4;
+	}
+
+	/**
+	 * <p>Product ensemble i represents two values. For the first input, the first of these is the real
+	 * (i%2 == 0) or imaginary part of Fourier component i/4 of the input, and the second is zero. For the
+	 * second input, the first is zero and the second is the real (i%4 == 0 or 3) or imaginary part of
+	 * component i/4. The products of these pairs are therefore Re*Re, Im*Im, Re*Im, and Im*Re.</p>
+	 *
+	 * @param dimensions Dimension D of the vectors to convolve
+	 * @param first True for the transform of the first input, false for the second
+	 * @param invert If true, the transform of the involution of the input (with components in reverse order
+	 * 		after the first) is returned
+	 * @return Transform from an input vector to the inputs of all the product ensembles (2 per ensemble)
+	 */
+	public static FourierTransform getInputTransform(int dimensions, boolean first, boolean invert) {
+		int n = getNumProducts(dimensions);
+		int[] frequencies = new int[2*n];
+		boolean[] imaginary = new boolean[2*n];
+		float[] coefficients = new float[2*n];
+
+		for (int i = 0; i < n; i++) {
+			int k = i / 4;
+			int element = first ? 2*i : 2*i+1;
+			frequencies[element] = invert ? (dimensions - k) % dimensions : k;
+			imaginary[element] = first ? (i % 2 != 0) : (i % 4 == 1 || i % 4 == 2);
+			coefficients[element] = 1;
+		}
+
+		return new FourierTransform(dimensions, frequencies, imaginary, coefficients, false);
+	}
+
+	/**
+	 * @param dimensions Dimension D of the vectors to convolve
+	 * @return Transform from the PRODUCT Origin of a convolution network to the convolution of its inputs
+	 */
+	public static FourierTransform getOutputTransform(int dimensions) {
+		int n = getNumProducts(dimensions);
+		int[] frequencies = new int[n];
+		boolean[] imaginary = new boolean[n];
+		float[] coefficients = new float[n];
+
+		for (int i = 0; i < n; i++) {
+			int k = i / 4;
+			//the products only include non-negative frequencies, so others are counted twice
+			float weight = (k == 0 || 2*k == dimensions) ? 1 : 2;
+
+			frequencies[i] = k % dimensions;
+			switch (i % 4) {
+				case 0: //Re*Re
+					coefficients[i] = weight;
+					break;
+				case 1: //Im*Im
+					coefficients[i] = -weight;
+					break;
+				default: //Re*Im and Im*Re
+					imaginary[i] = true;
+					coefficients[i] = weight;
+			}
+		}
+
+		return new FourierTransform(dimensions, frequencies, imaginary, coefficients, true);
+	}
+
+	/**
+	 * Generates unit vectors along the diagonals (+/-1, +/-1)/sqrt(2) in turn (the dimension must be 2).
+	 */
+	private static class DiagonalVectorGenerator implements VectorGenerator, Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		public float[][] genVectors(int number, int dimension) {
+			float c = (float) Math.sqrt(.5);
+			float[][] result = new float[number][];
+			for (int i = 0; i < number; i++) {
+				result[i] = new float[]{c * (i / 2 % 2 == 0 ? 1 : -1), c * (i % 2 == 0 ? 1 : -1)};
+			}
+			return result;
+		}
+	}
+
+}
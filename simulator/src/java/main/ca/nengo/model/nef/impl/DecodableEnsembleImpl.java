@@ -43,11 +43,13 @@ import ca.nengo.dynamics.impl.SimpleLTISystem;
 import ca.nengo.math.ApproximatorFactory;
 import ca.nengo.math.Function;
 import ca.nengo.math.LinearApproximator;
+import ca.nengo.math.LinearTransform;
 import ca.nengo.math.impl.ConstantFunction;
 import ca.nengo.math.impl.TimeSeriesFunction;
 import ca.nengo.model.Network;
 import ca.nengo.model.Node;
 import ca.nengo.model.Origin;
+import ca.nengo.model.OriginProbeable;
 import ca.nengo.model.RealOutput;
 import ca.nengo.model.SimulationException;
 import ca.nengo.model.StructuralException;
@@ -67,7 +69,7 @@ import ca.nengo.util.impl.TimeSeriesImpl;
  *
  * @author Bryan Tripp
  */
-public class DecodableEnsembleImpl extends PlasticEnsembleImpl implements DecodableEnsemble {
+public class DecodableEnsembleImpl extends PlasticEnsembleImpl implements DecodableEnsemble, OriginProbeable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -262,19 +264,40 @@ public class DecodableEnsembleImpl extends PlasticEnsembleImpl implements Decoda
             throw new StructuralException("The ensemble already contains a termination named " + name);
         }
 
-        float scale = 1 / tauPSC; //output scaling to make impulse integral = 1
+        EulerIntegrator integrator = new EulerIntegrator(tauPSC / 10f);
 
-        LinearSystem dynamics = new SimpleLTISystem(
-                new float[]{-1f/tauPSC},
-                new float[][]{new float[]{1f}},
-                new float[][]{new float[]{scale}},
-                new float[]{0f},
-                new Units[]{Units.UNK}
-        );
+        DecodedTermination result = new DecodedTermination(this, name, matrix, getPSCDynamics(tauPSC), integrator);
+        if (isModulatory) {
+            result.setModulatory(isModulatory);
+        }
+
+        myDecodedTerminations.put(name, result);
+        fireVisibleChangeEvent();
+        return result;
+    }
+
+    /**
+     * @param name Unique name for this Termination (in the scope of this Ensemble)
+     * @param transform Linear map on incoming information, onto the space of vectors that can be
+     *      represented by this NEFEnsemble. Unlike a matrix, this is applied directly to the input
+     *      (see DecodedTermination), which can be much faster for structured transforms such as
+     *      ca.nengo.math.impl.FourierTransform.
+     * @param tauPSC Time constant of post-synaptic current decay
+     * @param isModulatory If true, inputs to this Termination do not drive Nodes in the Ensemble directly
+     *      but may have modulatory influences (eg related to plasticity)
+     * @return Added Termination
+     * @throws StructuralException if termination name is taken
+     */
+    public Termination addDecodedTermination(String name, LinearTransform transform, float tauPSC, boolean isModulatory)
+            throws StructuralException {
+
+        if (myDecodedTerminations.containsKey(name)) {
+            throw new StructuralException("The ensemble already contains a termination named " + name);
+        }
 
         EulerIntegrator integrator = new EulerIntegrator(tauPSC / 10f);
 
-        DecodedTermination result = new DecodedTermination(this, name, matrix, dynamics, integrator);
+        DecodedTermination result = new DecodedTermination(this, name, transform, getPSCDynamics(tauPSC), integrator);
         if (isModulatory) {
             result.setModulatory(isModulatory);
         }
@@ -284,6 +307,19 @@ public class DecodableEnsembleImpl extends PlasticEnsembleImpl implements Decoda
         return result;
     }
 
+    //first-order low-pass filter with unit impulse integral
+    private static LinearSystem getPSCDynamics(float tauPSC) {
+        float scale = 1 / tauPSC; //output scaling to make impulse integral = 1
+
+        return new SimpleLTISystem(
+                new float[]{-1f/tauPSC},
+                new float[][]{new float[]{1f}},
+                new float[][]{new float[]{scale}},
+                new float[]{0f},
+                new Units[]{Units.UNK}
+        );
+    }
+
     /**
      * @param name Unique name for this Termination (in the scope of this Ensemble)
      * @param matrix Transformation matrix which defines a linear map on incoming information,
@@ -513,6 +549,31 @@ public class DecodableEnsembleImpl extends PlasticEnsembleImpl implements Decoda
 		return result;
 	}
 
+	/**
+	 * @return -1 for decoded Origins and Terminations (which aren't Node states), otherwise as in
+	 * 		the superclass
+	 * @see ca.nengo.model.impl.AbstractEnsemble#getStateDimension(java.lang.String)
+	 */
+	@Override
+	public int getStateDimension(String stateName) {
+		if (myDecodedOrigins.containsKey(stateName) || myDecodedTerminations.containsKey(stateName)
+				|| stateName.endsWith(":STP")) {
+			return -1;
+		}
+		return super.getStateDimension(stateName);
+	}
+
+	/**
+	 * @see ca.nengo.model.OriginProbeable#getProbedOrigin(java.lang.String)
+	 */
+	public Origin getProbedOrigin(String stateName) {
+		Origin result = myDecodedOrigins.get(stateName);
+		if (result != null) {
+			result.setRequiredOnCPU(true);
+		}
+		return result;
+	}
+
 	/**
 	 * @see ca.nengo.model.Probeable#listStates()
 	 */
@@ -27,6 +27,11 @@ a recipient may use your version of this file under either the MPL or the GPL Li
  */
 package ca.nengo.model.nef.impl;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
 import org.apache.log4j.Logger;
 
 import ca.nengo.config.ConfigUtil;
@@ -38,7 +43,9 @@ import ca.nengo.dynamics.Integrator;
 import ca.nengo.dynamics.impl.EulerIntegrator;
 import ca.nengo.math.Function;
 import ca.nengo.math.LinearApproximator;
+import ca.nengo.math.impl.ConjugateGradientApproximator;
 import ca.nengo.math.impl.FixedSignalFunction;
+import ca.nengo.math.impl.StreamingApproximator;
 import ca.nengo.math.impl.WeightedCostApproximator;
 import ca.nengo.model.InstantaneousOutput;
 import ca.nengo.model.Node;
@@ -80,9 +87,10 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 	private Node[] myNodes;
 	private String myNodeOrigin;
 	private Function[] myFunctions;
-	private float[][] myDecoders;
+	private volatile float[][] myDecoders;
+	private transient volatile Future<float[][]> myPendingDecoders;
 	private SimulationMode myMode;
-	private RealOutput myOutput;
+	private volatile RealOutput myOutput;
 	private Noise myNoise = null;
 	private Noise[] myNoises = null;
 	private DynamicalSystem mySTPDynamicsTemplate;
@@ -91,6 +99,9 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 	private float[] mySTPHistory;
 	private float myTime;
 	private boolean myRequiredOnCPU;
+	private float[] myActivities;
+	private boolean myDecodeOnDemand;
+	private int myDecoderVersion;
 
 	/**
 	 * With this constructor, decoding vectors are generated using default settings.
@@ -118,13 +129,53 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 		myNodes = nodes;
 		myNodeOrigin = nodeOrigin;
 		myFunctions = functions;
-		myDecoders = findDecoders(nodes, functions, approximator);
+		myDecoders = findDecoders(nodes, functions, approximator, null);
 		myMode = SimulationMode.DEFAULT;
 		myIntegrator = new EulerIntegrator(.001f);
 
 		reset(false);
 	}
 
+	/**
+	 * With this constructor decoding vectors are found in the background. The Origin can be
+	 * used structurally right away; anything that needs the decoders waits for them.
+	 *
+	 * @param node The parent Node
+	 * @param name Name of this Origin
+	 * @param nodes Nodes that belong to the NEFEnsemble from which this Origin arises
+	 * @param nodeOrigin Name of the Origin on each given node from which output is to be decoded
+	 * @param functions Output Functions on the vector that is represented by the NEFEnsemble
+	 * 		(one Function per dimension of output)
+	 * @param approximator Provides a LinearApproximator for the node outputs (called in the background,
+	 * 		since building the approximator is often most of the work). Solves that share an
+	 * 		approximator are run one at a time.
+	 * @param queue Queue on which to find the decoders
+	 * @throws StructuralException if functions do not all have the same input dimension
+	 */
+	public DecodedOrigin(Node node, String name, final Node[] nodes, String nodeOrigin, final Function[] functions,
+			final Callable<? extends LinearApproximator> approximator, DecoderQueue queue) throws StructuralException {
+
+		checkFunctionDimensions(functions);
+
+		myNode = node;
+		myName = name;
+		myNodes = nodes;
+		myNodeOrigin = nodeOrigin;
+		myFunctions = functions;
+		myMode = SimulationMode.DEFAULT;
+		myIntegrator = new EulerIntegrator(.001f);
+		myPendingDecoders = queue.submit(new Callable<float[][]>() {
+			public float[][] call() throws Exception {
+				LinearApproximator a = approximator.call();
+				synchronized (a) {
+					return findDecoders(nodes, functions, a, null);
+				}
+			}
+		});
+
+		reset(false);
+	}
+
 	/**
 	 * With this constructor decoding vectors are specified by the caller.
 	 *
@@ -222,6 +273,13 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 	public float[] getError(int samples){
 		float[] result = new float[getDimensions()];
 
+		//background solves change node modes while they find node outputs
+		if (myNode instanceof NEFEnsembleImpl) {
+			((NEFEnsembleImpl) myNode).waitForDecoders();
+		} else {
+			decoders();
+		}
+
 		if (myNode instanceof NEFEnsemble) {
 			NEFEnsemble ensemble = (NEFEnsemble) myNode;
 
@@ -268,8 +326,9 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 	 * @see ca.nengo.model.Resettable#reset(boolean)
 	 */
 	public void reset(boolean randomize) {
-		float time = (myOutput == null) ? 0 : myOutput.getTime();
+		float time = (myOutput == null) ? myTime : myOutput.getTime();
 		myOutput = new RealOutputImpl(new float[myFunctions.length], Units.UNK, time);
+		myActivities = null;
 
 		if (myNoise != null) {
             myNoise.reset(randomize);
@@ -283,14 +342,25 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 		mySTPHistory = new float[myNodes.length];
 	}
 
-	private static float[][] findDecoders(Node[] nodes, Function[] functions, LinearApproximator approximator)  {
+	//previous decoders (if not null) are used as a starting point by iterative approximators
+	private static float[][] findDecoders(Node[] nodes, Function[] functions, LinearApproximator approximator, float[][] previous)  {
 		float[][] result = new float[nodes.length][];
 		for (int i = 0; i < result.length; i++) {
 			result[i] = new float[functions.length];
 		}
 
+		boolean warmStart = approximator instanceof ConjugateGradientApproximator
+			&& previous != null && previous.length == nodes.length && previous[0].length == functions.length;
+		float[][] start = warmStart ? MU.transpose(previous) : null;
+
+		//a StreamingApproximator finds all the dimensions in one pass over its values
+		float[][] streamed = (approximator instanceof StreamingApproximator)
+			? ((StreamingApproximator) approximator).findCoefficients(functions) : null;
+
 		for (int j = 0; j < functions.length; j++) {
-			float[] coeffs = approximator.findCoefficients(functions[j]);
+			float[] coeffs = (streamed != null) ? streamed[j]
+				: warmStart ? ((ConjugateGradientApproximator) approximator).findCoefficients(functions[j], start[j])
+				: approximator.findCoefficients(functions[j]);
 			for (int i = 0; i < nodes.length; i++) {
 				result[i][j] = coeffs[i];
 			}
@@ -342,9 +412,36 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 	 * @return Decoding vectors for each Node
 	 */
 	public float[][] getDecoders() {
+		return decoders();
+	}
+
+	/**
+	 * @return True if the decoders have been found (false if they are still being found in the background)
+	 */
+	public boolean isDecoded() {
+		Future<float[][]> pending = myPendingDecoders;
+		return pending == null || pending.isDone();
+	}
+
+	// @return Decoders, waiting for a background solve if there is one
+	private float[][] decoders() {
+		if (myPendingDecoders != null) {
+			synchronized (this) {
+				Future<float[][]> pending = myPendingDecoders;
+				if (pending != null) {
+					myDecoders = DecoderQueue.get(pending);
+					myPendingDecoders = null;
+				}
+			}
+		}
 		return myDecoders;
 	}
 
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		decoders();
+		out.defaultWriteObject();
+	}
+
 	/**
 	 * @see ca.nengo.model.plasticity.ShortTermPlastic#getSTPDynamics()
 	 */
@@ -395,10 +492,17 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 	 */
 	public void setDecoders(float[][] decoders) {
 		assert MU.isMatrix(decoders);
-		assert myDecoders.length == decoders.length;
+		assert decoders().length == decoders.length;
 		assert myDecoders[0].length == decoders[0].length;
 
-		myDecoders = decoders;
+		synchronized (this) {
+			if (myPendingDecoders != null) {
+				myPendingDecoders.cancel(false);
+				myPendingDecoders = null;
+			}
+			myDecoders = decoders;
+		}
+		myDecoderVersion++;
 	}
 
 	/**
@@ -436,10 +540,14 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 
 		mySTPHistory = new float[myNodes.length];
 		if (myMode == SimulationMode.DIRECT) {
+			myActivities = null;
 			for (int i = 0; i < values.length; i++) {
 				values[i] = myFunctions[i].map(state);
 			}
 		} else {
+			if (myActivities == null || myActivities.length != myNodes.length) {
+				myActivities = new float[myNodes.length];
+			}
 			for (int i = 0; i < myNodes.length; i++) {
 				try {
 					InstantaneousOutput o = myNodes[i].getOrigin(myNodeOrigin).getValues();
@@ -454,14 +562,19 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 							+ ". DecodedOrigin can only deal with RealOutput and SpikeOutput, so it apparently has to be updated");
 					}
 
-					float[] decoder = getDynamicDecoder(i, val, startTime, endTime);
-					for (int j = 0; j < values.length; j++) {
-						values[j] += val * decoder[j];
-					}
+					myActivities[i] = val * getSTPScale(i, val, startTime, endTime);
 				} catch (StructuralException e) {
 					throw new SimulationException(e);
 				}
 			}
+
+			if (myDecodeOnDemand && myNoise == null) {
+				// decoded lazily in getValues(), since all Projections from here are fused
+				myTime = endTime;
+				myOutput = null;
+				return;
+			}
+			values = decode(myActivities);
 		}
 
 		if (myNoise != null) {
@@ -474,19 +587,65 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 		myOutput = new RealOutputImpl(values, Units.UNK, endTime);
 	}
 
-	private float[] getDynamicDecoder(int i, float input, float startTime, float endTime) {
-		float[] result = myDecoders[i];
+	private float getSTPScale(int i, float input, float startTime, float endTime) {
+		float result = 1f;
 		if (mySTPDynamicsTemplate != null) { //TODO: could use a NullDynamics here instead of null (to allow nulling in config tree)
 			//TODO: could recycle a mutable time series here to avoid object creation
 			TimeSeries inputSeries = new TimeSeries1DImpl(new float[]{startTime, endTime}, new float[]{input, input}, Units.UNK);
 			TimeSeries outputSeries = myIntegrator.integrate(mySTPDynamics[i], inputSeries);
-			float scaleFactor = outputSeries.getValues()[outputSeries.getValues().length-1][0];
-			mySTPHistory[i] = scaleFactor;
-			result = MU.prod(result, scaleFactor);
+			result = outputSeries.getValues()[outputSeries.getValues().length-1][0];
+			mySTPHistory[i] = result;
 		}
 		return result;
 	}
 
+	// @return Decoded output (sum of activities times decoders)
+	float[] decode(float[] activities) {
+		float[][] decoders = decoders();
+		float[] result = new float[myFunctions.length];
+		for (int i = 0; i < activities.length; i++) {
+			float a = activities[i];
+			float[] decoder = decoders[i];
+			for (int j = 0; j < result.length; j++) {
+				result[j] += a * decoder[j];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return Output of each Node in the latest run, scaled by short-term plasticity if applicable,
+	 * 		so that the output of this Origin is the product of these activities and the decoders. Null
+	 * 		if the output was not computed from activities (e.g. in DIRECT mode), or if output noise
+	 * 		makes the activities insufficient to reproduce the output.
+	 */
+	float[] getActivities() {
+		return (myMode == SimulationMode.DIRECT || myNoise != null) ? null : myActivities;
+	}
+
+	/**
+	 * @return End time of the latest run
+	 */
+	float getTime() {
+		return myTime;
+	}
+
+	/**
+	 * @return A counter that changes whenever the decoders are replaced or modified
+	 */
+	int getDecoderVersion() {
+		return myDecoderVersion;
+	}
+
+	/**
+	 * @param onDemand If true, decoded output is only computed when getValues() is called, rather
+	 * 		than in every run(...). This saves time if all Projections from this Origin compute their
+	 * 		input from getActivities() instead (see FusedProjection).
+	 */
+	void setDecodeOnDemand(boolean onDemand) {
+		myDecodeOnDemand = onDemand;
+	}
+
 	protected TimeSeries getSTPHistory() {
 		if (mySTPHistory == null) {
             mySTPHistory = new float[myNodes.length];
@@ -498,6 +657,17 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 	 * @see ca.nengo.model.Origin#getValues()
 	 */
 	public InstantaneousOutput getValues() throws SimulationException {
+		RealOutput result = myOutput;
+		if (result == null) {
+			result = decodeOnDemand();
+		}
+		return result;
+	}
+
+	private synchronized RealOutput decodeOnDemand() {
+		if (myOutput == null) {
+			myOutput = new RealOutputImpl(decode(myActivities), Units.UNK, myTime);
+		}
 		return myOutput;
 	}
 	
@@ -545,8 +715,8 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 			functions[i] = myFunctions[i].clone();
 		}
 		try {
-			DecodedOrigin result = new DecodedOrigin(myNode, myName, myNodes, myNodeOrigin, functions, MU.clone(myDecoders));
-			result.myOutput = (RealOutput) myOutput.clone();
+			DecodedOrigin result = new DecodedOrigin(myNode, myName, myNodes, myNodeOrigin, functions, MU.clone(decoders()));
+			result.myOutput = (RealOutput) getValues().clone();
             if (myNoise != null) {
 			    result.setNoise(myNoise.clone());
             }
@@ -554,6 +724,8 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 			return result;
 		} catch (StructuralException e) {
 			throw new CloneNotSupportedException("Error trying to clone: " + e.getMessage());
+		} catch (SimulationException e) {
+			throw new CloneNotSupportedException("Error trying to clone: " + e.getMessage());
 		}
 	}
 
@@ -563,19 +735,22 @@ public class DecodedOrigin implements Origin, Resettable, SimulationMode.ModeCon
 	 * @param scale vector to multiply each decoder by
 	 */
 	public void rescaleDecoders(float[] scale) {
+		decoders();
 		for (int i=0;i<myDecoders.length; i++) {
 			for (int j=0; j<scale.length; j++) {
 				myDecoders[i][j]*=scale[j];
 			}
 		}
+		myDecoderVersion++;
 	}
 
 	/**
-	 * Recalculates the decoders
+	 * Recalculates the decoders (iterative approximators start from the current decoders)
 	 * @param approximator approximator?
 	 */
 	public void rebuildDecoder(LinearApproximator approximator) {
-		myDecoders = findDecoders(myNodes, myFunctions, approximator);
+		myDecoders = findDecoders(myNodes, myFunctions, approximator, decoders());
+		myDecoderVersion++;
 	}
 
 	/**
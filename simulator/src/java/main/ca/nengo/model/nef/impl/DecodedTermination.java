@@ -32,6 +32,7 @@ import ca.nengo.dynamics.Integrator;
 import ca.nengo.dynamics.LinearSystem;
 import ca.nengo.dynamics.impl.CanonicalModel;
 import ca.nengo.dynamics.impl.LTISystem;
+import ca.nengo.math.LinearTransform;
 import ca.nengo.model.InstantaneousOutput;
 import ca.nengo.model.Node;
 import ca.nengo.model.Probeable;
@@ -94,6 +95,12 @@ public class DecodedTermination implements Termination, Resettable, Probeable {
 	private boolean myModulatory;
 	private float[][] myInitialState;
 	private boolean myValuesSet;
+	private float[] myTransformedInput;
+	private transient DecodedOrigin myFusedOrigin; //decodes the input on demand after setFusedValues()
+	private transient float[] myFusedActivities;
+	private transient float myFusedTime;
+	private int myTransformVersion;
+	private LinearTransform myLinearTransform;
 
 	/**
 	 * @param node The parent Node
@@ -109,22 +116,48 @@ public class DecodedTermination implements Termination, Resettable, Probeable {
 	public DecodedTermination(Node node, String name, float[][] transform, LinearSystem dynamics, Integrator integrator)
 			throws StructuralException {
 
-		if (dynamics.getInputDimension() != 1 || dynamics.getOutputDimension() != 1) {
-			throw new StructuralException("Dynamics must be single-input single-output");
-		}
-
+		checkDynamics(dynamics);
 		myOutputDimension = transform.length;
 		setTransform(transform);
-
-		myNode = node;
-		myName = name;
-		myIntegrator = integrator;
-
-		//we save a little time by not reporting units to the dynamical system at each step
-		myNullUnits = new Units[dynamics.getInputDimension()];
-		myOutputValues = new float[transform.length];
+		init(node, name, dynamics, integrator);
+	}
+
+	/**
+	 * @param node The parent Node
+	 * @param name The name of this Termination
+	 * @param transform A LinearTransform that maps input (which has the dimension of this Termination)
+	 * 		onto the state space represented by the NEFEnsemble to which the Termination belongs. This is
+	 * 		applied directly to the input at each step, which can be much faster than multiplying by
+	 * 		the equivalent matrix (e.g. for Fourier transforms).
+	 * @param dynamics Post-synaptic current dynamics (single-input single-output)
+	 * @param integrator Numerical integrator with which to solve dynamics
+	 * @throws StructuralException If dynamics are not SISO
+	 */
+	public DecodedTermination(Node node, String name, LinearTransform transform, LinearSystem dynamics, Integrator integrator)
+			throws StructuralException {
+		checkDynamics(dynamics);
+		myOutputDimension = transform.getOutputDimension();
+		myLinearTransform = transform; //the equivalent matrix is only made if getTransform() is called
+		myStaticBias = new float[transform.getInputDimension()];
+		init(node, name, dynamics, integrator);
+	}
+
+	private static void checkDynamics(LinearSystem dynamics) throws StructuralException {
+		if (dynamics.getInputDimension() != 1 || dynamics.getOutputDimension() != 1) {
+			throw new StructuralException("Dynamics must be single-input single-output");
+		}
+	}
+
+	private void init(Node node, String name, LinearSystem dynamics, Integrator integrator) {
+		myNode = node;
+		myName = name;
+		myIntegrator = integrator;
+
+		//we save a little time by not reporting units to the dynamical system at each step
+		myNullUnits = new Units[dynamics.getInputDimension()];
+		myOutputValues = new float[myOutputDimension];
 
-		setDynamics(dynamics);
+		setDynamics(dynamics);
 		myScalingTermination = null;
 	}
 
@@ -155,8 +188,8 @@ public class DecodedTermination implements Termination, Resettable, Probeable {
 	 * @param bias Intrinsic bias that is added to inputs to this termination
 	 */
 	public void setStaticBias(float[] bias) {
-		if (bias.length != myTransform.length) {
-			throw new IllegalArgumentException("Bias must have length " + myTransform.length);
+		if (bias.length != myOutputDimension) {
+			throw new IllegalArgumentException("Bias must have length " + myOutputDimension);
 		}
 		myStaticBias = bias;
 	}
@@ -187,10 +220,81 @@ public class DecodedTermination implements Termination, Resettable, Probeable {
 
 		RealOutput ro = (RealOutput) values;
 		myInputValues = new RealOutputImpl(MU.sum(ro.getValues(), myStaticBias), ro.getUnits(), ro.getTime());
+		myTransformedInput = null;
+		myFusedOrigin = null;
 
 		if (!myValuesSet) {
             myValuesSet = true;
         }
+	}
+
+	/**
+	 * Sets input that has already been multiplied by the transform of this Termination. The
+	 * static bias and scaling are still applied here. getInput() is not updated by this method,
+	 * so the input itself must also be set (see setValues(InstantaneousOutput, float[]) and
+	 * setFusedValues(...)).
+	 *
+	 * @param values Product of the transform and the input vector
+	 * @throws SimulationException If values are not of the output dimension of this Termination
+	 */
+	void setTransformedValues(float[] values) throws SimulationException {
+		if (values.length != myOutputDimension) {
+			throw new SimulationException("Dimension of transformed input (" + values.length
+					+ ") does not equal output dimension of this Termination (" + myOutputDimension + ")");
+		}
+
+		myTransformedInput = values;
+		myValuesSet = true;
+	}
+
+	/**
+	 * Sets input that has already been multiplied by the transform of this Termination, from the
+	 * activities of a DecodedOrigin (see FusedProjection). The input itself is only decoded from
+	 * the activities if getInput() is called.
+	 *
+	 * @param values Product of the transform and the decoded input
+	 * @param origin DecodedOrigin from which the input is decoded
+	 * @param activities Activities of the origin's nodes (copied)
+	 * @param time Time of the input
+	 * @throws SimulationException If values are not of the output dimension of this Termination
+	 */
+	void setFusedValues(float[] values, DecodedOrigin origin, float[] activities, float time) throws SimulationException {
+		setTransformedValues(values);
+		if (myFusedActivities == null || myFusedActivities.length != activities.length) {
+			myFusedActivities = new float[activities.length];
+		}
+		System.arraycopy(activities, 0, myFusedActivities, 0, activities.length);
+		myFusedOrigin = origin;
+		myFusedTime = time;
+		myInputValues = null;
+	}
+
+	/**
+	 * Sets input along with its product with the transform of this Termination, which the caller
+	 * has already computed (e.g. EnsembleTermination computes a FourierTransform once for all the
+	 * Terminations that use blocks of its rows). The static bias and scaling are still applied here.
+	 *
+	 * @param values Input to this Termination (pre transform)
+	 * @param transformed Product of the transform and the input vector
+	 * @throws SimulationException If either argument is of the wrong dimension
+	 */
+	public void setValues(InstantaneousOutput values, float[] transformed) throws SimulationException {
+		setValues(values);
+		setTransformedValues(transformed);
+	}
+
+	/**
+	 * @return A counter that changes whenever the transform is replaced
+	 */
+	int getTransformVersion() {
+		return myTransformVersion;
+	}
+
+	/**
+	 * @return The transform itself (not a copy), or if a LinearTransform was given, its matrix
+	 */
+	float[][] getTransformReference() {
+		return (myLinearTransform != null) ? myLinearTransform.getMatrix() : myTransform;
 	}
 
 	/**
@@ -207,12 +311,29 @@ public class DecodedTermination implements Termination, Resettable, Probeable {
 			myValuesSet = true; //don't want this warning every time step
 		}
 
-		float[][] transform = getTransform();
-		if (myScalingTermination != null) {
-			float scale = myScalingTermination.getOutput()[0];
-			transform = MU.prod(transform, scale);
+		float[] dynamicsInputs;
+		if (myTransformedInput != null) {
+			dynamicsInputs = myTransformedInput;
+			if (!isZero(myStaticBias)) {
+				float[] bias = (myLinearTransform != null) ? myLinearTransform.apply(myStaticBias) : MU.prod(myTransform, myStaticBias);
+				dynamicsInputs = MU.sum(dynamicsInputs, bias);
+			}
+			if (myScalingTermination != null) {
+				dynamicsInputs = MU.prod(dynamicsInputs, myScalingTermination.getOutput()[0]);
+			}
+		} else if (myLinearTransform != null) {
+			dynamicsInputs = myLinearTransform.apply(myInputValues.getValues());
+			if (myScalingTermination != null) {
+				dynamicsInputs = MU.prod(dynamicsInputs, myScalingTermination.getOutput()[0]);
+			}
+		} else {
+			float[][] transform = getTransform();
+			if (myScalingTermination != null) {
+				float scale = myScalingTermination.getOutput()[0];
+				transform = MU.prod(transform, scale);
+			}
+			dynamicsInputs = MU.prod(transform, myInputValues.getValues());
 		}
-		float[] dynamicsInputs = MU.prod(transform, myInputValues.getValues());
 		float[] result = new float[dynamicsInputs.length];
 
 		for (int i = 0; i < myDynamics.length; i++) {
@@ -226,6 +347,15 @@ public class DecodedTermination implements Termination, Resettable, Probeable {
 		myOutputValues = result;
 	}
 
+	private static boolean isZero(float[] vector) {
+		for (float element : vector) {
+			if (element != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * This method should be called after run(...).
 	 *
@@ -239,6 +369,10 @@ public class DecodedTermination implements Termination, Resettable, Probeable {
 	 * @return Latest input to Termination (pre transform and dynamics)
 	 */
 	public RealOutput getInput() {
+		if (myInputValues == null && myFusedOrigin != null) {
+			float[] input = MU.sum(myFusedOrigin.decode(myFusedActivities), myStaticBias);
+			myInputValues = new RealOutputImpl(input, Units.UNK, myFusedTime);
+		}
 		return myInputValues;
 	}
 
@@ -253,7 +387,7 @@ public class DecodedTermination implements Termination, Resettable, Probeable {
 	 * @see ca.nengo.model.Termination#getDimensions()
 	 */
 	public int getDimensions() {
-		return myTransform[0].length;
+		return (myLinearTransform != null) ? myLinearTransform.getInputDimension() : myTransform[0].length;
 	}
 
 	/**
@@ -262,6 +396,8 @@ public class DecodedTermination implements Termination, Resettable, Probeable {
 	public void reset(boolean randomize) {
 		resetInitialState();
 		myInputValues = new RealOutputImpl(new float[getDimensions()], Units.UNK, 0);
+		myTransformedInput = null;
+		myFusedOrigin = null;
 		myValuesSet = false;
 	}
 
@@ -306,14 +442,23 @@ public class DecodedTermination implements Termination, Resettable, Probeable {
 
 	/**
 	 * @return The matrix that maps input (which has the dimension of this Termination)
-	 * 		onto the state space represented by the NEFEnsemble to which the Termination belongs
+	 * 		onto the state space represented by the NEFEnsemble to which the Termination belongs.
+	 * 		If a LinearTransform was given, its matrix is made on each call rather than stored.
 	 */
 	public float[][] getTransform() {
-		return MU.clone(myTransform);
+		return (myLinearTransform != null) ? myLinearTransform.getMatrix() : MU.clone(myTransform);
 	}
 
 	/**
-	 * @param transform New transform
+	 * @return The LinearTransform that is applied to input, or null if the transform was given
+	 * 		as a matrix
+	 */
+	public LinearTransform getLinearTransform() {
+		return myLinearTransform;
+	}
+
+	/**
+	 * @param transform New transform (replaces any LinearTransform given in the constructor)
 	 * @throws StructuralException If the transform is not a matrix or has the wrong size
 	 */
 	public void setTransform(float[][] transform) throws StructuralException {
@@ -325,6 +470,8 @@ public class DecodedTermination implements Termination, Resettable, Probeable {
 		}
 
 		myTransform = transform;
+		myTransformVersion++;
+		myLinearTransform = null;
 
 		if  (myStaticBias == null) {
 			myStaticBias = new float[transform[0].length];
@@ -459,12 +606,17 @@ public class DecodedTermination implements Termination, Resettable, Probeable {
 	public Termination clone() throws CloneNotSupportedException {
 		try {
 			DecodedTermination result = (DecodedTermination) super.clone();
-			result.setTransform(MU.clone(myTransform));
+			if (myTransform != null) {
+				result.setTransform(MU.clone(myTransform));
+			}
+			result.myLinearTransform = myLinearTransform; //immutable
 			result.setDynamics((LinearSystem) myDynamicsTemplate.clone());
 			result.myIntegrator = myIntegrator.clone();
-			if (myInputValues != null) {
-                result.myInputValues = (RealOutput) myInputValues.clone();
+			if (getInput() != null) {
+                result.myInputValues = (RealOutput) getInput().clone();
             }
+			result.myFusedOrigin = null;
+			result.myFusedActivities = null;
 			if (myOutputValues != null) {
                 result.myOutputValues = myOutputValues.clone();
             }
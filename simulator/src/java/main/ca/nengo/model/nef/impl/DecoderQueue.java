@@ -0,0 +1,265 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "DecoderQueue.java". Description:
+"Finds decoders in the background, and reports progress"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.model.nef.impl;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ca.nengo.math.PDFTools;
+import ca.nengo.model.StructuralException;
+
+/**
+ * <p>Runs decoder solves (see DecodedOrigin) in the background, so that a network can be
+ * connected up while its decoders are found. Anything that needs the decoders waits for them,
+ * and LocalSimulator waits for all pending solves when it is initialized. NEFEnsembleImpl checks
+ * its nodes before queueing a solve, so a missing node Origin or a lack of CONSTANT_RATE support
+ * is still reported by addDecodedOrigin(...); other failures are reported when the decoders are
+ * needed.</p>
+ *
+ * <p>Progress can be followed with getPendingCount() and getCompletedCount().</p>
+ *
+ * <p>Each solve draws its random numbers (e.g. noise added to node outputs) from a generator
+ * seeded from PDFTools when it is submitted, so seeded models are reproducible. Solves that are
+ * run right away with call(...) are seeded in the same way, so a seeded model gets the same
+ * decoders whether they are found in the background or not.</p>
+ *
+ * @author agent
+ */
+public class DecoderQueue {
+
+	private static DecoderQueue ourDefault;
+	private static volatile boolean ourBackground = true;
+
+	private final ExecutorService myExecutor;
+	private final ConcurrentLinkedQueue<Future<?>> myPending;
+	private final AtomicInteger mySubmitted;
+	private final AtomicInteger myCompleted;
+
+	/**
+	 * @param numThreads Number of solves to run at once
+	 */
+	public DecoderQueue(int numThreads) {
+		myExecutor = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private int myCount = 0;
+					public synchronized Thread newThread(Runnable r) {
+						Thread result = new Thread(r, "DecoderThread" + myCount++);
+						result.setDaemon(true);
+						return result;
+					}
+				});
+		myPending = new ConcurrentLinkedQueue<Future<?>>();
+		mySubmitted = new AtomicInteger(0);
+		myCompleted = new AtomicInteger(0);
+	}
+
+	/**
+	 * @return A shared queue with a thread per processor
+	 */
+	public static synchronized DecoderQueue getDefault() {
+		if (ourDefault == null) {
+			ourDefault = new DecoderQueue(Runtime.getRuntime().availableProcessors());
+		}
+		return ourDefault;
+	}
+
+	/**
+	 * @return True if new DecodedOrigins of NEFEnsembleImpl find their decoders in the background
+	 */
+	public static boolean isBackground() {
+		return ourBackground;
+	}
+
+	/**
+	 * @param background True if new DecodedOrigins of NEFEnsembleImpl should find their decoders
+	 * 		in the background (the default), false if they should find them right away
+	 */
+	public static void setBackground(boolean background) {
+		ourBackground = background;
+	}
+
+	/**
+	 * @param solve A decoder solve
+	 * @return The result of the solve, when it is finished
+	 */
+	public <T> Future<T> submit(Callable<T> solve) {
+		Solve<T> result = new Solve<T>(seed(solve));
+		mySubmitted.incrementAndGet();
+		myPending.add(result);
+		myExecutor.execute(result);
+		return result;
+	}
+
+	/**
+	 * Runs a solve in the calling thread, with random numbers drawn as they would be if it
+	 * were submitted to a queue.
+	 *
+	 * @param solve A decoder solve
+	 * @return The result of the solve
+	 * @throws StructuralException If the solve fails with a checked exception
+	 */
+	public static <T> T call(Callable<T> solve) throws StructuralException {
+		try {
+			return seed(solve).call();
+		} catch (StructuralException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new StructuralException(e);
+		}
+	}
+
+	//runs the solve with a generator that is seeded from PDFTools now
+	private static <T> Callable<T> seed(final Callable<T> solve) {
+		final long seed = (long) (PDFTools.random() * Long.MAX_VALUE);
+		return new Callable<T>() {
+			public T call() throws Exception {
+				Random previous = PDFTools.getThreadRandom();
+				PDFTools.setThreadRandom(new Random(seed));
+				try {
+					return solve.call();
+				} finally {
+					PDFTools.setThreadRandom(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * @return Number of solves that have been submitted and haven't finished
+	 */
+	public int getPendingCount() {
+		return mySubmitted.get() - myCompleted.get();
+	}
+
+	/**
+	 * @return Number of solves that have been submitted
+	 */
+	public int getSubmittedCount() {
+		return mySubmitted.get();
+	}
+
+	/**
+	 * @return Number of solves that have finished (including failed and cancelled ones)
+	 */
+	public int getCompletedCount() {
+		return myCompleted.get();
+	}
+
+	/**
+	 * Waits for all solves submitted so far to finish. Solves that fail are reported when their
+	 * decoders are needed.
+	 */
+	public void waitForAll() {
+		for (Iterator<Future<?>> iterator = myPending.iterator(); iterator.hasNext(); ) {
+			Future<?> future = iterator.next();
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (Exception e) {
+				//reported by get(...)
+			}
+		}
+	}
+
+	/**
+	 * @param future A solve submitted to a DecoderQueue
+	 * @return The result of the solve (waits if necessary)
+	 * @throws RuntimeException If the solve failed or was interrupted
+	 */
+	public static <T> T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for decoders", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new RuntimeException("Can't find decoders", e.getCause());
+		}
+	}
+
+	/**
+	 * A submitted solve. It is counted as completed before anything waiting for it is released
+	 * (FutureTask.done() is only called afterwards), so that the counts are up to date when
+	 * waitForAll() returns.
+	 */
+	private class Solve<T> extends FutureTask<T> {
+
+		private final AtomicBoolean myFinished = new AtomicBoolean(false);
+
+		public Solve(Callable<T> solve) {
+			super(solve);
+		}
+
+		@Override
+		protected void set(T value) {
+			finish();
+			super.set(value);
+		}
+
+		@Override
+		protected void setException(Throwable t) {
+			finish();
+			super.setException(t);
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			finish();
+			return super.cancel(mayInterruptIfRunning);
+		}
+
+		private void finish() {
+			if (myFinished.compareAndSet(false, true)) {
+				myCompleted.incrementAndGet();
+				myPending.remove(this);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,297 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "EnsembleBuildService.java". Description:
+"Builds NEFEnsembles concurrently, within a memory budget"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.model.nef.impl;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import ca.nengo.math.PDFTools;
+import ca.nengo.model.StructuralException;
+import ca.nengo.model.nef.NEFEnsemble;
+import ca.nengo.model.nef.NEFEnsembleFactory;
+
+/**
+ * <p>Builds NEFEnsembles concurrently on a bounded pool of threads. Building an ensemble (tuning
+ * curves, GAMMA and decoders) is independent, CPU-heavy work, so a NetworkArray or a batch of
+ * ensembles can be built in about the time of its largest member.</p>
+ *
+ * <p>Each build reserves an estimate of its peak memory (mostly GAMMA, its inverse and the
+ * activities) from a global budget before it starts, and waits if the budget is spent, so that
+ * concurrent builds don't exhaust the heap. A build that needs more than the whole budget runs
+ * on its own.</p>
+ *
+ * <p>Each build draws random numbers (see PDFTools) from its own generator, seeded from the
+ * Spec or else from PDFTools.random() when the build is submitted. Results therefore don't
+ * depend on how builds are scheduled, and a seeded build gives the same ensemble as
+ * PDFTools.setSeed(seed) followed by a sequential build.</p>
+ *
+ * @author agent
+ */
+public class EnsembleBuildService {
+
+	private static EnsembleBuildService ourDefault;
+
+	private final ExecutorService myExecutor;
+	private final Semaphore myBudget;
+	private final int myBudgetKB;
+
+	/**
+	 * @param numThreads Most ensembles to build at once
+	 * @param memoryBudget Most memory (bytes) to reserve for builds at once
+	 */
+	public EnsembleBuildService(int numThreads, long memoryBudget) {
+		myBudgetKB = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / 1024));
+		myBudget = new Semaphore(myBudgetKB, true);
+		myExecutor = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private int myCount = 0;
+					public synchronized Thread newThread(Runnable r) {
+						Thread result = new Thread(r, "EnsembleBuildThread" + myCount++);
+						result.setDaemon(true);
+						return result;
+					}
+				});
+	}
+
+	/**
+	 * @return A shared service with a thread per processor and a budget of half the maximum heap
+	 */
+	public static synchronized EnsembleBuildService getDefault() {
+		if (ourDefault == null) {
+			ourDefault = new EnsembleBuildService(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 2);
+		}
+		return ourDefault;
+	}
+
+	/**
+	 * @param spec Description of an ensemble
+	 * @return The ensemble, when it has been built
+	 */
+	public Future<NEFEnsemble> submit(final Spec spec) {
+		final long seed = (spec.getSeed() != null) ? spec.getSeed().longValue() : (long) (PDFTools.random() * Long.MAX_VALUE);
+		final int kb = (int) Math.min(myBudgetKB, Math.max(1, estimateBytes(spec) / 1024));
+
+		return myExecutor.submit(new Callable<NEFEnsemble>() {
+			public NEFEnsemble call() throws StructuralException, InterruptedException {
+				myBudget.acquire(kb);
+				PDFTools.setThreadRandom(new Random(seed));
+				try {
+					return spec.make();
+				} finally {
+					PDFTools.setThreadRandom(null);
+					myBudget.release(kb);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Builds several ensembles concurrently.
+	 *
+	 * @param specs Descriptions of ensembles
+	 * @return The ensembles, in the same order
+	 * @throws StructuralException If any of the ensembles can't be built
+	 */
+	public NEFEnsemble[] makeAll(Spec[] specs) throws StructuralException {
+		Future<?>[] futures = new Future<?>[specs.length];
+		for (int i = 0; i < specs.length; i++) {
+			futures[i] = submit(specs[i]);
+		}
+
+		NEFEnsemble[] result = new NEFEnsemble[specs.length];
+		for (int i = 0; i < specs.length; i++) {
+			result[i] = get(futures[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Builds an ensemble within this service's memory budget, and waits for it.
+	 *
+	 * @param spec Description of an ensemble
+	 * @return The ensemble
+	 * @throws StructuralException If the ensemble can't be built
+	 */
+	public NEFEnsemble make(Spec spec) throws StructuralException {
+		return get(submit(spec));
+	}
+
+	/**
+	 * @param future A build submitted to this service
+	 * @return The built ensemble
+	 * @throws StructuralException If the ensemble couldn't be built
+	 */
+	public static NEFEnsemble get(Future<?> future) throws StructuralException {
+		try {
+			return (NEFEnsemble) future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new StructuralException("Interrupted while waiting for an ensemble to be built", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof StructuralException) {
+				throw (StructuralException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new StructuralException("Can't build ensemble", e.getCause());
+		}
+	}
+
+	/**
+	 * Override to refine the estimate for particular factories.
+	 *
+	 * @param spec Description of an ensemble
+	 * @return Approximate peak memory needed to build the ensemble (bytes)
+	 */
+	public long estimateBytes(Spec spec) {
+		int dim = spec.getRadii().length;
+		int points = (spec.getFactory() instanceof NEFEnsembleFactoryImpl)
+			? ((NEFEnsembleFactoryImpl) spec.getFactory()).getNumEvalPoints(dim)
+			: Math.min(5000, Math.max(1000, 500 * dim));
+		long n = spec.getNumNodes();
+
+		//GAMMA, its inverse and a decomposition; activities with and without noise, and a copy
+		return 3 * 8 * n * n + 3 * 4 * n * points;
+	}
+
+	/**
+	 * Stops the threads of this service once submitted builds are finished.
+	 */
+	public void shutdown() {
+		myExecutor.shutdown();
+	}
+
+	/**
+	 * Describes an ensemble to build, as arguments to NEFEnsembleFactory.make(...).
+	 */
+	public static class Spec {
+
+		private final NEFEnsembleFactory myFactory;
+		private final String myName;
+		private final int myNumNodes;
+		private final float[] myRadii;
+		private final String myStorageName;
+		private final Long mySeed;
+
+		/**
+		 * @param factory Factory that makes the ensemble
+		 * @param name Name of the ensemble
+		 * @param n Number of nodes
+		 * @param radii Radius in each dimension
+		 */
+		public Spec(NEFEnsembleFactory factory, String name, int n, float[] radii) {
+			this(factory, name, n, radii, "", null);
+		}
+
+		/**
+		 * @param factory Factory that makes the ensemble
+		 * @param name Name of the ensemble
+		 * @param n Number of nodes
+		 * @param radii Radius in each dimension
+		 * @param storageName Name for storage (see NEFEnsembleFactory.make(...); empty for none)
+		 * @param seed Random seed for the build, or null for one drawn when it is submitted
+		 */
+		public Spec(NEFEnsembleFactory factory, String name, int n, float[] radii, String storageName, Long seed) {
+			myFactory = factory;
+			myName = name;
+			myNumNodes = n;
+			myRadii = radii;
+			myStorageName = (storageName == null) ? "" : storageName;
+			mySeed = seed;
+		}
+
+		/**
+		 * @return Factory that makes the ensemble
+		 */
+		public NEFEnsembleFactory getFactory() {
+			return myFactory;
+		}
+
+		/**
+		 * @return Name of the ensemble
+		 */
+		public String getName() {
+			return myName;
+		}
+
+		/**
+		 * @return Number of nodes
+		 */
+		public int getNumNodes() {
+			return myNumNodes;
+		}
+
+		/**
+		 * @return Radius in each dimension
+		 */
+		public float[] getRadii() {
+			return myRadii;
+		}
+
+		/**
+		 * @return Name for storage (empty for none)
+		 */
+		public String getStorageName() {
+			return myStorageName;
+		}
+
+		/**
+		 * @return Random seed for the build, or null
+		 */
+		public Long getSeed() {
+			return mySeed;
+		}
+
+		/**
+		 * @return The ensemble, built on the calling thread
+		 * @throws StructuralException If the ensemble can't be built
+		 */
+		public NEFEnsemble make() throws StructuralException {
+			NEFEnsemble result = (myStorageName.length() > 0)
+				? myFactory.make(myName, myNumNodes, myRadii, myStorageName, false)
+				: myFactory.make(myName, myNumNodes, myRadii);
+
+			//so that the build's memory is really free when it's done
+			if (result instanceof NEFEnsembleImpl) {
+				((NEFEnsembleImpl) result).waitForDecoders();
+			}
+			return result;
+		}
+	}
+
+}
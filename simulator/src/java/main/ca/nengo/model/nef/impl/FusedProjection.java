@@ -0,0 +1,166 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "FusedProjection.java". Description:
+"A Projection from a DecodedOrigin to a DecodedTermination with the transform folded into the decoders"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.model.nef.impl;
+
+import ca.nengo.model.Network;
+import ca.nengo.model.Origin;
+import ca.nengo.model.Projection;
+import ca.nengo.model.SimulationException;
+import ca.nengo.model.StructuralException;
+import ca.nengo.model.Termination;
+import ca.nengo.util.MU;
+
+/**
+ * <p>A simulation-time stand-in for a Projection from a DecodedOrigin to a DecodedTermination.
+ * Rather than decoding the origin's output and then multiplying it by the termination's
+ * transform, it multiplies the origin's node activities by the product of the transform and
+ * the decoders, which is computed once (and again if either changes).</p>
+ *
+ * <p>FusedProjections are created by ProjectionFuser for simulation only. Structural methods
+ * are passed through to the Projection that this one stands in for.</p>
+ *
+ * @author agent
+ */
+public class FusedProjection implements Projection {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Projection myProjection;
+	private final DecodedOrigin myOrigin;
+	private final DecodedTermination myTermination;
+
+	private float[][] myWeights;
+	private int myDecoderVersion;
+	private int myTransformVersion;
+
+	/**
+	 * @param projection The Projection that this one stands in for
+	 * @param origin The DecodedOrigin at the start of the Projection (unwrapped if the Projection
+	 * 		starts at an exposed Origin of a Network)
+	 * @param termination The DecodedTermination at the end of the Projection (unwrapped)
+	 */
+	public FusedProjection(Projection projection, DecodedOrigin origin, DecodedTermination termination) {
+		myProjection = projection;
+		myOrigin = origin;
+		myTermination = termination;
+	}
+
+	/**
+	 * Passes the current output of the origin to the termination. This replaces
+	 * getTermination().setValues(getOrigin().getValues()) in the projection phase of a step.
+	 *
+	 * @throws SimulationException if the values can't be passed to the termination
+	 */
+	public void transfer() throws SimulationException {
+		float[] activities = myOrigin.getActivities();
+
+		if (activities == null) {
+			myTermination.setValues(myOrigin.getValues());
+		} else {
+			myTermination.setFusedValues(MU.prod(getFusedMatrix(), activities), myOrigin, activities, myOrigin.getTime());
+		}
+	}
+
+	/**
+	 * @return Product of the termination's transform and the transpose of the origin's decoders
+	 * 		(one row per output dimension of the termination, one column per origin node)
+	 */
+	public float[][] getFusedMatrix() {
+		if (myWeights == null || myDecoderVersion != myOrigin.getDecoderVersion()
+				|| myTransformVersion != myTermination.getTransformVersion()) {
+			myDecoderVersion = myOrigin.getDecoderVersion();
+			myTransformVersion = myTermination.getTransformVersion();
+			myWeights = MU.prod(myTermination.getTransformReference(), MU.transpose(myOrigin.getDecoders()));
+		}
+		return myWeights;
+	}
+
+	/**
+	 * @return The Projection that this one stands in for
+	 */
+	public Projection getProjection() {
+		return myProjection;
+	}
+
+	/**
+	 * @see ca.nengo.model.Projection#getOrigin()
+	 */
+	public Origin getOrigin() {
+		return myProjection.getOrigin();
+	}
+
+	/**
+	 * @see ca.nengo.model.Projection#getTermination()
+	 */
+	public Termination getTermination() {
+		return myProjection.getTermination();
+	}
+
+	/**
+	 * @see ca.nengo.model.Projection#getNetwork()
+	 */
+	public Network getNetwork() {
+		return myProjection.getNetwork();
+	}
+
+	/**
+	 * @see ca.nengo.model.Projection#addBias(int, float, float, boolean, boolean)
+	 */
+	public void addBias(int numInterneurons, float tauInterneurons, float tauBias, boolean excitatory, boolean optimize) throws StructuralException {
+		myProjection.addBias(numInterneurons, tauInterneurons, tauBias, excitatory, optimize);
+	}
+
+	/**
+	 * @see ca.nengo.model.Projection#removeBias()
+	 */
+	public void removeBias() {
+		myProjection.removeBias();
+	}
+
+	/**
+	 * @see ca.nengo.model.Projection#enableBias(boolean)
+	 */
+	public void enableBias(boolean enable) {
+		myProjection.enableBias(enable);
+	}
+
+	/**
+	 * @see ca.nengo.model.Projection#biasIsEnabled()
+	 */
+	public boolean biasIsEnabled() {
+		return myProjection.biasIsEnabled();
+	}
+
+	/**
+	 * @see ca.nengo.model.Projection#getWeights()
+	 */
+	public float[][] getWeights() {
+		return myProjection.getWeights();
+	}
+
+}
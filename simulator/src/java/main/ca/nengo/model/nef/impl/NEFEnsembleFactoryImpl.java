@@ -29,6 +29,8 @@ package ca.nengo.model.nef.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
@@ -62,11 +64,17 @@ public class NEFEnsembleFactoryImpl implements NEFEnsembleFactory, java.io.Seria
 
 	private static Logger ourLogger = Logger.getLogger(NEFEnsembleFactoryImpl.class);
 
+	//relative improvement in held-out decoding error for which another batch of eval points is kept
+	private static final float EVAL_POINT_TOLERANCE = .02f;
+
+	private static final Map<String, Object> ourStorageLocks = new HashMap<String, Object>();
+
 	private ApproximatorFactory myApproximatorFactory;
 	private VectorGenerator myEncoderFactory;
 	private VectorGenerator myEvalPointFactory;
 	private NodeFactory myNodeFactory;
 	private transient File myDatabase;
+	private boolean myAdaptiveEvalPoints;
 
 	/**
 	 * Default constructor. Sets up factories.
@@ -152,30 +160,34 @@ public class NEFEnsembleFactoryImpl implements NEFEnsembleFactory, java.io.Seria
 
             FileManager fm = new FileManager();
 
-            if (!overwrite && ensembleFile.exists() && ensembleFile.canRead()) {
-                try {
-                    result = (NEFEnsemble) fm.load(ensembleFile);
-
-                    result.setName(name);
-                    if(result.getNodes().length != n) {
-                        ourLogger.warn("Number of nodes in ensemble loaded from file does not match requested number of nodes");
-                    }
-                    if(result.getDimension() != dim) {
-                        ourLogger.warn("Dimension of ensemble loaded from file does not match requested dimension");
+            //builds with the same storage name (e.g. the parts of an array with a fixed seed) are done one
+            //at a time, so that the first is made and saved and the others load its file
+            synchronized (getStorageLock(ensembleFile)) {
+                if (!overwrite && ensembleFile.exists() && ensembleFile.canRead()) {
+                    try {
+                        result = (NEFEnsemble) fm.load(ensembleFile);
+
+                        result.setName(name);
+                        if(result.getNodes().length != n) {
+                            ourLogger.warn("Number of nodes in ensemble loaded from file does not match requested number of nodes");
+                        }
+                        if(result.getDimension() != dim) {
+                            ourLogger.warn("Dimension of ensemble loaded from file does not match requested dimension");
+                        }
+                    } catch (Exception e) {
+                        ourLogger.error("Failed to load file " + ensembleFile.getAbsolutePath() + ". New ensemble will be created.", e);
                     }
-                } catch (Exception e) {
-                    ourLogger.error("Failed to load file " + ensembleFile.getAbsolutePath() + ". New ensemble will be created.", e);
                 }
-            }
-            if (result == null) {
-                result = doMake(name, n, radii);
-
-                try {
-                    // Set the ensemble's factory to null to allow saving with customized ensemble factories
-                    result.setEnsembleFactory(null);
-                    fm.save(result, ensembleFile);
-                } catch (IOException e) {
-                    ourLogger.error("Failed to save file " + ensembleFile.getAbsolutePath(), e);
+                if (result == null) {
+                    result = doMake(name, n, radii);
+
+                    try {
+                        // Set the ensemble's factory to null to allow saving with customized ensemble factories
+                        result.setEnsembleFactory(null);
+                        fm.save(result, ensembleFile);
+                    } catch (IOException e) {
+                        ourLogger.error("Failed to save file " + ensembleFile.getAbsolutePath(), e);
+                    }
                 }
             }
 		}
@@ -191,6 +203,16 @@ public class NEFEnsembleFactoryImpl implements NEFEnsembleFactory, java.io.Seria
 		return result;
 	}
 
+	private static synchronized Object getStorageLock(File file) {
+		String key = file.getAbsolutePath();
+		Object result = ourStorageLocks.get(key);
+		if (result == null) {
+			result = new Object();
+			ourStorageLocks.put(key, result);
+		}
+		return result;
+	}
+
 	/**
 	 * @see ca.nengo.model.nef.NEFEnsembleFactory#setApproximatorFactory(ca.nengo.math.ApproximatorFactory)
 	 */
@@ -212,6 +234,23 @@ public class NEFEnsembleFactoryImpl implements NEFEnsembleFactory, java.io.Seria
 		myEvalPointFactory = factory;
 	}
 
+	/**
+	 * @return True if evaluation points are added in batches until decoding stops improving
+	 * 		(see NEFEnsembleImpl.adaptEvalPoints(...)), rather than using getNumEvalPoints(...)
+	 */
+	public boolean getAdaptiveEvalPoints() {
+		return myAdaptiveEvalPoints;
+	}
+
+	/**
+	 * @param adaptive True if evaluation points should be added in batches until decoding stops
+	 * 		improving, up to getNumEvalPoints(...). This works best with a QuasiRandomHypersphereVG
+	 * 		as the eval point factory.
+	 */
+	public void setAdaptiveEvalPoints(boolean adaptive) {
+		myAdaptiveEvalPoints = adaptive;
+	}
+
 	/**
 	 * @see ca.nengo.model.nef.NEFEnsembleFactory#setNodeFactory(ca.nengo.model.impl.NodeFactory)
 	 */
@@ -247,8 +286,14 @@ public class NEFEnsembleFactoryImpl implements NEFEnsembleFactory, java.io.Seria
 			}
 
 			float[][] encoders = myEncoderFactory.genVectors(n, dim);
-			float[][] evalPoints = getEvalPointFactory().genVectors(getNumEvalPoints(dim), dim);
+			int numEvalPoints = myAdaptiveEvalPoints ? getEvalPointBatchSize(dim) : getNumEvalPoints(dim);
+			float[][] evalPoints = getEvalPointFactory().genVectors(numEvalPoints, dim);
 			NEFEnsemble result = construct(name, nodes, encoders, myApproximatorFactory, evalPoints, radii);
+			if (myAdaptiveEvalPoints && result instanceof NEFEnsembleImpl) {
+				int chosen = ((NEFEnsembleImpl) result).adaptEvalPoints(getEvalPointFactory(),
+						getEvalPointBatchSize(dim), getNumEvalPoints(dim), EVAL_POINT_TOLERANCE);
+				ourLogger.debug("Using " + chosen + " eval points for " + name);
+			}
 
 			addDefaultOrigins(result);
 
@@ -287,6 +332,16 @@ public class NEFEnsembleFactoryImpl implements NEFEnsembleFactory, java.io.Seria
 		return pts;
 	}
 
+	/**
+	 * This method is exposed so that it can be over-ridden to change behaviour.
+	 *
+	 * @param dim the dimension of the state represented by an Ensemble
+	 * @return The number of evaluation points added at a time in adaptive mode
+	 */
+	protected int getEvalPointBatchSize(int dim) {
+		return Math.max(50, getNumEvalPoints(dim) / 10);
+	}
+
 	/**
 	 * This method is exposed so that it can be over-ridden to change behaviour.
 	 *
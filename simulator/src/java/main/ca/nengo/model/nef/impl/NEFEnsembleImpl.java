@@ -27,11 +27,15 @@ a recipient may use your version of this file under either the MPL or the GPL Li
  */
 package ca.nengo.model.nef.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.Callable;
 
 import ca.nengo.dynamics.DynamicalSystem;
 import ca.nengo.dynamics.Integrator;
@@ -41,6 +45,13 @@ import ca.nengo.dynamics.impl.SimpleLTISystem;
 import ca.nengo.math.ApproximatorFactory;
 import ca.nengo.math.Function;
 import ca.nengo.math.LinearApproximator;
+import ca.nengo.math.LinearTransform;
+import ca.nengo.math.StreamingApproximatorFactory;
+import ca.nengo.math.ValueSource;
+import ca.nengo.math.impl.CholeskyPseudoInverter;
+import ca.nengo.math.impl.IdentityFunction;
+import ca.nengo.math.impl.ParallelBlocks;
+import ca.nengo.math.impl.StreamingApproximator;
 import ca.nengo.math.impl.WeightedCostApproximator;
 import ca.nengo.model.Node;
 import ca.nengo.model.Origin;
@@ -64,6 +75,7 @@ import ca.nengo.model.plasticity.impl.PlasticEnsembleTermination;
 import ca.nengo.model.plasticity.impl.PreLearnTermination;
 import ca.nengo.util.MU;
 import ca.nengo.util.TimeSeries;
+import ca.nengo.util.VectorGenerator;
 import ca.nengo.util.impl.LearningTask;
 import ca.nengo.util.impl.TimeSeriesImpl;
 
@@ -81,6 +93,14 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 
 	private static final long serialVersionUID = 1L;
 
+	private static final int NODE_BLOCK_SIZE = 16;
+
+	//noise assumed when choosing eval points, if the approximator factory doesn't specify any
+	private static final float DEFAULT_NOISE = .1f;
+
+	//smallest ridge when choosing eval points, relative to the squared largest node output
+	private static final double MIN_RIDGE = 1e-8;
+
 	/**
 	 * Append to bias termination names
 	 */
@@ -176,6 +196,7 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 	 * @throws StructuralException if getConstantOutputs throws exception
 	 */
 	public void setRadii(float[] radii) throws StructuralException {
+		waitForDecoders();
 
 		if (radii.length != getDimension() && radii.length != 1) {
 			throw new IllegalArgumentException("radius vector must have length " + getDimension()
@@ -187,13 +208,7 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 			radii = MU.uniform(1, getDimension(), uniformRadius)[0];
 		}
 
-		myEvalPoints = new float[myUnscaledEvalPoints.length][];
-		for (int i = 0; i < myUnscaledEvalPoints.length; i++) {
-			myEvalPoints[i] = new float[myUnscaledEvalPoints[i].length];
-			for (int j = 0; j < myUnscaledEvalPoints[i].length; j++) {
-				myEvalPoints[i][j] = myUnscaledEvalPoints[i][j] * radii[j];
-			}
-		}
+		myEvalPoints = scale(myUnscaledEvalPoints, radii);
 
 
 
@@ -217,7 +232,7 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
             }
 		}
 
-		myDecodingApproximators.clear();
+		clearApproximators();
 
 		// update the decoders for any existing origins
 		Origin[] origins = getOrigins();
@@ -235,8 +250,7 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 					String nodeOrigin=origin.getNodeOrigin();
 					// recalculate the decoders
 					if (!myReuseApproximators || !myDecodingApproximators.containsKey(nodeOrigin)) {
-						float[][] outputs = getConstantOutputs(myEvalPoints, nodeOrigin);
-						LinearApproximator approximator = getApproximatorFactory().getApproximator(myEvalPoints, outputs);
+						LinearApproximator approximator = makeApproximator(nodeOrigin);
 						myDecodingApproximators.put(nodeOrigin, approximator);
 					}
 
@@ -261,9 +275,138 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 					+ getDimension() + " (was " + evalPoints[0].length + ")");
 		}
 
+		waitForDecoders();
 		myEvalPoints = evalPoints;
 	}
 
+	/**
+	 * Replaces the evaluation points with ones added a batch at a time from the given generator,
+	 * until the error in decoding the represented vector at a held-out set of points stops
+	 * improving. This lets the number of points follow the accuracy that the nodes can actually
+	 * provide. It should be called before DecodedOrigins are added.
+	 *
+	 * @param generator Source of evaluation points (before scaling by radii). A
+	 * 		QuasiRandomHypersphereVG continues its sequence from batch to batch.
+	 * @param batchSize Number of points added at a time (also the size of the held-out set)
+	 * @param maxPoints Maximum number of evaluation points
+	 * @param tolerance Smallest relative improvement in held-out RMSE for which a batch is kept
+	 * @return Number of evaluation points chosen
+	 * @throws StructuralException if node outputs can't be found
+	 */
+	public int adaptEvalPoints(VectorGenerator generator, int batchSize, int maxPoints, float tolerance)
+			throws StructuralException {
+		waitForDecoders();
+		int n = getNodes().length;
+
+		float[][] heldOut = scale(generator.genVectors(batchSize, getDimension()), myRadii);
+		float[][] heldOutOutputs = getConstantOutputs(heldOut, Neuron.AXON);
+
+		//Gram matrix of node outputs and their products with the represented vector, grown a batch
+		//at a time, so that each batch costs one solve rather than a new approximator
+		double[][] gamma = new double[n][n];
+		double[][] upsilon = new double[n][getDimension()];
+		double maxValue = 0;
+		float noise = (getApproximatorFactory() instanceof WeightedCostApproximator.Factory)
+			? ((WeightedCostApproximator.Factory) getApproximatorFactory()).getNoise() : DEFAULT_NOISE;
+
+		List<float[][]> batches = new ArrayList<float[][]>();
+		List<float[][]> batchValues = new ArrayList<float[][]>();
+		int count = 0;
+		float bestError = Float.POSITIVE_INFINITY;
+		while (count < maxPoints) {
+			float[][] batch = generator.genVectors(Math.min(batchSize, maxPoints - count), getDimension());
+			float[][] scaled = scale(batch, myRadii);
+			float[][] batchOutputs = getConstantOutputs(scaled, Neuron.AXON);
+
+			double[][] outputs = new double[n][];
+			for (int i = 0; i < n; i++) {
+				outputs[i] = MU.convert(batchOutputs[i]);
+				for (int k = 0; k < batch.length; k++) {
+					maxValue = Math.max(maxValue, Math.abs(batchOutputs[i][k]));
+					for (int j = 0; j < getDimension(); j++) {
+						upsilon[i][j] += batchOutputs[i][k] * scaled[k][j];
+					}
+				}
+			}
+			double[][] batchGamma = ParallelBlocks.symmetricProduct(outputs, null, false);
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j <= i; j++) {
+					gamma[i][j] += batchGamma[i][j];
+				}
+			}
+
+			//noise of the given SD on each output adds its variance to the diagonal, per point
+			double sd = noise * maxValue;
+			double ridge = Math.max((count + batch.length) * sd * sd, MIN_RIDGE * maxValue * maxValue);
+			float error = getDecodingError(CholeskyPseudoInverter.solve(gamma, ridge, upsilon), heldOut, heldOutOutputs);
+			if (count > 0 && error > bestError * (1 - tolerance)) {
+				break;
+			}
+			batches.add(batch);
+			batchValues.add(batchOutputs);
+			count += batch.length;
+			bestError = error;
+		}
+
+		float[][] points = new float[count][];
+		float[][] values = new float[n][count];
+		int offset = 0;
+		for (int b = 0; b < batches.size(); b++) {
+			float[][] batch = batches.get(b);
+			System.arraycopy(batch, 0, points, offset, batch.length);
+			for (int i = 0; i < n; i++) {
+				System.arraycopy(batchValues.get(b)[i], 0, values[i], offset, batch.length);
+			}
+			offset += batch.length;
+		}
+
+		myUnscaledEvalPoints = points;
+		myEvalPoints = scale(points, myRadii);
+		clearApproximators();
+
+		//the origins will decode from these points, so keep an approximator for the outputs already found
+		ApproximatorFactory factory = getApproximatorFactory();
+		if (myReuseApproximators && !(factory instanceof StreamingApproximatorFactory)) {
+			LinearApproximator approximator = factory.getApproximator(myEvalPoints, values);
+			synchronized (myDecodingApproximators) {
+				myDecodingApproximators.put(Neuron.AXON, approximator);
+			}
+		}
+		return count;
+	}
+
+	//RMSE (relative to radii) of decoding the represented vector at held-out points
+	private float getDecodingError(double[][] decoders, float[][] heldOut, float[][] heldOutOutputs) {
+		if (decoders == null) {
+			return Float.POSITIVE_INFINITY;
+		}
+
+		double sumSquared = 0;
+		for (int j = 0; j < getDimension(); j++) {
+			for (int k = 0; k < heldOut.length; k++) {
+				double estimate = 0;
+				for (int i = 0; i < decoders.length; i++) {
+					estimate += decoders[i][j] * heldOutOutputs[i][k];
+				}
+				double error = (estimate - heldOut[k][j]) * myInverseRadii[j];
+				sumSquared += error * error;
+			}
+		}
+		return (float) Math.sqrt(sumSquared / (heldOut.length * getDimension()));
+	}
+
+	//points multiplied by radii
+	private static float[][] scale(float[][] points, float[] radii) {
+		float[][] result = new float[points.length][];
+		for (int i = 0; i < points.length; i++) {
+			result[i] = new float[points[i].length];
+			for (int j = 0; j < points[i].length; j++) {
+				result[i][j] = points[i][j] * radii[j];
+			}
+		}
+		return result;
+	}
+
     /**
      * @return a copy of the evaluation points
      */
@@ -314,20 +457,107 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 	 * @throws StructuralException If CONSTANT_RATE is not supported by any Node
 	 */
 	protected float[][] getConstantOutputs(float[][] evalPoints, String origin) throws StructuralException {
-		NEFNode[] nodes = (NEFNode[]) getNodes();
-		float[][] result = new float[nodes.length][];
+		return getConstantOutputs(evalPoints, origin, 0, getNodes().length);
+	}
+
+	//outputs of Nodes start to end-1
+	private float[][] getConstantOutputs(float[][] evalPoints, String origin, final int start, int end) throws StructuralException {
+		final NEFNode[] nodes = Arrays.copyOfRange(getNodes(), start, end, NEFNode[].class);
+		final float[][] result = new float[nodes.length][];
+
+		//LIF rates are found in closed form, in parallel, from all points at once
+		final LIFSpikeGenerator[] generators = getClosedFormGenerators(nodes, origin);
+		final float[][] points = scaleToRadii(evalPoints);
+		ParallelBlocks.run(ParallelBlocks.getNumBlocks(nodes.length, NODE_BLOCK_SIZE), new ParallelBlocks.Body() {
+			public void run(int block) {
+				for (int i = block * NODE_BLOCK_SIZE; i < Math.min(nodes.length, (block + 1) * NODE_BLOCK_SIZE); i++) {
+					if (generators[i] != null) {
+						SpikingNeuron neuron = (SpikingNeuron) nodes[i];
+						float[] encoder = myEncoders[start + i];
+						result[i] = new float[points.length];
+						for (int j = 0; j < points.length; j++) {
+							float radialInput = MU.prod(points[j], encoder);
+							result[i][j] = generators[i].constantRateRun(neuron.getBias() + neuron.getScale() * radialInput);
+						}
+					}
+				}
+			}
+		});
 
 		for (int i = 0; i < nodes.length; i++) {
-			try {
-				result[i] = getConstantOutput(i, evalPoints, origin);
-			} catch (SimulationException e) {
-				throw new StructuralException("Node " + i + " does not have the Origin " + origin);
+			if (generators[i] == null) {
+				try {
+					result[i] = getConstantOutput(start + i, evalPoints, origin);
+				} catch (SimulationException e) {
+					throw new StructuralException("Node " + i + " does not have the Origin " + origin);
+				}
 			}
 		}
 
 		return result;
 	}
 
+	/**
+	 * @param nodes Nodes of this ensemble
+	 * @param origin Name of Origin from which output is needed
+	 * @return The spike generator of each node whose rate output at this origin is a closed-form function of
+	 * 		radial input (LIF neurons without noise or synaptic state), or null for nodes that must be run
+	 */
+	private static LIFSpikeGenerator[] getClosedFormGenerators(NEFNode[] nodes, String origin) {
+		LIFSpikeGenerator[] result = new LIFSpikeGenerator[nodes.length];
+		if (!Neuron.AXON.equals(origin)) {
+			return result;
+		}
+
+		for (int i = 0; i < nodes.length; i++) {
+			if (nodes[i].getClass().equals(SpikingNeuron.class)) {
+				SpikingNeuron neuron = (SpikingNeuron) nodes[i];
+				if (neuron.getGenerator().getClass().equals(LIFSpikeGenerator.class)
+						&& neuron.getNoise() == null
+						&& neuron.getIntegrator().getTerminations().length == 0) {
+					result[i] = (LIFSpikeGenerator) neuron.getGenerator();
+				}
+			}
+		}
+		return result;
+	}
+
+	//points scaled to the unit circle, as in getRadialInput(...)
+	private float[][] scaleToRadii(float[][] points) {
+		if (myRadiiAreOne) {
+			return points;
+		}
+
+		float[][] result = new float[points.length][];
+		for (int i = 0; i < points.length; i++) {
+			result[i] = MU.prodElementwise(points[i], myInverseRadii);
+		}
+		return result;
+	}
+
+	/**
+	 * @param origin Name of Origin from which to collect output for each Node
+	 * @return A LinearApproximator for decoding the outputs of the given Origin over this
+	 * 		ensemble's evaluation points. A StreamingApproximatorFactory is given the outputs
+	 * 		in chunks of evaluation points, as it needs them.
+	 * @throws StructuralException If CONSTANT_RATE is not supported by any Node
+	 */
+	protected LinearApproximator makeApproximator(String origin) throws StructuralException {
+		ApproximatorFactory factory = getApproximatorFactory();
+		if (factory instanceof StreamingApproximatorFactory) {
+			try {
+				return ((StreamingApproximatorFactory) factory).getApproximator(myEvalPoints,
+						new ConstantOutputSource(myEvalPoints, origin));
+			} catch (RuntimeException e) {
+				if (e.getCause() instanceof StructuralException) {
+					throw (StructuralException) e.getCause();
+				}
+				throw e;
+			}
+		}
+		return factory.getApproximator(myEvalPoints, getConstantOutputs(myEvalPoints, origin));
+	}
+
 	/**
 	 * @param nodeIndex Index of Node for which to find output at various inputs
 	 * @param evalPoints Vector points at which to find output (each one must have same dimension as
@@ -379,10 +609,40 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 	 */
 	protected float[][][] getSignalOutputs(TimeSeries[] evalSignals, String origin) throws StructuralException
 	{
-		NEFNode[] nodes = (NEFNode[]) getNodes();
-		float[][][] result = new float[nodes.length][evalSignals.length][evalSignals[0].getTimes().length];
-		
+		final NEFNode[] nodes = (NEFNode[]) getNodes();
+		final float[][][] result = new float[nodes.length][evalSignals.length][evalSignals[0].getTimes().length];
+
+		//as in getConstantOutputs(...), RATE outputs of LIF neurons are found in closed form
+		final LIFSpikeGenerator[] generators = getClosedFormGenerators(nodes, origin);
+		final float[][][] values = new float[evalSignals.length][][];
+		for (int s = 0; s < evalSignals.length; s++) {
+			values[s] = evalSignals[s].getValues();
+			if (values[s].length > 0 && values[s][0].length != nodes.length) {
+				values[s] = scaleToRadii(values[s]);
+			}
+		}
+		ParallelBlocks.run(ParallelBlocks.getNumBlocks(nodes.length, NODE_BLOCK_SIZE), new ParallelBlocks.Body() {
+			public void run(int block) {
+				for (int i = block * NODE_BLOCK_SIZE; i < Math.min(nodes.length, (block + 1) * NODE_BLOCK_SIZE); i++) {
+					if (generators[i] != null) {
+						SpikingNeuron neuron = (SpikingNeuron) nodes[i];
+						for (int s = 0; s < values.length; s++) {
+							result[i][s] = new float[values[s].length];
+							for (int t = 0; t < values[s].length; t++) {
+								float radialInput = (values[s][t].length == nodes.length)
+									? values[s][t][i] : MU.prod(values[s][t], myEncoders[i]);
+								result[i][s][t] = generators[i].constantRateRun(neuron.getBias() + neuron.getScale() * radialInput);
+							}
+						}
+					}
+				}
+			}
+		});
+
 		for (int i = 0; i < nodes.length; i++) {
+			if (generators[i] != null) {
+				continue;
+			}
 			float[][] output;
 			try {
 				output = getSignalOutput(i, evalSignals, origin);
@@ -478,6 +738,7 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 		assert encoders.length == getNodes().length;
 		assert encoders[0].length == getDimension();
 
+		waitForDecoders();
 		myEncoders = encoders;
 	}
 
@@ -498,17 +759,72 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 	/**
 	 * @see ca.nengo.model.nef.NEFEnsemble#addDecodedOrigin(java.lang.String, Function[], String)
 	 */
-    public Origin addDecodedOrigin(String name, Function[] functions, String nodeOrigin) throws StructuralException {
-		if (!myReuseApproximators || !myDecodingApproximators.containsKey(nodeOrigin)) {
-			float[][] outputs = getConstantOutputs(myEvalPoints, nodeOrigin);
-			LinearApproximator approximator = getApproximatorFactory().getApproximator(myEvalPoints, outputs);
-			myDecodingApproximators.put(nodeOrigin, approximator);
+    public Origin addDecodedOrigin(final String name, final Function[] functions, final String nodeOrigin) throws StructuralException {
+		DecodedOrigin result;
+		if (DecoderQueue.isBackground()) {
+			checkDecodable(nodeOrigin);
+			result = new DecodedOrigin(this, name, getNodes(), nodeOrigin, functions, new Callable<LinearApproximator>() {
+				public LinearApproximator call() throws StructuralException {
+					return getDecodingApproximator(nodeOrigin);
+				}
+			}, DecoderQueue.getDefault());
+		} else {
+			result = DecoderQueue.call(new Callable<DecodedOrigin>() {
+				public DecodedOrigin call() throws StructuralException {
+					return new DecodedOrigin(NEFEnsembleImpl.this, name, getNodes(), nodeOrigin, functions,
+							getDecodingApproximator(nodeOrigin));
+				}
+			});
 		}
 
-		DecodedOrigin result = new DecodedOrigin(this, name, getNodes(), nodeOrigin, functions, myDecodingApproximators.get(nodeOrigin));
-		
 		return addDecodedOrigin(result);
 	}
+
+	//checks made while finding decoders, done up front so that a background solve fails here
+	private void checkDecodable(String nodeOrigin) throws StructuralException {
+		NEFNode[] nodes = (NEFNode[]) getNodes();
+		LIFSpikeGenerator[] generators = getClosedFormGenerators(nodes, nodeOrigin);
+		for (int i = 0; i < nodes.length; i++) {
+			if (generators[i] == null) {
+				synchronized (nodes[i]) {
+					nodes[i].getOrigin(nodeOrigin);
+
+					SimulationMode mode = nodes[i].getMode();
+					nodes[i].setMode(SimulationMode.CONSTANT_RATE);
+					boolean supported = nodes[i].getMode().equals(SimulationMode.CONSTANT_RATE);
+					nodes[i].setMode(mode);
+					if (!supported) {
+						throw new StructuralException(
+							"To find decoders using this method, all Nodes must support CONSTANT_RATE simulation mode");
+					}
+				}
+			}
+		}
+	}
+
+	//approximators are made on demand, possibly on a DecoderQueue thread
+	private LinearApproximator getDecodingApproximator(String nodeOrigin) throws StructuralException {
+		synchronized (myDecodingApproximators) {
+			if (!myReuseApproximators || !myDecodingApproximators.containsKey(nodeOrigin)) {
+				LinearApproximator approximator = makeApproximator(nodeOrigin);
+				myDecodingApproximators.put(nodeOrigin, approximator);
+			}
+			return myDecodingApproximators.get(nodeOrigin);
+		}
+	}
+
+	/**
+	 * Waits for any decoders of this ensemble's DecodedOrigins that are being found in the
+	 * background (see DecoderQueue).
+	 */
+	public void waitForDecoders() {
+		if (myDecodedOrigins == null) { //during construction
+			return;
+		}
+		for (DecodedOrigin origin : myDecodedOrigins.values()) {
+			origin.getDecoders();
+		}
+	}
     
     /**
      * Similar to addDecodedOrigin, but uses a target signal and evaluation signals (over time) rather than a target function
@@ -577,6 +893,15 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
     	 return super.addDecodedTermination(name, matrix, tauPSC, isModulatory);
 	}
 
+	@Override
+    public Termination addDecodedTermination(String name, LinearTransform transform, float tauPSC,
+            boolean isModulatory) throws StructuralException {
+        if (transform.getOutputDimension() != myDimension) {
+            throw new StructuralException("Output dimension " + transform.getOutputDimension() + " doesn't equal ensemble dimension " + myDimension);
+        }
+        return super.addDecodedTermination(name, transform, tauPSC, isModulatory);
+	}
+
 	@Override
     public Termination addDecodedTermination(String name, float[][] matrix, float[] tfNumerator, float[] tfDenominator,
             float passthrough, boolean isModulatory) throws StructuralException {
@@ -862,6 +1187,7 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 	 */
 	@Override
     public void setMode(SimulationMode mode) {
+		waitForDecoders();
 		super.setMode(mode);
 
 		Origin[] origins = getOrigins();
@@ -930,12 +1256,17 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 			throw new StructuralException("Error changing node count: Cannot have "+n+" neurons");
 		}
 
+		waitForDecoders();
 
+		//existing nodes (and their encoders) are kept, so that only the difference has to be decoded
+		Node[] oldNodes = getNodes();
+		int oldCount = oldNodes.length;
 		NEFNode[] nodes = new NEFNode[n];
+		System.arraycopy(oldNodes, 0, nodes, 0, Math.min(n, oldCount));
 
 		NodeFactory nodeFactory=myEnsembleFactory.getNodeFactory();
 
-		for (int i = 0; i < n; i++) {
+		for (int i = oldCount; i < n; i++) {
 			Node node = nodeFactory.make("node" + i);
 			if ( !(node instanceof NEFNode) ) {
 				throw new StructuralException("Nodes must be NEFNodes");
@@ -951,10 +1282,35 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 		}
 		redefineNodes(nodes);
 
-		myEncoders = myEnsembleFactory.getEncoderFactory().genVectors(n, getDimension());
-
+		float[][] encoders = new float[n][];
+		System.arraycopy(myEncoders, 0, encoders, 0, Math.min(n, oldCount));
+		if (n > oldCount) {
+			float[][] newEncoders = myEnsembleFactory.getEncoderFactory().genVectors(n - oldCount, getDimension());
+			System.arraycopy(newEncoders, 0, encoders, oldCount, n - oldCount);
+		}
+		myEncoders = encoders;
 
-		myDecodingApproximators.clear();
+		// approximators for the old nodes are updated rather than rebuilt where possible
+		Map<String, LinearApproximator> updated = new HashMap<String, LinearApproximator>(10);
+		for (Map.Entry<String, LinearApproximator> entry : myDecodingApproximators.entrySet()) {
+			if (entry.getValue() instanceof WeightedCostApproximator
+					&& entry.getValue().getEvalPoints() == myEvalPoints
+					&& entry.getValue().getValues().length == oldCount) {
+				WeightedCostApproximator approximator = (WeightedCostApproximator) entry.getValue();
+				if (n < oldCount) {
+					int[] removed = new int[oldCount - n];
+					for (int i = 0; i < removed.length; i++) {
+						removed[i] = n + i;
+					}
+					approximator.removeFunctions(removed);
+				} else {
+					approximator.addFunctions(getConstantOutputs(myEvalPoints, entry.getKey(), oldCount, n));
+				}
+				updated.put(entry.getKey(), approximator);
+			}
+		}
+		clearApproximators();
+		myDecodingApproximators.putAll(updated);
 
 		// update the decoders for any existing origins
 		Origin[] origins = getOrigins();
@@ -963,9 +1319,9 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 				DecodedOrigin origin=((DecodedOrigin) origin2);
 				String nodeOrigin=origin.getNodeOrigin();
 				// recalculate the decoders
-				if (!myReuseApproximators || !myDecodingApproximators.containsKey(nodeOrigin)) {
-					float[][] outputs = getConstantOutputs(myEvalPoints, nodeOrigin);
-					LinearApproximator approximator = getApproximatorFactory().getApproximator(myEvalPoints, outputs);
+				if (!updated.containsKey(nodeOrigin)
+						&& (!myReuseApproximators || !myDecodingApproximators.containsKey(nodeOrigin))) {
+					LinearApproximator approximator = makeApproximator(nodeOrigin);
 					myDecodingApproximators.put(nodeOrigin, approximator);
 				}
 					origin.redefineNodes(nodes,myDecodingApproximators.get(nodeOrigin));
@@ -998,6 +1354,7 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 
 	@Override
     public NEFEnsemble clone() throws CloneNotSupportedException {
+		waitForDecoders();
 		NEFEnsembleImpl result = (NEFEnsembleImpl) super.clone();
 
 		result.myEncoders = MU.clone(myEncoders);
@@ -1019,7 +1376,20 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 	 * Releases any memory that can be freed.  Should be called after all origins are created for this ensemble
 	 */
     public void releaseMemory() {
-		myDecodingApproximators.clear();
+		waitForDecoders();
+		clearApproximators();
+	}
+
+	//forgets the decoding approximators, releasing any resources that StreamingApproximators hold
+	private void clearApproximators() {
+		synchronized (myDecodingApproximators) {
+			for (LinearApproximator approximator : myDecodingApproximators.values()) {
+				if (approximator instanceof StreamingApproximator) {
+					((StreamingApproximator) approximator).dispose();
+				}
+			}
+			myDecodingApproximators.clear();
+		}
 	}
 
 	/**
@@ -1105,6 +1475,22 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 	 */
 	public void killNeurons(float killrate, boolean saveRelays)
 	{
+		killNeurons(killrate, saveRelays, false);
+	}
+
+	/**
+	 * Stops a given percentage of neurons in this population from firing, and optionally
+	 * re-optimizes decoders for the survivors. Cached approximators are updated for the loss
+	 * of the killed neurons rather than rebuilt (see WeightedCostApproximator.silenceFunctions(...)).
+	 *
+	 * @param killrate the percentage of neurons to stop firing
+	 * @param saveRelays if true, do nothing if there is only one node in this population
+	 * @param updateDecoders if true, decoders of DecodedOrigins are re-optimized for the
+	 * 		remaining neurons; otherwise they are left as they were
+	 */
+	public void killNeurons(float killrate, boolean saveRelays, boolean updateDecoders)
+	{
+		waitForDecoders();
 		Random rand = new Random();
 
 		Node[] neurons = getNodes();
@@ -1113,12 +1499,54 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
             return;
         }
 
-		for (Node neuron : neurons) {
+		List<Integer> killed = new ArrayList<Integer>();
+		for (int i = 0; i < neurons.length; i++) {
 			if(rand.nextFloat() < killrate)
 			{
-				SpikingNeuron n = (SpikingNeuron)neuron;
+				SpikingNeuron n = (SpikingNeuron)neurons[i];
 				n.setBias(0.0f);
 				n.setScale(0.0f);
+				killed.add(Integer.valueOf(i));
+			}
+		}
+
+		if (updateDecoders && !killed.isEmpty()) {
+			int[] indices = new int[killed.size()];
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] = killed.get(i).intValue();
+			}
+
+			try {
+				updateDecoders(indices);
+			} catch (StructuralException e) {
+				throw new RuntimeException("Can't update decoders after killing neurons", e);
+			}
+		}
+	}
+
+	//re-optimizes decoders after the given neurons have been silenced
+	private void updateDecoders(int[] silenced) throws StructuralException {
+		Map<String, LinearApproximator> updated = new HashMap<String, LinearApproximator>(10);
+		for (Map.Entry<String, LinearApproximator> entry : myDecodingApproximators.entrySet()) {
+			if (entry.getValue() instanceof WeightedCostApproximator
+					&& entry.getValue().getEvalPoints() == myEvalPoints
+					&& entry.getValue().getValues().length == getNodes().length) {
+				((WeightedCostApproximator) entry.getValue()).silenceFunctions(silenced);
+				updated.put(entry.getKey(), entry.getValue());
+			}
+		}
+		clearApproximators();
+		myDecodingApproximators.putAll(updated);
+
+		for (Origin o : getOrigins()) {
+			if (o instanceof DecodedOrigin) {
+				DecodedOrigin origin = (DecodedOrigin) o;
+				String nodeOrigin = origin.getNodeOrigin();
+				if (!updated.containsKey(nodeOrigin)
+						&& (!myReuseApproximators || !myDecodingApproximators.containsKey(nodeOrigin))) {
+					myDecodingApproximators.put(nodeOrigin, makeApproximator(nodeOrigin));
+				}
+				origin.rebuildDecoder(myDecodingApproximators.get(nodeOrigin));
 			}
 		}
 	}
@@ -1161,4 +1589,36 @@ public class NEFEnsembleImpl extends DecodableEnsembleImpl implements NEFEnsembl
 //	}
 
 
+	/**
+	 * Finds the constant-rate outputs of this ensemble's Nodes in chunks of evaluation points.
+	 */
+	private class ConstantOutputSource implements ValueSource {
+
+		private static final long serialVersionUID = 1L;
+
+		private final float[][] myPoints;
+		private final String myOrigin;
+
+		public ConstantOutputSource(float[][] points, String origin) {
+			myPoints = points;
+			myOrigin = origin;
+		}
+
+		public int getNumFunctions() {
+			return getNodes().length;
+		}
+
+		public int getNumPoints() {
+			return myPoints.length;
+		}
+
+		public float[][] getValues(int start, int end) {
+			try {
+				return getConstantOutputs(Arrays.copyOfRange(myPoints, start, end), myOrigin);
+			} catch (StructuralException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
 }
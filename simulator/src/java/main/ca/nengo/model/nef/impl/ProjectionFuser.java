@@ -0,0 +1,150 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ProjectionFuser.java". Description:
+"Replaces linear DecodedOrigin-DecodedTermination Projections with FusedProjections"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.model.nef.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.nengo.model.Origin;
+import ca.nengo.model.Projection;
+import ca.nengo.model.Termination;
+import ca.nengo.model.impl.NetworkImpl;
+import ca.nengo.util.impl.NEFGPUInterface;
+
+/**
+ * <p>Prepares Projections for simulation by folding the transforms of DecodedTerminations
+ * into the decoders of the DecodedOrigins that project to them (see FusedProjection).</p>
+ *
+ * <p>A DecodedOrigin of N nodes and D dimensions normally costs N*D operations per step to decode,
+ * plus D*D_k for each Projection k from it onto a Termination of output dimension D_k. Fused, each
+ * Projection costs N*D_k, and the origin doesn't decode at all unless something else (e.g. a Probe)
+ * asks for its values. Fusion is therefore only worthwhile if all Projections from an Origin are fused,
+ * and sum(N*D_k) < N*D + sum(D*D_k), which is the case for example when the transforms reduce
+ * dimension. Exposed Origins and Terminations of Networks are looked through, so fused Projections
+ * skip the wrapper hops.</p>
+ *
+ * <p>Projections through PassthroughNodes are not collapsed, because each PassthroughNode delays its
+ * input by one step, and collapsing it would change the output of the network.</p>
+ *
+ * <p>Fusion is a setting of each simulator (see LocalSimulator.setFuseProjections(boolean)), and is
+ * off by default. The input of a fused DecodedTermination is only decoded if getInput() is called.</p>
+ *
+ * @author agent
+ */
+public class ProjectionFuser {
+
+	/**
+	 * @param projections Projections to be simulated together
+	 * @param fuse True if Projections are to be fused where this saves time. If false, the
+	 * 		Projections are returned as they are, and their DecodedOrigins decode in every step.
+	 * @return The same Projections, with FusedProjections in place of those that are worth fusing
+	 */
+	public static Projection[] optimize(Projection[] projections, boolean fuse) {
+		Map<DecodedOrigin, List<Integer>> fusable = new LinkedHashMap<DecodedOrigin, List<Integer>>();
+		List<DecodedOrigin> unfusable = new ArrayList<DecodedOrigin>();
+
+		for (int i = 0; i < projections.length; i++) {
+			Origin origin = getBaseOrigin(projections[i].getOrigin());
+			if (!(origin instanceof DecodedOrigin)) {
+				continue;
+			}
+
+			DecodedOrigin decodedOrigin = (DecodedOrigin) origin;
+			if (fuse && isFusable(decodedOrigin, getBaseTermination(projections[i].getTermination()))) {
+				List<Integer> indices = fusable.get(decodedOrigin);
+				if (indices == null) {
+					indices = new ArrayList<Integer>(2);
+					fusable.put(decodedOrigin, indices);
+				}
+				indices.add(Integer.valueOf(i));
+			} else {
+				unfusable.add(decodedOrigin);
+			}
+		}
+
+		Projection[] result = projections.clone();
+		for (DecodedOrigin origin : unfusable) {
+			origin.setDecodeOnDemand(false);
+		}
+
+		for (Map.Entry<DecodedOrigin, List<Integer>> entry : fusable.entrySet()) {
+			DecodedOrigin origin = entry.getKey();
+			List<Integer> indices = entry.getValue();
+			if (unfusable.contains(origin) || !isWorthFusing(origin, projections, indices)) {
+				origin.setDecodeOnDemand(false);
+				continue;
+			}
+
+			for (Integer i : indices) {
+				Projection p = projections[i.intValue()];
+				DecodedTermination termination = (DecodedTermination) getBaseTermination(p.getTermination());
+				result[i.intValue()] = new FusedProjection(p, origin, termination);
+			}
+			origin.setDecodeOnDemand(true);
+		}
+
+		return result;
+	}
+
+	private static boolean isFusable(DecodedOrigin origin, Termination termination) {
+		return !NEFGPUInterface.getUseGPU()
+			&& !(origin instanceof BiasOrigin)
+			&& termination instanceof DecodedTermination
+			&& !(termination instanceof BiasTermination)
+			&& ((DecodedTermination) termination).getLinearTransform() == null
+			&& ((DecodedTermination) termination).getTransformReference()[0].length == origin.getDimensions();
+	}
+
+	private static boolean isWorthFusing(DecodedOrigin origin, Projection[] projections, List<Integer> indices) {
+		float[][] decoders = origin.getDecoders();
+		long n = decoders.length;
+		long d = origin.getDimensions();
+
+		long fusedCost = 0;
+		long unfusedCost = n * d;
+		for (Integer i : indices) {
+			Termination termination = getBaseTermination(projections[i.intValue()].getTermination());
+			long dOut = ((DecodedTermination) termination).getTransformReference().length;
+			fusedCost += n * dOut;
+			unfusedCost += d * dOut;
+		}
+
+		return fusedCost < unfusedCost;
+	}
+
+	private static Origin getBaseOrigin(Origin origin) {
+		return (origin instanceof NetworkImpl.OriginWrapper) ? ((NetworkImpl.OriginWrapper) origin).getBaseOrigin() : origin;
+	}
+
+	private static Termination getBaseTermination(Termination termination) {
+		return (termination instanceof NetworkImpl.TerminationWrapper) ? ((NetworkImpl.TerminationWrapper) termination).getBaseTermination() : termination;
+	}
+
+}
@@ -36,6 +36,7 @@ import ca.nengo.model.Probeable;
 import ca.nengo.model.SimulationException;
 import ca.nengo.model.SimulationMode;
 import ca.nengo.model.Units;
+import ca.nengo.model.VectorProbeable;
 import ca.nengo.model.impl.PreciseSpikeOutputImpl;
 import ca.nengo.model.impl.RealOutputImpl;
 import ca.nengo.model.impl.SpikeOutputImpl;
@@ -55,7 +56,7 @@ import ca.nengo.util.impl.TimeSeries1DImpl;
  *
  * @author Bryan Tripp
  */
-public class LIFSpikeGenerator implements SpikeGenerator, Probeable {
+public class LIFSpikeGenerator implements SpikeGenerator, VectorProbeable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -325,6 +326,31 @@ public class LIFSpikeGenerator implements SpikeGenerator, Probeable {
 		return result;
 	}
 
+	/**
+	 * @see ca.nengo.model.VectorProbeable#getStateDimension(java.lang.String)
+	 */
+	public int getStateDimension(String stateName) {
+		return stateName.equals("V") ? 1 : -1;
+	}
+
+	/**
+	 * @see ca.nengo.model.VectorProbeable#getState(java.lang.String, int[], float[], int)
+	 */
+	public float getState(String stateName, int[] indices, float[] values, int offset) throws SimulationException {
+		if (!stateName.equals("V")) {
+			throw new SimulationException("The state name " + stateName + " is unknown.");
+		}
+
+		if (myTime.length == 0) {
+			return Float.NaN;
+		}
+		int n = (indices == null) ? 1 : indices.length;
+		for (int i = 0; i < n; i++) {
+			values[offset + i] = myVoltageHistory[myVoltageHistory.length - 1];
+		}
+		return myTime[myTime.length - 1];
+	}
+
 	/**
 	 * @see Probeable#listStates()
 	 */
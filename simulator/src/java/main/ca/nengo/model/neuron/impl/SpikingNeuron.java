@@ -42,6 +42,7 @@ import ca.nengo.model.SpikeOutput;
 import ca.nengo.model.StructuralException;
 import ca.nengo.model.Termination;
 import ca.nengo.model.Units;
+import ca.nengo.model.VectorProbeable;
 import ca.nengo.model.impl.BasicOrigin;
 import ca.nengo.model.nef.NEFNode;
 import ca.nengo.model.neuron.Neuron;
@@ -58,7 +59,7 @@ import ca.nengo.util.impl.TimeSeries1DImpl;
  *
  * @author Bryan Tripp
  */
-public class SpikingNeuron implements Neuron, Probeable, NEFNode {
+public class SpikingNeuron implements Neuron, VectorProbeable, NEFNode {
 
 	private static final long serialVersionUID = 1L;
 
@@ -220,6 +221,50 @@ public class SpikingNeuron implements Neuron, Probeable, NEFNode {
 		return result;
 	}
 
+	/**
+	 * @see ca.nengo.model.VectorProbeable#getStateDimension(java.lang.String)
+	 */
+	public int getStateDimension(String stateName) {
+		if (stateName.equals("I") || stateName.equals("rate") || stateName.equals(CURRENT)) {
+			return 1;
+		} else if (myGenerator instanceof VectorProbeable) {
+			return ((VectorProbeable) myGenerator).getStateDimension(stateName);
+		} else {
+			return -1;
+		}
+	}
+
+	/**
+	 * @see ca.nengo.model.VectorProbeable#getState(java.lang.String, int[], float[], int)
+	 */
+	public float getState(String stateName, int[] indices, float[] values, int offset) throws SimulationException {
+		float[] times = myCurrent.getTimes();
+		float value;
+		if (stateName.equals("I")) {
+			value = myCurrent.getValues1D()[times.length-1];
+		} else if (stateName.equals("rate")) {
+			InstantaneousOutput output = mySpikeOrigin.getValues();
+			value = 0;
+			if (output instanceof RealOutput) {
+				value = ((RealOutput) output).getValues()[0];
+			} else if (output instanceof SpikeOutput) {
+				value = ((SpikeOutput) output).getValues()[0] ? 1/(times[times.length-1]-times[0]) : 0;
+			}
+		} else if (stateName.equals(CURRENT)) {
+			value = myUnscaledCurrent;
+		} else if (myGenerator instanceof VectorProbeable) {
+			return ((VectorProbeable) myGenerator).getState(stateName, indices, values, offset);
+		} else {
+			throw new SimulationException("The state " + stateName + " can't be copied");
+		}
+
+		int n = (indices == null) ? 1 : indices.length;
+		for (int i = 0; i < n; i++) {
+			values[offset + i] = value;
+		}
+		return times[times.length-1];
+	}
+
 	/**
 	 * @see ca.nengo.model.Probeable#listStates()
 	 */
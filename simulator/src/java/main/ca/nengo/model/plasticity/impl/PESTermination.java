@@ -107,7 +107,11 @@ public class PESTermination extends ModulatedPlasticEnsembleTermination  {
         myOja = oja;
     }
 
-    private void updateInput() {
+    private synchronized void updateInput(float time) {
+        // Called by every LearningTask of this termination, but the filter must only advance once per step
+        if (myLastTime >= time) { return; }
+        myLastTime = time;
+
         InstantaneousOutput input = this.getInput();
         float integrationTime = 0.001f;
         float tauPSC = getNodeTerminations()[0].getTau(); //0.005
@@ -136,6 +140,19 @@ public class PESTermination extends ModulatedPlasticEnsembleTermination  {
     }
 
     /**
+     * @see ca.nengo.model.plasticity.impl.PlasticEnsembleTermination#prepareUpdate(float)
+     */
+    @Override
+    public void prepareUpdate(float time) {
+        this.updateInput(time);
+    }
+
+    /**
+     * Applies the PES rule to rows start to end-1 of the transform as a rank-1 update,
+     * i.e. for each row i, w_i += (rate * e_i * gain_i) * x - oja * w_i, where e_i is the
+     * modulatory input projected onto the encoder of neuron i and x is the filtered input.
+     * Rows are updated in place, so LearningTasks with disjoint row ranges can run concurrently.
+     *
      * @see ca.nengo.model.plasticity.impl.PlasticEnsembleTermination#updateTransform(float, int, int)
      */
     @Override
@@ -144,37 +161,32 @@ public class PESTermination extends ModulatedPlasticEnsembleTermination  {
             throw new StructuralException("Origin name not set in PESTermination");
         }
 
-        if (myLastTime < time) {
-            this.updateInput();
-            myLastTime = time;
-        }
+        this.updateInput(time);
 
-        float[][] transform = this.getTransform();
+        float[] input = myFilteredInput;
+        float[] modInput = myModInput;
 
-        for (int i = start; i < end; i++) {
-            for (int j = 0; j < transform[i].length; j++) {
-                float e = 0.0f;
-                for (int k = 0; k < myModInput.length; k++) {
-                    e += myModInput[k] * myEncoders[i][k];
-                }
-                float delta = deltaOmega(myFilteredInput[j],time,transform[i][j],myGain[i],e);
-                transform[i][j] += delta;
-            }
-        }
-
-        this.setTransform(transform, false);
-    }
-
-    private float deltaOmega(float input, float time, float currentWeight, float gain, float e) {
         float oja = 0.0f;
-
         if (myOja) {
             for (float element : myOutput) {
-                oja += myLearningRate*element*element*currentWeight;
+                oja += element*element;
             }
+            oja *= myLearningRate;
         }
 
-        return myLearningRate * input * e * gain - oja;
+        for (int i = start; i < end; i++) {
+            float e = 0.0f;
+            for (int k = 0; k < modInput.length; k++) {
+                e += modInput[k] * myEncoders[i][k];
+            }
+            float scale = myLearningRate * e * myGain[i];
+
+            float[] weights = this.getWeights(i);
+            float[] target = this.getUpdateTarget(i);
+            for (int j = 0; j < weights.length; j++) {
+                target[j] += scale * input[j] - oja * weights[j];
+            }
+        }
     }
 
     @Override
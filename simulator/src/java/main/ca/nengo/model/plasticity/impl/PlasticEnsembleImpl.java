@@ -30,7 +30,14 @@ package ca.nengo.model.plasticity.impl;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import ca.nengo.model.Ensemble;
 import ca.nengo.model.InstantaneousOutput;
@@ -53,6 +60,17 @@ import ca.nengo.util.impl.LearningTask;
  * <p>An extension of the default ensemble; connection weights can be modified
  * by a plasticity rule.</p>
  *
+ * <p>By default, weight updates run as LearningTasks in the last phase of each
+ * simulation step, and the next step can't begin until they have finished. If a
+ * learning lag of k &gt; 0 steps is set, the LearningTasks instead run on background
+ * threads, writing into a buffer of changes for their own step, while the rest of the
+ * step (and for k &gt; 1, the following steps) is simulated. Learning still runs every
+ * step, from that step's states (so e.g. filtered PES inputs and STDP traces advance as
+ * usual), but each step's buffer is only added to the weights at the start of the k'th
+ * following step, waiting for the background work if it hasn't finished. With a rule whose
+ * changes don't depend on the weights, the weights at the end of each step are therefore
+ * those without a lag, delayed by k steps.</p>
+ *
  * TODO: test
  *
  * @author Trevor Bekolay
@@ -69,6 +87,13 @@ public class PlasticEnsembleImpl extends EnsembleImpl implements TaskSpawner {
 
     private ArrayList<LearningTask> myTasks;
 
+    private int myLearningLag = 0;
+    private transient int myStep; //number of steps run since reset
+    private transient List<Future<?>> myRunningUpdate; //background learning of the latest step
+    private transient LinkedList<Integer> myPendingSteps; //steps of updates not yet applied, oldest first
+
+    private static ExecutorService myLearningExecutor;
+
     /**
      * @param name Name of Ensemble
      * @param nodes Nodes that make up the Ensemble
@@ -126,23 +151,153 @@ public class PlasticEnsembleImpl extends EnsembleImpl implements TaskSpawner {
         return myPlasticityInterval;
     }
 
+    /**
+     * @return Number of steps after which the weight changes computed in a step are
+     *   applied, or 0 if they are applied within the same step
+     */
+    public int getLearningLag() {
+        return myLearningLag;
+    }
+
+    /**
+     * @param steps Number of steps after which the weight changes computed in a step are
+     *   applied. If 0 (the default), learning runs in the task phase of each step. Otherwise
+     *   learning runs in the background, overlapping with the rest of the step and with
+     *   the following steps (see class documentation).
+     */
+    public void setLearningLag(int steps) {
+        if (steps < 0) {
+            throw new IllegalArgumentException("Learning lag can't be negative");
+        }
+        myLearningLag = steps;
+    }
+
     /**
      * @see ca.nengo.model.Ensemble#run(float, float)
      */
     @Override
     public void run(float startTime, float endTime) throws SimulationException {
+        myStep++;
+        applyDeferredUpdates(myStep - myLearningLag);
+
         super.run(startTime, endTime);
 
+        // the running update still reads the states from the step it was started in
+        finishRunningUpdate();
+
         setStates(endTime); // updates myLastPlasticityTime
 
         if ((myPlasticityInterval <= 0 && myLearning) ||
                 (myLearning && endTime >= myLastPlasticityTime + myPlasticityInterval)) {
-            for (LearningTask task : myTasks) {
-                task.reset(false);
+            if (myLearningLag > 0) {
+                beginDeferredUpdate(startTime, endTime);
+            } else {
+                for (LearningTask task : myTasks) {
+                    task.reset(false);
+                }
+            }
+        }
+    }
+
+    private void beginDeferredUpdate(final float startTime, final float endTime) throws SimulationException {
+        try {
+            for (PlasticEnsembleTermination pet : myPlasticEnsembleTerminations.values()) {
+                pet.prepareUpdate(endTime);
+                pet.beginDeferredUpdate();
+            }
+        } catch (StructuralException e) {
+            throw new SimulationException(e.getMessage());
+        }
+        if (myPendingSteps == null) {
+            myPendingSteps = new LinkedList<Integer>();
+        }
+        myPendingSteps.addLast(Integer.valueOf(myStep));
+
+        // The pool's copies of the tasks stay finished, so they don't also run in the task phase
+        ExecutorService executor = getLearningExecutor();
+        myRunningUpdate = new ArrayList<Future<?>>(myTasks.size());
+        for (LearningTask task : myTasks) {
+            try {
+                final LearningTask copy = task.clone();
+                copy.reset(false);
+                myRunningUpdate.add(executor.submit(new Runnable() {
+                    public void run() {
+                        try {
+                            copy.run(startTime, endTime);
+                        } catch (SimulationException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }));
+            } catch (CloneNotSupportedException e) {
+                throw new SimulationException(e);
+            }
+        }
+    }
+
+    //applies the buffered updates of steps up to and including the given one
+    private void applyDeferredUpdates(int step) throws SimulationException {
+        while (myPendingSteps != null && !myPendingSteps.isEmpty() && myPendingSteps.getFirst().intValue() <= step) {
+            if (myPendingSteps.size() == 1) {
+                finishRunningUpdate();
+            }
+            myPendingSteps.removeFirst();
+            for (PlasticEnsembleTermination pet : myPlasticEnsembleTerminations.values()) {
+                pet.applyDeferredUpdate(true);
             }
         }
     }
 
+    //waits for the update of the latest step; if it failed, all pending updates are discarded
+    private void finishRunningUpdate() throws SimulationException {
+        if (myRunningUpdate == null) { return; }
+
+        SimulationException error = null;
+        for (Future<?> future : myRunningUpdate) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                error = new SimulationException("Interrupted while waiting for learning", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException && cause.getCause() instanceof SimulationException) {
+                    cause = cause.getCause();
+                }
+                error = new SimulationException("Error while learning: " + cause.getMessage(), cause);
+            }
+        }
+        myRunningUpdate = null;
+
+        if (error != null) {
+            discardDeferredUpdates();
+            throw error;
+        }
+    }
+
+    private void discardDeferredUpdates() {
+        while (myPendingSteps != null && !myPendingSteps.isEmpty()) {
+            myPendingSteps.removeFirst();
+            for (PlasticEnsembleTermination pet : myPlasticEnsembleTerminations.values()) {
+                pet.applyDeferredUpdate(false);
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getLearningExecutor() {
+        if (myLearningExecutor == null) {
+            myLearningExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory() {
+                        private int myCount = 0;
+                        public Thread newThread(Runnable r) {
+                            Thread result = new Thread(r, "LearningThread" + myCount++);
+                            result.setDaemon(true);
+                            return result;
+                        }
+                    });
+        }
+        return myLearningExecutor;
+    }
+
     public void setStates(float endTime) throws SimulationException {
         if (myLastPlasticityTime < endTime) {
             for (PlasticEnsembleTermination pet : myPlasticEnsembleTerminations.values()) {
@@ -172,6 +327,13 @@ public class PlasticEnsembleImpl extends EnsembleImpl implements TaskSpawner {
      * @see ca.nengo.model.Resettable#reset(boolean)
      */
     public void reset(boolean randomize) {
+        try {
+            finishRunningUpdate();
+        } catch (SimulationException e) {
+            // the update is being discarded anyway
+        }
+        discardDeferredUpdates();
+        myStep = 0;
         super.reset(randomize);
         myLastPlasticityTime = 0.0f;
     }
@@ -227,6 +389,8 @@ public class PlasticEnsembleImpl extends EnsembleImpl implements TaskSpawner {
     @Override
     public Ensemble clone() throws CloneNotSupportedException {
         PlasticEnsembleImpl result = (PlasticEnsembleImpl) super.clone();
+        result.myRunningUpdate = null;
+        result.myPendingSteps = null;
         return result;
     }
 }
@@ -27,6 +27,8 @@ a recipient may use your version of this file under either the MPL or the GPL Li
  */
 package ca.nengo.model.plasticity.impl;
 
+import java.util.LinkedList;
+
 import ca.nengo.model.InstantaneousOutput;
 import ca.nengo.model.Node;
 import ca.nengo.model.PlasticNodeTermination;
@@ -62,6 +64,9 @@ public abstract class PlasticEnsembleTermination extends EnsembleTermination {
     protected String myOriginName;
     protected float[] myOutput;
 
+    private LinkedList<float[][]> myPendingUpdates; //buffered changes not yet applied, oldest first
+    private LinkedList<float[][]> mySpareUpdates; //zeroed buffers for reuse
+
     /**
      * @param node The parent Node
      * @param name Name of this Termination
@@ -130,6 +135,77 @@ public abstract class PlasticEnsembleTermination extends EnsembleTermination {
         return transform;
     }
 
+    /**
+     * @param i Index of a PlasticNodeTermination within this Termination
+     * @return The weight vector of the i'th PlasticNodeTermination. This is the
+     *   array used by the node termination (not a copy), so learning rules can
+     *   update it in place rather than going through setTransform().
+     */
+    protected float[] getWeights(int i) {
+        return ((PlasticNodeTermination) this.getNodeTerminations()[i]).getWeights();
+    }
+
+    /**
+     * @param i Index of a PlasticNodeTermination within this Termination
+     * @return The array to which changes in the i'th weight vector should be added. This is
+     *   the weight vector itself, unless updates are being deferred (see beginDeferredUpdate()),
+     *   in which case it is the corresponding row of the newest buffer of pending changes.
+     */
+    protected float[] getUpdateTarget(int i) {
+        return (myPendingUpdates == null || myPendingUpdates.isEmpty()) ? getWeights(i) : myPendingUpdates.getLast()[i];
+    }
+
+    /**
+     * Redirects subsequent calls to updateTransform() into a new buffer, so that they can
+     * run while the current weights are still being used by the simulation. Buffers are queued
+     * behind any earlier ones that haven't been applied, and are applied in order by
+     * applyDeferredUpdate().
+     */
+    public void beginDeferredUpdate() {
+        if (myPendingUpdates == null) {
+            myPendingUpdates = new LinkedList<float[][]>();
+            mySpareUpdates = new LinkedList<float[][]>();
+        }
+
+        Termination[] terms = this.getNodeTerminations();
+        float[][] buffer = mySpareUpdates.isEmpty() ? null : mySpareUpdates.removeFirst();
+        if (buffer == null || buffer.length != terms.length) {
+            buffer = new float[terms.length][];
+        }
+        for (int i = 0; i < terms.length; i++) {
+            int dim = terms[i].getDimensions();
+            if (buffer[i] == null || buffer[i].length != dim) {
+                buffer[i] = new float[dim];
+            }
+        }
+        myPendingUpdates.addLast(buffer);
+    }
+
+    /**
+     * Applies or discards the oldest buffer of changes started with beginDeferredUpdate().
+     * No updateTransform() calls into that buffer may be running when this is called. Once no
+     * buffers are pending, updateTransform() changes the weights directly again.
+     *
+     * @param apply If true, the buffered changes are added to the weights; otherwise they
+     *   are discarded
+     */
+    public void applyDeferredUpdate(boolean apply) {
+        if (myPendingUpdates == null || myPendingUpdates.isEmpty()) { return; }
+
+        float[][] buffer = myPendingUpdates.removeFirst();
+        for (int i = 0; i < buffer.length; i++) {
+            float[] changes = buffer[i];
+            float[] weights = getWeights(i);
+            for (int j = 0; j < changes.length; j++) {
+                if (apply) {
+                    weights[j] += changes[j];
+                }
+                changes[j] = 0f;
+            }
+        }
+        mySpareUpdates.addLast(buffer);
+    }
+
     /**
      * @param transform The transformation matrix, which can be thought of as
      *   the connection weight matrix in most cases. This will be passed through
@@ -169,6 +245,18 @@ public abstract class PlasticEnsembleTermination extends EnsembleTermination {
         }
     }
 
+    /**
+     * Reads any inputs that the following calls to updateTransform(time, ...) depend on.
+     * This is called before learning is handed off to another thread, so that learning does
+     * not see inputs that belong to a later time step. updateTransform() must still work if
+     * this hasn't been called. The default implementation does nothing.
+     *
+     * @param time Current time
+     * @throws StructuralException if the inputs are not of the expected type
+     */
+    public void prepareUpdate(float time) throws StructuralException {
+    }
+
     /**
      * @param time Current time
      * @param start The start index of the range of transform values to update (for multithreading)
@@ -234,6 +322,9 @@ public abstract class PlasticEnsembleTermination extends EnsembleTermination {
 
     @Override
     public PlasticEnsembleTermination clone() throws CloneNotSupportedException {
-        return (PlasticEnsembleTermination) super.clone();
+        PlasticEnsembleTermination result = (PlasticEnsembleTermination) super.clone();
+        result.myPendingUpdates = null;
+        result.mySpareUpdates = null;
+        return result;
     }
 }
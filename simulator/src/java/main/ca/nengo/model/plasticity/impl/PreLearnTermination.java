@@ -79,11 +79,22 @@ public class PreLearnTermination extends ModulatedPlasticEnsembleTermination  {
         }
     }
 
-    private void updateInput() {
+    private synchronized void updateInput(float time) {
+        if (myLastTime >= time) { return; }
+        myLastTime = time;
+
         InstantaneousOutput input = this.getInput();
         myInSpiking = ((SpikeOutput) input).getValues();
     }
 
+    /**
+     * @see ca.nengo.model.plasticity.impl.PlasticEnsembleTermination#prepareUpdate(float)
+     */
+    @Override
+    public void prepareUpdate(float time) {
+        this.updateInput(time);
+    }
+
     /**
      * @see ca.nengo.model.plasticity.impl.PlasticEnsembleTermination#updateTransform(float, int, int)
      */
@@ -93,27 +104,25 @@ public class PreLearnTermination extends ModulatedPlasticEnsembleTermination  {
             throw new StructuralException("Origin name not set in PESTermination");
         }
 
-        if (myLastTime < time) {
-            this.updateInput();
-            myLastTime = time;
-        }
+        this.updateInput(time);
 
-        float[][] transform = this.getTransform();
+        boolean[] inSpiking = myInSpiking;
+        float[] modInput = myModInput;
 
         for (int i = start; i < end; i++) {
-            for (int j = 0; j < transform[i].length; j++) {
-                float e = 0.0f;
-                for (int k = 0; k < myModInput.length; k++) {
-                    e += myModInput[k] * myEncoders[i][k];
-                }
+            float e = 0.0f;
+            for (int k = 0; k < modInput.length; k++) {
+                e += modInput[k] * myEncoders[i][k];
+            }
+            float delta = deltaOmega(1.0f,time,0.0f,myGain[i],e);
 
-                if (myInSpiking[j]) {
-                	transform[i][j] += deltaOmega(1.0f,time,transform[i][j],myGain[i],e);
+            float[] target = this.getUpdateTarget(i);
+            for (int j = 0; j < target.length; j++) {
+                if (inSpiking[j]) {
+                    target[j] += delta;
                 }
             }
         }
-
-        this.setTransform(transform, false);
     }
 
     private float deltaOmega(float input, float time, float currentWeight, float gain, float e) {
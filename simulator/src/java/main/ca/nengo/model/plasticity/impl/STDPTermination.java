@@ -30,6 +30,8 @@ a recipient may use your version of this file under either the MPL or the GPL Li
  */
 package ca.nengo.model.plasticity.impl;
 
+import java.io.Serializable;
+
 import ca.nengo.model.InstantaneousOutput;
 import ca.nengo.model.Node;
 import ca.nengo.model.SpikeOutput;
@@ -44,26 +46,33 @@ import ca.nengo.model.neuron.Neuron;
  * a spiking SimulationMode. Spiking input is also the only way to simulate spike-timing-dependent
  * plasticity.</p>
  *
+ * <p>This is a triplet rule. Pre- and post-synaptic activity is summarized by two eligibility
+ * traces each, so no per-synapse spike history is kept. Weights change only in the columns of
+ * presynaptic neurons and the rows of postsynaptic neurons that spiked, so the cost of an update
+ * is proportional to the number of spikes rather than the size of the transform.</p>
+ *
  * @author Bryan Tripp
  * @author Jonathan Lai
  */
 public class STDPTermination extends PlasticEnsembleTermination {
 
     private static final long serialVersionUID = 1L;
-    // Remember 2 spikes in the past, for triplet based learning rules
-    private static final int HISTORY_LENGTH = 2;
 
     private float myLastTime = 0.0f;
 
-    private float[][] myPreSpikeHistory;
-    private float[][] myPostSpikeHistory;
-    private boolean[] myPreSpiking;
     private boolean[] myPostSpiking;
+    private boolean[] myPreSpiking;
+    private int[] myPreSpikeIndices;
+    private int myPreSpikeCount;
+
+    // spikes from the last update, which are added to the slow traces at the start of the next one
+    private boolean[] myLastPreSpiking;
+    private boolean[] myLastPostSpiking;
 
-    private float[] myPostTrace1;
-    private float[] myPostTrace2;
-    private float[] myPreTrace1;
-    private float[] myPreTrace2;
+    private Trace myPostTrace1;
+    private Trace myPostTrace2;
+    private Trace myPreTrace1;
+    private Trace myPreTrace2;
 
     private float myA2Minus = 6.6e-3f;
     private float myA3Minus = 3.1e-3f;
@@ -87,10 +96,16 @@ public class STDPTermination extends PlasticEnsembleTermination {
         int preLength = nodeTerminations[0].getDimensions();
         int postLength = nodeTerminations.length;
 
-        myPostTrace1 = new float[postLength];
-        myPostTrace2 = new float[postLength];
-        myPreTrace1 = new float[preLength];
-        myPreTrace2 = new float[preLength];
+        myPostSpiking = new boolean[postLength];
+        myPreSpiking = new boolean[preLength];
+        myPreSpikeIndices = new int[preLength];
+        myLastPostSpiking = new boolean[postLength];
+        myLastPreSpiking = new boolean[preLength];
+
+        myPostTrace1 = new Trace(postLength, myTauMinus);
+        myPostTrace2 = new Trace(postLength, myTauY);
+        myPreTrace1 = new Trace(preLength, myTauPlus);
+        myPreTrace2 = new Trace(preLength, myTauX);
     }
 
     @Override
@@ -104,132 +119,181 @@ public class STDPTermination extends PlasticEnsembleTermination {
 
         if (!name.equals(myOriginName)) { return; }
 
-        updateHistory(myPostSpiking, myPostSpikeHistory, (SpikeOutput)state, time);
-    }
-
-    private void updateInput(float time) throws StructuralException {
-        InstantaneousOutput input = this.getInput();
-
-        if (!(input instanceof SpikeOutput)) {
-            throw new StructuralException("Termination must be Spiking in STDPTermination");
-        }
-
-        updateHistory(myPreSpiking, myPreSpikeHistory, (SpikeOutput)input, time);
+        copySpikes((SpikeOutput) state, myPostSpiking);
     }
 
-
     /**
      * @see ca.nengo.model.Resettable#reset(boolean)
      */
     @Override
     public void reset(boolean randomize) {
-    }
+        super.reset(randomize);
+        myLastTime = 0.0f;
+        myPreSpikeCount = 0;
 
-    private static void updateHistory(boolean[] spiking,
-            float[][] spikeHistory, SpikeOutput state, float time) {
-        if (spikeHistory[0].length != state.getDimension()) {
-            throw new IllegalArgumentException("Expected activity of dimension "
-                    + spikeHistory[0].length + ", got dimension " + state.getDimension());
+        for (int i = 0; i < myPostSpiking.length; i++) {
+            myPostSpiking[i] = false;
+            myLastPostSpiking[i] = false;
         }
-
-        boolean[] spikes = state.getValues();
-        for (int i = 0; i < spikes.length; i++) {
-            if (spikes[i]) {
-                for (int j = HISTORY_LENGTH-1; j > 0; j--) {
-                    spikeHistory[j][i] = spikeHistory[j-1][i];
-                }
-                spikeHistory[0][i] = time;
-                spiking[i] = true;
-            } else {
-                spiking[i] = false;
-            }
+        for (int i = 0; i < myPreSpiking.length; i++) {
+            myPreSpiking[i] = false;
+            myLastPreSpiking[i] = false;
         }
 
+        myPostTrace1.reset();
+        myPostTrace2.reset();
+        myPreTrace1.reset();
+        myPreTrace2.reset();
     }
 
-    public void updateTransform(float time, int start, int end)
-            throws StructuralException {
-        if (myLastTime < time) {
-            myLastTime = time;
-            this.updateInput(time);
+    private static void copySpikes(SpikeOutput state, boolean[] spiking) {
+        if (spiking.length != state.getDimension()) {
+            throw new IllegalArgumentException("Expected activity of dimension "
+                    + spiking.length + ", got dimension " + state.getDimension());
         }
 
-        // before dOmega
-        for (int post_i = 0; post_i < myPostTrace1.length; post_i++) {
-            if (myPostSpiking[post_i]) {
-                myPostTrace1[post_i] += 1.0f;
-            }
-            myPostTrace1[post_i] -= myPostTrace1[post_i] / myTauMinus;
-            if (myPostTrace1[post_i] < 0.0f) {myPostTrace1[post_i] = 0.0f;}
+        System.arraycopy(state.getValues(), 0, spiking, 0, spiking.length);
+    }
+
+    /**
+     * Advances the traces to the given time. This is called by each LearningTask on this
+     * termination, but only the first call for a given time has any effect.
+     */
+    private synchronized void updateTraces(float time) throws StructuralException {
+        if (myLastTime >= time) { return; }
+        myLastTime = time;
+
+        InstantaneousOutput input = this.getInput();
+        if (!(input instanceof SpikeOutput)) {
+            throw new StructuralException("Termination must be Spiking in STDPTermination");
         }
 
-        for (int pre_i = 0; pre_i < myPreTrace1.length; pre_i++) {
-            if (myPreSpiking[pre_i]) {
-                myPreTrace1[pre_i] += 1.0f;
+        // the slow traces are updated after the weights in the triplet rule, so the spikes
+        // from the last update are only added now
+        myPreTrace2.update(myLastPreSpiking);
+        myPostTrace2.update(myLastPostSpiking);
+
+        copySpikes((SpikeOutput) input, myPreSpiking);
+        myPreSpikeCount = 0;
+        for (int i = 0; i < myPreSpiking.length; i++) {
+            if (myPreSpiking[i]) {
+                myPreSpikeIndices[myPreSpikeCount++] = i;
             }
-            myPreTrace1[pre_i] -= myPreTrace1[pre_i] / myTauPlus;
-            if (myPreTrace1[pre_i] < 0.0f) {myPreTrace1[pre_i] = 0.0f;}
         }
 
-        //dOmega
-        float[][] transform = this.getTransform();
+        myPostTrace1.update(myPostSpiking);
+        myPreTrace1.update(myPreSpiking);
+
+        System.arraycopy(myPreSpiking, 0, myLastPreSpiking, 0, myPreSpiking.length);
+        System.arraycopy(myPostSpiking, 0, myLastPostSpiking, 0, myPostSpiking.length);
+    }
+
+    /**
+     * @see ca.nengo.model.plasticity.impl.PlasticEnsembleTermination#prepareUpdate(float)
+     */
+    @Override
+    public void prepareUpdate(float time) throws StructuralException {
+        this.updateTraces(time);
+    }
+
+    /**
+     * @see ca.nengo.model.plasticity.impl.PlasticEnsembleTermination#updateTransform(float, int, int)
+     */
+    @Override
+    public void updateTransform(float time, int start, int end) throws StructuralException {
+        this.updateTraces(time);
 
         for (int post_i = start; post_i < end; post_i++) {
-            for (int pre_i = 0; pre_i < transform[post_i].length; pre_i++) {
-                if (myPreSpiking[pre_i]) {
-                    transform[post_i][pre_i] += preDeltaOmega(time - myPostSpikeHistory[0][post_i],
-                            time - myPreSpikeHistory[1][pre_i], transform[post_i][pre_i], post_i, pre_i);
-                }
-                if (myPostSpiking[post_i]) {
-                    transform[post_i][pre_i] += postDeltaOmega(time - myPostSpikeHistory[0][post_i],
-                            time - myPreSpikeHistory[1][pre_i], transform[post_i][pre_i], post_i, pre_i);
-                }
-            }
-        }
+            float[] weights = this.getUpdateTarget(post_i);
 
-        // after dOmega
-        for (int pre_i = 0; pre_i < myPreTrace2.length; pre_i++) {
-            if (myPreSpiking[pre_i]) {
-                myPreTrace2[pre_i] += 1.0f;
+            if (myPreSpikeCount > 0) {
+                float post1 = myLearningRate * myPostTrace1.get(post_i);
+                for (int k = 0; k < myPreSpikeCount; k++) {
+                    int pre_i = myPreSpikeIndices[k];
+                    weights[pre_i] += post1 * (myA2Minus + myPreTrace2.get(pre_i) * myA3Minus);
+                }
             }
-            myPreTrace2[pre_i] -= myPreTrace2[pre_i] / myTauX;
-            if (myPreTrace2[pre_i] < 0.0f) {myPreTrace2[pre_i] = 0.0f;}
-        }
 
-        for (int post_i = 0; post_i < myPostTrace2.length; post_i++) {
             if (myPostSpiking[post_i]) {
-                myPostTrace2[post_i] += 1.0f;
+                float post2 = myLearningRate * (myA2Plus + myPostTrace2.get(post_i) * myA3Plus);
+                for (int pre_i = 0; pre_i < weights.length; pre_i++) {
+                    weights[pre_i] -= post2 * myPreTrace1.get(pre_i);
+                }
             }
-            myPostTrace2[post_i] -= myPostTrace2[post_i] / myTauY;
-            if (myPostTrace2[post_i] < 0.0f) {myPostTrace2[post_i] = 0.0f;}
         }
+    }
 
-
+    @Override
+    public PlasticEnsembleTermination clone() throws CloneNotSupportedException {
+        STDPTermination result = (STDPTermination) super.clone();
+        result.myPostSpiking = myPostSpiking.clone();
+        result.myPreSpiking = myPreSpiking.clone();
+        result.myPreSpikeIndices = myPreSpikeIndices.clone();
+        result.myLastPostSpiking = myLastPostSpiking.clone();
+        result.myLastPreSpiking = myLastPreSpiking.clone();
+        result.myPostTrace1 = myPostTrace1.clone();
+        result.myPostTrace2 = myPostTrace2.clone();
+        result.myPreTrace1 = myPreTrace1.clone();
+        result.myPreTrace2 = myPreTrace2.clone();
+        return result;
     }
 
-    private float preDeltaOmega(float timeSinceDifferent, float timeSinceSame,
-            float currentWeight, int postIndex, int preIndex) {
-        float result = myPostTrace1[postIndex] * (myA2Minus + myPreTrace2[preIndex] * myA3Minus);
+    /**
+     * An exponentially decaying spike trace for a population, incremented by 1 for each
+     * spike and then decayed by a factor of (1 - 1/tau) per update. The decay is kept
+     * in closed form as a common scale factor, so that a decay step costs O(1) and an
+     * update only touches the neurons that spiked.
+     */
+    private static class Trace implements Serializable, Cloneable {
+
+        private static final long serialVersionUID = 1L;
 
-        return myLearningRate * result;
+        // below this the scale is folded back into the values to avoid overflow
+        private static final float MIN_SCALE = 1e-12f;
 
+        private float[] myValues;
+        private float myScale;
+        private final float myDecay;
 
-    }
+        public Trace(int size, float tau) {
+            myValues = new float[size];
+            myScale = 1f;
+            myDecay = 1f - 1f / tau;
+        }
 
-    private float postDeltaOmega(float timeSinceDifferent, float timeSinceSame,
-            float currentWeight, int postIndex, int preIndex) {
-        float result = myPreTrace1[preIndex] * (myA2Plus + myPostTrace2[postIndex] * myA3Plus);
+        public float get(int i) {
+            return myScale * myValues[i];
+        }
 
-        return -1 * myLearningRate * result;
+        public void update(boolean[] spiking) {
+            float increment = 1f / myScale;
+            for (int i = 0; i < spiking.length; i++) {
+                if (spiking[i]) {
+                    myValues[i] += increment;
+                }
+            }
 
-    }
+            myScale *= myDecay;
+            if (myScale < MIN_SCALE) {
+                for (int i = 0; i < myValues.length; i++) {
+                    myValues[i] *= myScale;
+                }
+                myScale = 1f;
+            }
+        }
 
+        public void reset() {
+            for (int i = 0; i < myValues.length; i++) {
+                myValues[i] = 0f;
+            }
+            myScale = 1f;
+        }
 
-    @Override
-    public PlasticEnsembleTermination clone() throws CloneNotSupportedException {
-        STDPTermination result = (STDPTermination) super.clone();
-        result.myPostSpikeHistory = myPostSpikeHistory.clone();
-        result.myPostSpiking = myPostSpiking.clone();
-        return result;
+        @Override
+        public Trace clone() throws CloneNotSupportedException {
+            Trace result = (Trace) super.clone();
+            result.myValues = myValues.clone();
+            return result;
+        }
     }
 }
@@ -105,6 +105,15 @@ public interface Simulator extends VisiblyMutable, Cloneable {
 	public Probe addProbe(String ensembleName, Probeable target, String state,
 			boolean record) throws SimulationException;
 
+	/**
+	 * Adds a Probe that has already been connected to its target, e.g. a Probe that filters or
+	 * summarizes samples as they are collected.
+	 *
+	 * @param probe A connected Probe
+	 * @throws SimulationException if a Probe already exists on the same target and state
+	 */
+	public void addProbe(Probe probe) throws SimulationException;
+
 	/**
 	 * @param probe
 	 *            Probe to be removed
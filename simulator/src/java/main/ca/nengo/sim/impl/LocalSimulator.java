@@ -44,6 +44,9 @@ import ca.nengo.model.Projection;
 import ca.nengo.model.SimulationException;
 import ca.nengo.model.Termination;
 import ca.nengo.model.impl.NetworkImpl;
+import ca.nengo.model.nef.impl.DecoderQueue;
+import ca.nengo.model.nef.impl.FusedProjection;
+import ca.nengo.model.nef.impl.ProjectionFuser;
 import ca.nengo.model.plasticity.impl.PlasticEnsembleTermination;
 import ca.nengo.sim.Simulator;
 import ca.nengo.sim.SimulatorEvent;
@@ -73,6 +76,7 @@ public class LocalSimulator implements Simulator, java.io.Serializable {
     private List<Probe> myProbes;
     private Network myNetwork;
     private boolean myDisplayProgress;
+    private boolean myFuseProjections;
     private transient List<VisiblyMutable.Listener> myChangeListeners;
     private transient NodeThreadPool myNodeThreadPool;
 
@@ -92,10 +96,13 @@ public class LocalSimulator implements Simulator, java.io.Serializable {
      */
     public synchronized void initialize(Network network) {
     	
+    	//decoders may still be being found in the background
+    	DecoderQueue.getDefault().waitForAll();
+
     	myNetwork = network;
         
         myNodes = network.getNodes();
-        myProjections = network.getProjections();
+        myProjections = ProjectionFuser.optimize(network.getProjections(), myFuseProjections);
 
         myNodeMap = new HashMap<String, Node>(myNodes.length * 2);
         for (Node myNode : myNodes) {
@@ -146,7 +153,7 @@ public class LocalSimulator implements Simulator, java.io.Serializable {
             throws SimulationException {
     	
     	 myNodeThreadPool = null;
-         myNodeThreadPool = new NodeThreadPool(myNetwork, myProbeTasks);
+         myNodeThreadPool = new NodeThreadPool(myNetwork, myProbeTasks, myFuseProjections);
 
         //		float pre_time = System.nanoTime();
 
@@ -222,8 +229,12 @@ public class LocalSimulator implements Simulator, java.io.Serializable {
             myNodeThreadPool.step(startTime, endTime);
         }else{
             for (Projection myProjection : myProjections) {
-                InstantaneousOutput values = myProjection.getOrigin().getValues();
-                myProjection.getTermination().setValues(values);
+                if (myProjection instanceof FusedProjection) {
+                    ((FusedProjection) myProjection).transfer();
+                } else {
+                    InstantaneousOutput values = myProjection.getOrigin().getValues();
+                    myProjection.getTermination().setValues(values);
+                }
             }
 
             for (Node myNode : myNodes) {
@@ -294,9 +305,31 @@ public class LocalSimulator implements Simulator, java.io.Serializable {
     public Probe addProbe(String ensembleName, Probeable target, String state,
             boolean record) throws SimulationException {
 
-        /*
-         * Check that no duplicate probes are created
-         */
+        checkNewProbe(target, state);
+
+        Probe result = new ProbeImpl();
+        result.connect(ensembleName, target, state, record);
+        addProbe(result);
+        
+        return result;
+    }
+
+    /**
+     * @see ca.nengo.sim.Simulator#addProbe(ca.nengo.util.Probe)
+     */
+    public void addProbe(Probe probe) throws SimulationException {
+        checkNewProbe(probe.getTarget(), probe.getStateName());
+
+        myProbeTasks.add(probe.getProbeTask());
+        myProbes.add(probe);
+
+        fireVisibleChangeEvent();
+    }
+
+    /*
+     * Check that no duplicate probes are created
+     */
+    private void checkNewProbe(Probeable target, String state) throws SimulationException {
         for (Probe probe : myProbes) {
             if (probe.getTarget() == target) {
                 if (probe.getStateName().compareTo(state) == 0) {
@@ -304,15 +337,6 @@ public class LocalSimulator implements Simulator, java.io.Serializable {
                 }
             }
         }
-
-        Probe result = new ProbeImpl();
-        result.connect(ensembleName, target, state, record);
-        
-        myProbeTasks.add(result.getProbeTask());
-        myProbes.add(result);
-
-        fireVisibleChangeEvent();
-        return result;
     }
 
     /**
@@ -380,6 +404,26 @@ public class LocalSimulator implements Simulator, java.io.Serializable {
     {
         myDisplayProgress = display;
     }
+
+    /**
+     * @return True if projections from DecodedOrigins are fused with the transforms of the
+     *      DecodedTerminations they project to (see ProjectionFuser)
+     */
+    public boolean getFuseProjections() {
+        return myFuseProjections;
+    }
+
+    /**
+     * @param fuse True if projections from DecodedOrigins are to be fused with the transforms of
+     *      the DecodedTerminations they project to, where this saves time (default false). Fused
+     *      terminations only decode their input if getInput() is called.
+     */
+    public synchronized void setFuseProjections(boolean fuse) {
+        myFuseProjections = fuse;
+        if (myNetwork != null) {
+            myProjections = ProjectionFuser.optimize(myNetwork.getProjections(), fuse);
+        }
+    }
 	
     /**
      * @see ca.nengo.sim.Simulator#addSimulatorListener(ca.nengo.sim.SimulatorListener)
@@ -0,0 +1,349 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "StreamingProbeRecorder.java". Description:
+"Streams probe data to a binary file from a background thread"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.sim.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import ca.nengo.io.ProbeStreamReader;
+import ca.nengo.io.ProbeStreamWriter;
+import ca.nengo.model.Units;
+import ca.nengo.sim.SimulatorEvent;
+import ca.nengo.sim.SimulatorListener;
+import ca.nengo.util.Probe;
+import ca.nengo.util.TimeSeries;
+import ca.nengo.util.impl.ColumnarTimeSeries;
+import ca.nengo.util.impl.ProbeImpl;
+
+/**
+ * <p>Streams the data of a Probe to a binary file during a simulation (an alternative to
+ * WriteToDiskSimulatorListener for long runs). After each step, new samples are taken from
+ * the probe and put on a bounded queue. A background thread filters and decimates them,
+ * and writes them with a ProbeStreamWriter. The file can be read with ProbeStreamReader.</p>
+ *
+ * <p>New samples of a ProbeImpl are read with getNewData(), so the probe needn't keep its
+ * whole history; it only has to hold the samples of one step (e.g. it can be connected with
+ * record false, or given a small capacity). Other probes are read with getData().</p>
+ *
+ * <p>If the writer falls behind by a full queue of samples (see setQueueCapacity(int)), the
+ * simulation waits for it, so samples are never dropped and memory use stays bounded.</p>
+ *
+ * <p>The file is overwritten at the start of each run, and is complete when the run finishes.</p>
+ *
+ * Example usage (Python syntax):
+ *   probe = network.getSimulator().addProbe("error",error.X,True)
+ *   recorder = StreamingProbeRecorder(File("output/error.bin"),probe)
+ *   recorder.setDecimation(5)
+ *   network.simulator.addSimulatorListener(recorder)
+ *   ...
+ *   data = ProbeStreamReader(File("output/error.bin")).read()
+ *
+ * @author agent
+ */
+public class StreamingProbeRecorder implements SimulatorListener {
+
+	/**
+	 * Default number of samples that can wait to be written
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+	private static Logger ourLogger = Logger.getLogger(StreamingProbeRecorder.class);
+
+	private File myFile;
+	private Probe myProbe;
+	private int myDecimation;
+	private float myTau;
+	private int myChunkSize;
+	private int myQueueCapacity;
+
+	private float myLastTime;
+	private volatile String myName;
+	private volatile Units[] myUnits;
+	private volatile String[] myLabels;
+	private BlockingQueue<float[]> myQueue;
+	private volatile boolean myFinished;
+	private Thread myWriterThread;
+	private volatile IOException myError;
+
+	/**
+	 * @param file File to which data are written (overwritten at the start of each run)
+	 * @param probe The Probe from which data are collected
+	 */
+	public StreamingProbeRecorder(File file, Probe probe) {
+		myFile = file;
+		myProbe = probe;
+		myDecimation = 1;
+		myTau = 0;
+		myChunkSize = ProbeStreamWriter.DEFAULT_CHUNK_SIZE;
+		myQueueCapacity = DEFAULT_QUEUE_CAPACITY;
+	}
+
+	/**
+	 * @return Every n-th sample is written
+	 */
+	public int getDecimation() {
+		return myDecimation;
+	}
+
+	/**
+	 * @param n Every n-th sample is written (1 to write every sample)
+	 */
+	public void setDecimation(int n) {
+		if (n < 1) {
+			throw new IllegalArgumentException("Decimation must be at least 1");
+		}
+		myDecimation = n;
+	}
+
+	/**
+	 * @return Time constant of the first-order low-pass filter applied before decimation (0 for no filter)
+	 */
+	public float getFilterTau() {
+		return myTau;
+	}
+
+	/**
+	 * @param tau Time constant of a first-order low-pass filter applied before decimation (0 for no filter)
+	 */
+	public void setFilterTau(float tau) {
+		if (tau < 0) {
+			throw new IllegalArgumentException("Time constant can't be negative");
+		}
+		myTau = tau;
+	}
+
+	/**
+	 * @param chunkSize Number of samples in each chunk of the file
+	 */
+	public void setChunkSize(int chunkSize) {
+		myChunkSize = chunkSize;
+	}
+
+	/**
+	 * @return Number of samples that can wait to be written before the simulation waits for the writer
+	 */
+	public int getQueueCapacity() {
+		return myQueueCapacity;
+	}
+
+	/**
+	 * @param capacity Number of samples that can wait to be written before the simulation waits for
+	 * 		the writer (takes effect at the start of the next run)
+	 */
+	public void setQueueCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Queue capacity must be at least 1");
+		}
+		myQueueCapacity = capacity;
+	}
+
+	/**
+	 * @see ca.nengo.sim.SimulatorListener#processEvent(ca.nengo.sim.SimulatorEvent)
+	 */
+	public void processEvent(SimulatorEvent event) {
+		if (event.getType() == SimulatorEvent.Type.STARTED) {
+			start();
+		} else if (event.getType() == SimulatorEvent.Type.STEP_TAKEN) {
+			if (myWriterThread == null) {
+				start();
+			}
+			if (myProbe instanceof ProbeImpl) {
+				enqueue(((ProbeImpl) myProbe).getNewData());
+			} else {
+				enqueue(myProbe.getData());
+			}
+		} else if (event.getType() == SimulatorEvent.Type.FINISHED) {
+			finish();
+		}
+	}
+
+	private void start() {
+		finish();
+		if (myFile.exists() && !myFile.delete()) {
+			ourLogger.warn("Can't delete " + myFile);
+		}
+		myLastTime = Float.NEGATIVE_INFINITY;
+		myQueue = new ArrayBlockingQueue<float[]>(myQueueCapacity);
+		myFinished = false;
+		myError = null;
+		myWriterThread = new Thread(new Runnable() {
+			public void run() {
+				write();
+			}
+		}, "ProbeWriter:" + myFile.getName());
+		myWriterThread.setDaemon(true);
+		myWriterThread.start();
+	}
+
+	//queues samples collected since the last step, as {time, values...} (older samples are skipped)
+	private void enqueue(TimeSeries data) {
+		ColumnarTimeSeries columnar = (data instanceof ColumnarTimeSeries) ? (ColumnarTimeSeries) data : null;
+		int length = (columnar != null) ? columnar.getLength() : data.getTimes().length;
+
+		int first = length;
+		while (first > 0 && getTime(data, columnar, first-1) > myLastTime) {
+			first--;
+		}
+		if (first == length) {
+			return;
+		}
+
+		if (myUnits == null) {
+			myName = data.getName();
+			myLabels = data.getLabels();
+			myUnits = data.getUnits();
+		}
+
+		float[][] rows = (columnar == null) ? data.getValues() : null;
+		int dimension = data.getDimension();
+		for (int i = first; i < length; i++) {
+			float[] sample = new float[1 + dimension];
+			sample[0] = getTime(data, columnar, i);
+			for (int j = 0; j < dimension; j++) {
+				sample[1+j] = (columnar != null) ? columnar.getValue(i, j) : rows[i][j];
+			}
+			put(sample);
+		}
+		myLastTime = getTime(data, columnar, length-1);
+	}
+
+	//waits for room on the queue, unless the writer has stopped (after an error)
+	private void put(float[] sample) {
+		try {
+			while (!myQueue.offer(sample, 10, TimeUnit.MILLISECONDS)) {
+				if (!myWriterThread.isAlive()) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static float getTime(TimeSeries data, ColumnarTimeSeries columnar, int i) {
+		return (columnar != null) ? columnar.getTime(i) : data.getTimes()[i];
+	}
+
+	//runs on the writer thread
+	private void write() {
+		ProbeStreamWriter writer = null;
+		float[] filtered = null;
+		float lastTime = 0;
+		long count = 0;
+		try {
+			while (true) {
+				float[] sample = myQueue.poll(1, TimeUnit.MILLISECONDS);
+				if (sample == null) {
+					if (myFinished && myQueue.isEmpty()) {
+						break;
+					}
+					continue;
+				}
+
+				if (writer == null) {
+					writer = new ProbeStreamWriter(myFile, myName, myUnits, myLabels, myChunkSize);
+				}
+
+				float time = sample[0];
+				if (filtered == null || myTau <= 0) {
+					filtered = new float[sample.length - 1];
+					System.arraycopy(sample, 1, filtered, 0, filtered.length);
+				} else {
+					float decay = (float) Math.exp(-(time - lastTime) / myTau);
+					for (int j = 0; j < filtered.length; j++) {
+						filtered[j] = decay * filtered[j] + (1 - decay) * sample[1+j];
+					}
+				}
+				lastTime = time;
+
+				if (count++ % myDecimation == 0) {
+					writer.append(time, filtered);
+				}
+			}
+		} catch (IOException e) {
+			myError = e;
+		} catch (InterruptedException e) {
+			myError = new IOException("Interrupted while writing " + myFile);
+		} finally {
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException e) {
+					if (myError == null) {
+						myError = e;
+					}
+				}
+			}
+		}
+	}
+
+	private void finish() {
+		if (myWriterThread == null) {
+			return;
+		}
+
+		myFinished = true;
+		try {
+			myWriterThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		myWriterThread = null;
+		myUnits = null;
+
+		if (myError != null) {
+			ourLogger.error("Problem writing probe data to " + myFile, myError);
+		}
+	}
+
+	/**
+	 * @return Problem writing the file in the last run, if there was one
+	 */
+	public IOException getError() {
+		return myError;
+	}
+
+	/**
+	 * @return The data written in the last run
+	 * @throws IOException if the file can't be read
+	 */
+	public TimeSeries read() throws IOException {
+		ProbeStreamReader reader = new ProbeStreamReader(myFile);
+		try {
+			return reader.read();
+		} finally {
+			reader.close();
+		}
+	}
+
+}
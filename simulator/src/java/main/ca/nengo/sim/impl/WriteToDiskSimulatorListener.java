@@ -35,6 +35,8 @@ import java.io.IOException;
 import java.util.Calendar;
 
 import ca.nengo.util.Probe;
+import ca.nengo.util.TimeSeries;
+import ca.nengo.util.impl.ColumnarTimeSeries;
 import ca.nengo.sim.SimulatorEvent;
 import ca.nengo.sim.SimulatorListener;
 
@@ -44,8 +46,8 @@ import ca.nengo.sim.SimulatorListener;
  * This class is designed to be used in cases where a simulation must run for
  * a long period of time, and it is likely that the amount of data being stored
  * will cause issues with the proper running of Nengo. By attaching a
- * WriteToDiskSimulatorListener to a simulator instance, progress is saved to disk
- * after each recordInterval.
+ * WriteToDiskSimulatorListener to a simulator instance, a sample is written (buffered)
+ * to disk after each recordInterval.
  * 
  * Example usage (Python syntax):
  *   probe_error = network.getSimulator().addProbe("error",error.X,True)
@@ -53,6 +55,9 @@ import ca.nengo.sim.SimulatorListener;
  *   listener_error = WriteToDiskSimulatorListener(file_error,probe_error,0.005)
  *   network.simulator.addSimulatorListener(listener_error)
  * 
+ * For long runs with many dimensions, StreamingProbeRecorder writes a compact binary file
+ * from a background thread.
+ * 
  * @author Trevor Bekolay
  */
 public class WriteToDiskSimulatorListener implements SimulatorListener {
@@ -91,17 +96,20 @@ public class WriteToDiskSimulatorListener implements SimulatorListener {
 	        	myStartTime = Calendar.getInstance().getTimeInMillis();
 	        	myWriter = new BufferedWriter(new FileWriter(myFile));
 	        } else if (event.getType() == SimulatorEvent.Type.STEP_TAKEN) {
-	            float[] times = myTargetProbe.getData().getTimes();
+	            //only the last sample is read (the whole history needn't be copied)
+	            TimeSeries data = myTargetProbe.getData();
+	            ColumnarTimeSeries columnar = (data instanceof ColumnarTimeSeries) ? (ColumnarTimeSeries) data : null;
+	            int last = ((columnar != null) ? columnar.getLength() : data.getTimes().length) - 1;
+	            float time = (columnar != null) ? columnar.getTime(last) : data.getTimes()[last];
 	            
-	            if (times[times.length - 1] >= myLastInterval) {
-	                float[][] data = myTargetProbe.getData().getValues();
+	            if (time >= myLastInterval) {
+	                float[] values = (columnar != null) ? null : data.getValues()[last];
 	
-	                myWriter.write(Float.toString(times[times.length-1]));
-	                for (int i=0; i < data[0].length; i++) {
-	                	myWriter.write("," + Float.toString(data[times.length-1][i]));
+	                myWriter.write(Float.toString(time));
+	                for (int i=0; i < data.getDimension(); i++) {
+	                	myWriter.write("," + Float.toString((columnar != null) ? columnar.getValue(last, i) : values[i]));
 	                }
 	                myWriter.newLine();
-	                myWriter.flush();
 	                myLastInterval += myRecordInterval;
 	            }
 	        } else if (event.getType() == SimulatorEvent.Type.FINISHED) {
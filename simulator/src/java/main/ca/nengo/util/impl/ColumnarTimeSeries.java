@@ -0,0 +1,236 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "ColumnarTimeSeries.java". Description:
+"A TimeSeries view of samples stored by column"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.util.impl;
+
+import java.io.ObjectStreamException;
+
+import ca.nengo.model.Units;
+import ca.nengo.util.TimeSeries;
+
+/**
+ * <p>A TimeSeries view of samples that are stored by column, possibly in a ring (e.g. by
+ * ProbeImpl). No data are copied when the view is made. Single values and columns can be
+ * read without making the usual array of rows, which is only made (once) if getValues() is
+ * called.</p>
+ *
+ * <p>The view is of sample slots start to start+length-1 (modulo the capacity of the arrays),
+ * and the owner of the arrays must not overwrite these slots while the view is in use.</p>
+ *
+ * @author agent
+ */
+public class ColumnarTimeSeries implements TimeSeries {
+
+	private static final long serialVersionUID = 1L;
+
+	private float[] myTimes;
+	private float[][] myColumns;
+	private int myStart;
+	private int myLength;
+	private Units[] myUnits;
+	private String[] myLabels;
+	private String myName;
+
+	private transient float[] myTimesCopy;
+	private transient float[][] myRows;
+
+	/**
+	 * @param times Sample times (the array may be longer than the number of samples)
+	 * @param columns Sample values, with a row per dimension, each the same length as times
+	 * @param start Slot of the first sample
+	 * @param length Number of samples
+	 * @param units Units of each dimension
+	 */
+	public ColumnarTimeSeries(float[] times, float[][] columns, int start, int length, Units[] units) {
+		if (columns.length != units.length) {
+			throw new IllegalArgumentException("There are " + columns.length + " columns but "
+					+ units.length + " units");
+		}
+		if (length > times.length) {
+			throw new IllegalArgumentException("Can't view " + length + " of " + times.length + " samples");
+		}
+
+		myTimes = times;
+		myColumns = columns;
+		myStart = start;
+		myLength = length;
+		myUnits = units;
+		myLabels = new String[units.length];
+		for (int i = 0; i < myLabels.length; i++) {
+			myLabels[i] = String.valueOf(i+1);
+		}
+	}
+
+	/**
+	 * @return Number of samples
+	 */
+	public int getLength() {
+		return myLength;
+	}
+
+	/**
+	 * @param sample Index of a sample
+	 * @return Time of the sample
+	 */
+	public float getTime(int sample) {
+		return myTimes[slot(sample)];
+	}
+
+	/**
+	 * @param sample Index of a sample
+	 * @param dimension Index of a dimension
+	 * @return Value of the given dimension at the sample
+	 */
+	public float getValue(int sample, int dimension) {
+		return myColumns[dimension][slot(sample)];
+	}
+
+	/**
+	 * @param dimension Index of a dimension
+	 * @return Values of the given dimension over time (a new array)
+	 */
+	public float[] getColumn(int dimension) {
+		return copy(myColumns[dimension]);
+	}
+
+	private int slot(int sample) {
+		if (sample < 0 || sample >= myLength) {
+			throw new IndexOutOfBoundsException("Sample " + sample + " of " + myLength);
+		}
+		int result = myStart + sample;
+		return (result >= myTimes.length) ? result - myTimes.length : result;
+	}
+
+	//samples of the given column in order
+	private float[] copy(float[] column) {
+		float[] result = new float[myLength];
+		int first = Math.min(myLength, column.length - myStart);
+		System.arraycopy(column, myStart, result, 0, first);
+		System.arraycopy(column, 0, result, first, myLength - first);
+		return result;
+	}
+
+	/**
+	 * @see ca.nengo.util.TimeSeries#getName()
+	 */
+	public String getName() {
+		return myName;
+	}
+
+	/**
+	 * @param name Name of the TimeSeries
+	 */
+	public void setName(String name) {
+		myName = name;
+	}
+
+	/**
+	 * @see ca.nengo.util.TimeSeries#getTimes()
+	 */
+	public synchronized float[] getTimes() {
+		if (myStart == 0 && myLength == myTimes.length) {
+			return myTimes;
+		}
+		if (myTimesCopy == null) {
+			myTimesCopy = copy(myTimes);
+		}
+		return myTimesCopy;
+	}
+
+	/**
+	 * @see ca.nengo.util.TimeSeries#getDimension()
+	 */
+	public int getDimension() {
+		return myUnits.length;
+	}
+
+	/**
+	 * @see ca.nengo.util.TimeSeries#getValues()
+	 */
+	public synchronized float[][] getValues() {
+		if (myRows == null) {
+			myRows = new float[myLength][];
+			for (int i = 0; i < myLength; i++) {
+				myRows[i] = new float[myColumns.length];
+			}
+			for (int j = 0; j < myColumns.length; j++) {
+				float[] column = myColumns[j];
+				for (int i = 0, slot = myStart; i < myLength; i++, slot++) {
+					if (slot == column.length) {
+						slot = 0;
+					}
+					myRows[i][j] = column[slot];
+				}
+			}
+		}
+		return myRows;
+	}
+
+	/**
+	 * @see ca.nengo.util.TimeSeries#getUnits()
+	 */
+	public Units[] getUnits() {
+		return myUnits;
+	}
+
+	/**
+	 * @see ca.nengo.util.TimeSeries#getLabels()
+	 */
+	public String[] getLabels() {
+		return myLabels;
+	}
+
+	/**
+	 * @param index Index of dimension for which to change label
+	 * @param label New label for given dimension
+	 */
+	public void setLabel(int index, String label) {
+		myLabels[index] = label;
+	}
+
+	@Override
+	public TimeSeries clone() throws CloneNotSupportedException {
+		return toTimeSeriesImpl();
+	}
+
+	//only the viewed samples are written
+	private Object writeReplace() throws ObjectStreamException {
+		return toTimeSeriesImpl();
+	}
+
+	private TimeSeriesImpl toTimeSeriesImpl() {
+		float[][] values = getValues();
+		float[][] rows = new float[values.length][];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = values[i].clone();
+		}
+		TimeSeriesImpl result = new TimeSeriesImpl(getTimes().clone(), rows, myUnits.clone(), myLabels.clone());
+		result.setName(myName);
+		return result;
+	}
+
+}
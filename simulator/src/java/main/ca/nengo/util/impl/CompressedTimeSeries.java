@@ -0,0 +1,444 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "CompressedTimeSeries.java". Description:
+"A TimeSeries stored in losslessly compressed blocks"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.util.impl;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ca.nengo.model.Units;
+import ca.nengo.util.TimeSeries;
+
+/**
+ * <p>A TimeSeries that is stored in losslessly compressed blocks, for keeping long
+ * histories (e.g. of many probes over an interactive session) in memory.</p>
+ *
+ * <p>Samples are appended to an open block, which is compressed when it is full. Each
+ * time or value is coded as the difference between its bits (ordered so that they
+ * increase with the value) and a linear prediction from the previous two, with short
+ * prefix codes in the style of Facebook's Gorilla format: one bit for an exact
+ * prediction, two bits plus the residual if the residual fits in the previous
+ * residual's width, and otherwise two bits, a new width, and the residual. Regularly
+ * spaced times and constant values therefore take about one bit per sample. Smooth
+ * signals (e.g. filtered decoded values) take about 15 bits per sample, but noisy ones take
+ * nearly all 32, since the low bits of their mantissas can't be predicted.</p>
+ *
+ * <p>Each dimension of each block is coded separately, so that single columns (e.g. for
+ * plotting) can be decoded without the others. Decoded arrays are cached until memory
+ * is needed, so repeated calls to getTimes() and getValues() are fast.</p>
+ *
+ * @author agent
+ */
+public class CompressedTimeSeries implements TimeSeries {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Default number of samples per compressed block
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+	private static final int WIDTH_BITS = 6;
+
+	private int myBlockSize;
+	private Units[] myUnits;
+	private String[] myLabels;
+	private String myName;
+	private List<long[][]> myBlocks; //compressed times (first) and columns of each full block
+	private float[] myOpenTimes;
+	private float[][] myOpenColumns;
+	private int myOpenSize;
+
+	private transient SoftReference<float[]> myTimesCache;
+	private transient SoftReference<float[][]> myValuesCache;
+
+	/**
+	 * @param units Units of each dimension
+	 */
+	public CompressedTimeSeries(Units[] units) {
+		this(units, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @param units Units of each dimension
+	 * @param blockSize Number of samples per compressed block
+	 */
+	public CompressedTimeSeries(Units[] units, int blockSize) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Block size must be positive");
+		}
+
+		myBlockSize = blockSize;
+		myUnits = units;
+		myLabels = new String[units.length];
+		for (int i = 0; i < myLabels.length; i++) {
+			myLabels[i] = String.valueOf(i+1);
+		}
+		myBlocks = new ArrayList<long[][]>();
+		myOpenTimes = new float[blockSize];
+		myOpenColumns = new float[units.length][blockSize];
+	}
+
+	/**
+	 * @param series A TimeSeries
+	 * @return A compressed copy of the TimeSeries
+	 */
+	public static CompressedTimeSeries compress(TimeSeries series) {
+		CompressedTimeSeries result = new CompressedTimeSeries(series.getUnits().clone());
+		result.setName(series.getName());
+		String[] labels = series.getLabels();
+		for (int i = 0; i < labels.length && i < result.myLabels.length; i++) {
+			result.myLabels[i] = labels[i];
+		}
+
+		float[] times = series.getTimes();
+		float[][] values = series.getValues();
+		for (int i = 0; i < times.length; i++) {
+			result.append(times[i], values[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * @param time Time of a new sample (after existing samples)
+	 * @param values Values of each dimension at the given time
+	 */
+	public synchronized void append(float time, float[] values) {
+		if (values.length != myUnits.length) {
+			throw new IllegalArgumentException("Expected " + myUnits.length + " values but got " + values.length);
+		}
+
+		myOpenTimes[myOpenSize] = time;
+		for (int j = 0; j < values.length; j++) {
+			myOpenColumns[j][myOpenSize] = values[j];
+		}
+		myOpenSize++;
+
+		if (myOpenSize == myBlockSize) {
+			long[][] block = new long[1 + myUnits.length][];
+			block[0] = encode(myOpenTimes, myBlockSize);
+			for (int j = 0; j < myUnits.length; j++) {
+				block[1+j] = encode(myOpenColumns[j], myBlockSize);
+			}
+			myBlocks.add(block);
+			myOpenSize = 0;
+		}
+
+		myTimesCache = null;
+		myValuesCache = null;
+	}
+
+	/**
+	 * @return Number of samples
+	 */
+	public synchronized int getLength() {
+		return myBlocks.size() * myBlockSize + myOpenSize;
+	}
+
+	/**
+	 * @return Approximate number of bytes used to store times and values (not including
+	 * 		cached decoded arrays)
+	 */
+	public synchronized long getStoredSize() {
+		long result = 4L * myOpenTimes.length * (1 + myUnits.length);
+		for (long[][] block : myBlocks) {
+			for (long[] stream : block) {
+				result += 8L * stream.length;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return A copy of the series as it is now, which is not changed by later calls to
+	 * 		append() (compressed blocks are shared, so this is cheap)
+	 */
+	public synchronized CompressedTimeSeries snapshot() {
+		CompressedTimeSeries result = new CompressedTimeSeries(myUnits.clone(), myBlockSize);
+		result.myLabels = myLabels.clone();
+		result.myName = myName;
+		result.myBlocks.addAll(myBlocks);
+		System.arraycopy(myOpenTimes, 0, result.myOpenTimes, 0, myOpenSize);
+		for (int j = 0; j < myUnits.length; j++) {
+			System.arraycopy(myOpenColumns[j], 0, result.myOpenColumns[j], 0, myOpenSize);
+		}
+		result.myOpenSize = myOpenSize;
+		return result;
+	}
+
+	/**
+	 * @param dimension Index of a dimension
+	 * @return Values of the given dimension over time (a new array)
+	 */
+	public synchronized float[] getColumn(int dimension) {
+		if (dimension < 0 || dimension >= myUnits.length) {
+			throw new IndexOutOfBoundsException("Dimension " + dimension + " of " + myUnits.length);
+		}
+		return decode(1 + dimension, myOpenColumns[dimension]);
+	}
+
+	/**
+	 * Copies the samples from a given index on, decoding only the blocks that hold them.
+	 *
+	 * @param from Index of the first sample to copy
+	 * @param times Receives the time of each sample from the given index on
+	 * @param columns Receives the values of these samples (row per dimension)
+	 */
+	public synchronized void copySamples(int from, float[] times, float[][] columns) {
+		int length = getLength();
+		if (from < 0 || from > length) {
+			throw new IndexOutOfBoundsException("Sample " + from + " of " + length);
+		}
+
+		float[] decoded = new float[myBlockSize];
+		for (int i = from / myBlockSize; i < myBlocks.size(); i++) {
+			int offset = Math.max(from - i * myBlockSize, 0);
+			int n = myBlockSize - offset;
+			int to = i * myBlockSize + offset - from;
+			for (int stream = 0; stream <= myUnits.length; stream++) {
+				decode(myBlocks.get(i)[stream], decoded, 0, myBlockSize);
+				System.arraycopy(decoded, offset, (stream == 0) ? times : columns[stream-1], to, n);
+			}
+		}
+
+		int open = myBlocks.size() * myBlockSize;
+		int offset = Math.max(from - open, 0);
+		int to = open + offset - from;
+		System.arraycopy(myOpenTimes, offset, times, to, myOpenSize - offset);
+		for (int j = 0; j < myUnits.length; j++) {
+			System.arraycopy(myOpenColumns[j], offset, columns[j], to, myOpenSize - offset);
+		}
+	}
+
+	//decodes the given stream of every block, followed by the open samples
+	private float[] decode(int stream, float[] open) {
+		float[] result = new float[getLength()];
+		for (int i = 0; i < myBlocks.size(); i++) {
+			decode(myBlocks.get(i)[stream], result, i * myBlockSize, myBlockSize);
+		}
+		System.arraycopy(open, 0, result, myBlocks.size() * myBlockSize, myOpenSize);
+		return result;
+	}
+
+	/**
+	 * @see ca.nengo.util.TimeSeries#getName()
+	 */
+	public String getName() {
+		return myName;
+	}
+
+	/**
+	 * @param name Name of the TimeSeries
+	 */
+	public void setName(String name) {
+		myName = name;
+	}
+
+	/**
+	 * @see ca.nengo.util.TimeSeries#getTimes()
+	 */
+	public synchronized float[] getTimes() {
+		float[] result = (myTimesCache == null) ? null : myTimesCache.get();
+		if (result == null) {
+			result = decode(0, myOpenTimes);
+			myTimesCache = new SoftReference<float[]>(result);
+		}
+		return result;
+	}
+
+	/**
+	 * @see ca.nengo.util.TimeSeries#getDimension()
+	 */
+	public int getDimension() {
+		return myUnits.length;
+	}
+
+	/**
+	 * @see ca.nengo.util.TimeSeries#getValues()
+	 */
+	public synchronized float[][] getValues() {
+		float[][] result = (myValuesCache == null) ? null : myValuesCache.get();
+		if (result == null) {
+			result = new float[getLength()][];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = new float[myUnits.length];
+			}
+			for (int j = 0; j < myUnits.length; j++) {
+				float[] column = getColumn(j);
+				for (int i = 0; i < result.length; i++) {
+					result[i][j] = column[i];
+				}
+			}
+			myValuesCache = new SoftReference<float[][]>(result);
+		}
+		return result;
+	}
+
+	/**
+	 * @see ca.nengo.util.TimeSeries#getUnits()
+	 */
+	public Units[] getUnits() {
+		return myUnits;
+	}
+
+	/**
+	 * @see ca.nengo.util.TimeSeries#getLabels()
+	 */
+	public String[] getLabels() {
+		return myLabels;
+	}
+
+	/**
+	 * @param index Index of dimension for which to change label
+	 * @param label New label for given dimension
+	 */
+	public void setLabel(int index, String label) {
+		myLabels[index] = label;
+	}
+
+	@Override
+	public TimeSeries clone() throws CloneNotSupportedException {
+		return snapshot();
+	}
+
+	//float bits as an integer that increases with the value (the mapping is its own inverse)
+	private static int order(int bits) {
+		return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+	}
+
+	private static long[] encode(float[] values, int n) {
+		BitWriter writer = new BitWriter(n);
+		long previous = 0;
+		long delta = 0;
+		int width = 0;
+		for (int i = 0; i < n; i++) {
+			long value = order(Float.floatToRawIntBits(values[i]));
+			long residual = value - (previous + delta);
+			long zigZag = (residual << 1) ^ (residual >> 63);
+
+			if (zigZag == 0) {
+				writer.write(0, 1);
+			} else {
+				int needed = 64 - Long.numberOfLeadingZeros(zigZag);
+				if (needed <= width && width - needed < WIDTH_BITS) {
+					writer.write(2, 2);
+				} else {
+					width = needed;
+					writer.write(3, 2);
+					writer.write(width, WIDTH_BITS);
+				}
+				writer.write(zigZag, width);
+			}
+
+			delta = (i == 0) ? 0 : value - previous;
+			previous = value;
+		}
+		return writer.toArray();
+	}
+
+	private static void decode(long[] stream, float[] result, int offset, int n) {
+		BitReader reader = new BitReader(stream);
+		long previous = 0;
+		long delta = 0;
+		int width = 0;
+		for (int i = 0; i < n; i++) {
+			long residual = 0;
+			if (reader.read(1) == 1) {
+				if (reader.read(1) == 1) {
+					width = (int) reader.read(WIDTH_BITS);
+				}
+				long zigZag = reader.read(width);
+				residual = (zigZag >>> 1) ^ -(zigZag & 1);
+			}
+
+			long value = previous + delta + residual;
+			result[offset + i] = Float.intBitsToFloat(order((int) value));
+
+			delta = (i == 0) ? 0 : value - previous;
+			previous = value;
+		}
+	}
+
+	private static class BitWriter {
+
+		private long[] myWords;
+		private int myPosition;
+
+		public BitWriter(int n) {
+			myWords = new long[(n * (2 + WIDTH_BITS + 35) + 63) / 64];
+		}
+
+		//writes the low-order n bits of the value, most significant first
+		public void write(long value, int n) {
+			if (n == 0) {
+				return;
+			}
+			int index = myPosition >>> 6;
+			int free = 64 - (myPosition & 63);
+			if (n <= free) {
+				myWords[index] |= (n == 64 ? value : value & ((1L << n) - 1)) << (free - n);
+			} else {
+				myWords[index] |= value >>> (n - free) & ((1L << free) - 1);
+				myWords[index+1] |= value << (64 - (n - free));
+			}
+			myPosition += n;
+		}
+
+		public long[] toArray() {
+			return Arrays.copyOf(myWords, (myPosition + 63) >>> 6);
+		}
+	}
+
+	private static class BitReader {
+
+		private long[] myWords;
+		private int myPosition;
+
+		public BitReader(long[] words) {
+			myWords = words;
+		}
+
+		public long read(int n) {
+			if (n == 0) {
+				return 0;
+			}
+			int index = myPosition >>> 6;
+			int available = 64 - (myPosition & 63);
+			long result;
+			if (n <= available) {
+				result = myWords[index] >>> (available - n);
+			} else {
+				result = (myWords[index] << (n - available)) | (myWords[index+1] >>> (64 - (n - available)));
+			}
+			myPosition += n;
+			return (n == 64) ? result : result & ((1L << n) - 1);
+		}
+	}
+
+}
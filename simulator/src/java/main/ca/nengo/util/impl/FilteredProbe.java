@@ -0,0 +1,127 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "FilteredProbe.java". Description:
+"A Probe that filters and decimates samples as they are collected"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.util.impl;
+
+/**
+ * <p>A Probe that passes samples through a first-order low-pass (synaptic) filter as they are
+ * collected, and records every n-th filtered sample. This is cheaper than recording raw samples and
+ * filtering them afterwards (e.g. with Plotter.filter()), and with decimation (and possibly a fixed
+ * capacity; see setCapacity(int)) memory grows slowly, or not at all, with the length of a run.</p>
+ *
+ * @author agent
+ */
+public class FilteredProbe extends ProbeImpl {
+
+	private static final long serialVersionUID = 1L;
+
+	private float myTau;
+	private int myDecimation;
+	private transient float[] myFiltered;
+	private transient float myLastTime;
+	private transient int myCount;
+
+	/**
+	 * @param tau Time constant of the filter (0 for no filter)
+	 * @param decimation Every n-th sample is recorded (1 to record every sample)
+	 */
+	public FilteredProbe(float tau, int decimation) {
+		setFilterTau(tau);
+		setDecimation(decimation);
+	}
+
+	/**
+	 * @return Time constant of the filter (0 for no filter)
+	 */
+	public float getFilterTau() {
+		return myTau;
+	}
+
+	/**
+	 * @param tau Time constant of the filter (0 for no filter). Collected samples are cleared.
+	 */
+	public void setFilterTau(float tau) {
+		if (tau < 0) {
+			throw new IllegalArgumentException("Time constant can't be negative");
+		}
+		myTau = tau;
+		reset();
+	}
+
+	/**
+	 * @return Every n-th sample is recorded
+	 */
+	public int getDecimation() {
+		return myDecimation;
+	}
+
+	/**
+	 * @param n Every n-th sample is recorded (1 to record every sample). Collected samples are cleared.
+	 */
+	public void setDecimation(int n) {
+		if (n < 1) {
+			throw new IllegalArgumentException("Decimation must be at least 1");
+		}
+		myDecimation = n;
+		reset();
+	}
+
+	/**
+	 * @see ca.nengo.util.impl.ProbeImpl#reset()
+	 */
+	@Override
+	public void reset() {
+		super.reset();
+		myFiltered = null;
+		myCount = 0;
+	}
+
+	/**
+	 * Filters the sample, and records the result if it is an n-th sample.
+	 *
+	 * @see ca.nengo.util.impl.ProbeImpl#process(float, float[])
+	 */
+	@Override
+	protected void process(float time, float[] values) {
+		if (myFiltered == null || myFiltered.length != values.length) {
+			myFiltered = values.clone();
+		} else if (myTau <= 0) {
+			System.arraycopy(values, 0, myFiltered, 0, values.length);
+		} else {
+			float decay = (float) Math.exp(-(time - myLastTime) / myTau);
+			for (int j = 0; j < myFiltered.length; j++) {
+				myFiltered[j] = decay * myFiltered[j] + (1 - decay) * values[j];
+			}
+		}
+		myLastTime = time;
+
+		if (myCount++ % myDecimation == 0) {
+			record(time, myFiltered);
+		}
+	}
+
+}
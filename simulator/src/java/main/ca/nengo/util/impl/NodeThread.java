@@ -6,6 +6,7 @@ import ca.nengo.model.InstantaneousOutput;
 import ca.nengo.model.Node;
 import ca.nengo.model.Projection;
 import ca.nengo.model.SimulationException;
+import ca.nengo.model.nef.impl.FusedProjection;
 import ca.nengo.util.ThreadTask;
 
 /**
@@ -85,8 +86,12 @@ public class NodeThread extends Thread {
 		
 		for (int i = myStartIndexInProjections; i < myEndIndexInProjections; i++) {
 			
-			InstantaneousOutput values = myProjections[i].getOrigin().getValues();
-			myProjections[i].getTermination().setValues(values);
+			if (myProjections[i] instanceof FusedProjection) {
+				((FusedProjection) myProjections[i]).transfer();
+			} else {
+				InstantaneousOutput values = myProjections[i].getOrigin().getValues();
+				myProjections[i].getTermination().setValues(values);
+			}
 		}
 		
 	}
@@ -10,6 +10,7 @@ import java.util.List;
 import ca.nengo.model.Network;
 import ca.nengo.model.Node;
 import ca.nengo.model.Projection;
+import ca.nengo.model.nef.impl.ProjectionFuser;
 import ca.nengo.util.TaskSpawner;
 import ca.nengo.util.ThreadTask;
 
@@ -34,6 +35,7 @@ public class NodeThreadPool {
 	protected Node[] myNodes;
 	protected Projection[] myProjections;
     protected ThreadTask[] myTasks;
+	protected boolean myFuseProjections;
 
 	protected volatile int numThreadsComplete;
 
@@ -94,6 +96,16 @@ public class NodeThreadPool {
 	}
 	
 	public NodeThreadPool(Network network, List<ThreadTask> threadTasks){
+		this(network, threadTasks, false);
+	}
+
+	/**
+	 * @param network Network to simulate
+	 * @param threadTasks Tasks to run in each step, in addition to those of the nodes
+	 * @param fuseProjections True if projections are to be fused where this saves time (see ProjectionFuser)
+	 */
+	public NodeThreadPool(Network network, List<ThreadTask> threadTasks, boolean fuseProjections){
+		myFuseProjections = fuseProjections;
 		initialize(network, threadTasks);
 	}
 	
@@ -123,7 +135,7 @@ public class NodeThreadPool {
 		taskList.addAll(threadTasks);
 		
 		myNodes = nodeList.toArray(new Node[0]);
-		myProjections = projList.toArray(new Projection[0]);
+		myProjections = ProjectionFuser.optimize(projList.toArray(new Projection[0]), myFuseProjections);
 		myTasks = taskList.toArray(new ThreadTask[0]);
 		
 		threadsRunning = false;
@@ -24,30 +24,64 @@ a recipient may use your version of this file under either the MPL or the GPL Li
 
 package ca.nengo.util.impl;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
+import ca.nengo.math.PDFTools;
+import ca.nengo.model.InstantaneousOutput;
 import ca.nengo.model.Node;
 import ca.nengo.model.Origin;
+import ca.nengo.model.OriginProbeable;
 import ca.nengo.model.Probeable;
+import ca.nengo.model.RealOutput;
 import ca.nengo.model.SimulationException;
 import ca.nengo.model.Units;
+import ca.nengo.model.VectorProbeable;
 import ca.nengo.util.Probe;
 import ca.nengo.util.TimeSeries;
 
 /**
  * <p>Collects information from <code>Probeable</code> objects.</p> 
  * 
+ * <p>Samples are stored by column in primitive arrays, which grow geometrically, or which can
+ * be given a fixed capacity so that only the most recent samples are kept (see setCapacity(int)).
+ * getData() returns a view of these arrays rather than a copy, and getNewData() returns a copy
+ * of just the samples recorded since it was last called. If the target is an
+ * OriginProbeable, and the probed state is the output of an Origin, values are copied
+ * straight from the Origin's output at each step. If the target is a VectorProbeable (e.g. an
+ * Ensemble), values are copied into a reused array. A probe can also record a fixed subset of the
+ * state's elements (see setSubset(int[]) and setRandomSubset(int)), in which case only those
+ * elements are read from a VectorProbeable. Recorded samples can instead be kept in a
+ * CompressedTimeSeries, which takes about half the memory for smooth signals (see setCompressed(boolean)).</p>
+ * 
+ * <p>Subclasses can reduce samples as they are collected (e.g. filter or summarize them) by
+ * overriding process(float, float[]).</p>
+ * 
  * @author Bryan Tripp
  */
 public class ProbeImpl implements Probe, java.io.Serializable {
 	private static final long serialVersionUID = 1L;
 	
+	private static final int INITIAL_CAPACITY = 1000;
+	
 	private Probeable myTarget;
 	private String myStateName;
 	private boolean myRecord;
+	private transient Origin myOrigin; //read directly if not null
+	private transient VectorProbeable myVectorTarget; //read with getState() if not null
+	private transient float[] myStepValues; //reused for each sample read with getState() or from a subset
+	private int[] mySubset; //indices of recorded elements, or null to record all elements
 	private float[] myTimes;
-	private List<float[]> myValues;
+	private float[][] myColumns;
+	private int myStart; //slot of oldest sample
+	private int mySize;
+	private int myCapacity = -1; //fixed capacity of ring, or unbounded if <= 0
+	private boolean myShared; //true if the arrays are in use by a view from getData()
+	private long myRecordedCount; //samples recorded since reset()
+	private long myReadCount; //samples recorded before the last getNewData()
+	private boolean myCompressed;
+	private CompressedTimeSeries myCompressedData; //recorded samples if compressing, otherwise null
 	private Units[] myUnits;
 	private float mySamplingPeriod = -1;
 	private float myLastSampleTime = -100000;
@@ -67,6 +101,8 @@ public class ProbeImpl implements Probe, java.io.Serializable {
 		//if the state is bad, we want to throw an exception now
 		myTarget.getHistory(myStateName);  
 
+		myOrigin = findOrigin(target, stateName);
+		myVectorTarget = (myOrigin == null) ? findVectorTarget(target, stateName) : null;
 		reset();
 		
 		myProbeTask = new ProbeTask(target, this);
@@ -78,14 +114,144 @@ public class ProbeImpl implements Probe, java.io.Serializable {
 	public void connect(Probeable target, String stateName, boolean record) throws SimulationException {
 		connect(null, target, stateName, record);
 	}
+
+	//an Origin from which the state can be read directly, if there is one (and getHistory() isn't overridden)
+	private static Origin findOrigin(Probeable target, String stateName) {
+		if (target instanceof OriginProbeable) {
+			try {
+				Class<?> history = target.getClass().getMethod("getHistory", String.class).getDeclaringClass();
+				Class<?> probed = target.getClass().getMethod("getProbedOrigin", String.class).getDeclaringClass();
+				if (history.equals(probed)) {
+					Origin origin = ((OriginProbeable) target).getProbedOrigin(stateName);
+					if (origin != null && origin.getValues() instanceof RealOutput) {
+						return origin;
+					}
+				}
+			} catch (NoSuchMethodException e) {
+				throw new RuntimeException(e);
+			} catch (SimulationException e) {
+				//fall back on getHistory()
+			}
+		}
+		return null;
+	}
+
+	//the target, if its state can be copied with getState() (and getHistory() isn't overridden)
+	private static VectorProbeable findVectorTarget(Probeable target, String stateName) {
+		if (target instanceof VectorProbeable) {
+			try {
+				Class<?> history = target.getClass().getMethod("getHistory", String.class).getDeclaringClass();
+				Class<?> vector = target.getClass().getMethod("getStateDimension", String.class).getDeclaringClass();
+				if (history.equals(vector) && ((VectorProbeable) target).getStateDimension(stateName) > 0) {
+					return (VectorProbeable) target;
+				}
+			} catch (NoSuchMethodException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return Indices of the recorded elements of the state, or null if all elements are recorded
+	 */
+	public int[] getSubset() {
+		return (mySubset == null) ? null : mySubset.clone();
+	}
+
+	/**
+	 * @param indices Indices of the elements of the state to record, or null to record all elements
+	 * 		(the default). Collected samples are cleared.
+	 */
+	public void setSubset(int[] indices) {
+		mySubset = (indices == null) ? null : indices.clone();
+		reset();
+	}
+
+	/**
+	 * Records a fixed random subset of the elements of the state, e.g. a sample of neurons in a large
+	 * Ensemble. Collected samples are cleared.
+	 *
+	 * @param size Number of elements to record
+	 * @throws SimulationException if the probe isn't connected, or the state has fewer elements
+	 */
+	public void setRandomSubset(int size) throws SimulationException {
+		if (myTarget == null) {
+			throw new SimulationException("This Probe has not been connected to a Probeable");
+		}
+
+		int dimension = (myVectorTarget != null) ? myVectorTarget.getStateDimension(myStateName)
+				: myTarget.getHistory(myStateName).getDimension();
+		if (size > dimension) {
+			throw new SimulationException("Can't record " + size + " of " + dimension + " elements");
+		}
+
+		//Floyd's algorithm: a uniform sample that takes time and space proportional to its size
+		Set<Integer> selected = new HashSet<Integer>(size * 2);
+		for (int j = dimension - size; j < dimension; j++) {
+			Integer t = Integer.valueOf((int) (PDFTools.random() * (j+1)));
+			selected.add(selected.contains(t) ? Integer.valueOf(j) : t);
+		}
+
+		int[] indices = new int[size];
+		int i = 0;
+		for (Integer index : selected) {
+			indices[i++] = index.intValue();
+		}
+		Arrays.sort(indices);
+		setSubset(indices);
+	}
+
+	/**
+	 * @return Number of samples that are kept before the oldest are discarded, or -1 if all samples are kept
+	 */
+	public int getCapacity() {
+		return myCapacity;
+	}
+
+	/**
+	 * @param capacity Number of samples to keep before the oldest are discarded (all samples are kept if
+	 * 		this is <= 0, which is the default). Collected samples are cleared.
+	 */
+	public void setCapacity(int capacity) {
+		myCapacity = (capacity > 0) ? capacity : -1;
+		reset();
+	}
+
+	/**
+	 * @return True if recorded samples are kept in compressed form
+	 */
+	public boolean isCompressed() {
+		return myCompressed;
+	}
+
+	/**
+	 * @param compressed If true, recorded samples are kept in a CompressedTimeSeries. This has no
+	 * 		effect unless the probe records all samples (i.e. record is true and there is no capacity).
+	 * 		Collected samples are cleared.
+	 */
+	public void setCompressed(boolean compressed) {
+		myCompressed = compressed;
+		reset();
+	}
+
+	private boolean isCompressing() {
+		return myCompressed && myRecord && myCapacity <= 0;
+	}
 	
 	/**
 	 * @see ca.nengo.util.Probe#reset() 
 	 */
 	public void reset() {
 		myUnits = null; //will be reset on first doCollect()
-		myTimes = new float[1000];
-		myValues = new ArrayList<float[]>(1000);
+		myTimes = new float[(myCapacity > 0) ? myCapacity : INITIAL_CAPACITY];
+		myColumns = null; //allocated on first doCollect()
+		myStart = 0;
+		mySize = 0;
+		myShared = false;
+		myCompressedData = null;
+		myRecordedCount = 0;
+		myReadCount = 0;
 	}
 	
 	/**
@@ -94,70 +260,259 @@ public class ProbeImpl implements Probe, java.io.Serializable {
 	public void collect(float time) {
 		if (mySamplingPeriod > 0) { 
 			if (time >= myLastSampleTime + mySamplingPeriod) {
-				doCollect();
+				doCollect(time);
 				myLastSampleTime = time;
 			}
 		} else {
-			doCollect();
+			doCollect(time);
 		}
 	}
 	
-	private void doCollect() {
+	private void doCollect(float time) {
 		if (myTarget == null) {
 			throw new IllegalStateException("This Recorder has not been connected to a Probeable");
 		}
 		
-		TimeSeries stepData;
-		try {
-			stepData = myTarget.getHistory(myStateName);
-		} catch (SimulationException e) {
-			throw new RuntimeException("Target appears not to have the state " 
-					+ myStateName + ", although this problem should have been detected on connect()", e);
+		if (!myRecord) {
+			clear();
 		}
 		
-		float[] times = stepData.getTimes();
-		float[][] values = stepData.getValues();
-		int len = times.length;		
-		
-		if (myRecord) {
-			if (myValues.size() + len >= myTimes.length) {
-				grow();
-			}		
-			System.arraycopy(times, 0, myTimes, myValues.size(), len); //don't move this to after the values update			
+		if (myOrigin != null) {
+			InstantaneousOutput output;
+			try {
+				output = myOrigin.getValues();
+			} catch (SimulationException e) {
+				throw new RuntimeException("Can't read origin " + myOrigin.getName(), e);
+			}
+			float[] values = select(((RealOutput) output).getValues());
+			checkDimension(values.length);
+			if (myUnits == null) {
+				myUnits = Units.uniform(output.getUnits(), values.length);
+			}
+			process(time, values);
+		} else if (myVectorTarget != null) {
+			int dimension = (mySubset == null) ? myVectorTarget.getStateDimension(myStateName) : mySubset.length;
+			if (myStepValues == null || myStepValues.length != dimension) {
+				myStepValues = new float[dimension];
+			}
+
+			float stateTime;
+			try {
+				stateTime = myVectorTarget.getState(myStateName, mySubset, myStepValues, 0);
+				checkDimension(dimension);
+				if (myUnits == null) {
+					myUnits = select(myTarget.getHistory(myStateName).getUnits());
+				}
+			} catch (SimulationException e) {
+				throw new RuntimeException("Can't read state " + myStateName, e);
+			}
+			if (!Float.isNaN(stateTime)) {
+				process(stateTime, myStepValues);
+			}
 		} else {
-			myTimes = times;
-			myValues = new ArrayList<float[]>(10);
+			TimeSeries stepData;
+			try {
+				stepData = myTarget.getHistory(myStateName);
+			} catch (SimulationException e) {
+				throw new RuntimeException("Target appears not to have the state " 
+						+ myStateName + ", although this problem should have been detected on connect()", e);
+			}
+			
+			checkDimension((mySubset == null) ? stepData.getDimension() : mySubset.length);
+			if (myUnits == null) {
+				myUnits = select(stepData.getUnits());
+			}
+			float[] times = stepData.getTimes();
+			float[][] values = stepData.getValues();
+			for (int i = 0; i < times.length; i++) {
+				process(times[i], select(values[i]));
+			}
+		}
+	}
+	
+	//the subset of the given state values that is recorded (in a reused array)
+	private float[] select(float[] values) {
+		if (mySubset == null) {
+			return values;
+		}
+		if (myStepValues == null || myStepValues.length != mySubset.length) {
+			myStepValues = new float[mySubset.length];
+		}
+		for (int i = 0; i < mySubset.length; i++) {
+			myStepValues[i] = values[mySubset[i]];
+		}
+		return myStepValues;
+	}
+
+	private Units[] select(Units[] units) {
+		if (mySubset == null) {
+			return units;
+		}
+		Units[] result = new Units[mySubset.length];
+		for (int i = 0; i < mySubset.length; i++) {
+			result[i] = units[mySubset[i]];
+		}
+		return result;
+	}
+
+	//starts over if the dimension of the state has changed (e.g. the target has been resized)
+	private void checkDimension(int dimension) {
+		if ((myColumns != null && myColumns.length != dimension)
+				|| (myCompressedData != null && myCompressedData.getDimension() != dimension)) {
+			reset();
+		}
+	}
+	
+	/**
+	 * Called with each sample of the probed state as it is collected. This implementation records the
+	 * sample.
+	 * 
+	 * @param time Time of the sample
+	 * @param values Values of the recorded elements of the state (the array may be reused, so it
+	 * 		shouldn't be modified or kept)
+	 */
+	protected void process(float time, float[] values) {
+		record(time, values);
+	}
+	
+	/**
+	 * Discards recorded samples (without disturbing any TimeSeries returned by getData()).
+	 */
+	protected final void clear() {
+		if (myShared) {
+			myTimes = new float[myTimes.length];
+			myColumns = null;
+			myShared = false;
+		}
+		myStart = 0;
+		mySize = 0;
+		myCompressedData = null;
+	}
+	
+	/**
+	 * Stores a sample, to be returned by getData().
+	 * 
+	 * @param time Time of the sample
+	 * @param values Values of the recorded elements of the state (copied)
+	 */
+	protected final void record(float time, float[] values) {
+		myRecordedCount++;
+		if (isCompressing()) {
+			if (myCompressedData == null) {
+				myCompressedData = new CompressedTimeSeries(
+						(myUnits == null) ? Units.uniform(Units.UNK, values.length) : myUnits);
+			}
+			myCompressedData.append(time, values);
+			return;
+		}
+
+		if (myColumns == null) {
+			myColumns = new float[values.length][myTimes.length];
 		}
 		
-		for (int i = 0; i < len; i++) {
-			myValues.add(values[i]);
+		if (mySize == myTimes.length) {
+			if (myCapacity > 0) { //overwrite oldest
+				if (myShared) {
+					copyArrays(myTimes.length);
+				}
+				myStart = (myStart + 1 == myTimes.length) ? 0 : myStart + 1;
+				mySize--;
+			} else {
+				copyArrays(2 * myTimes.length);
+			}
 		}
 		
-		if (myUnits == null) {
-			myUnits = stepData.getUnits();
+		int slot = myStart + mySize;
+		if (slot >= myTimes.length) {
+			slot -= myTimes.length;
 		}
+		myTimes[slot] = time;
+		for (int j = 0; j < myColumns.length; j++) {
+			myColumns[j][slot] = values[j];
+		}
+		mySize++;
 	}
 	
-	private void grow() {
-		float[] newTimes = new float[myTimes.length + 1000];
-		System.arraycopy(myTimes, 0, newTimes, 0, myTimes.length);
-		myTimes = newTimes;
+	//moves samples into new arrays (oldest first)
+	private void copyArrays(int capacity) {
+		myTimes = unroll(myTimes, capacity);
+		for (int j = 0; j < myColumns.length; j++) {
+			myColumns[j] = unroll(myColumns[j], capacity);
+		}
+		myStart = 0;
+		myShared = false;
+	}
+	
+	private float[] unroll(float[] ring, int capacity) {
+		float[] result = new float[capacity];
+		int first = Math.min(mySize, ring.length - myStart);
+		System.arraycopy(ring, myStart, result, 0, first);
+		System.arraycopy(ring, 0, result, first, mySize - first);
+		return result;
 	}
 	
 	/**
 	 * @see ca.nengo.util.Probe#getData()
 	 */
 	public TimeSeries getData() {
-		float[] times = new float[myValues.size()];
-		System.arraycopy(myTimes, 0, times, 0, myValues.size());
-		
-		float[][] values = myValues.toArray(new float[0][]);
+		if (myCompressedData != null) {
+			CompressedTimeSeries result = myCompressedData.snapshot();
+			result.setName(getDataName());
+			return result;
+		}
+
+		Units[] units = (myUnits == null) ? new Units[]{Units.UNK} : myUnits;
+		float[][] columns = (myColumns == null) ? new float[units.length][myTimes.length] : myColumns;
+		myShared = true;
 		
-		TimeSeriesImpl result = new TimeSeriesImpl(times, values, (myUnits == null) ? new Units[]{Units.UNK} : myUnits);
-		result.setName(((myTarget instanceof Node) ? ((Node) myTarget).getName()+":" : "") + myStateName);
+		ColumnarTimeSeries result = new ColumnarTimeSeries(myTimes, columns, myStart, mySize, units);
+		result.setName(getDataName());
 		return result;
 	}
 
+	/**
+	 * Unlike getData(), this copies only new samples, and doesn't share the probe's arrays (which
+	 * would then be copied as more samples were recorded), so it is cheap to call after every step.
+	 * The probe doesn't need to keep its whole history for this: samples are returned as long as
+	 * they haven't yet been discarded (see setCapacity(int) and connect(...) with record false).
+	 *
+	 * @return A copy of the samples recorded since the last call (or since reset()) that are still
+	 * 		held by the probe, oldest first
+	 */
+	public TimeSeries getNewData() {
+		int held = (myCompressedData != null) ? myCompressedData.getLength() : mySize;
+		int length = (int) Math.min(myRecordedCount - myReadCount, held);
+		myReadCount = myRecordedCount;
+
+		int dimension = (myCompressedData != null) ? myCompressedData.getDimension()
+				: (myColumns != null) ? myColumns.length : (myUnits != null) ? myUnits.length : 1;
+		Units[] units = (myUnits != null && myUnits.length == dimension) ? myUnits : Units.uniform(Units.UNK, dimension);
+		float[] times = new float[length];
+		float[][] columns = new float[dimension][length];
+		if (myCompressedData != null) {
+			myCompressedData.copySamples(held - length, times, columns);
+		} else {
+			int slot = myStart + mySize - length;
+			for (int i = 0; i < length; i++, slot++) {
+				if (slot >= myTimes.length) {
+					slot -= myTimes.length;
+				}
+				times[i] = myTimes[slot];
+				for (int j = 0; j < dimension; j++) {
+					columns[j][i] = myColumns[j][slot];
+				}
+			}
+		}
+
+		ColumnarTimeSeries result = new ColumnarTimeSeries(times, columns, 0, length, units);
+		result.setName(getDataName());
+		return result;
+	}
+
+	private String getDataName() {
+		return ((myTarget instanceof Node) ? ((Node) myTarget).getName()+":" : "") + myStateName;
+	}
+
 	/**
 	 * @see ca.nengo.util.Probe#setSamplingRate(float)
 	 */
@@ -0,0 +1,225 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "QuasiRandomHypersphereVG.java". Description:
+"Generates quasi-random (low-discrepancy) vectors distributed on or in a hypersphere"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.util.impl;
+
+import ca.nengo.math.PDFTools;
+import ca.nengo.util.VectorGenerator;
+
+/**
+ * <p>Generates quasi-random vectors distributed on or in a hypersphere. Points of a Halton
+ * sequence are mapped through the inverse normal CDF to directions, and (in the volume) one more
+ * Halton coordinate gives the distance from the centre. The result covers the hypersphere more
+ * evenly than pseudo-random vectors, so that fewer evaluation points are needed for the same
+ * decoding accuracy.</p>
+ *
+ * <p>The sequence is shifted by a random amount in each coordinate (taken from PDFTools) when it
+ * starts, and successive calls to genVectors(...) continue the same sequence, so that a set of
+ * vectors can be grown in batches without losing its evenness.</p>
+ *
+ * @author agent
+ */
+public class QuasiRandomHypersphereVG implements VectorGenerator, java.io.Serializable {
+	private static final long serialVersionUID = 1L;
+
+	//coefficients of the inverse normal CDF approximation
+	private static final double[] A = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+		1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+	private static final double[] B = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+		6.680131188771972e+01, -1.328068155288572e+01};
+	private static final double[] C = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+		-2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+	private static final double[] D = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+		3.754408661907416e+00};
+	private static final double P_LOW = 0.02425;
+
+	private boolean mySurface;
+	private float myRadius;
+	private int[] myBases;
+	private double[] myShifts;
+	private int myIndex;
+
+	/**
+	 * @param surface If true, vectors are generated on surface of hypersphere; if false, throughout
+	 * 		volume of hypersphere
+	 * @param radius Radius of hypersphere
+	 */
+	public QuasiRandomHypersphereVG(boolean surface, float radius) {
+		setOnSurface(surface);
+		setRadius(radius);
+	}
+
+	/**
+	 * Uses default settings (on surface; radius 1)
+	 */
+	public QuasiRandomHypersphereVG() {
+		this(true, 1);
+	}
+
+	/**
+	 * @return True if generated vectors are on surface of hypersphere
+	 */
+	public boolean getOnSurface() {
+		return mySurface;
+	}
+
+	/**
+	 * @param onSurface True if generated vectors are on surface of hypersphere
+	 */
+	public void setOnSurface(boolean onSurface) {
+		mySurface = onSurface;
+		restart();
+	}
+
+	/**
+	 * @return Radius of hypersphere
+	 */
+	public float getRadius() {
+		return myRadius;
+	}
+
+	/**
+	 * @param radius Radius of hypersphere
+	 */
+	public void setRadius(float radius) {
+		if (radius <= 0) {
+			throw new IllegalArgumentException(radius + " is not a valid radius (must be > 0)");
+		}
+		myRadius = radius;
+	}
+
+	/**
+	 * Starts a new sequence (with new random shifts) at the next call to genVectors(...).
+	 */
+	public void restart() {
+		myBases = null;
+	}
+
+	/**
+	 * @see ca.nengo.util.VectorGenerator#genVectors(int, int)
+	 */
+	public synchronized float[][] genVectors(int number, int dimension) {
+		int coordinates = (mySurface || dimension == 1) ? dimension : dimension + 1;
+		if (myBases == null || myBases.length != coordinates) {
+			myBases = getPrimes(coordinates);
+			myShifts = new double[coordinates];
+			for (int j = 0; j < coordinates; j++) {
+				myShifts[j] = PDFTools.random();
+			}
+			myIndex = 1;
+		}
+
+		float[][] result = new float[number][];
+		double[] u = new double[coordinates];
+		for (int i = 0; i < number; i++, myIndex++) {
+			for (int j = 0; j < coordinates; j++) {
+				u[j] = radicalInverse(myIndex, myBases[j]) + myShifts[j];
+				if (u[j] >= 1) {
+					u[j] -= 1;
+				}
+			}
+			result[i] = (dimension == 1) ? genScalar(u[0]) : genVector(u, dimension);
+		}
+
+		return result;
+	}
+
+	private float[] genScalar(double u) {
+		if (mySurface) {
+			return new float[]{u < .5 ? -myRadius : myRadius};
+		} else {
+			return new float[]{(float) (2 * u - 1) * myRadius};
+		}
+	}
+
+	private float[] genVector(double[] u, int dimension) {
+		double[] direction = new double[dimension];
+		double normSquared = 0;
+		for (int j = 0; j < dimension; j++) {
+			direction[j] = inverseNormalCDF(u[j]);
+			normSquared += direction[j] * direction[j];
+		}
+
+		double scale = myRadius / Math.sqrt(normSquared);
+		if (!mySurface) {
+			scale *= Math.pow(u[dimension], 1d / dimension);
+		}
+
+		float[] result = new float[dimension];
+		for (int j = 0; j < dimension; j++) {
+			result[j] = (float) (direction[j] * scale);
+		}
+		return result;
+	}
+
+	// @return The index with its base-b digits reflected about the radix point
+	private static double radicalInverse(int index, int base) {
+		double result = 0;
+		double f = 1d / base;
+		for (int i = index; i > 0; i /= base) {
+			result += f * (i % base);
+			f /= base;
+		}
+		return result;
+	}
+
+	// @return The first n primes
+	private static int[] getPrimes(int n) {
+		int[] result = new int[n];
+		int count = 0;
+		for (int candidate = 2; count < n; candidate++) {
+			boolean prime = true;
+			for (int i = 0; i < count && result[i] * result[i] <= candidate; i++) {
+				if (candidate % result[i] == 0) {
+					prime = false;
+					break;
+				}
+			}
+			if (prime) {
+				result[count++] = candidate;
+			}
+		}
+		return result;
+	}
+
+	// Acklam's rational approximation (relative error < 1.2e-9)
+	private static double inverseNormalCDF(double p) {
+		p = Math.min(Math.max(p, 1e-12), 1 - 1e-12);
+		if (p < P_LOW) {
+			double q = Math.sqrt(-2 * Math.log(p));
+			return (((((C[0]*q+C[1])*q+C[2])*q+C[3])*q+C[4])*q+C[5]) / ((((D[0]*q+D[1])*q+D[2])*q+D[3])*q+1);
+		} else if (p > 1 - P_LOW) {
+			double q = Math.sqrt(-2 * Math.log(1 - p));
+			return -(((((C[0]*q+C[1])*q+C[2])*q+C[3])*q+C[4])*q+C[5]) / ((((D[0]*q+D[1])*q+D[2])*q+D[3])*q+1);
+		} else {
+			double q = p - .5;
+			double r = q * q;
+			return (((((A[0]*r+A[1])*r+A[2])*r+A[3])*r+A[4])*r+A[5])*q / (((((B[0]*r+B[1])*r+B[2])*r+B[3])*r+B[4])*r+1);
+		}
+	}
+
+}
@@ -27,76 +27,187 @@ a recipient may use your version of this file under either the MPL or the GPL Li
  */
 package ca.nengo.util.impl;
 
-import ca.nengo.util.MU;
+import java.util.Arrays;
+
 import ca.nengo.util.SpikePattern;
 
 /**
- * Default implementation of SpikePattern. 
- * 
+ * <p>Default implementation of SpikePattern.</p>
+ *
+ * <p>Spikes are appended as (neuron, time) events to a single byte log, so that memory is
+ * proportional to the number of spikes rather than the number of neurons. Each event is encoded
+ * as the change in neuron index from the previous event, and (only if the time has changed) the
+ * change in time, both as variable-length integers. Spikes in the same time step therefore cost
+ * one to three bytes each. Per-neuron spike times are built from the log when they are first
+ * requested.</p>
+ *
  * @author Bryan Tripp
  */
 public class SpikePatternImpl implements SpikePattern {
 
-	private static final long serialVersionUID = 1L;
-	
-	int[] myIndices;
-	float[][] mySpikeTimes;
-	
+	private static final long serialVersionUID = 2L;
+
+	private final int myNumNeurons;
+	private byte[] myLog;
+	private int myLogLength;
+	private int myNumSpikes;
+	private int myLastNeuron;
+	private int myLastTime; //time of the last spike, as an ordered int (see toOrdered())
+
+	//per-neuron view of the log: spike times of neuron i are myViewTimes[myViewOffsets[i]...myViewOffsets[i+1]-1]
+	private transient int[] myViewOffsets;
+	private transient float[] myViewTimes;
+
 	/**
 	 * @param neurons Number of neurons in the Ensemble that this SpikePattern belongs to
 	 */
 	public SpikePatternImpl(int neurons) {
-		myIndices = new int[neurons];
-		
-		mySpikeTimes = new float[neurons][];		
-		for (int i = 0; i < neurons; i++) {
-			mySpikeTimes[i] = new float[100];
-		}
+		myNumNeurons = neurons;
+		myLog = new byte[64];
 	}
-	
+
 	/**
 	 * @param neuron Index of neuron
 	 * @param time Spike time
 	 */
-	public void addSpike(int neuron, float time) {
-		if (myIndices[neuron] == mySpikeTimes[neuron].length) {
-			mySpikeTimes[neuron] = expand(mySpikeTimes[neuron]);
+	public synchronized void addSpike(int neuron, float time) {
+		if (neuron < 0 || neuron >= myNumNeurons) {
+			throw new IndexOutOfBoundsException("Neuron index " + neuron + " is out of range (0-" + (myNumNeurons-1) + ")");
 		}
-		
-		mySpikeTimes[neuron][myIndices[neuron]++] = time;
+
+		int orderedTime = toOrdered(time);
+		boolean timeChanged = (myNumSpikes == 0 || orderedTime != myLastTime);
+
+		if (myLog.length - myLogLength < 20) {
+			myLog = Arrays.copyOf(myLog, Math.round((float) myLog.length * 1.5f) + 20); //grow by 50%
+		}
+		putVarLong((zigZag((long) neuron - myLastNeuron) << 1) | (timeChanged ? 1 : 0));
+		if (timeChanged) {
+			putVarLong(zigZag((long) orderedTime - myLastTime));
+		}
+
+		myLastNeuron = neuron;
+		myLastTime = orderedTime;
+		myNumSpikes++;
+		myViewOffsets = null;
+		myViewTimes = null;
 	}
 
 	/**
 	 * @see ca.nengo.util.SpikePattern#getNumNeurons()
 	 */
 	public int getNumNeurons() {
-		return myIndices.length;
+		return myNumNeurons;
+	}
+
+	/**
+	 * @return Total number of spikes of all neurons
+	 */
+	public synchronized int getNumSpikes() {
+		return myNumSpikes;
 	}
 
 	/**
 	 * @see ca.nengo.util.SpikePattern#getSpikeTimes(int)
 	 */
-	public float[] getSpikeTimes(int neuron) {
-		return contract(mySpikeTimes[neuron], myIndices[neuron]);
+	public synchronized float[] getSpikeTimes(int neuron) {
+		if (myViewOffsets == null) {
+			buildView();
+		}
+		return Arrays.copyOfRange(myViewTimes, myViewOffsets[neuron], myViewOffsets[neuron+1]);
 	}
-	
-	private static float[] expand(float[] list) {
-		float[] result = new float[Math.round((float) list.length * 1.5f)]; //grow by 50%
-		System.arraycopy(list, 0, result, 0, list.length);
-		return result;
+
+	/**
+	 * Copies spikes in the order they were added, as parallel lists of neuron indices and times
+	 * (a sparse alternative to getSpikeTimes() for each neuron).
+	 *
+	 * @param neurons Array into which to copy neuron index of each spike
+	 * @param times Array into which to copy time of each spike
+	 * @return Number of spikes copied (the number of spikes, or the length of the shorter array
+	 * 		if it is shorter)
+	 */
+	public synchronized int getEvents(int[] neurons, float[] times) {
+		int n = Math.min(myNumSpikes, Math.min(neurons.length, times.length));
+		int[] position = new int[1];
+		int neuron = 0;
+		int time = 0;
+		for (int i = 0; i < n; i++) {
+			long head = getVarLong(position);
+			neuron += (int) unZigZag(head >>> 1);
+			if ((head & 1) != 0) {
+				time += (int) unZigZag(getVarLong(position));
+			}
+			neurons[i] = neuron;
+			times[i] = fromOrdered(time);
+		}
+		return n;
 	}
-	
-	private static float[] contract(float[] list, int index) {
-		float[] result = new float[index];
-		System.arraycopy(list, 0, result, 0, index);
+
+	private void buildView() {
+		int[] neurons = new int[myNumSpikes];
+		float[] times = new float[myNumSpikes];
+		getEvents(neurons, times);
+
+		int[] offsets = new int[myNumNeurons + 1];
+		for (int i = 0; i < myNumSpikes; i++) {
+			offsets[neurons[i] + 1]++;
+		}
+		for (int i = 0; i < myNumNeurons; i++) {
+			offsets[i+1] += offsets[i];
+		}
+
+		float[] viewTimes = new float[myNumSpikes];
+		int[] next = Arrays.copyOf(offsets, myNumNeurons);
+		for (int i = 0; i < myNumSpikes; i++) {
+			viewTimes[next[neurons[i]]++] = times[i];
+		}
+
+		myViewOffsets = offsets;
+		myViewTimes = viewTimes;
+	}
+
+	private void putVarLong(long value) {
+		while ((value & ~0x7FL) != 0) {
+			myLog[myLogLength++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		myLog[myLogLength++] = (byte) value;
+	}
+
+	private long getVarLong(int[] position) {
+		long result = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = myLog[position[0]++];
+			result |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
 		return result;
 	}
 
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	//maps float bits to ints that are ordered in the same way as the floats, so that deltas are small
+	private static int toOrdered(float time) {
+		int bits = Float.floatToIntBits(time);
+		return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+	}
+
+	private static float fromOrdered(int ordered) {
+		return Float.intBitsToFloat(ordered ^ ((ordered >> 31) & 0x7FFFFFFF));
+	}
+
 	@Override
-	public SpikePattern clone() throws CloneNotSupportedException {
+	public synchronized SpikePattern clone() throws CloneNotSupportedException {
 		SpikePatternImpl result = (SpikePatternImpl) super.clone();
-		result.myIndices = myIndices.clone();
-		result.mySpikeTimes = MU.clone(mySpikeTimes);
+		result.myLog = Arrays.copyOf(myLog, myLogLength);
 		return result;
 	}
 
@@ -0,0 +1,268 @@
+/*
+The contents of this file are subject to the Mozilla Public License Version 1.1
+(the "License"); you may not use this file except in compliance with the License.
+You may obtain a copy of the License at http://www.mozilla.org/MPL/
+
+Software distributed under the License is distributed on an "AS IS" basis, WITHOUT
+WARRANTY OF ANY KIND, either express or implied. See the License for the specific
+language governing rights and limitations under the License.
+
+The Original Code is "StatisticsProbe.java". Description:
+"A Probe that keeps running statistics of a state rather than its samples"
+
+The Initial Developer of the Original Code is Bryan Tripp & Centre for Theoretical Neuroscience, University of Waterloo. Copyright (C) 2006-2008. All Rights Reserved.
+
+Alternatively, the contents of this file may be used under the terms of the GNU
+Public License license (the GPL License), in which case the provisions of GPL
+License are applicable  instead of those above. If you wish to allow use of your
+version of this file only under the terms of the GPL License and not to allow
+others to use your version of this file under the MPL, indicate your decision
+by deleting the provisions above and replace  them with the notice and other
+provisions required by the GPL License.  If you do not delete the provisions above,
+a recipient may use your version of this file under either the MPL or the GPL License.
+*/
+
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.util.impl;
+
+import ca.nengo.util.TimeSeries;
+
+/**
+ * <p>A Probe that keeps running statistics of each recorded element of a state (count, mean,
+ * variance, minimum and maximum), and optionally a histogram of all values, instead of the samples
+ * themselves, so that memory doesn't grow with the length of a run.</p>
+ *
+ * <p>If a window is set, one sample is recorded per window, which is the mean of each element over
+ * the window, or the mean times the window length (e.g. the number of spikes in the window, if
+ * the state is a spike rate). Otherwise getData() returns a single sample: the running mean at
+ * the time of the last collected sample.</p>
+ *
+ * @author agent
+ */
+public class StatisticsProbe extends ProbeImpl {
+
+	private static final long serialVersionUID = 1L;
+
+	private float myWindow;
+	private boolean myIntegrate;
+	private float myHistogramMin;
+	private float myHistogramMax;
+	private int myHistogramBins;
+
+	private transient long myCount;
+	private transient double[] myMean;
+	private transient double[] mySquaredDeviations; //sum of squared deviations from mean (Welford)
+	private transient float[] myMin;
+	private transient float[] myMax;
+	private transient long[] myHistogram;
+	private transient float myLastTime;
+
+	private transient float myWindowEnd;
+	private transient int myWindowCount;
+	private transient float[] myWindowSums;
+
+	/**
+	 * @return Length of windows over which a sample is recorded (0 if there are no windows)
+	 */
+	public float getWindow() {
+		return myWindow;
+	}
+
+	/**
+	 * @return True if windowed samples are the mean times the window length (rather than the mean)
+	 */
+	public boolean getIntegrate() {
+		return myIntegrate;
+	}
+
+	/**
+	 * Collected statistics and samples are cleared.
+	 *
+	 * @param length Length of windows over which a sample is recorded (0 for no windows). Windows
+	 * 		start at time 0.
+	 * @param integrate If true, each windowed sample is the mean times the window length (e.g. the
+	 * 		number of spikes in the window, if the state is a spike rate), otherwise the mean
+	 */
+	public void setWindow(float length, boolean integrate) {
+		if (length < 0) {
+			throw new IllegalArgumentException("Window length can't be negative");
+		}
+		myWindow = length;
+		myIntegrate = integrate;
+		reset();
+	}
+
+	/**
+	 * Sets up a histogram of all values of all elements (e.g. of the firing rates of neurons in
+	 * a population). Values outside the range are counted in the first or last bin. Collected
+	 * statistics and samples are cleared.
+	 *
+	 * @param min Lower edge of the first bin
+	 * @param max Upper edge of the last bin
+	 * @param bins Number of bins (0 for no histogram)
+	 */
+	public void setHistogram(float min, float max, int bins) {
+		if (bins < 0 || (bins > 0 && !(max > min))) {
+			throw new IllegalArgumentException("Histogram needs a positive number of bins and max > min");
+		}
+		myHistogramMin = min;
+		myHistogramMax = max;
+		myHistogramBins = bins;
+		reset();
+	}
+
+	/**
+	 * @see ca.nengo.util.impl.ProbeImpl#reset()
+	 */
+	@Override
+	public void reset() {
+		super.reset();
+		myCount = 0;
+		myMean = null;
+		mySquaredDeviations = null;
+		myMin = null;
+		myMax = null;
+		myHistogram = (myHistogramBins > 0) ? new long[myHistogramBins] : null;
+		myWindowSums = null;
+		myWindowCount = 0;
+	}
+
+	/**
+	 * @return Number of samples collected since the last reset
+	 */
+	public long getCount() {
+		return myCount;
+	}
+
+	/**
+	 * @return Mean of each element over collected samples (null if there are none)
+	 */
+	public float[] getMean() {
+		return (myMean == null) ? null : toFloat(myMean, 1);
+	}
+
+	/**
+	 * @return Sample variance of each element over collected samples (null if there are none)
+	 */
+	public float[] getVariance() {
+		return (mySquaredDeviations == null) ? null : toFloat(mySquaredDeviations, 1d / Math.max(1, myCount - 1));
+	}
+
+	/**
+	 * @return Minimum of each element over collected samples (null if there are none)
+	 */
+	public float[] getMin() {
+		return (myMin == null) ? null : myMin.clone();
+	}
+
+	/**
+	 * @return Maximum of each element over collected samples (null if there are none)
+	 */
+	public float[] getMax() {
+		return (myMax == null) ? null : myMax.clone();
+	}
+
+	/**
+	 * @return Number of values in each histogram bin (null if there is no histogram)
+	 */
+	public long[] getHistogram() {
+		return (myHistogram == null) ? null : myHistogram.clone();
+	}
+
+	private static float[] toFloat(double[] values, double scale) {
+		float[] result = new float[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = (float) (values[i] * scale);
+		}
+		return result;
+	}
+
+	/**
+	 * Updates statistics with the sample, and records a windowed sample if the sample is past the
+	 * end of the current window.
+	 *
+	 * @see ca.nengo.util.impl.ProbeImpl#process(float, float[])
+	 */
+	@Override
+	protected void process(float time, float[] values) {
+		if (myMean == null || myMean.length != values.length) {
+			myCount = 0;
+			myMean = new double[values.length];
+			mySquaredDeviations = new double[values.length];
+			myMin = values.clone();
+			myMax = values.clone();
+			myWindowSums = null;
+		}
+
+		myCount++;
+		for (int j = 0; j < values.length; j++) {
+			double delta = values[j] - myMean[j];
+			myMean[j] += delta / myCount;
+			mySquaredDeviations[j] += delta * (values[j] - myMean[j]);
+			if (values[j] < myMin[j]) {
+				myMin[j] = values[j];
+			}
+			if (values[j] > myMax[j]) {
+				myMax[j] = values[j];
+			}
+		}
+		myLastTime = time;
+
+		if (myHistogram != null) {
+			float binWidth = (myHistogramMax - myHistogramMin) / myHistogramBins;
+			for (int j = 0; j < values.length; j++) {
+				int bin = (int) Math.floor((values[j] - myHistogramMin) / binWidth);
+				myHistogram[Math.max(0, Math.min(myHistogramBins - 1, bin))]++;
+			}
+		}
+
+		if (myWindow > 0) {
+			processWindow(time, values);
+		}
+	}
+
+	//samples at times up to (and very slightly past) the end of a window belong to it
+	private void processWindow(float time, float[] values) {
+		float tolerance = myWindow * 1e-4f;
+		if (myWindowSums == null) {
+			myWindowSums = new float[values.length];
+			myWindowEnd = myWindow * (float) Math.ceil((time - tolerance) / myWindow);
+			myWindowCount = 0;
+		} else if (time > myWindowEnd + tolerance) {
+			if (myWindowCount > 0) {
+				float scale = (myIntegrate ? myWindow : 1f) / myWindowCount;
+				for (int j = 0; j < myWindowSums.length; j++) {
+					myWindowSums[j] *= scale;
+				}
+				record(myWindowEnd, myWindowSums);
+			}
+			myWindowEnd = myWindow * (float) Math.ceil((time - tolerance) / myWindow);
+			myWindowCount = 0;
+			for (int j = 0; j < myWindowSums.length; j++) {
+				myWindowSums[j] = 0;
+			}
+		}
+
+		for (int j = 0; j < values.length; j++) {
+			myWindowSums[j] += values[j];
+		}
+		myWindowCount++;
+	}
+
+	/**
+	 * @return Windowed samples if there is a window, otherwise the running mean at the time of the
+	 * 		last collected sample
+	 * @see ca.nengo.util.impl.ProbeImpl#getData()
+	 */
+	@Override
+	public TimeSeries getData() {
+		if (myWindow <= 0 && myMean != null) {
+			clear();
+			record(myLastTime, getMean());
+		}
+		return super.getData();
+	}
+
+}
@@ -3,8 +3,12 @@
  */
 package ca.nengo.io;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Random;
 
 import ca.nengo.TestUtil;
 import ca.nengo.io.DelimitedFileExporter;
@@ -82,4 +86,82 @@ public class DelimitedFileExporterTest extends TestCase {
 		TestUtil.assertClose(matrix[1][1], imported[1][1], .0000000000001f);
 	}
 
+	public void testExportLarge() throws IOException {
+		Random random = new Random(1);
+		float[][] matrix = new float[5000][];
+		for (int i = 0; i < matrix.length; i++) {
+			matrix[i] = new float[1 + random.nextInt(100)];
+			for (int j = 0; j < matrix[i].length; j++) {
+				matrix[i][j] = (float) random.nextGaussian() * (float) Math.pow(10, random.nextInt(20) - 10);
+			}
+		}
+		matrix[7] = new float[0];
+		matrix[8] = new float[]{Float.NaN, Float.NEGATIVE_INFINITY, -0f, Float.MIN_VALUE, Float.MAX_VALUE};
+
+		myExporter = new DelimitedFileExporter("\t", "\n");
+		myExporter.export(matrix, myFile);
+
+		//same text as String.valueOf()
+		BufferedReader reader = new BufferedReader(new FileReader(myFile));
+		for (int i = 0; i < 10; i++) {
+			StringBuilder expected = new StringBuilder();
+			for (int j = 0; j < matrix[i].length; j++) {
+				expected.append(j > 0 ? "\t" : "").append(String.valueOf(matrix[i][j]));
+			}
+			assertEquals(expected.toString(), reader.readLine());
+		}
+		reader.close();
+
+		float[][] imported = myExporter.importAsMatrix(myFile);
+		assertEquals(matrix.length, imported.length);
+		for (int i = 0; i < matrix.length; i++) {
+			assertEquals(matrix[i].length, imported[i].length);
+			for (int j = 0; j < matrix[i].length; j++) {
+				assertEquals(Float.floatToIntBits(matrix[i][j]), Float.floatToIntBits(imported[i][j]));
+			}
+		}
+	}
+
+	public void testImportAsMatrix() throws IOException {
+		FileWriter writer = new FileWriter(myFile);
+		writer.write("1,2;3\r\n\r\n 4 :\t5e-1\n\n-.25E+2\r6.");
+		writer.close();
+
+		float[][] imported = myExporter.importAsMatrix(myFile);
+		assertEquals(6, imported.length);
+		assertEquals(3, imported[0].length);
+		assertEquals(3f, imported[0][2], 0f);
+		assertEquals(0, imported[1].length);
+		assertEquals(2, imported[2].length);
+		assertEquals(.5f, imported[2][1], 0f);
+		assertEquals(0, imported[3].length);
+		assertEquals(-25f, imported[4][0], 0f);
+		assertEquals(6f, imported[5][0], 0f);
+	}
+
+	public void testParseFloat() {
+		Random random = new Random(2);
+		for (int i = 0; i < 100000; i++) {
+			String text;
+			switch (i % 3) {
+			case 0:
+				text = String.valueOf(Float.intBitsToFloat(random.nextInt()));
+				break;
+			case 1:
+				text = String.valueOf(random.nextDouble() * Math.pow(10, random.nextInt(60) - 30));
+				break;
+			default:
+				text = (random.nextInt(2000000) - 1000000) + "." + random.nextInt(1000) + "e" + (random.nextInt(20) - 10);
+			}
+			byte[] chars = text.getBytes();
+			assertEquals(text, Float.floatToIntBits(Float.parseFloat(text)),
+					Float.floatToIntBits(DelimitedFileExporter.parseFloat(chars, chars.length)));
+		}
+
+		try {
+			DelimitedFileExporter.parseFloat("1.2.3".getBytes(), 5);
+			fail("Should have thrown exception");
+		} catch (NumberFormatException e) {} //exception is expected
+	}
+
 }
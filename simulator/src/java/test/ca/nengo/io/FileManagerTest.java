@@ -0,0 +1,217 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import ca.nengo.math.Function;
+import ca.nengo.math.impl.IdentityFunction;
+import ca.nengo.model.StructuralException;
+import ca.nengo.model.nef.NEFEnsemble;
+import ca.nengo.model.nef.impl.DecodedOrigin;
+import ca.nengo.model.nef.impl.NEFEnsembleFactoryImpl;
+import ca.nengo.model.neuron.Neuron;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for FileManager (and ModelFileWriter and ModelFileReader, which it uses).
+ *
+ * @author agent
+ */
+public class FileManagerTest extends TestCase {
+
+	private File myFile;
+	private FileManager myManager;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		myFile = File.createTempFile("model", "." + FileManager.ENSEMBLE_EXTENSION);
+		myManager = new FileManager();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		myFile.delete();
+		super.tearDown();
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.FileManager.save(Node, File)'
+	 */
+	public void testSaveNode() throws StructuralException, IOException, ClassNotFoundException {
+		NEFEnsemble ensemble = new NEFEnsembleFactoryImpl().make("test", 50, 2);
+		myManager.save(ensemble, myFile);
+		assertTrue(ModelFileReader.isModelFile(myFile));
+
+		NEFEnsemble loaded = (NEFEnsemble) myManager.load(myFile);
+		assertEquals("test", loaded.getName());
+		assertEquals(50, loaded.getNodes().length);
+		assertTrue(Arrays.deepEquals(ensemble.getEncoders(), loaded.getEncoders()));
+		float[][] decoders = ((DecodedOrigin) ensemble.getOrigin(NEFEnsemble.X)).getDecoders();
+		float[][] loadedDecoders = ((DecodedOrigin) loaded.getOrigin(NEFEnsemble.X)).getDecoders();
+		assertTrue(Arrays.deepEquals(decoders, loadedDecoders));
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.FileManager.load(File)'
+	 */
+	public void testLoad() throws IOException, ClassNotFoundException {
+		ArrayHolder original = new ArrayHolder();
+		ModelFileWriter writer = new ModelFileWriter(myFile);
+		writer.write(original);
+		writer.close();
+
+		ModelFileReader reader = new ModelFileReader(myFile);
+		ArrayHolder loaded = (ArrayHolder) reader.read();
+		reader.close();
+		loaded.check(original);
+
+		//files in the older format are still loaded, and can be converted
+		ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(myFile));
+		oos.writeObject(original);
+		oos.close();
+		assertFalse(ModelFileReader.isModelFile(myFile));
+		((ArrayHolder) myManager.load(myFile)).check(original);
+
+		myManager.convert(myFile, myFile);
+		assertTrue(ModelFileReader.isModelFile(myFile));
+		((ArrayHolder) myManager.load(myFile)).check(original);
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.FileManager.convert(File, File)' with an ensemble saved by an
+	 * earlier version
+	 */
+	public void testLoadLegacyFile() throws Exception {
+		File legacy = new File(getClass().getResource("/ca/nengo/model/nef/impl/legacy-ensemble.nef").toURI());
+		Files.copy(legacy.toPath(), myFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		assertFalse(ModelFileReader.isModelFile(myFile));
+
+		NEFEnsemble ensemble = (NEFEnsemble) myManager.load(myFile);
+		assertEquals(20, ensemble.getNodes().length);
+		assertEquals(1, ensemble.getDimension());
+		float[][] decoders = ((DecodedOrigin) ensemble.getOrigin(NEFEnsemble.X)).getDecoders();
+
+		myManager.convert(myFile, myFile);
+		assertTrue(ModelFileReader.isModelFile(myFile));
+		NEFEnsemble converted = (NEFEnsemble) myManager.load(myFile);
+		assertTrue(Arrays.deepEquals(ensemble.getEncoders(), converted.getEncoders()));
+		assertTrue(Arrays.deepEquals(decoders, ((DecodedOrigin) converted.getOrigin(NEFEnsemble.X)).getDecoders()));
+
+		//the stored approximator still finds decoders for new origins
+		float[][] copy = ((DecodedOrigin) converted.addDecodedOrigin("copy",
+				new Function[]{new IdentityFunction(1, 0)}, Neuron.AXON)).getDecoders();
+		for (int i = 0; i < decoders.length; i++) {
+			assertEquals(decoders[i][0], copy[i][0], 1e-6f);
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.ModelFileReader.ModelFileReader(File)'
+	 */
+	public void testIncompleteFile() throws IOException {
+		ModelFileWriter writer = new ModelFileWriter(myFile);
+		writer.write(new ArrayHolder());
+		writer.close();
+
+		RandomAccessFile file = new RandomAccessFile(myFile, "rw");
+		file.setLength(file.length() - 1);
+		file.close();
+		try {
+			new ModelFileReader(myFile);
+			fail("Should have thrown exception");
+		} catch (IOException e) {} //exception is expected
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.FileManager.save(Node, File)' with the same storage
+	 * name from several threads
+	 */
+	public void testSaveConcurrently() throws Exception {
+		File directory = File.createTempFile("models", "");
+		directory.delete();
+		directory.mkdir();
+		try {
+			final NEFEnsembleFactoryImpl factory = new NEFEnsembleFactoryImpl();
+			factory.setDatabase(directory);
+			final NEFEnsemble[] results = new NEFEnsemble[4];
+			final Exception[] errors = new Exception[results.length];
+			Thread[] threads = new Thread[results.length];
+			for (int i = 0; i < threads.length; i++) {
+				final int index = i;
+				threads[i] = new Thread() {
+					public void run() {
+						try {
+							results[index] = factory.make("test" + index, 30, 1, "shared", false);
+						} catch (Exception e) {
+							errors[index] = e;
+						}
+					}
+				};
+				threads[i].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+
+			//one is made and saved, and the others load it
+			for (int i = 0; i < results.length; i++) {
+				assertNull(errors[i]);
+				assertEquals("test" + i, results[i].getName());
+				assertTrue(Arrays.deepEquals(results[0].getEncoders(), results[i].getEncoders()));
+			}
+			String[] names = directory.list();
+			assertEquals(1, names.length);
+			assertEquals("shared." + FileManager.ENSEMBLE_EXTENSION, names[0]);
+		} finally {
+			for (File file : directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	private static class ArrayHolder implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private float[] myShared = new float[]{1, 2, 3};
+		private float[][] myMatrix = new float[][]{{4, 5}, myShared, null};
+		private float[] mySameShared = myShared;
+		private double[][] myDoubles = new double[2000][300];
+		private int[] myInts = new int[]{-1, 7};
+		private long[][] myLongs = new long[][]{{Long.MIN_VALUE}};
+		private Object[] myObjects = new Object[]{new int[0][], "text", myMatrix};
+
+		public ArrayHolder() {
+			for (int i = 0; i < myDoubles.length; i++) {
+				myDoubles[i][i % 300] = i;
+			}
+		}
+
+		public void check(ArrayHolder original) {
+			assertTrue(Arrays.equals(original.myShared, myShared));
+			assertSame(myShared, myMatrix[1]);
+			assertSame(myShared, mySameShared);
+			assertNull(myMatrix[2]);
+			assertEquals(5f, myMatrix[0][1], 0f);
+			assertTrue(Arrays.deepEquals(original.myDoubles, myDoubles));
+			assertTrue(Arrays.equals(original.myInts, myInts));
+			assertEquals(Long.MIN_VALUE, myLongs[0][0]);
+			assertEquals(0, ((int[][]) myObjects[0]).length);
+			assertEquals("text", myObjects[1]);
+			assertSame(myMatrix, myObjects[2]);
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+
+import ca.nengo.model.Units;
+import ca.nengo.util.impl.CompressedTimeSeries;
+import ca.nengo.util.impl.SpikePatternImpl;
+import ca.nengo.util.impl.TimeSeriesImpl;
+import junit.framework.TestCase;
+
+import com.jmatio.io.MatFileReader;
+import com.jmatio.types.MLArray;
+import com.jmatio.types.MLDouble;
+
+/**
+ * Unit tests for MatlabStreamWriter (and MatlabExporter, which uses it).
+ *
+ * @author agent
+ */
+public class MatlabStreamWriterTest extends TestCase {
+
+	private File myFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		myFile = File.createTempFile("stream", ".mat");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		myFile.delete();
+		super.tearDown();
+	}
+
+	private double[][] read(String name) throws IOException {
+		Map<String, MLArray> content = new MatFileReader(myFile).getContent();
+		return ((MLDouble) content.get(name)).getArray();
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.MatlabStreamWriter.write(String, float[][])'
+	 */
+	public void testWrite() throws IOException {
+		CompressedTimeSeries compressed = new CompressedTimeSeries(new Units[]{Units.UNK, Units.UNK});
+		for (int i = 0; i < 2000; i++) {
+			compressed.append(i * .001f, new float[]{i, -i});
+		}
+		SpikePatternImpl pattern = new SpikePatternImpl(2);
+		pattern.addSpike(1, .1f);
+		pattern.addSpike(0, .2f);
+
+		MatlabStreamWriter writer = new MatlabStreamWriter(myFile);
+		writer.write("m", new float[][]{{1, 2, 3}, {4, 5, 6}});
+		writer.write("long name", compressed);
+		writer.write("s", pattern);
+		writer.close();
+
+		double[][] m = read("m");
+		assertEquals(2, m.length);
+		assertEquals(6.0, m[1][2], 0);
+		assertEquals(2.0, m[0][1], 0);
+
+		double[][] times = read("long_name_time");
+		double[][] values = read("long_name");
+		assertEquals(1, times.length);
+		assertEquals(2000, times[0].length);
+		assertEquals(2000, values.length);
+		assertEquals((double) (1999 * .001f), times[0][1999], 0);
+		assertEquals(-1999.0, values[1999][1], 0);
+
+		double[][] spikes = read("s");
+		assertEquals(1.0, spikes[0][0], 0);
+		assertEquals((double) .2f, spikes[1][1], 0);
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.MatlabStreamWriter.beginSeries(String, int)'
+	 */
+	public void testBeginSeries() throws IOException {
+		MatlabStreamWriter writer = new MatlabStreamWriter(myFile);
+		MatlabStreamWriter.Series series = writer.beginSeries("x", 2);
+		try {
+			writer.write("m", new float[][]{{1}});
+			fail("Should have thrown exception");
+		} catch (IllegalStateException e) {} //exception is expected
+
+		for (int i = 0; i < 10000; i++) {
+			series.append(i, new float[]{2 * i, 3 * i});
+		}
+		series.finish();
+		writer.write("m", new float[][]{{1}});
+		writer.close();
+
+		double[][] x = read("x");
+		assertEquals(3, x.length);
+		assertEquals(10000, x[0].length);
+		assertEquals(9999.0, x[0][9999], 0);
+		assertEquals(3 * 9999.0, x[2][9999], 0);
+		assertEquals(1.0, read("m")[0][0], 0);
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.MatlabStreamWriter.isSingle()'
+	 */
+	public void testSingle() throws IOException {
+		MatlabStreamWriter writer = new MatlabStreamWriter(myFile, true);
+		writer.write("m", new float[][]{{1.5f, 2}, {3, 4}});
+		writer.beginSeries("x", 1).append(.5f, new float[]{7});
+		writer.close();
+
+		RandomAccessFile file = new RandomAccessFile(myFile, "r");
+		byte[] bytes = new byte[(int) file.length()];
+		file.readFully(bytes);
+		file.close();
+		ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+
+		buffer.position(128);
+		assertEquals(14, buffer.getInt()); //miMATRIX
+		assertEquals(72, buffer.getInt());
+		assertEquals(6, buffer.getInt()); //array flags
+		assertEquals(8, buffer.getInt());
+		assertEquals(7, buffer.getInt()); //mxSINGLE_CLASS
+		assertEquals(0, buffer.getInt());
+		assertEquals(5, buffer.getInt()); //dimensions
+		assertEquals(8, buffer.getInt());
+		assertEquals(2, buffer.getInt());
+		assertEquals(2, buffer.getInt());
+		assertEquals(1, buffer.getInt()); //name
+		assertEquals(1, buffer.getInt());
+		assertEquals('m', buffer.get());
+		buffer.position(buffer.position() + 7);
+		assertEquals(7, buffer.getInt()); //miSINGLE
+		assertEquals(16, buffer.getInt());
+		assertEquals(1.5f, buffer.getFloat(), 0f); //column-major
+		assertEquals(3f, buffer.getFloat(), 0f);
+		assertEquals(2f, buffer.getFloat(), 0f);
+		assertEquals(4f, buffer.getFloat(), 0f);
+
+		//the series' sizes are filled in when it is finished
+		assertEquals(14, buffer.getInt());
+		assertEquals(bytes.length - buffer.position() - 4, buffer.getInt());
+		buffer.position(buffer.position() + 16 + 8);
+		assertEquals(2, buffer.getInt());
+		assertEquals(1, buffer.getInt());
+		buffer.position(buffer.position() + 16);
+		assertEquals(7, buffer.getInt());
+		assertEquals(8, buffer.getInt());
+		assertEquals(.5f, buffer.getFloat(), 0f);
+		assertEquals(7f, buffer.getFloat(), 0f);
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.MatlabExporter.write(File)'
+	 */
+	public void testMatlabExporter() throws IOException {
+		MatlabExporter exporter = new MatlabExporter();
+		exporter.add("ts", new TimeSeriesImpl(new float[]{0, 1}, new float[][]{{5, 6}, {7, 8}}, Units.uniform(Units.UNK, 2)));
+		exporter.add("3m", new float[][]{{1, 2}});
+		exporter.write(myFile);
+
+		assertEquals(8.0, read("ts")[1][1], 0);
+		assertEquals(1.0, read("ts_time")[0][1], 0);
+		assertEquals(2.0, read("data3m")[0][1], 0);
+	}
+
+}
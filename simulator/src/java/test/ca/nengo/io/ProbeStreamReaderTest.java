@@ -0,0 +1,93 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import ca.nengo.model.Units;
+import ca.nengo.util.TimeSeries;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for ProbeStreamReader and ProbeStreamWriter.
+ *
+ * @author agent
+ */
+public class ProbeStreamReaderTest extends TestCase {
+
+	private File myFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		myFile = File.createTempFile("probe", ".bin");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		myFile.delete();
+		super.tearDown();
+	}
+
+	private void write(int n, boolean close) throws IOException {
+		ProbeStreamWriter writer = new ProbeStreamWriter(myFile, "test",
+				new Units[]{Units.mV, Units.UNK, Units.SPIKES}, new String[]{"a", "b", "c"}, 100);
+		for (int i = 0; i < n; i++) {
+			writer.append(i * .001f, new float[]{i, -i, 2*i});
+		}
+		if (close) {
+			writer.close();
+		} else {
+			writer.flush();
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.ProbeStreamReader.read()'
+	 */
+	public void testRead() throws IOException {
+		write(1050, true);
+
+		ProbeStreamReader reader = new ProbeStreamReader(myFile);
+		assertEquals("test", reader.getName());
+		assertEquals(3, reader.getDimension());
+		assertEquals(1050, reader.getLength());
+
+		TimeSeries data = reader.read();
+		assertEquals(1050, data.getTimes().length);
+		assertEquals(Units.SPIKES, data.getUnits()[2]);
+		assertEquals("b", data.getLabels()[1]);
+		for (int i = 0; i < 1050; i++) {
+			assertEquals(i * .001f, data.getTimes()[i], 0f);
+			assertEquals(-i, data.getValues()[i][1], 0f);
+		}
+
+		//a range of selected channels
+		data = reader.read(.2495f, .5005f, new int[]{2, 0});
+		assertEquals(251, data.getTimes().length);
+		assertEquals(.25f, data.getTimes()[0], 1e-6f);
+		assertEquals(1000f, data.getValues()[250][0], 0f);
+		assertEquals(500f, data.getValues()[250][1], 0f);
+		assertEquals("c", data.getLabels()[0]);
+		reader.close();
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.ProbeStreamReader.read()'
+	 */
+	public void testUnclosed() throws IOException {
+		write(250, false);
+		RandomAccessFile file = new RandomAccessFile(myFile, "rw");
+		file.setLength(file.length() - 10); //last chunk is incomplete
+		file.close();
+
+		ProbeStreamReader reader = new ProbeStreamReader(myFile);
+		assertEquals(200, reader.getLength());
+		assertEquals(199f, reader.read().getValues()[199][0], 0f);
+		reader.close();
+	}
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import ca.nengo.model.Units;
+import ca.nengo.util.SpikePattern;
+import ca.nengo.util.TimeSeries;
+import ca.nengo.util.impl.SpikePatternImpl;
+import ca.nengo.util.impl.TimeSeriesImpl;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for ResultsFileReader and ResultsFileWriter.
+ *
+ * @author agent
+ */
+public class ResultsFileReaderTest extends TestCase {
+
+	private File myFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		myFile = File.createTempFile("results", ".nres");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		myFile.delete();
+		super.tearDown();
+	}
+
+	private void write(boolean close) throws IOException {
+		ResultsFileWriter writer = new ResultsFileWriter(myFile, 100, 6);
+
+		ResultsFileWriter.Series series = writer.addSeries("x", new Units[]{Units.mV, Units.UNK}, new String[]{"a", "b"});
+		ResultsFileWriter.Spikes spikes = writer.addSpikes("spikes", 3);
+		for (int i = 0; i < 1050; i++) {
+			float time = i * .001f;
+			series.append(time, new float[]{i, -i});
+			if (i % 7 == 0) {
+				spikes.append(i % 3, time);
+			}
+		}
+
+		SpikePatternImpl pattern = new SpikePatternImpl(2);
+		pattern.addSpike(0, .3f);
+		pattern.addSpike(1, .1f);
+		pattern.addSpike(0, .5f);
+		writer.addSpikePattern("pattern", pattern);
+		writer.addTimeSeries("y", new TimeSeriesImpl(new float[]{0, 1}, new float[][]{{1}, {2}}, new Units[]{Units.UNK}));
+		writer.addMatrix("m", new float[][]{{1, 2, 3}, {4, 5, 6}});
+
+		if (close) {
+			writer.close();
+		} else {
+			writer.flush();
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.ResultsFileReader.readTimeSeries(String, float, float, int[])'
+	 */
+	public void testReadTimeSeries() throws IOException {
+		write(true);
+
+		ResultsFileReader reader = new ResultsFileReader(myFile);
+		assertTrue(Arrays.equals(new String[]{"x", "spikes", "pattern", "y", "m"}, reader.getNames()));
+		assertEquals(ResultsFileWriter.TIME_SERIES, reader.getKind("x"));
+		assertEquals(2, reader.getDimension("x"));
+		assertEquals(1050, reader.getLength("x"));
+
+		TimeSeries x = reader.readTimeSeries("x");
+		assertEquals(1050, x.getTimes().length);
+		assertEquals(-1049f, x.getValues()[1049][1]);
+		assertEquals(Units.mV, x.getUnits()[0]);
+		assertEquals("b", x.getLabels()[1]);
+		assertEquals("x", x.getName());
+
+		TimeSeries part = reader.readTimeSeries("x", .2495f, .5005f, new int[]{1});
+		assertEquals(251, part.getTimes().length);
+		assertEquals(1, part.getDimension());
+		assertEquals(-250f, part.getValues()[0][0]);
+		assertEquals(-500f, part.getValues()[250][0]);
+		assertEquals("b", part.getLabels()[0]);
+
+		TimeSeries y = reader.readTimeSeries("y");
+		assertEquals(2f, y.getValues()[1][0]);
+		reader.close();
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.ResultsFileReader.readSpikePattern(String, float, float)'
+	 */
+	public void testReadSpikePattern() throws IOException {
+		write(true);
+
+		ResultsFileReader reader = new ResultsFileReader(myFile);
+		assertEquals(150, reader.getLength("spikes"));
+		SpikePattern spikes = reader.readSpikePattern("spikes");
+		assertEquals(3, spikes.getNumNeurons());
+		assertEquals(50, spikes.getSpikeTimes(1).length);
+		assertEquals(.007f, spikes.getSpikeTimes(1)[0], .00001f);
+
+		SpikePattern window = reader.readSpikePattern("spikes", .5f, .6f);
+		int n = 0;
+		for (int i = 0; i < 3; i++) {
+			for (float time : window.getSpikeTimes(i)) {
+				assertTrue(time >= .5f && time <= .6f);
+				n++;
+			}
+		}
+		assertEquals(14, n);
+
+		SpikePattern pattern = reader.readSpikePattern("pattern");
+		assertTrue(Arrays.equals(new float[]{.3f, .5f}, pattern.getSpikeTimes(0)));
+		assertTrue(Arrays.equals(new float[]{.1f}, pattern.getSpikeTimes(1)));
+		reader.close();
+	}
+
+	/*
+	 * Test method for 'ca.nengo.io.ResultsFileReader.readMatrix(String)'
+	 */
+	public void testReadMatrix() throws IOException {
+		write(true);
+
+		ResultsFileReader reader = new ResultsFileReader(myFile);
+		float[][] m = reader.readMatrix("m");
+		assertTrue(Arrays.equals(new float[]{4, 5, 6}, m[1]));
+		try {
+			reader.readMatrix("x");
+			fail("Should have thrown exception");
+		} catch (IllegalArgumentException e) {} //exception is expected
+		reader.close();
+	}
+
+	public void testReadWithoutIndex() throws IOException {
+		write(false);
+
+		ResultsFileReader reader = new ResultsFileReader(myFile);
+		assertEquals(5, reader.getNames().length);
+		assertEquals(1050, reader.getLength("x"));
+		assertEquals(-1049f, reader.readTimeSeries("x").getValues()[1049][1]);
+		assertEquals(3, reader.readMatrix("m")[0][2], 0f);
+		reader.close();
+	}
+
+	public void testLongNames() throws IOException {
+		//names that fill the initial entry record to different depths
+		ResultsFileWriter writer = new ResultsFileWriter(myFile, 100, 6);
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < 260; i++) {
+			name.append('n');
+			if (i >= 230) {
+				writer.addMatrix(name.toString(), new float[][]{{i}});
+			}
+		}
+		String label = name.toString();
+		writer.addSeries("z", new Units[]{Units.UNK}, new String[]{label}).append(0, new float[]{1});
+		writer.close();
+
+		ResultsFileReader reader = new ResultsFileReader(myFile);
+		assertEquals(31, reader.getNames().length);
+		assertEquals(259f, reader.readMatrix(label)[0][0], 0f);
+		assertEquals(label, reader.readTimeSeries("z").getLabels()[0]);
+		reader.close();
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import ca.nengo.math.Function;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for ApproximatorCache.
+ *
+ * @author agent
+ */
+public class ApproximatorCacheTest extends TestCase {
+
+	private File myDirectory;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		myDirectory = File.createTempFile("nengo_cache", "");
+		myDirectory.delete();
+		myDirectory.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		ApproximatorCache.setDefault(null);
+		File[] files = myDirectory.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+		myDirectory.delete();
+		super.tearDown();
+	}
+
+	/*
+	 * Test method for 'ca.nengo.math.impl.ApproximatorCache.getInverse()' and getCoefficients()
+	 */
+	public void testEntries() throws IOException {
+		ApproximatorCache cache = new ApproximatorCache(myDirectory, ApproximatorCache.DEFAULT_MAX_BYTES);
+		double[][] inverse = CholeskyPseudoInverterTest.makePositiveDefinite(20, 40, new Random(1));
+		String key = new ApproximatorCache.Key().add("inverse").toString();
+
+		assertNull(cache.getInverse(key, 20));
+		cache.putInverse(key, inverse);
+		assertTrue(cache.hasInverse(key));
+		assertEquals(20 * 21 / 2 * 8, cache.getSize(), 16);
+		CholeskyPseudoInverterTest.assertClose(inverse, cache.getInverse(key, 20), 0);
+		assertNull(cache.getInverse(key, 21));
+		assertTrue(cache.hasInverse(key));
+
+		float[] coefficients = new float[]{1, -2, 3.5f};
+		String coefficientsKey = new ApproximatorCache.Key().add(key).add(coefficients).toString();
+		cache.putCoefficients(coefficientsKey, coefficients);
+		float[] cached = cache.getCoefficients(coefficientsKey, 3);
+		for (int i = 0; i < coefficients.length; i++) {
+			assertEquals(coefficients[i], cached[i], 0f);
+		}
+
+		//damaged entries are discarded
+		File file = new File(myDirectory, coefficientsKey + ".dec");
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 1);
+		raf.close();
+		assertNull(cache.getCoefficients(coefficientsKey, 3));
+		assertFalse(file.exists());
+
+		cache.clear();
+		assertEquals(0, cache.getSize());
+	}
+
+	/*
+	 * Test method for 'ca.nengo.math.impl.ApproximatorCache.putCoefficients()' (eviction)
+	 */
+	public void testEviction() {
+		//room for four entries of 100 coefficients
+		ApproximatorCache cache = new ApproximatorCache(myDirectory, 1700);
+		String[] keys = new String[4];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = ApproximatorCache.digest("entry" + i);
+			cache.putCoefficients(keys[i], new float[100]);
+			new File(myDirectory, keys[i] + ".dec").setLastModified(1000000000000L + i * 10000L);
+		}
+		assertNotNull(cache.getCoefficients(keys[0], 100)); //now the most recently used
+
+		cache.putCoefficients(ApproximatorCache.digest("entry4"), new float[100]);
+		assertTrue(cache.getSize() <= 1700);
+		assertNotNull(cache.getCoefficients(keys[0], 100));
+		assertNull(cache.getCoefficients(keys[1], 100));
+	}
+
+	/*
+	 * Test WeightedCostApproximator with a default cache
+	 */
+	public void testApproximator() {
+		ApproximatorCache cache = new ApproximatorCache(myDirectory, ApproximatorCache.DEFAULT_MAX_BYTES);
+		ApproximatorCache.setDefault(cache);
+
+		Random random = new Random(3);
+		float[][] evalPoints = new float[200][1];
+		float[][] values = new float[30][evalPoints.length];
+		for (int k = 0; k < evalPoints.length; k++) {
+			evalPoints[k][0] = random.nextFloat() * 2 - 1;
+			for (int i = 0; i < values.length; i++) {
+				values[i][k] = Math.max(0, (i % 2 == 0 ? 1 : -1) * evalPoints[k][0] + random.nextFloat() - .5f) * 100;
+			}
+		}
+		Function target = new IdentityFunction(1, 0);
+		Function cost = new ConstantFunction(1, 1);
+
+		float[] expected = new WeightedCostApproximator(evalPoints, values, cost, .1f, -1).findCoefficients(target);
+		assertTrue(cache.getSize() > 0);
+
+		//the same noise is drawn again, so the result is the same whether or not it's cached
+		cache.clear();
+		float[] uncached = new WeightedCostApproximator(evalPoints, values, cost, .1f, -1).findCoefficients(target);
+		float[] cached = new WeightedCostApproximator(evalPoints, values, cost, .1f, -1).findCoefficients(target);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], uncached[i], 0f);
+			assertEquals(expected[i], cached[i], 0f);
+		}
+
+		//different noise is a different entry
+		float[] other = new WeightedCostApproximator(evalPoints, values, cost, .2f, -1).findCoefficients(target);
+		assertTrue(other[0] != expected[0]);
+	}
+
+}
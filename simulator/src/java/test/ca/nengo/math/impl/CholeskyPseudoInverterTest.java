@@ -0,0 +1,81 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import java.util.Random;
+
+import Jama.Matrix;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for CholeskyPseudoInverter.
+ *
+ * @author agent
+ */
+public class CholeskyPseudoInverterTest extends TestCase {
+
+	/*
+	 * Test method for 'ca.nengo.math.impl.CholeskyPseudoInverter.invert()'
+	 */
+	public void testInvert() {
+		//spans several blocks, and isn't a multiple of the block size
+		double[][] matrix = makePositiveDefinite(150, 300, new Random(1));
+		double[][] inverse = new CholeskyPseudoInverter().invert(matrix, 0f, -1);
+		assertClose(new Matrix(matrix).inverse().getArray(), inverse, 1e-8);
+
+		//regularised
+		float ridge = .5f;
+		inverse = new CholeskyPseudoInverter().invert(matrix, ridge, -1);
+		Matrix regularised = new Matrix(matrix).plus(Matrix.identity(matrix.length, matrix.length).times(ridge));
+		assertClose(regularised.inverse().getArray(), inverse, 1e-8);
+	}
+
+	public void testFallback() {
+		//rank-deficient, so falls back to eigendecomposition without the null space
+		double[][] matrix = makePositiveDefinite(20, 10, new Random(2));
+		double max = 0;
+		for (int i = 0; i < matrix.length; i++) {
+			max = Math.max(max, matrix[i][i]);
+		}
+		float threshold = (float) (CholeskyPseudoInverter.PIVOT_TOLERANCE * max);
+		double[][] expected = new SVDPseudoInverter().invert(matrix, threshold, -1);
+		assertClose(expected, new CholeskyPseudoInverter().invert(matrix, 0f, -1), 1e-8);
+
+		//not symmetric, so falls back to SVD
+		matrix = new double[][]{new double[]{1, 2}, new double[]{3, 4}};
+		assertClose(new Matrix(matrix).inverse().getArray(), new CholeskyPseudoInverter().invert(matrix, 0f, -1), 1e-8);
+	}
+
+	public void testSolve() {
+		double[][] matrix = makePositiveDefinite(50, 100, new Random(3));
+		double[][] b = makePositiveDefinite(50, 3, new Random(4));
+		float ridge = .5f;
+		Matrix regularised = new Matrix(matrix).plus(Matrix.identity(matrix.length, matrix.length).times(ridge));
+		assertClose(regularised.solve(new Matrix(b)).getArray(), CholeskyPseudoInverter.solve(matrix, ridge, b), 1e-8);
+
+		//rank-deficient without a ridge
+		assertNull(CholeskyPseudoInverter.solve(makePositiveDefinite(20, 10, new Random(2)), 0, new double[20][1]));
+	}
+
+	//A A^T for random n x m A
+	static double[][] makePositiveDefinite(int n, int m, Random random) {
+		Matrix a = new Matrix(n, m);
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < m; j++) {
+				a.set(i, j, random.nextGaussian());
+			}
+		}
+		return a.times(a.transpose()).getArray();
+	}
+
+	static void assertClose(double[][] expected, double[][] actual, double tolerance) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			for (int j = 0; j < expected[i].length; j++) {
+				assertEquals(expected[i][j], actual[i][j], tolerance);
+			}
+		}
+	}
+
+}
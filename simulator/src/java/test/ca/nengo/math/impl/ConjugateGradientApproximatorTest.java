@@ -0,0 +1,100 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import java.util.Random;
+
+import ca.nengo.math.Function;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for ConjugateGradientApproximator.
+ *
+ * @author agent
+ */
+public class ConjugateGradientApproximatorTest extends TestCase {
+
+	private float[][] myEvalPoints;
+	private float[][] myValues;
+
+	@Override
+	protected void setUp() throws Exception {
+		//rectified-linear tuning curves over [-1, 1]
+		Random random = new Random(1);
+		myEvalPoints = new float[500][];
+		for (int k = 0; k < myEvalPoints.length; k++) {
+			myEvalPoints[k] = new float[]{2f * k / (myEvalPoints.length - 1) - 1};
+		}
+		myValues = new float[300][myEvalPoints.length];
+		for (int i = 0; i < myValues.length; i++) {
+			float encoder = random.nextBoolean() ? 1 : -1;
+			float intercept = 2 * random.nextFloat() - 1;
+			float gain = 50 + 50 * random.nextFloat();
+			for (int k = 0; k < myEvalPoints.length; k++) {
+				myValues[i][k] = Math.max(0, gain * (encoder * myEvalPoints[k][0] - intercept));
+			}
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.math.impl.ConjugateGradientApproximator.findCoefficients()'
+	 */
+	public void testFindCoefficients() {
+		float noise = .1f;
+		Function target = new PostfixFunction("x0^2", 1);
+		ConjugateGradientApproximator approximator = new ConjugateGradientApproximator(myEvalPoints, myValues,
+				new ConstantFunction(1, 1), noise, 1e-8f, 5000);
+		float[] coefficients = approximator.findCoefficients(target);
+
+		//same as direct solution of the regularised problem
+		double[] weights = new double[myEvalPoints.length];
+		float[] targetValues = new float[myEvalPoints.length];
+		float max = 0;
+		for (int k = 0; k < weights.length; k++) {
+			weights[k] = 1d / weights.length;
+			targetValues[k] = target.map(myEvalPoints[k]);
+			for (float[] row : myValues) {
+				max = Math.max(max, row[k]);
+			}
+		}
+		double[][] gamma = WeightedCostApproximator.findGamma(myValues, weights);
+		double[] upsilon = WeightedCostApproximator.findUpsilon(myValues, targetValues, weights);
+		double[][] inverse = new CholeskyPseudoInverter().invert(gamma, (noise * max) * (noise * max), -1);
+		for (int i = 0; i < coefficients.length; i++) {
+			double expected = 0;
+			for (int j = 0; j < upsilon.length; j++) {
+				expected += inverse[i][j] * upsilon[j];
+			}
+			assertEquals(expected, coefficients[i], 1e-5 + 1e-3 * Math.abs(expected));
+		}
+
+		//the approximation is good
+		double squaredError = 0;
+		for (int k = 0; k < myEvalPoints.length; k++) {
+			float estimate = 0;
+			for (int i = 0; i < coefficients.length; i++) {
+				estimate += coefficients[i] * myValues[i][k];
+			}
+			squaredError += (estimate - targetValues[k]) * (estimate - targetValues[k]);
+		}
+		assertTrue(Math.sqrt(squaredError / myEvalPoints.length) < .03);
+	}
+
+	public void testWarmStart() {
+		ConjugateGradientApproximator approximator = (ConjugateGradientApproximator)
+			new ConjugateGradientApproximator.Factory(.1f, 1e-5f, 5000).getApproximator(myEvalPoints, myValues);
+
+		float[] coefficients = approximator.findCoefficients(new PostfixFunction("x0^2", 1));
+		int coldIterations = approximator.getLastIterations();
+
+		float[] perturbed = approximator.findCoefficients(new PostfixFunction("1.01*x0^2", 1), coefficients);
+		assertTrue(approximator.getLastIterations() < coldIterations / 2);
+
+		float[] cold = approximator.findCoefficients(new PostfixFunction("1.01*x0^2", 1));
+		for (int i = 0; i < cold.length; i++) {
+			assertEquals(cold[i], perturbed[i], 1e-3f);
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for EigenPseudoInverter.
+ *
+ * @author agent
+ */
+public class EigenPseudoInverterTest extends TestCase {
+
+	/*
+	 * Test method for 'ca.nengo.math.impl.EigenPseudoInverter.invert()'
+	 */
+	public void testInvert() {
+		double[][] matrix = CholeskyPseudoInverterTest.makePositiveDefinite(80, 50, new Random(3));
+		SVDPseudoInverter svd = new SVDPseudoInverter();
+		EigenPseudoInverter eig = new EigenPseudoInverter();
+
+		//same truncation as SVD, by threshold ...
+		CholeskyPseudoInverterTest.assertClose(svd.invert(matrix, 1f, -1), eig.invert(matrix, 1f, -1), 1e-8);
+
+		//... and by number
+		CholeskyPseudoInverterTest.assertClose(svd.invert(matrix, 0f, 20), eig.invert(matrix, 0f, 20), 1e-8);
+
+		//not symmetric
+		matrix = new double[][]{new double[]{1, 2}, new double[]{3, 4}};
+		CholeskyPseudoInverterTest.assertClose(svd.invert(matrix, 0f, -1), eig.invert(matrix, 0f, -1), 1e-8);
+	}
+
+}
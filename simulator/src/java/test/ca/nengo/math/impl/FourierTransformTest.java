@@ -0,0 +1,123 @@
+package ca.nengo.math.impl;
+
+import java.util.Random;
+
+import ca.nengo.TestUtil;
+import ca.nengo.math.LinearTransform;
+import ca.nengo.model.nef.impl.CircularConvolutionFactory;
+import ca.nengo.util.MU;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for FFT, FourierTransform, and CirculantTransform.
+ *
+ * @author agent
+ */
+public class FourierTransformTest extends TestCase {
+
+	private Random myRandom = new Random(1);
+
+	public void testFFT() {
+		for (int n : new int[]{1, 2, 8, 64, 3, 10, 100}) {
+			double[] re = new double[n];
+			double[] im = new double[n];
+			for (int i = 0; i < n; i++) {
+				re[i] = myRandom.nextGaussian();
+				im[i] = myRandom.nextGaussian();
+			}
+
+			double[] fRe = re.clone();
+			double[] fIm = im.clone();
+			FFT fft = new FFT(n);
+			fft.transform(fRe, fIm);
+
+			for (int k = 0; k < n; k++) {
+				double sumRe = 0;
+				double sumIm = 0;
+				for (int j = 0; j < n; j++) {
+					double angle = -2 * Math.PI * j * k / n;
+					sumRe += re[j] * Math.cos(angle) - im[j] * Math.sin(angle);
+					sumIm += re[j] * Math.sin(angle) + im[j] * Math.cos(angle);
+				}
+				TestUtil.assertClose((float) sumRe, (float) fRe[k], 1e-6f * n);
+				TestUtil.assertClose((float) sumIm, (float) fIm[k], 1e-6f * n);
+			}
+
+			fft.inverseTransform(fRe, fIm);
+			for (int i = 0; i < n; i++) {
+				TestUtil.assertClose((float) re[i], (float) fRe[i], 1e-6f);
+				TestUtil.assertClose((float) im[i], (float) fIm[i], 1e-6f);
+			}
+		}
+	}
+
+	public void testApplyMatchesMatrix() {
+		for (int d : new int[]{8, 9}) {
+			checkMatrix(CircularConvolutionFactory.getInputTransform(d, true, false), d);
+			checkMatrix(CircularConvolutionFactory.getInputTransform(d, false, true), d);
+			checkMatrix(CircularConvolutionFactory.getOutputTransform(d), d);
+			checkMatrix(CircularConvolutionFactory.getOutputTransform(d).getRows(3, 7), d);
+			checkMatrix(new CirculantTransform(random(d)), d);
+		}
+	}
+
+	public void testCircularConvolution() {
+		for (int d : new int[]{8, 9}) {
+			float[] a = random(d);
+			float[] b = random(d);
+
+			float[] inA = CircularConvolutionFactory.getInputTransform(d, true, false).apply(a);
+			float[] inB = CircularConvolutionFactory.getInputTransform(d, false, false).apply(b);
+			float[] products = new float[CircularConvolutionFactory.getNumProducts(d)];
+			for (int i = 0; i < products.length; i++) {
+				products[i] = (inA[2*i] + inB[2*i]) * (inA[2*i+1] + inB[2*i+1]);
+			}
+			float[] result = CircularConvolutionFactory.getOutputTransform(d).apply(products);
+
+			float[] expected = new CirculantTransform(a).apply(b);
+			for (int i = 0; i < d; i++) {
+				float direct = 0;
+				for (int j = 0; j < d; j++) {
+					direct += a[j] * b[(i - j + d) % d];
+				}
+				TestUtil.assertClose(direct, expected[i], 1e-4f);
+				TestUtil.assertClose(direct, result[i], 1e-4f);
+			}
+		}
+	}
+
+	public void testRows() {
+		FourierTransform transform = CircularConvolutionFactory.getInputTransform(16, true, false);
+		FourierTransform.Rows rows = transform.getRows(4, 6);
+		assertTrue(rows.getSource() == transform);
+
+		float[] x = random(16);
+		float[] all = transform.apply(x);
+		float[] some = rows.apply(x);
+		assertEquals(all[4], some[0]);
+		assertEquals(all[5], some[1]);
+		assertEquals(all[5], rows.getRows(all)[1]);
+
+		x[0] += 1;
+		TestUtil.assertClose(transform.apply(x)[4], rows.apply(x)[0], 0);
+	}
+
+	private void checkMatrix(LinearTransform transform, int d) {
+		float[] x = random(transform.getInputDimension());
+		float[] expected = MU.prod(transform.getMatrix(), x);
+		float[] actual = transform.apply(x);
+		assertEquals(transform.getOutputDimension(), actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			TestUtil.assertClose(expected[i], actual[i], 1e-4f);
+		}
+	}
+
+	private float[] random(int n) {
+		float[] result = new float[n];
+		for (int i = 0; i < n; i++) {
+			result[i] = (float) myRandom.nextGaussian();
+		}
+		return result;
+	}
+
+}
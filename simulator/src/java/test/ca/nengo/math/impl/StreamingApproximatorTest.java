@@ -0,0 +1,161 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.math.impl;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.Random;
+
+import ca.nengo.math.Function;
+import ca.nengo.model.nef.NEFEnsemble;
+import ca.nengo.model.nef.impl.DecodedOrigin;
+import ca.nengo.model.nef.impl.NEFEnsembleFactoryImpl;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for StreamingApproximator.
+ *
+ * @author agent
+ */
+public class StreamingApproximatorTest extends TestCase {
+
+	/*
+	 * Test method for 'ca.nengo.math.impl.StreamingApproximator.findCoefficients()'
+	 */
+	public void testFindCoefficients() throws Exception {
+		Random random = new Random(1);
+		float[][] evalPoints = new float[400][];
+		for (int k = 0; k < evalPoints.length; k++) {
+			evalPoints[k] = new float[]{2f * k / (evalPoints.length - 1) - 1};
+		}
+		float[][] values = new float[150][evalPoints.length];
+		float max = 0;
+		for (int i = 0; i < values.length; i++) {
+			float encoder = random.nextBoolean() ? 1 : -1;
+			float intercept = 2 * random.nextFloat() - 1;
+			float gain = 50 + 50 * random.nextFloat();
+			for (int k = 0; k < evalPoints.length; k++) {
+				values[i][k] = Math.max(0, gain * (encoder * evalPoints[k][0] - intercept));
+				max = Math.max(max, values[i][k]);
+			}
+		}
+
+		float noise = .1f;
+		Function target = new PostfixFunction("x0^2", 1);
+		double[] expected = solve(values, evalPoints, target, (noise * max) * (noise * max));
+
+		//tiles and chunks that don't divide the problem evenly
+		for (StreamingApproximator.Storage storage : StreamingApproximator.Storage.values()) {
+			StreamingApproximator approximator = (StreamingApproximator)
+				new StreamingApproximator.Factory(noise, 77, 32, storage).getApproximator(evalPoints, values);
+			float[] coefficients = approximator.findCoefficients(target);
+			for (int i = 0; i < coefficients.length; i++) {
+				assertEquals(expected[i], coefficients[i], 1e-4 + 1e-3 * Math.abs(expected[i]));
+			}
+			assertTrue(approximator.getPeakMemory() > 0);
+		}
+
+		long heap = StreamingApproximator.estimatePeakMemory(20000, 10000, 500, 256, StreamingApproximator.Storage.HEAP);
+		long mapped = StreamingApproximator.estimatePeakMemory(20000, 10000, 500, 256, StreamingApproximator.Storage.MAPPED);
+		assertEquals(FloatTileMatrix.getBytes(20000, 256), heap - mapped);
+	}
+
+	public void testFindCoefficientsArray() throws Exception {
+		float[][] evalPoints = new float[300][];
+		float[][] values = new float[60][evalPoints.length];
+		makeProblem(evalPoints, values);
+
+		Function[] targets = new Function[]{new PostfixFunction("x0^2", 1), new PostfixFunction("x0", 1)};
+		StreamingApproximator approximator = (StreamingApproximator)
+			new StreamingApproximator.Factory(.1f, 70, 16, StreamingApproximator.Storage.HEAP).getApproximator(evalPoints, values);
+		float[][] coefficients = approximator.findCoefficients(targets);
+		assertEquals(2, coefficients.length);
+		for (int j = 0; j < targets.length; j++) {
+			float[] expected = approximator.findCoefficients(targets[j]);
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(expected[i], coefficients[j][i], 1e-6f);
+			}
+		}
+	}
+
+	public void testDispose() throws Exception {
+		float[][] evalPoints = new float[200][];
+		float[][] values = new float[40][evalPoints.length];
+		makeProblem(evalPoints, values);
+
+		int before = countTileFiles();
+		StreamingApproximator approximator = (StreamingApproximator)
+			new StreamingApproximator.Factory(.1f, 50, 16, StreamingApproximator.Storage.MAPPED).getApproximator(evalPoints, values);
+		Function target = new PostfixFunction("x0", 1);
+		float[] expected = approximator.findCoefficients(target);
+		approximator.dispose();
+		assertEquals(before, countTileFiles());
+
+		//rebuilt on demand
+		float[] coefficients = approximator.findCoefficients(target);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], coefficients[i], 1e-6f);
+		}
+		approximator.dispose();
+		assertEquals(before, countTileFiles());
+	}
+
+	public void testEnsemble() throws Exception {
+		NEFEnsembleFactoryImpl factory = new NEFEnsembleFactoryImpl();
+		factory.setApproximatorFactory(new StreamingApproximator.Factory(.1f, 100, 64, StreamingApproximator.Storage.HEAP));
+		NEFEnsemble ensemble = factory.make("test", 200, 1);
+		float[][] decoders = ((DecodedOrigin) ensemble.getOrigin(NEFEnsemble.X)).getDecoders();
+		assertEquals(200, decoders.length);
+		float sum = 0;
+		for (float[] decoder : decoders) {
+			sum += Math.abs(decoder[0]);
+		}
+		assertTrue(sum > 0 && !Float.isNaN(sum));
+	}
+
+	//rectified-linear tuning curves over [-1, 1]
+	private static void makeProblem(float[][] evalPoints, float[][] values) {
+		Random random = new Random(2);
+		for (int k = 0; k < evalPoints.length; k++) {
+			evalPoints[k] = new float[]{2f * k / (evalPoints.length - 1) - 1};
+		}
+		for (int i = 0; i < values.length; i++) {
+			float encoder = random.nextBoolean() ? 1 : -1;
+			float intercept = 2 * random.nextFloat() - 1;
+			for (int k = 0; k < evalPoints.length; k++) {
+				values[i][k] = Math.max(0, 100 * (encoder * evalPoints[k][0] - intercept));
+			}
+		}
+	}
+
+	private static int countTileFiles() {
+		String[] names = new File(System.getProperty("java.io.tmpdir")).list(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.startsWith("nengo_gamma");
+			}
+		});
+		return (names == null) ? 0 : names.length;
+	}
+
+	//direct solution of the regularised problem
+	private static double[] solve(float[][] values, float[][] evalPoints, Function target, double ridge) {
+		double[] weights = new double[evalPoints.length];
+		float[] targetValues = new float[evalPoints.length];
+		for (int k = 0; k < weights.length; k++) {
+			weights[k] = 1d / weights.length;
+			targetValues[k] = target.map(evalPoints[k]);
+		}
+		double[][] inverse = new CholeskyPseudoInverter().invert(WeightedCostApproximator.findGamma(values, weights), (float) ridge, -1);
+		double[] upsilon = WeightedCostApproximator.findUpsilon(values, targetValues, weights);
+
+		double[] result = new double[values.length];
+		for (int i = 0; i < result.length; i++) {
+			for (int j = 0; j < upsilon.length; j++) {
+				result[i] += inverse[i][j] * upsilon[j];
+			}
+		}
+		return result;
+	}
+
+}
@@ -3,6 +3,9 @@
  */
 package ca.nengo.math.impl;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import ca.nengo.TestUtil;
 import ca.nengo.math.Function;
 import ca.nengo.math.LinearApproximator;
@@ -105,6 +108,92 @@ public class WeightedCostApproximatorTest extends TestCase {
 		
 	}
 	
+	/*
+	 * Test method for 'ca.nengo.math.impl.WeightedCostApproximator.findGamma()' and findUpsilon()
+	 */
+	public void testFindGamma() {
+		//sizes that aren't multiples of the tile sizes
+		Random random = new Random(1);
+		float[][] values = new float[150][1100];
+		double[] weights = new double[values[0].length];
+		float[] target = new float[values[0].length];
+		for (int k = 0; k < weights.length; k++) {
+			weights[k] = random.nextFloat() / weights.length;
+			target[k] = random.nextFloat() - .5f;
+			for (int i = 0; i < values.length; i++) {
+				values[i][k] = random.nextFloat() - .5f;
+			}
+		}
+
+		double[][] gamma = WeightedCostApproximator.findGamma(values, weights);
+		double[] upsilon = WeightedCostApproximator.findUpsilon(values, target, weights);
+		for (int i = 0; i < values.length; i++) {
+			double expectedUpsilon = 0;
+			for (int k = 0; k < weights.length; k++) {
+				expectedUpsilon += (double) values[i][k] * target[k] * weights[k];
+			}
+			assertEquals(expectedUpsilon, upsilon[i], 1e-10);
+
+			for (int j = 0; j < values.length; j++) {
+				double expected = 0;
+				for (int k = 0; k < weights.length; k++) {
+					expected += (double) values[i][k] * values[j][k] * weights[k];
+				}
+				assertEquals(expected, gamma[i][j], 1e-10);
+			}
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.math.impl.WeightedCostApproximator.addFunctions()', removeFunctions()
+	 * and silenceFunctions()
+	 */
+	public void testUpdateFunctions() {
+		Random random = new Random(2);
+		float[][] evalPoints = new float[400][1];
+		float[][] values = new float[60][evalPoints.length];
+		for (int k = 0; k < evalPoints.length; k++) {
+			evalPoints[k][0] = random.nextFloat() * 2 - 1;
+			for (int i = 0; i < values.length; i++) {
+				values[i][k] = random.nextFloat();
+			}
+		}
+		Function target = new FourierFunction(new float[]{1}, new float[]{1}, new float[]{0});
+		Function cost = new ConstantFunction(1, 1);
+		float[] expected = new WeightedCostApproximator(evalPoints, values, cost, 0, -1).findCoefficients(target);
+
+		//adding the last 15 functions is the same as starting with all of them
+		WeightedCostApproximator approximator = new WeightedCostApproximator(evalPoints,
+				Arrays.copyOfRange(values, 0, 45), cost, 0, -1);
+		approximator.addFunctions(Arrays.copyOfRange(values, 45, 60));
+		assertEquals(values.length, approximator.getValues().length);
+		assertClose(expected, approximator.findCoefficients(target));
+
+		//removing them again is the same as never having added them
+		int[] removed = new int[]{45, 50, 59, 52, 46, 47, 48, 49, 51, 53, 54, 55, 56, 57, 58};
+		approximator.removeFunctions(removed);
+		assertEquals(45, approximator.getValues().length);
+		float[] expectedFirst = new WeightedCostApproximator(evalPoints, Arrays.copyOfRange(values, 0, 45),
+				cost, 0, -1).findCoefficients(target);
+		assertClose(expectedFirst, approximator.findCoefficients(target));
+
+		//silenced functions get zero coefficients, and the others are found as if they were removed
+		WeightedCostApproximator silenced = new WeightedCostApproximator(evalPoints, values, cost, 0, -1);
+		silenced.silenceFunctions(removed);
+		float[] coefficients = silenced.findCoefficients(target);
+		assertEquals(values.length, coefficients.length);
+		for (int i = 0; i < coefficients.length; i++) {
+			assertEquals(i < 45 ? expectedFirst[i] : 0f, coefficients[i], 1e-3 * Math.max(1, Math.abs(expectedFirst[Math.min(i, 44)])));
+		}
+	}
+
+	private static void assertClose(float[] expected, float[] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], actual[i], 1e-3 * Math.max(1, Math.abs(expected[i])));
+		}
+	}
+
 	public static void main(String[] args)
 	{
 		WeightedCostApproximatorTest t = new WeightedCostApproximatorTest();
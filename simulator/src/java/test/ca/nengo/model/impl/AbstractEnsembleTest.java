@@ -7,13 +7,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 import ca.nengo.model.Node;
+import ca.nengo.model.Probeable;
 import ca.nengo.model.Origin;
 import ca.nengo.model.SimulationException;
+import ca.nengo.model.StructuralException;
 import ca.nengo.model.Termination;
 import ca.nengo.model.Units;
 import ca.nengo.model.impl.AbstractEnsemble;
 import ca.nengo.model.impl.AbstractNode;
 import ca.nengo.model.impl.BasicOrigin;
+import ca.nengo.model.nef.NEFEnsemble;
+import ca.nengo.model.nef.impl.NEFEnsembleFactoryImpl;
+import ca.nengo.util.TimeSeries;
 import junit.framework.TestCase;
 
 /**
@@ -75,4 +80,33 @@ public class AbstractEnsembleTest extends TestCase {
 		assertTrue(origins.contains(four.getName()));
 	}
 
+	/*
+	 * Test method for 'ca.nengo.model.impl.AbstractEnsemble.getState(String, int[], float[], int)'
+	 */
+	public void testGetState() throws StructuralException, SimulationException {
+		NEFEnsemble ensemble = new NEFEnsembleFactoryImpl().make("test", 20, 1);
+		for (int i = 0; i < 3; i++) {
+			ensemble.run(i * .001f, (i+1) * .001f);
+		}
+
+		Node[] nodes = ensemble.getNodes();
+		assertEquals(20, ((AbstractEnsemble) ensemble).getStateDimension("V"));
+		assertEquals(-1, ((AbstractEnsemble) ensemble).getStateDimension("foo"));
+
+		float[] values = new float[22];
+		float time = ((AbstractEnsemble) ensemble).getState("V", new int[]{5, 0, 19}, values, 2);
+		int[] expected = new int[]{5, 0, 19};
+		for (int k = 0; k < expected.length; k++) {
+			TimeSeries history = ((Probeable) nodes[expected[k]]).getHistory("V");
+			int last = history.getTimes().length - 1;
+			assertEquals(history.getTimes()[last], time, 0f);
+			assertEquals(history.getValues()[last][0], values[2 + k], 0f);
+		}
+		assertEquals(0f, values[0], 0f);
+
+		TimeSeries history = ensemble.getHistory("rate");
+		assertEquals(20, history.getDimension());
+		assertEquals(((Probeable) nodes[7]).getHistory("rate").getValues()[0][0], history.getValues()[0][7], 0f);
+	}
+
 }
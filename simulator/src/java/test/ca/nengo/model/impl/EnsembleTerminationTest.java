@@ -4,8 +4,15 @@
 package ca.nengo.model.impl;
 
 import ca.nengo.TestUtil;
+import ca.nengo.dynamics.impl.EulerIntegrator;
+import ca.nengo.dynamics.impl.SimpleLTISystem;
+import ca.nengo.math.impl.FourierTransform;
+import ca.nengo.model.SimulationException;
 import ca.nengo.model.StructuralException;
 import ca.nengo.model.Termination;
+import ca.nengo.model.Units;
+import ca.nengo.model.nef.impl.CircularConvolutionFactory;
+import ca.nengo.model.nef.impl.DecodedTermination;
 import ca.nengo.model.impl.EnsembleTermination;
 import ca.nengo.model.impl.LinearExponentialTermination;
 import junit.framework.TestCase;
@@ -73,4 +80,37 @@ public class EnsembleTerminationTest extends TestCase {
 		TestUtil.assertClose(ourTau*2, myNodeTerminations[0].getTau(), ourTolerance);
 	}
 
+	/**
+	 * Test method for {@link ca.nengo.model.impl.EnsembleTermination#setValues(ca.nengo.model.InstantaneousOutput)}
+	 * with blocks of rows of a shared FourierTransform.
+	 * @throws StructuralException
+	 * @throws SimulationException
+	 */
+	public void testSetValuesFourierRows() throws StructuralException, SimulationException {
+		FourierTransform transform = CircularConvolutionFactory.getInputTransform(8, true, false);
+		DecodedTermination[] shared = makeFourierTerminations(transform);
+		DecodedTermination[] separate = makeFourierTerminations(transform);
+
+		RealOutputImpl x = new RealOutputImpl(new float[]{1, -2, 3, 0, .5f, 0, 0, 1}, Units.UNK, 0);
+		new EnsembleTermination(null, "test", shared).setValues(x);
+		for (int i = 0; i < shared.length; i++) {
+			separate[i].setValues(x);
+			shared[i].run(0, .001f);
+			separate[i].run(0, .001f);
+			assertEquals(x.getValues()[2], shared[i].getInput().getValues()[2]);
+			TestUtil.assertClose(separate[i].getOutput()[0], shared[i].getOutput()[0], ourTolerance);
+			TestUtil.assertClose(separate[i].getOutput()[1], shared[i].getOutput()[1], ourTolerance);
+		}
+	}
+
+	private static DecodedTermination[] makeFourierTerminations(FourierTransform transform) throws StructuralException {
+		DecodedTermination[] result = new DecodedTermination[transform.getOutputDimension() / 2];
+		for (int i = 0; i < result.length; i++) {
+			SimpleLTISystem dynamics = new SimpleLTISystem(new float[]{-1f/ourTau}, new float[][]{new float[]{1f}},
+					new float[][]{new float[]{1f/ourTau}}, new float[]{0f}, new Units[]{Units.UNK});
+			result[i] = new DecodedTermination(null, ""+i, transform.getRows(2*i, 2*i+2), dynamics, new EulerIntegrator(.0001f));
+		}
+		return result;
+	}
+
 }
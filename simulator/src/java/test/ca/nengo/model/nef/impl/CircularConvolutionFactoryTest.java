@@ -0,0 +1,69 @@
+package ca.nengo.model.nef.impl;
+
+import ca.nengo.math.Function;
+import ca.nengo.math.impl.ConstantFunction;
+import ca.nengo.model.SimulationException;
+import ca.nengo.model.SimulationMode;
+import ca.nengo.model.StructuralException;
+import ca.nengo.model.Termination;
+import ca.nengo.model.Units;
+import ca.nengo.model.impl.FunctionInput;
+import ca.nengo.model.impl.NetworkImpl;
+import ca.nengo.model.nef.NEFEnsemble;
+import ca.nengo.util.Probe;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for CircularConvolutionFactory.
+ *
+ * @author agent
+ */
+public class CircularConvolutionFactoryTest extends TestCase {
+
+	public void testMake() throws StructuralException, SimulationException {
+		int d = 4;
+		NetworkImpl network = new NetworkImpl();
+
+		NetworkImpl conv = new CircularConvolutionFactory().make("conv", d, 50);
+		conv.setMode(SimulationMode.DIRECT);
+		network.addNode(conv);
+		assertEquals(CircularConvolutionFactory.getNumProducts(d), conv.getNodes().length);
+		assertEquals(d, conv.getTermination(CircularConvolutionFactory.A).getDimensions());
+		assertEquals(d, conv.getTermination(CircularConvolutionFactory.B).getDimensions());
+		assertEquals(CircularConvolutionFactory.getNumProducts(d), conv.getOrigin(CircularConvolutionFactory.PRODUCT).getDimensions());
+
+		float[] a = new float[]{.5f, -.2f, .1f, .3f};
+		float[] b = new float[]{-.3f, .4f, .2f, .1f};
+		network.addNode(makeInput("a", a));
+		network.addNode(makeInput("b", b));
+		network.addProjection(network.getNode("a").getOrigin(FunctionInput.ORIGIN_NAME), conv.getTermination(CircularConvolutionFactory.A));
+		network.addProjection(network.getNode("b").getOrigin(FunctionInput.ORIGIN_NAME), conv.getTermination(CircularConvolutionFactory.B));
+
+		NEFEnsembleImpl c = (NEFEnsembleImpl) new NEFEnsembleFactoryImpl().make("c", 50, d);
+		c.setMode(SimulationMode.DIRECT);
+		network.addNode(c);
+		Termination t = c.addDecodedTermination("conv", CircularConvolutionFactory.getOutputTransform(d), .005f, false);
+		network.addProjection(conv.getOrigin(CircularConvolutionFactory.PRODUCT), t);
+
+		Probe probe = network.getSimulator().addProbe("c", NEFEnsemble.X, true);
+		network.run(0, .1f);
+
+		float[] result = probe.getData().getValues()[probe.getData().getValues().length - 1];
+		for (int i = 0; i < d; i++) {
+			float expected = 0;
+			for (int j = 0; j < d; j++) {
+				expected += a[j] * b[(i - j + d) % d];
+			}
+			assertEquals(expected, result[i], .01f);
+		}
+	}
+
+	private static FunctionInput makeInput(String name, float[] values) throws StructuralException {
+		Function[] functions = new Function[values.length];
+		for (int i = 0; i < values.length; i++) {
+			functions[i] = new ConstantFunction(1, values[i]);
+		}
+		return new FunctionInput(name, functions, Units.UNK);
+	}
+
+}
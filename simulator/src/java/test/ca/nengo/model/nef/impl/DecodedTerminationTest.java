@@ -0,0 +1,84 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.model.nef.impl;
+
+import ca.nengo.TestUtil;
+import ca.nengo.dynamics.impl.EulerIntegrator;
+import ca.nengo.dynamics.impl.SimpleLTISystem;
+import ca.nengo.math.LinearTransform;
+import ca.nengo.model.SimulationException;
+import ca.nengo.model.StructuralException;
+import ca.nengo.model.Units;
+import ca.nengo.model.impl.RealOutputImpl;
+import ca.nengo.util.MU;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for DecodedTermination.
+ *
+ * @author agent
+ */
+public class DecodedTerminationTest extends TestCase {
+
+	private static float ourTau = .005f;
+
+	public void testLinearTransform() throws StructuralException, SimulationException {
+		float[][] matrix = new float[][]{new float[]{1, 2, 0}, new float[]{0, -1, 3}};
+		DecodedTermination expected = new DecodedTermination(null, "matrix", matrix, makeDynamics(), new EulerIntegrator(.0001f));
+
+		//the equivalent matrix isn't needed to simulate
+		DecodedTermination actual = new DecodedTermination(null, "transform", new MatrixFreeTransform(matrix),
+				makeDynamics(), new EulerIntegrator(.0001f));
+		assertEquals(3, actual.getDimensions());
+		assertEquals(2, actual.getOutput().length);
+
+		RealOutputImpl x = new RealOutputImpl(new float[]{.5f, -.2f, .1f}, Units.UNK, 0);
+		expected.setValues(x);
+		actual.setValues(x);
+		expected.run(0, .001f);
+		actual.run(0, .001f);
+		for (int i = 0; i < 2; i++) {
+			TestUtil.assertClose(expected.getOutput()[i], actual.getOutput()[i], 1e-5f);
+		}
+
+		try {
+			actual.getTransform();
+			fail("Should have asked the transform for its matrix");
+		} catch (UnsupportedOperationException e) {} //exception is expected
+	}
+
+	private static SimpleLTISystem makeDynamics() {
+		return new SimpleLTISystem(new float[]{-1f/ourTau}, new float[][]{new float[]{1f}},
+				new float[][]{new float[]{1f/ourTau}}, new float[]{0f}, new Units[]{Units.UNK});
+	}
+
+	//a LinearTransform that can't make its matrix
+	private static class MatrixFreeTransform implements LinearTransform {
+
+		private static final long serialVersionUID = 1L;
+
+		private final float[][] myMatrix;
+
+		public MatrixFreeTransform(float[][] matrix) {
+			myMatrix = matrix;
+		}
+
+		public int getInputDimension() {
+			return myMatrix[0].length;
+		}
+
+		public int getOutputDimension() {
+			return myMatrix.length;
+		}
+
+		public float[] apply(float[] input) {
+			return MU.prod(myMatrix, input);
+		}
+
+		public float[][] getMatrix() {
+			throw new UnsupportedOperationException("No matrix");
+		}
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.model.nef.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import ca.nengo.math.Function;
+import ca.nengo.math.PDFTools;
+import ca.nengo.math.impl.PostfixFunction;
+import ca.nengo.model.StructuralException;
+import ca.nengo.model.neuron.Neuron;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for DecoderQueue.
+ *
+ * @author agent
+ */
+public class DecoderQueueTest extends TestCase {
+
+	/*
+	 * Test method for 'ca.nengo.model.nef.impl.DecoderQueue.submit()'
+	 */
+	public void testProgress() throws Exception {
+		DecoderQueue queue = new DecoderQueue(1);
+		final CountDownLatch latch = new CountDownLatch(1);
+		Future<Integer> first = queue.submit(new Callable<Integer>() {
+			public Integer call() throws Exception {
+				latch.await();
+				return Integer.valueOf(1);
+			}
+		});
+		Future<Integer> second = queue.submit(new Callable<Integer>() {
+			public Integer call() {
+				throw new IllegalStateException("test");
+			}
+		});
+		assertEquals(2, queue.getSubmittedCount());
+		assertEquals(2, queue.getPendingCount());
+		assertEquals(0, queue.getCompletedCount());
+
+		latch.countDown();
+		queue.waitForAll();
+		assertEquals(0, queue.getPendingCount());
+		assertEquals(2, queue.getCompletedCount());
+		assertEquals(1, DecoderQueue.get(first).intValue());
+		try {
+			DecoderQueue.get(second);
+			fail("Should have thrown exception");
+		} catch (IllegalStateException e) {} // exception is expected
+	}
+
+	/*
+	 * Test method for 'ca.nengo.model.nef.impl.NEFEnsembleImpl.addDecodedOrigin()'
+	 */
+	public void testBackgroundOrigin() throws StructuralException {
+		NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+		ef.beQuiet();
+		NEFEnsembleImpl ensemble = (NEFEnsembleImpl) ef.make("test", 100, 1);
+		Function[] square = new Function[]{new PostfixFunction("x0^2", 1)};
+
+		boolean background = DecoderQueue.isBackground();
+		try {
+			DecoderQueue.setBackground(true);
+			DecodedOrigin pending = (DecodedOrigin) ensemble.addDecodedOrigin("pending", square, Neuron.AXON);
+			assertEquals(1, pending.getDimensions());
+
+			DecoderQueue.setBackground(false);
+			DecodedOrigin direct = (DecodedOrigin) ensemble.addDecodedOrigin("direct", square, Neuron.AXON);
+			assertTrue(direct.isDecoded());
+
+			//the approximator is shared, so the decoders are the same
+			ensemble.waitForDecoders();
+			assertTrue(pending.isDecoded());
+			float[][] expected = direct.getDecoders();
+			float[][] actual = pending.getDecoders();
+			assertEquals(expected.length, actual.length);
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(expected[i][0], actual[i][0], 0f);
+			}
+		} finally {
+			DecoderQueue.setBackground(background);
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.model.nef.impl.NEFEnsembleImpl.addDecodedOrigin()'
+	 */
+	public void testBackgroundErrors() throws StructuralException {
+		NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+		ef.beQuiet();
+		NEFEnsembleImpl ensemble = (NEFEnsembleImpl) ef.make("test", 10, 1);
+		Function[] square = new Function[]{new PostfixFunction("x0^2", 1)};
+
+		boolean background = DecoderQueue.isBackground();
+		try {
+			for (int i = 0; i < 2; i++) {
+				DecoderQueue.setBackground(i == 0);
+				try {
+					ensemble.addDecodedOrigin("bad", square, "nonexistent");
+					fail("Should have thrown exception");
+				} catch (StructuralException e) {} // exception is expected
+			}
+		} finally {
+			DecoderQueue.setBackground(background);
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.model.nef.impl.DecoderQueue.call()'
+	 */
+	public void testSeededModes() throws StructuralException {
+		boolean background = DecoderQueue.isBackground();
+		try {
+			float[][][] decoders = new float[2][][];
+			double[] next = new double[2];
+			for (int i = 0; i < 2; i++) {
+				DecoderQueue.setBackground(i == 0);
+				PDFTools.setSeed(7);
+				NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+				ef.beQuiet();
+				NEFEnsembleImpl ensemble = (NEFEnsembleImpl) ef.make("test", 50, 1);
+				ensemble.addDecodedOrigin("square", new Function[]{new PostfixFunction("x0^2", 1)}, Neuron.AXON);
+				decoders[i] = ((DecodedOrigin) ensemble.getOrigin("square")).getDecoders();
+				next[i] = PDFTools.random();
+			}
+
+			//random numbers are drawn in the same way with or without a queue
+			assertEquals(next[0], next[1], 0);
+			for (int i = 0; i < decoders[0].length; i++) {
+				assertEquals(decoders[0][i][0], decoders[1][i][0], 0f);
+			}
+		} finally {
+			DecoderQueue.setBackground(background);
+		}
+	}
+
+}
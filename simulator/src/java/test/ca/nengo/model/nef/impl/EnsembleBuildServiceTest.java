@@ -0,0 +1,61 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.model.nef.impl;
+
+import ca.nengo.math.PDFTools;
+import ca.nengo.model.StructuralException;
+import ca.nengo.model.nef.NEFEnsemble;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for EnsembleBuildService.
+ *
+ * @author agent
+ */
+public class EnsembleBuildServiceTest extends TestCase {
+
+	/*
+	 * Test method for 'ca.nengo.model.nef.impl.EnsembleBuildService.makeAll()'
+	 */
+	public void testMakeAll() throws StructuralException {
+		NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+		ef.beQuiet();
+		EnsembleBuildService.Spec[] specs = new EnsembleBuildService.Spec[6];
+		for (int i = 0; i < specs.length; i++) {
+			specs[i] = new EnsembleBuildService.Spec(ef, "e" + i, 50 + 10 * i, new float[]{1f}, "", Long.valueOf(i));
+		}
+
+		//a budget too small for two builds at once still finishes
+		EnsembleBuildService service = new EnsembleBuildService(3, 100000);
+		NEFEnsemble[] ensembles = service.makeAll(specs);
+		service.shutdown();
+
+		//seeded builds are the same as sequential builds with the same seeds
+		for (int i = 0; i < specs.length; i++) {
+			assertEquals("e" + i, ensembles[i].getName());
+			assertEquals(50 + 10 * i, ensembles[i].getNodes().length);
+
+			PDFTools.setSeed(i);
+			NEFEnsemble expected = ef.make("e" + i, 50 + 10 * i, new float[]{1f});
+			assertEquals(expected.getEncoders()[3][0], ensembles[i].getEncoders()[3][0], 0f);
+			float[][] expectedDecoders = ((DecodedOrigin) expected.getOrigin(NEFEnsemble.X)).getDecoders();
+			float[][] decoders = ((DecodedOrigin) ensembles[i].getOrigin(NEFEnsemble.X)).getDecoders();
+			for (int j = 0; j < decoders.length; j++) {
+				assertEquals(expectedDecoders[j][0], decoders[j][0], 0f);
+			}
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.model.nef.impl.EnsembleBuildService.estimateBytes()'
+	 */
+	public void testEstimateBytes() {
+		EnsembleBuildService service = EnsembleBuildService.getDefault();
+		long small = service.estimateBytes(new EnsembleBuildService.Spec(new NEFEnsembleFactoryImpl(), "a", 100, new float[]{1f}));
+		long large = service.estimateBytes(new EnsembleBuildService.Spec(new NEFEnsembleFactoryImpl(), "a", 1000, new float[]{1f}));
+		assertTrue(small > 0);
+		assertTrue(large > 10 * small);
+	}
+
+}
@@ -0,0 +1,112 @@
+package ca.nengo.model.nef.impl;
+
+import ca.nengo.TestUtil;
+import ca.nengo.math.Function;
+import ca.nengo.math.impl.ConstantFunction;
+import ca.nengo.model.Projection;
+import ca.nengo.model.SimulationException;
+import ca.nengo.model.SimulationMode;
+import ca.nengo.model.StructuralException;
+import ca.nengo.model.Units;
+import ca.nengo.model.impl.FunctionInput;
+import ca.nengo.model.impl.NetworkImpl;
+import ca.nengo.model.nef.NEFEnsemble;
+import ca.nengo.sim.impl.LocalSimulator;
+import ca.nengo.util.MU;
+import ca.nengo.util.Probe;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for FusedProjection and ProjectionFuser.
+ *
+ * @author agent
+ */
+public class FusedProjectionTest extends TestCase {
+
+	private NetworkImpl myNetwork;
+	private NEFEnsembleImpl mySource;
+	private NEFEnsembleImpl myDest;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		myNetwork = new NetworkImpl();
+		NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+
+		FunctionInput input = new FunctionInput("input", new Function[]{
+				new ConstantFunction(1, 0.5f), new ConstantFunction(1, -0.3f), new ConstantFunction(1, 0.2f)}, Units.UNK);
+		myNetwork.addNode(input);
+
+		mySource = (NEFEnsembleImpl) ef.make("source", 200, 3);
+		mySource.addDecodedTermination("input", MU.I(3), 0.005f, false);
+		myNetwork.addNode(mySource);
+
+		myDest = (NEFEnsembleImpl) ef.make("dest", 100, 1);
+		myDest.addDecodedTermination("sum", new float[][]{new float[]{1, 1, 1}}, 0.005f, false);
+		myDest.addDecodedTermination("first", new float[][]{new float[]{1, 0, 0}}, 0.005f, false);
+		myNetwork.addNode(myDest);
+
+		myNetwork.addProjection(input.getOrigin(FunctionInput.ORIGIN_NAME), mySource.getTermination("input"));
+		myNetwork.addProjection(mySource.getOrigin(NEFEnsemble.X), myDest.getTermination("sum"));
+		myNetwork.addProjection(mySource.getOrigin(NEFEnsemble.X), myDest.getTermination("first"));
+
+		mySource.setMode(SimulationMode.RATE);
+		myDest.setMode(SimulationMode.RATE);
+	}
+
+	public void testOptimize() throws StructuralException {
+		Projection[] fused = ProjectionFuser.optimize(myNetwork.getProjections(), true);
+		int n = 0;
+		for (Projection p : fused) {
+			if (p instanceof FusedProjection) {
+				n++;
+				assertEquals(mySource.getOrigin(NEFEnsemble.X), p.getOrigin());
+			}
+		}
+		assertEquals(2, n);
+
+		for (Projection p : ProjectionFuser.optimize(myNetwork.getProjections(), false)) {
+			assertFalse(p instanceof FusedProjection);
+		}
+	}
+
+	public void testSameOutput() throws StructuralException, SimulationException {
+		LocalSimulator simulator = (LocalSimulator) myNetwork.getSimulator();
+		assertFalse(simulator.getFuseProjections());
+		float[][][] expected = simulate();
+		float[] expectedInput = ((DecodedTermination) myDest.getTermination("sum")).getInput().getValues();
+
+		simulator.setFuseProjections(true);
+		float[][][] actual = simulate();
+
+		//fused terminations still report their input
+		float[] input = ((DecodedTermination) myDest.getTermination("sum")).getInput().getValues();
+		assertEquals(expectedInput.length, input.length);
+		for (int i = 0; i < input.length; i++) {
+			TestUtil.assertClose(expectedInput[i], input[i], 1e-4f);
+		}
+
+		for (int k = 0; k < expected.length; k++) {
+			assertEquals(expected[k].length, actual[k].length);
+			for (int i = 0; i < expected[k].length; i++) {
+				for (int j = 0; j < expected[k][i].length; j++) {
+					TestUtil.assertClose(expected[k][i][j], actual[k][i][j], 1e-4f);
+				}
+			}
+		}
+	}
+
+	// @return Decoded output of source and dest
+	private float[][][] simulate() throws StructuralException, SimulationException {
+		myNetwork.reset(false);
+		myNetwork.getSimulator().initialize(myNetwork);
+		Probe sourceProbe = myNetwork.getSimulator().addProbe("source", NEFEnsemble.X, true);
+		Probe destProbe = myNetwork.getSimulator().addProbe("dest", NEFEnsemble.X, true);
+		myNetwork.getSimulator().run(0, 0.1f, 0.001f);
+		float[][][] result = new float[][][]{sourceProbe.getData().getValues(), destProbe.getData().getValues()};
+		myNetwork.getSimulator().removeProbe(sourceProbe);
+		myNetwork.getSimulator().removeProbe(destProbe);
+		return result;
+	}
+
+}
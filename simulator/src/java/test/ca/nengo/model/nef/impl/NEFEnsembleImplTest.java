@@ -3,8 +3,14 @@
  */
 package ca.nengo.model.nef.impl;
 
+import java.io.File;
+
+import ca.nengo.io.FileManager;
 import ca.nengo.math.Function;
+import ca.nengo.math.LinearApproximator;
 import ca.nengo.math.impl.AbstractFunction;
+import ca.nengo.math.impl.IdentityFunction;
+import ca.nengo.math.impl.WeightedCostApproximator;
 //import ca.nengo.math.impl.ConstantFunction;
 import ca.nengo.model.Network;
 import ca.nengo.model.Node;
@@ -25,6 +31,7 @@ import ca.nengo.plot.Plotter;
 import ca.nengo.util.MU;
 import ca.nengo.util.Probe;
 import ca.nengo.util.TimeSeries;
+import ca.nengo.util.impl.QuasiRandomHypersphereVG;
 import ca.nengo.util.impl.TimeSeriesImpl;
 import junit.framework.TestCase;
 
@@ -332,4 +339,141 @@ public class NEFEnsembleImplTest extends TestCase {
 			fail("Error creating per-node signal origin");
 	}
 
+	public void testClosedFormOutputs() throws StructuralException, SimulationException
+	{
+		NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+		NEFEnsembleImpl ensemble = (NEFEnsembleImpl)ef.make("test", 50, new float[]{2, .5f});
+		float[][] evalPoints = ensemble.getEvalPoints();
+
+		//closed-form LIF rates are the same as running each neuron
+		float[][] outputs = ensemble.getConstantOutputs(evalPoints, "AXON");
+		for (int i = 0; i < outputs.length; i++) {
+			float[] expected = ensemble.getConstantOutput(i, evalPoints, "AXON");
+			for (int j = 0; j < expected.length; j++) {
+				assertEquals(expected[j], outputs[i][j], 0f);
+			}
+		}
+
+		float[] times = new float[]{0, .001f, .002f};
+		TimeSeries[] evalSignals = new TimeSeries[]{new TimeSeriesImpl(times,
+				new float[][]{evalPoints[0], evalPoints[1], evalPoints[2]}, new Units[]{Units.UNK, Units.UNK})};
+		float[][][] signalOutputs = ensemble.getSignalOutputs(evalSignals, "AXON");
+		for (int i = 0; i < signalOutputs.length; i++) {
+			float[][] expected = ensemble.getSignalOutput(i, evalSignals, "AXON");
+			for (int t = 0; t < times.length; t++) {
+				assertEquals(expected[0][t], signalOutputs[i][0][t], 0f);
+			}
+		}
+	}
+
+	public void testSetNodeCount() throws StructuralException
+	{
+		NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+		NEFEnsembleImpl ensemble = (NEFEnsembleImpl)ef.make("test", 100, 1);
+		DecodedOrigin origin = (DecodedOrigin) ensemble.getOrigin(NEFEnsemble.X);
+		Node[] oldNodes = ensemble.getNodes();
+		float[][] oldEncoders = ensemble.getEncoders();
+
+		//existing neurons are kept, and decoders are re-optimized over all of them
+		ensemble.setNodeCount(150);
+		assertEquals(150, ensemble.getNodes().length);
+		assertEquals(150, ensemble.getEncoders().length);
+		for (int i = 0; i < oldNodes.length; i++) {
+			assertTrue(oldNodes[i] == ensemble.getNodes()[i]);
+			assertEquals(oldEncoders[i][0], ensemble.getEncoders()[i][0], 0f);
+		}
+		assertEquals(150, origin.getDecoders().length);
+		assertDecodes(ensemble, origin);
+
+		ensemble.setNodeCount(60);
+		assertEquals(60, origin.getDecoders().length);
+		assertTrue(oldNodes[59] == ensemble.getNodes()[59]);
+		assertDecodes(ensemble, origin);
+
+		//re-optimized decoders ignore killed neurons
+		ensemble.killNeurons(.5f, false, true);
+		Node[] nodes = ensemble.getNodes();
+		for (int i = 0; i < nodes.length; i++) {
+			if (((SpikingNeuron) nodes[i]).getScale() == 0) {
+				assertEquals(0f, origin.getDecoders()[i][0], 0f);
+			}
+		}
+	}
+
+	public void testAdaptEvalPoints() throws StructuralException
+	{
+		NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+		ef.beQuiet();
+		ef.setEvalPointFactory(new QuasiRandomHypersphereVG(false, 1f));
+		ef.setAdaptiveEvalPoints(true);
+
+		//a small 1-D population doesn't need the default 1000 points
+		NEFEnsembleImpl ensemble = (NEFEnsembleImpl)ef.make("test", 50, 1);
+		int n = ensemble.getEvalPoints().length;
+		assertTrue(n >= 100 && n < 1000);
+		assertEquals(0, n % 100);
+		assertDecodes(ensemble, (DecodedOrigin) ensemble.getOrigin(NEFEnsemble.X));
+
+		//radii are applied to the chosen points
+		ensemble.setRadii(new float[]{2f});
+		assertEquals(n, ensemble.getEvalPoints().length);
+		float max = 0;
+		for (int i = 0; i < n; i++) {
+			max = Math.max(max, Math.abs(ensemble.getEvalPoints()[i][0]));
+		}
+		assertTrue(max > 1.5f && max <= 2f);
+	}
+
+	public void testAdaptEvalPointsKeepsApproximator() throws StructuralException
+	{
+		final int[] count = new int[1];
+		NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+		ef.setApproximatorFactory(new WeightedCostApproximator.Factory(.1f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			public LinearApproximator getApproximator(float[][] evalPoints, float[][] values) {
+				count[0]++;
+				return super.getApproximator(evalPoints, values);
+			}
+		});
+		ef.setEvalPointFactory(new QuasiRandomHypersphereVG(false, 1f));
+		ef.setAdaptiveEvalPoints(true);
+
+		//batches are solved without approximators, and the X origin reuses the final one
+		NEFEnsembleImpl ensemble = (NEFEnsembleImpl)ef.make("test", 50, 1);
+		assertEquals(1, count[0]);
+		assertDecodes(ensemble, (DecodedOrigin) ensemble.getOrigin(NEFEnsemble.X));
+	}
+
+	public void testLoadLegacyFile() throws Exception
+	{
+		//saved by an earlier version, with a stored WeightedCostApproximator that lacks newer fields
+		File file = new File(getClass().getResource("legacy-ensemble.nef").toURI());
+		NEFEnsembleImpl ensemble = (NEFEnsembleImpl) new FileManager().load(file);
+
+		DecodedOrigin origin = (DecodedOrigin) ensemble.addDecodedOrigin("copy",
+				new Function[]{new IdentityFunction(1, 0)}, "AXON");
+		float[][] expected = ((DecodedOrigin) ensemble.getOrigin(NEFEnsemble.X)).getDecoders();
+		float[][] decoders = origin.getDecoders();
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i][0], decoders[i][0], 1e-6f);
+		}
+		assertDecodes(ensemble, origin);
+	}
+
+	//decoded X is close to the represented value when rates are known exactly
+	private static void assertDecodes(NEFEnsembleImpl ensemble, DecodedOrigin origin) throws StructuralException
+	{
+		float[][] points = new float[][]{{-.5f}, {0f}, {.5f}};
+		float[][] rates = ensemble.getConstantOutputs(points, "AXON");
+		float[][] decoders = origin.getDecoders();
+		for (int j = 0; j < points.length; j++) {
+			float x = 0;
+			for (int i = 0; i < decoders.length; i++) {
+				x += rates[i][j] * decoders[i][0];
+			}
+			assertEquals(points[j][0], x, .05f);
+		}
+	}
+
 }
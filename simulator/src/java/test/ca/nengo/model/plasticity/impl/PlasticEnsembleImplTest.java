@@ -0,0 +1,75 @@
+package ca.nengo.model.plasticity.impl;
+
+import junit.framework.TestCase;
+import ca.nengo.math.PDFTools;
+import ca.nengo.model.SimulationException;
+import ca.nengo.model.StructuralException;
+import ca.nengo.model.Units;
+import ca.nengo.model.impl.RealOutputImpl;
+import ca.nengo.model.nef.impl.DecodedTermination;
+import ca.nengo.model.nef.impl.NEFEnsembleFactoryImpl;
+import ca.nengo.model.nef.impl.NEFEnsembleImpl;
+import ca.nengo.util.ThreadTask;
+
+public class PlasticEnsembleImplTest extends TestCase {
+
+    private static final int STEPS = 40;
+
+    public void testLearningLag() throws StructuralException, SimulationException {
+        float[][][] expected = runPES(0);
+        for (int lag = 1; lag <= 3; lag++) {
+            float[][][] weights = runPES(lag);
+
+            // learning runs every step, and each step's change arrives lag steps later
+            for (int step = 0; step < STEPS; step++) {
+                float[][] shifted = step < lag ? new float[10][2] : expected[step - lag];
+                for (int i = 0; i < shifted.length; i++) {
+                    for (int j = 0; j < shifted[i].length; j++) {
+                        assertEquals("lag " + lag + " step " + step, shifted[i][j], weights[step][i][j], 1e-6f);
+                    }
+                }
+            }
+        }
+    }
+
+    //weights at the end of each step, with PES changes that don't depend on the weights (no Oja term)
+    private static float[][][] runPES(int lag) throws StructuralException, SimulationException {
+        NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+        ef.beQuiet();
+        PDFTools.setSeed(1); // the same ensemble for each lag
+        NEFEnsembleImpl ensemble = (NEFEnsembleImpl) ef.make("post", 10, 1);
+
+        float[][] initial = new float[10][2];
+        PESTermination term = (PESTermination) ensemble.addPESTermination("learning", initial, .005f, false);
+        term.setLearningRate(1e-2f);
+        term.setModTermName("error");
+        DecodedTermination error = (DecodedTermination) ensemble.addDecodedTermination("error", new float[][]{{1f}}, .005f, true);
+        ensemble.setLearningLag(lag);
+
+        float dt = .001f;
+        float[][][] result = new float[STEPS][][];
+        for (int step = 0; step < STEPS; step++) {
+            float time = step * dt;
+
+            float phase = step * .3f;
+            term.setValues(new RealOutputImpl(new float[]{(float) Math.sin(phase), (float) Math.cos(phase)}, Units.UNK, time));
+            error.setValues(new RealOutputImpl(new float[]{(float) Math.sin(2 * phase)}, Units.UNK, time));
+            ensemble.run(time, time + dt);
+
+            // the task phase of a simulator step
+            for (ThreadTask task : ensemble.getTasks()) {
+                task.run(time, time + dt);
+            }
+            result[step] = copy(term.getTransform());
+        }
+        return result;
+    }
+
+    private static float[][] copy(float[][] matrix) {
+        float[][] result = new float[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            result[i] = matrix[i].clone();
+        }
+        return result;
+    }
+}
@@ -1,10 +1,18 @@
 package ca.nengo.model.plasticity.impl;
 
+import java.util.Random;
+
 import junit.framework.TestCase;
+import ca.nengo.model.SimulationException;
 import ca.nengo.model.StructuralException;
+import ca.nengo.model.Units;
 import ca.nengo.model.impl.LinearExponentialTermination;
+import ca.nengo.model.impl.RealOutputImpl;
+import ca.nengo.model.impl.SpikeOutputImpl;
+import ca.nengo.model.nef.NEFEnsemble;
 import ca.nengo.model.nef.impl.NEFEnsembleFactoryImpl;
 import ca.nengo.model.nef.impl.NEFEnsembleImpl;
+import ca.nengo.model.neuron.Neuron;
 import ca.nengo.model.neuron.impl.SpikingNeuron;
 
 public class PlasticEnsembleTerminationTest extends TestCase {
@@ -82,4 +90,143 @@ public class PlasticEnsembleTerminationTest extends TestCase {
             }
         }
     }
+
+    public void testPESUpdateTransform() throws StructuralException, SimulationException {
+        float tau = 0.005f;
+        float rate = 1e-2f;
+        float gain = 2.0f;
+        float[] input = new float[]{1.0f, -2.0f, 0.5f};
+        float[] mod = new float[]{0.5f};
+        float[] post = new float[]{0.3f};
+
+        NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+        NEFEnsembleImpl c = (NEFEnsembleImpl)ef.make("c", 10, 1);
+        float[][] encoders = c.getEncoders();
+
+        LinearExponentialTermination[] nodeterms = new LinearExponentialTermination[10];
+        for(int i = 0; i < nodeterms.length; i++) {
+            nodeterms[i] = new LinearExponentialTermination(new SpikingNeuron(null, null, gain, 0.0f, null), null, new float[]{1.0f, 1.0f, 1.0f}, tau);
+            nodeterms[i].setValues(new RealOutputImpl(input, Units.UNK, 0.0f));
+        }
+
+        PESTermination term = new PESTermination(c, null, nodeterms);
+        term.setLearningRate(rate);
+        term.setOja(true);
+        term.setModTermName("mod");
+        term.setModTerminationState("mod", new RealOutputImpl(mod, Units.UNK, 0.0f), 0.0f);
+        term.setOriginState(NEFEnsemble.X, new RealOutputImpl(post, Units.UNK, 0.0f), 0.0f);
+
+        // two row ranges, as if run by separate LearningTasks
+        term.updateTransform(0.001f, 0, 4);
+        term.updateTransform(0.001f, 4, 10);
+
+        float[][] transform = term.getTransform();
+        for (int i = 0; i < transform.length; i++) {
+            float e = mod[0] * encoders[i][0];
+            for (int j = 0; j < input.length; j++) {
+                float x = input[j] * 0.001f / tau;
+                float expected = 1.0f + rate * x * e * gain - rate * post[0] * post[0] * 1.0f;
+                assertEquals(expected, transform[i][j], 1e-6f);
+            }
+        }
+    }
+
+    public void testSTDPUpdateTransform() throws StructuralException, SimulationException {
+        int nPre = 7;
+        int nPost = 5;
+        float rate = 1e-2f;
+        Random random = new Random(1);
+
+        LinearExponentialTermination[] nodeterms = new LinearExponentialTermination[nPost];
+        for(int i = 0; i < nodeterms.length; i++) {
+            float[] weights = new float[nPre];
+            for (int j = 0; j < nPre; j++) {
+                weights[j] = random.nextFloat();
+            }
+            nodeterms[i] = new LinearExponentialTermination(null, null, weights, 0.005f);
+        }
+
+        STDPTermination term = new STDPTermination(null, null, nodeterms);
+        term.setLearningRate(rate);
+        float[][] expected = term.getTransform();
+        for (int i = 0; i < nPost; i++) {
+            expected[i] = expected[i].clone();
+        }
+
+        // reference implementation of the triplet rule, with traces decayed every step
+        float[] post1 = new float[nPost], post2 = new float[nPost];
+        float[] pre1 = new float[nPre], pre2 = new float[nPre];
+
+        for (int step = 1; step <= 600; step++) {
+            float time = step * 0.001f;
+            boolean[] preSpikes = new boolean[nPre];
+            boolean[] postSpikes = new boolean[nPost];
+            for (int j = 0; j < nPre; j++) { preSpikes[j] = random.nextFloat() < 0.2f; }
+            for (int i = 0; i < nPost; i++) { postSpikes[i] = random.nextFloat() < 0.2f; }
+
+            for (LinearExponentialTermination nodeterm : nodeterms) {
+                nodeterm.setValues(new SpikeOutputImpl(preSpikes, Units.SPIKES, time));
+            }
+            term.setOriginState(Neuron.AXON, new SpikeOutputImpl(postSpikes, Units.SPIKES, time), time);
+            term.updateTransform(time, 0, 2);
+            term.updateTransform(time, 2, nPost);
+
+            for (int i = 0; i < nPost; i++) { post1[i] = (post1[i] + (postSpikes[i] ? 1 : 0)) * (1 - 1 / 33.7f); }
+            for (int j = 0; j < nPre; j++) { pre1[j] = (pre1[j] + (preSpikes[j] ? 1 : 0)) * (1 - 1 / 16.8f); }
+            for (int i = 0; i < nPost; i++) {
+                for (int j = 0; j < nPre; j++) {
+                    if (preSpikes[j]) { expected[i][j] += rate * post1[i] * (6.6e-3f + pre2[j] * 3.1e-3f); }
+                    if (postSpikes[i]) { expected[i][j] -= rate * pre1[j] * (8.8e-11f + post2[i] * 5.3e-2f); }
+                }
+            }
+            for (int j = 0; j < nPre; j++) { pre2[j] = (pre2[j] + (preSpikes[j] ? 1 : 0)) * (1 - 1 / 101f); }
+            for (int i = 0; i < nPost; i++) { post2[i] = (post2[i] + (postSpikes[i] ? 1 : 0)) * (1 - 1 / 125f); }
+        }
+
+        float[][] transform = term.getTransform();
+        for (int i = 0; i < nPost; i++) {
+            for (int j = 0; j < nPre; j++) {
+                assertEquals(expected[i][j], transform[i][j], 1e-5f * Math.max(1f, Math.abs(expected[i][j])));
+            }
+        }
+    }
+
+    public void testDeferredUpdate() throws StructuralException, SimulationException {
+        NEFEnsembleFactoryImpl ef = new NEFEnsembleFactoryImpl();
+        NEFEnsembleImpl c = (NEFEnsembleImpl)ef.make("c", 10, 1);
+
+        PESTermination[] terms = new PESTermination[2];
+        for (int t = 0; t < terms.length; t++) {
+            LinearExponentialTermination[] nodeterms = new LinearExponentialTermination[10];
+            for(int i = 0; i < nodeterms.length; i++) {
+                nodeterms[i] = new LinearExponentialTermination(new SpikingNeuron(null, null, 1.0f, 0.0f, null), null, new float[]{1.0f, 1.0f}, 0.005f);
+                nodeterms[i].setValues(new RealOutputImpl(new float[]{1.0f, -1.0f}, Units.UNK, 0.0f));
+            }
+            terms[t] = new PESTermination(c, null, nodeterms);
+            terms[t].setLearningRate(1e-2f);
+            terms[t].setModTermName("mod");
+            terms[t].setModTerminationState("mod", new RealOutputImpl(new float[]{1.0f}, Units.UNK, 0.0f), 0.0f);
+        }
+
+        terms[0].updateTransform(0.001f, 0, 10);
+
+        terms[1].prepareUpdate(0.001f);
+        terms[1].beginDeferredUpdate();
+        terms[1].updateTransform(0.001f, 0, 10);
+        float[][] before = terms[1].getTransform();
+        for (int i = 0; i < before.length; i++) {
+            for (int j = 0; j < before[i].length; j++) {
+                assertEquals(1.0f, before[i][j]);
+            }
+        }
+        terms[1].applyDeferredUpdate(true);
+
+        float[][] expected = terms[0].getTransform();
+        float[][] transform = terms[1].getTransform();
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected[i].length; j++) {
+                assertEquals(expected[i][j], transform[i][j], 1e-6f);
+            }
+        }
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.sim.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import ca.nengo.model.Network;
+import ca.nengo.model.SimulationException;
+import ca.nengo.model.StructuralException;
+import ca.nengo.model.impl.NetworkImpl;
+import ca.nengo.model.nef.NEFEnsemble;
+import ca.nengo.model.nef.NEFEnsembleFactory;
+import ca.nengo.model.nef.impl.NEFEnsembleFactoryImpl;
+import ca.nengo.util.Probe;
+import ca.nengo.util.TimeSeries;
+
+/**
+ * Unit tests for StreamingProbeRecorder.
+ *
+ * @author agent
+ */
+public class StreamingProbeRecorderTest extends TestCase {
+
+	/*
+	 * Test method for 'ca.nengo.sim.impl.StreamingProbeRecorder.processEvent()'
+	 */
+	public void testRecording() throws StructuralException, SimulationException, IOException {
+		Network network = new NetworkImpl();
+		NEFEnsembleFactory factory = new NEFEnsembleFactoryImpl();
+		NEFEnsemble ensemble = factory.make("Ensemble",100,2);
+		network.addNode(ensemble);
+		File file = File.createTempFile("testSPR", ".bin");
+
+		Probe probe = network.getSimulator().addProbe("Ensemble", "X", true);
+		StreamingProbeRecorder recorder = new StreamingProbeRecorder(file, probe);
+		recorder.setChunkSize(64);
+		network.getSimulator().addSimulatorListener(recorder);
+		network.getSimulator().run(0.0f, 0.5f, 0.001f);
+
+		TimeSeries expected = probe.getData();
+		TimeSeries actual = recorder.read();
+		assertNull(recorder.getError());
+		assertEquals(expected.getTimes().length, actual.getTimes().length);
+		assertEquals(2, actual.getDimension());
+		for (int i = 0; i < actual.getTimes().length; i++) {
+			assertEquals(expected.getTimes()[i], actual.getTimes()[i], 0f);
+			assertEquals(expected.getValues()[i][1], actual.getValues()[i][1], 0f);
+		}
+
+		//decimated and filtered on the way out
+		recorder.setDecimation(5);
+		recorder.setFilterTau(.01f);
+		network.getSimulator().run(0.0f, 0.5f, 0.001f);
+		actual = recorder.read();
+		expected = probe.getData();
+		assertEquals(expected.getTimes().length / 5, actual.getTimes().length);
+		assertEquals(expected.getTimes()[5], actual.getTimes()[1], 0f);
+
+		assertTrue(file.delete());
+	}
+
+	/*
+	 * Test method for 'ca.nengo.sim.impl.StreamingProbeRecorder.setQueueCapacity()'
+	 */
+	public void testLatestSamples() throws StructuralException, SimulationException, IOException {
+		Network network = new NetworkImpl();
+		NEFEnsembleFactory factory = new NEFEnsembleFactoryImpl();
+		NEFEnsemble ensemble = factory.make("Ensemble",100,2);
+		network.addNode(ensemble);
+		File file = File.createTempFile("testSPR", ".bin");
+
+		//the probe only keeps the latest sample, and the writer can fall behind by a few
+		Probe latest = network.getSimulator().addProbe("Ensemble", "X", false);
+		StreamingProbeRecorder recorder = new StreamingProbeRecorder(file, latest);
+		recorder.setQueueCapacity(3);
+		network.getSimulator().addSimulatorListener(recorder);
+		network.getSimulator().run(0.0f, 0.2f, 0.001f);
+
+		TimeSeries actual = recorder.read();
+		assertNull(recorder.getError());
+		assertEquals(200, actual.getTimes().length);
+		for (int i = 0; i < actual.getTimes().length; i++) {
+			assertEquals(.001f * (i+1), actual.getTimes()[i], 1e-5f);
+		}
+		assertEquals(latest.getData().getValues()[0][1], actual.getValues()[199][1], 0f);
+
+		assertTrue(file.delete());
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.util.impl;
+
+import java.util.Random;
+
+import ca.nengo.model.Units;
+import ca.nengo.util.TimeSeries;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for CompressedTimeSeries.
+ *
+ * @author agent
+ */
+public class CompressedTimeSeriesTest extends TestCase {
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.CompressedTimeSeries.getValues()'
+	 */
+	public void testGetValues() {
+		float[] special = new float[]{0f, -0f, Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY,
+				Float.MIN_VALUE, -Float.MIN_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, 1e-30f, -1e30f};
+		Random random = new Random(1);
+		CompressedTimeSeries series = new CompressedTimeSeries(new Units[]{Units.UNK, Units.UNK}, 16);
+		float[] times = new float[1000];
+		float[][] values = new float[1000][];
+		for (int i = 0; i < times.length; i++) {
+			times[i] = (i % 100 == 0) ? random.nextFloat() * 1000 : i * .001f;
+			values[i] = new float[]{Float.intBitsToFloat(random.nextInt()), special[i % special.length]};
+			series.append(times[i], values[i]);
+		}
+
+		assertEquals(1000, series.getLength());
+		float[] decodedTimes = series.getTimes();
+		float[][] decoded = series.getValues();
+		float[] column = series.getColumn(1);
+		for (int i = 0; i < times.length; i++) {
+			assertEquals(Float.floatToRawIntBits(times[i]), Float.floatToRawIntBits(decodedTimes[i]));
+			for (int j = 0; j < 2; j++) {
+				assertEquals(Float.floatToRawIntBits(values[i][j]), Float.floatToRawIntBits(decoded[i][j]));
+			}
+			assertEquals(Float.floatToRawIntBits(values[i][1]), Float.floatToRawIntBits(column[i]));
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.CompressedTimeSeries.getStoredSize()'
+	 */
+	public void testGetStoredSize() {
+		int n = 100 * CompressedTimeSeries.DEFAULT_BLOCK_SIZE;
+		long uncompressed = 4L * n * 2;
+
+		//filtered smooth signal: times take about a bit and values about half their bits
+		CompressedTimeSeries series = new CompressedTimeSeries(new Units[]{Units.UNK});
+		float value = 0;
+		for (int i = 0; i < n; i++) {
+			float time = i * .001f;
+			value = .99f * value + .01f * (float) Math.sin(2 * Math.PI * time);
+			series.append(time, new float[]{value});
+		}
+		assertTrue(series.getStoredSize() * 3 < uncompressed);
+		assertEquals(value, series.getValues()[n-1][0], 0f);
+
+		//filtered white noise: the values barely compress
+		series = new CompressedTimeSeries(new Units[]{Units.UNK});
+		Random random = new Random(1);
+		value = 0;
+		for (int i = 0; i < n; i++) {
+			value = .99f * value + .01f * (float) random.nextGaussian();
+			series.append(i * .001f, new float[]{value});
+		}
+		assertTrue(series.getStoredSize() * 3 > uncompressed);
+		assertTrue(series.getStoredSize() * 3 < uncompressed * 2);
+		assertEquals(value, series.getValues()[n-1][0], 0f);
+	}
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.CompressedTimeSeries.snapshot()'
+	 */
+	public void testSnapshot() throws CloneNotSupportedException {
+		TimeSeries original = new TimeSeriesImpl(new float[]{1, 2, 3}, new float[][]{{1}, {2}, {3}},
+				new Units[]{Units.SPIKES_PER_S}, new String[]{"rate"});
+		CompressedTimeSeries series = CompressedTimeSeries.compress(original);
+		assertEquals("rate", series.getLabels()[0]);
+		assertEquals(Units.SPIKES_PER_S, series.getUnits()[0]);
+
+		TimeSeries copy = series.clone();
+		series.append(4, new float[]{4});
+		assertEquals(3, copy.getTimes().length);
+		assertEquals(4, series.getTimes().length);
+		assertEquals(4f, series.getValues()[3][0], 0f);
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.util.impl;
+
+import java.util.Properties;
+
+import ca.nengo.model.Probeable;
+import ca.nengo.model.SimulationException;
+import ca.nengo.model.Units;
+import ca.nengo.util.TimeSeries;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for FilteredProbe.
+ *
+ * @author agent
+ */
+public class FilteredProbeTest extends TestCase {
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.FilteredProbe.process(float, float[])'
+	 */
+	public void testProcess() throws SimulationException {
+		MockProbeable target = new MockProbeable();
+		FilteredProbe probe = new FilteredProbe(.01f, 10);
+		probe.connect(target, "x", true);
+
+		float dt = .001f;
+		for (int i = 0; i < 1000; i++) {
+			target.myTime = i * dt;
+			target.myValue = (i == 0) ? 0 : 1;
+			probe.collect(target.myTime);
+		}
+
+		TimeSeries data = probe.getData();
+		assertEquals(100, data.getTimes().length);
+		assertEquals(0f, data.getTimes()[0], 0f);
+		assertEquals(.01f, data.getTimes()[1], 1e-6f);
+		for (int i = 0; i < 100; i++) {
+			float expected = 1 - (float) Math.exp(-data.getTimes()[i] / .01f);
+			assertEquals(expected, data.getValues()[i][0], .001f);
+		}
+
+		probe.setFilterTau(0);
+		probe.setDecimation(1);
+		target.myValue = 5;
+		probe.collect(target.myTime);
+		assertEquals(5f, probe.getData().getValues()[0][0], 0f);
+
+		try {
+			probe.setDecimation(0);
+			fail("Should have thrown exception");
+		} catch (IllegalArgumentException e) {} //exception is expected
+	}
+
+	static class MockProbeable implements Probeable {
+
+		float myTime;
+		float myValue;
+
+		public TimeSeries getHistory(String stateName) throws SimulationException {
+			return new TimeSeriesImpl(new float[]{myTime}, new float[][]{new float[]{myValue, -myValue}},
+					new Units[]{Units.UNK, Units.UNK});
+		}
+
+		public Properties listStates() {
+			Properties result = new Properties();
+			result.setProperty("x", "test state");
+			return result;
+		}
+	}
+
+}
@@ -0,0 +1,285 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.util.impl;
+
+import java.util.Properties;
+
+import ca.nengo.math.Function;
+import ca.nengo.math.impl.PostfixFunction;
+import ca.nengo.model.Probeable;
+import ca.nengo.model.SimulationException;
+import ca.nengo.model.StructuralException;
+import ca.nengo.model.Units;
+import ca.nengo.model.impl.FunctionInput;
+import ca.nengo.model.nef.NEFEnsemble;
+import ca.nengo.model.nef.impl.NEFEnsembleFactoryImpl;
+import ca.nengo.util.TimeSeries;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for ProbeImpl.
+ *
+ * @author agent
+ */
+public class ProbeImplTest extends TestCase {
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.ProbeImpl.getData()'
+	 */
+	public void testGetData() throws SimulationException {
+		MockProbeable target = new MockProbeable();
+		ProbeImpl probe = new ProbeImpl();
+		probe.connect(target, "x", true);
+
+		for (int i = 0; i < 2500; i++) {
+			target.myTime = i;
+			probe.collect(i);
+		}
+		TimeSeries data = probe.getData();
+		assertEquals(2500, data.getTimes().length);
+		assertEquals(2, data.getDimension());
+		assertEquals(Units.mV, data.getUnits()[0]);
+		assertEquals(1234f, data.getTimes()[1234], 0f);
+		assertEquals(1234f, data.getValues()[1234][0], 0f);
+		assertEquals(-1234f, data.getValues()[1234][1], 0f);
+
+		//the view doesn't change as more samples are collected
+		for (int i = 2500; i < 5000; i++) {
+			target.myTime = i;
+			probe.collect(i);
+		}
+		assertEquals(2500, data.getTimes().length);
+		assertEquals(2499f, ((ColumnarTimeSeries) data).getValue(2499, 0), 0f);
+		assertEquals(5000, probe.getData().getTimes().length);
+
+		//only the last step is kept if not recording
+		probe.connect(target, "x", false);
+		target.myTime = 5000;
+		probe.collect(5000);
+		data = probe.getData();
+		target.myTime = 5001;
+		probe.collect(5001);
+		assertEquals(1, data.getTimes().length);
+		assertEquals(1, probe.getData().getTimes().length);
+		assertEquals(5000f, data.getValues()[0][0], 0f);
+	}
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.ProbeImpl.setCapacity()'
+	 */
+	public void testSetCapacity() throws SimulationException {
+		MockProbeable target = new MockProbeable();
+		ProbeImpl probe = new ProbeImpl();
+		probe.connect(target, "x", true);
+		probe.setCapacity(100);
+
+		for (int i = 0; i < 250; i++) {
+			target.myTime = i;
+			probe.collect(i);
+			if (i == 220) {
+				TimeSeries data = probe.getData();
+				assertEquals(121f, data.getTimes()[0], 0f);
+			}
+		}
+
+		ColumnarTimeSeries data = (ColumnarTimeSeries) probe.getData();
+		assertEquals(100, data.getLength());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(150f + i, data.getTimes()[i], 0f);
+			assertEquals(150f + i, data.getValues()[i][0], 0f);
+			assertEquals(-150f - i, data.getColumn(1)[i], 0f);
+		}
+
+		//a view isn't overwritten as the ring wraps around
+		target.myTime = 250;
+		probe.collect(250);
+		assertEquals(150f, data.getTime(0), 0f);
+		assertEquals(151f, probe.getData().getTimes()[0], 0f);
+	}
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.ProbeImpl.getNewData()'
+	 */
+	public void testGetNewData() throws SimulationException {
+		MockProbeable target = new MockProbeable();
+		ProbeImpl probe = new ProbeImpl();
+		probe.connect(target, "x", true);
+		probe.setCapacity(100);
+		collect(target, probe, 0, 10);
+		assertSamples(0, 10, probe.getNewData());
+		collect(target, probe, 10, 15);
+		assertSamples(10, 5, probe.getNewData());
+		assertSamples(0, 0, probe.getNewData());
+
+		//samples that have been overwritten are gone
+		collect(target, probe, 15, 165);
+		assertSamples(65, 100, probe.getNewData());
+
+		//the whole history isn't needed
+		probe.connect(target, "x", false);
+		for (int i = 0; i < 3; i++) {
+			collect(target, probe, i, i+1);
+			assertSamples(i, 1, probe.getNewData());
+		}
+
+		//only the blocks with new samples are decoded
+		probe.connect(target, "x", true);
+		probe.setCapacity(-1);
+		probe.setCompressed(true);
+		collect(target, probe, 0, 2500);
+		probe.getNewData();
+		collect(target, probe, 2500, 3000);
+		assertSamples(2500, 500, probe.getNewData());
+	}
+
+	private static void collect(MockProbeable target, ProbeImpl probe, int from, int to) {
+		for (int i = from; i < to; i++) {
+			target.myTime = i;
+			probe.collect(i);
+		}
+	}
+
+	private static void assertSamples(int first, int length, TimeSeries data) {
+		assertEquals(length, data.getTimes().length);
+		for (int i = 0; i < length; i++) {
+			assertEquals((float) (first + i), data.getTimes()[i], 0f);
+			assertEquals((float) -(first + i), data.getValues()[i][1], 0f);
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.ProbeImpl.setCompressed(boolean)'
+	 */
+	public void testSetCompressed() throws SimulationException {
+		MockProbeable target = new MockProbeable();
+		ProbeImpl probe = new ProbeImpl();
+		probe.connect(target, "x", true);
+		probe.setCompressed(true);
+
+		for (int i = 0; i < 3000; i++) {
+			target.myTime = i;
+			probe.collect(i);
+		}
+
+		CompressedTimeSeries data = (CompressedTimeSeries) probe.getData();
+		assertEquals(3000, data.getLength());
+		for (int i = 0; i < 3000; i++) {
+			assertEquals((float) i, data.getTimes()[i], 0f);
+			assertEquals(-i, data.getValues()[i][1], 0f);
+		}
+
+		//later samples aren't added to earlier data
+		target.myTime = 3000;
+		probe.collect(3000);
+		assertEquals(3000, data.getLength());
+		assertEquals(3001, ((CompressedTimeSeries) probe.getData()).getLength());
+
+		probe.setCapacity(10);
+		probe.collect(3001);
+		assertTrue(probe.getData() instanceof ColumnarTimeSeries);
+	}
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.ProbeImpl.collect()'
+	 */
+	public void testCollectOrigin() throws StructuralException, SimulationException {
+		FunctionInput input = new FunctionInput("input", new Function[]{new PostfixFunction("2*x0", 1)}, Units.UNK);
+		ProbeImpl probe = new ProbeImpl();
+		probe.connect(input, FunctionInput.STATE_NAME, true);
+
+		for (int i = 0; i < 10; i++) {
+			input.run(i * .001f, (i+1) * .001f);
+			probe.collect((i+1) * .001f);
+		}
+		TimeSeries data = probe.getData();
+		assertEquals("input:input", data.getName());
+		assertEquals(10, data.getTimes().length);
+		assertEquals(1, data.getDimension());
+		for (int i = 0; i < 10; i++) {
+			assertEquals((i+1) * .001f, data.getTimes()[i], 1e-6f);
+			assertEquals(2 * (i+1) * .001f, data.getValues()[i][0], 1e-6f);
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.ProbeImpl.setSubset(int[])'
+	 */
+	public void testSetSubset() throws SimulationException {
+		MockProbeable target = new MockProbeable();
+		ProbeImpl probe = new ProbeImpl();
+		probe.connect(target, "x", true);
+		probe.setSubset(new int[]{1});
+
+		target.myTime = 3;
+		probe.collect(3);
+		TimeSeries data = probe.getData();
+		assertEquals(1, data.getDimension());
+		assertEquals(-3f, data.getValues()[0][0], 0f);
+
+		probe.setSubset(null);
+		probe.collect(3);
+		assertEquals(2, probe.getData().getDimension());
+	}
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.ProbeImpl.setRandomSubset(int)'
+	 */
+	public void testSetRandomSubset() throws StructuralException, SimulationException {
+		NEFEnsemble ensemble = new NEFEnsembleFactoryImpl().make("test", 50, 1);
+		ProbeImpl all = new ProbeImpl();
+		all.connect(ensemble, "V", true);
+		ProbeImpl some = new ProbeImpl();
+		some.connect(ensemble, "V", true);
+		some.setRandomSubset(10);
+
+		int[] subset = some.getSubset();
+		assertEquals(10, subset.length);
+		for (int i = 1; i < subset.length; i++) {
+			assertTrue(subset[i] > subset[i-1]);
+		}
+
+		for (int i = 0; i < 5; i++) {
+			ensemble.run(i * .001f, (i+1) * .001f);
+			all.collect((i+1) * .001f);
+			some.collect((i+1) * .001f);
+		}
+
+		TimeSeries allData = all.getData();
+		TimeSeries someData = some.getData();
+		TimeSeries history = ensemble.getHistory("V");
+		assertEquals(50, allData.getDimension());
+		int last = allData.getTimes().length - 1;
+		assertTrue(last >= 3);
+		assertEquals(last + 1, someData.getTimes().length);
+		assertEquals(history.getTimes()[0], allData.getTimes()[last], 0f);
+		for (int j = 0; j < 50; j++) {
+			assertEquals(history.getValues()[0][j], allData.getValues()[last][j], 0f);
+		}
+		for (int j = 0; j < subset.length; j++) {
+			assertEquals(allData.getValues()[last][subset[j]], someData.getValues()[last][j], 0f);
+		}
+
+		try {
+			some.setRandomSubset(51);
+			fail("Should have thrown exception");
+		} catch (SimulationException e) {} //exception is expected
+	}
+
+	private static class MockProbeable implements Probeable {
+
+		private float myTime;
+
+		public TimeSeries getHistory(String stateName) throws SimulationException {
+			return new TimeSeriesImpl(new float[]{myTime}, new float[][]{new float[]{myTime, -myTime}},
+					new Units[]{Units.mV, Units.mV});
+		}
+
+		public Properties listStates() {
+			Properties result = new Properties();
+			result.setProperty("x", "test state");
+			return result;
+		}
+	}
+
+}
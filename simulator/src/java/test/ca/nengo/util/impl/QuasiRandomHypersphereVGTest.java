@@ -0,0 +1,80 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.util.impl;
+
+import ca.nengo.TestUtil;
+import ca.nengo.math.PDFTools;
+import ca.nengo.util.VectorGenerator;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for QuasiRandomHypersphereVG.
+ *
+ * @author agent
+ */
+public class QuasiRandomHypersphereVGTest extends TestCase {
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.QuasiRandomHypersphereVG.genVectors(int, int)'
+	 */
+	public void testGenVectors() {
+		VectorGenerator vg = new QuasiRandomHypersphereVG(true, 2f);
+		float[][] v = vg.genVectors(100, 3);
+		for (int i = 0; i < v.length; i++) {
+			float radius = (float) Math.pow(v[i][0]*v[i][0] + v[i][1]*v[i][1] + v[i][2]*v[i][2], .5);
+			TestUtil.assertClose(2f, radius, .0001f);
+		}
+
+		vg = new QuasiRandomHypersphereVG(false, 1f);
+		v = vg.genVectors(1000, 3);
+		float[] mean = new float[3];
+		int inner = 0;
+		for (int i = 0; i < v.length; i++) {
+			float radius = (float) Math.pow(v[i][0]*v[i][0] + v[i][1]*v[i][1] + v[i][2]*v[i][2], .5);
+			assertTrue(radius < 1f);
+			if (radius < Math.pow(.5, 1d/3d)) inner++;
+			for (int j = 0; j < 3; j++) {
+				mean[j] += v[i][j] / v.length;
+			}
+		}
+
+		//more even than pseudo-random points (SD of mean about .014, SD of inner count about 16)
+		for (int j = 0; j < 3; j++) {
+			TestUtil.assertClose(0f, mean[j], .005f);
+		}
+		assertTrue(Math.abs(inner - 500) <= 5);
+
+		vg = new QuasiRandomHypersphereVG(false, 1f);
+		v = vg.genVectors(100, 1);
+		int[] counts = new int[10];
+		for (int i = 0; i < v.length; i++) {
+			assertTrue(Math.abs(v[i][0]) < 1f);
+			counts[(int) Math.floor((v[i][0] + 1) * 5)]++;
+		}
+		for (int i = 0; i < counts.length; i++) { //SD about 3 for pseudo-random points
+			assertTrue(Math.abs(counts[i] - 10) <= 2);
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.QuasiRandomHypersphereVG.genVectors(int, int)'
+	 */
+	public void testBatches() {
+		PDFTools.setSeed(1);
+		QuasiRandomHypersphereVG vg = new QuasiRandomHypersphereVG(false, 1f);
+		float[][] first = vg.genVectors(10, 4);
+		float[][] second = vg.genVectors(10, 4);
+
+		PDFTools.setSeed(1);
+		vg.restart();
+		float[][] all = vg.genVectors(20, 4);
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals(first[i][j], all[i][j], 0f);
+				assertEquals(second[i][j], all[10+i][j], 0f);
+			}
+		}
+	}
+
+}
@@ -43,4 +43,55 @@ public class SpikePatternImplTest extends TestCase {
 		}
 	}
 
+	/*
+	 * Test method for 'ca.nengo.model.impl.SpikePatternImpl.getEvents(int[], float[])'
+	 */
+	public void testGetEvents() {
+		SpikePatternImpl sp = new SpikePatternImpl(1000000);
+		int[] neurons = new int[]{999999, 0, 5, 5, 999999, 12, 3};
+		float[] times = new float[]{-1.5f, -1.5f, .001f, .0013f, .0013f, 1000.25f, 2e-9f};
+		for (int i = 0; i < neurons.length; i++) {
+			sp.addSpike(neurons[i], times[i]);
+		}
+		assertEquals(neurons.length, sp.getNumSpikes());
+
+		int[] resultNeurons = new int[10];
+		float[] resultTimes = new float[10];
+		assertEquals(neurons.length, sp.getEvents(resultNeurons, resultTimes));
+		for (int i = 0; i < neurons.length; i++) {
+			assertEquals(neurons[i], resultNeurons[i]);
+			assertEquals(times[i], resultTimes[i]);
+		}
+
+		assertEquals(0, sp.getSpikeTimes(1).length);
+		assertEquals(2, sp.getSpikeTimes(5).length);
+		assertEquals(.0013f, sp.getSpikeTimes(5)[1]);
+		assertEquals(1.5f, -sp.getSpikeTimes(999999)[0]);
+
+		//view is rebuilt after more spikes are added
+		sp.addSpike(5, 2000f);
+		assertEquals(3, sp.getSpikeTimes(5).length);
+
+		try {
+			sp.addSpike(1000000, 0);
+			fail("Should have thrown exception");
+		} catch (IndexOutOfBoundsException e) {} //exception is expected
+	}
+
+	/*
+	 * Test method for 'ca.nengo.model.impl.SpikePatternImpl.clone()'
+	 */
+	public void testClone() throws CloneNotSupportedException {
+		SpikePatternImpl sp = new SpikePatternImpl(3);
+		sp.addSpike(2, 1);
+		SpikePatternImpl copy = (SpikePatternImpl) sp.clone();
+		sp.addSpike(2, 2);
+		copy.addSpike(1, 3);
+
+		assertEquals(2, sp.getSpikeTimes(2).length);
+		assertEquals(0, sp.getSpikeTimes(1).length);
+		assertEquals(1, copy.getSpikeTimes(2).length);
+		assertEquals(3f, copy.getSpikeTimes(1)[0]);
+	}
+
 }
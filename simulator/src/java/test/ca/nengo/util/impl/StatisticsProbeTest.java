@@ -0,0 +1,94 @@
+/*
+ * Created on 19-Oct-2026
+ */
+package ca.nengo.util.impl;
+
+import ca.nengo.model.SimulationException;
+import ca.nengo.util.TimeSeries;
+import ca.nengo.util.impl.FilteredProbeTest.MockProbeable;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for StatisticsProbe.
+ *
+ * @author agent
+ */
+public class StatisticsProbeTest extends TestCase {
+
+	private MockProbeable myTarget;
+	private StatisticsProbe myProbe;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		myTarget = new MockProbeable();
+		myProbe = new StatisticsProbe();
+		myProbe.connect(myTarget, "x", true);
+	}
+
+	private void run(int steps, float dt) {
+		for (int i = 0; i < steps; i++) {
+			myTarget.myTime = (i+1) * dt;
+			myTarget.myValue = (i % 4 == 0) ? 1/dt : 0; //a spike every 4 steps
+			myProbe.collect(myTarget.myTime);
+		}
+	}
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.StatisticsProbe.getMean()'
+	 */
+	public void testStatistics() throws SimulationException {
+		run(400, .001f);
+
+		assertEquals(400, myProbe.getCount());
+		assertEquals(250f, myProbe.getMean()[0], .01f);
+		assertEquals(-250f, myProbe.getMean()[1], .01f);
+		assertEquals(1000f * 1000f * .25f * .75f * 400f / 399f, myProbe.getVariance()[0], 10f);
+		assertEquals(0f, myProbe.getMin()[0], 0f);
+		assertEquals(1000f, myProbe.getMax()[0], .001f);
+		assertEquals(-1000f, myProbe.getMin()[1], .001f);
+
+		TimeSeries data = myProbe.getData();
+		assertEquals(1, data.getTimes().length);
+		assertEquals(.4f, data.getTimes()[0], 1e-6f);
+		assertEquals(250f, data.getValues()[0][0], .01f);
+
+		myProbe.reset();
+		assertEquals(0, myProbe.getCount());
+		assertNull(myProbe.getMean());
+	}
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.StatisticsProbe.setWindow(float, boolean)'
+	 */
+	public void testSetWindow() throws SimulationException {
+		myProbe.setWindow(.1f, true);
+		run(1050, .001f);
+
+		TimeSeries data = myProbe.getData();
+		assertEquals(10, data.getTimes().length);
+		for (int i = 0; i < 10; i++) {
+			assertEquals((i+1) * .1f, data.getTimes()[i], 1e-5f);
+			assertEquals(25f, data.getValues()[i][0], .01f); //spikes per window
+		}
+
+		myProbe.setWindow(.1f, false);
+		run(200, .001f);
+		assertEquals(250f, myProbe.getData().getValues()[0][0], .01f);
+	}
+
+	/*
+	 * Test method for 'ca.nengo.util.impl.StatisticsProbe.getHistogram()'
+	 */
+	public void testGetHistogram() throws SimulationException {
+		myProbe.setHistogram(0, 1000, 4);
+		run(100, .001f);
+
+		long[] histogram = myProbe.getHistogram();
+		assertEquals(4, histogram.length);
+		assertEquals(75 + 75 + 25, histogram[0]); //zeros of both elements, and -1000 below the range
+		assertEquals(0, histogram[1]);
+		assertEquals(25, histogram[3]); //1000 at the upper edge of the last bin
+	}
+
+}